@@ -1,10 +1,13 @@
 package com.tecnocampus.backendtfg.api;
 
 import com.tecnocampus.backendtfg.application.ActivityService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.UserWriteTimeoutException;
 import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
 import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,15 +20,21 @@ public class ActivityRestController {
 
     private final ActivityService activityService;
 
-    public ActivityRestController(ActivityService activityService) {
+    // Las escrituras pasan por el buzón del usuario, que las aplica de una en una
+    private final UserWriteMailbox userWriteMailbox;
+
+    public ActivityRestController(ActivityService activityService, UserWriteMailbox userWriteMailbox) {
         this.activityService = activityService;
+        this.userWriteMailbox = userWriteMailbox;
     }
 
     @PostMapping("/createActivity")
     public ResponseEntity<String> createActivity(HttpServletRequest request, @RequestBody ActivityDTO activityDTO) {
         String token = getTokenAuthFromRequest(request);
         try{
-            activityService.createActivity(activityDTO,token);
+            userWriteMailbox.submit(token, () -> activityService.createActivity(activityDTO, token));
+        }catch (UserWriteTimeoutException e){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         }catch (Exception e){
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -34,15 +43,38 @@ public class ActivityRestController {
 
     @DeleteMapping("/deleteActivity")
     public ResponseEntity<String> deleteActivity(@RequestBody ActivityDTO activityDTO,String email) {
-        activityService.deleteActivity(activityDTO,email);
+        userWriteMailbox.submitForEmail(email, () -> activityService.deleteActivity(activityDTO, email));
         return ResponseEntity.ok("Activity deleted");
     }
     @PutMapping("/updateActivity")
     public ResponseEntity<String> updateActivity(@RequestBody ActivityDTO activityDTO,String email) {
-        activityService.updateActivity(activityDTO,email);
+        userWriteMailbox.submitForEmail(email, () -> activityService.updateActivity(activityDTO, email));
+        return ResponseEntity.ok("Activity updated");
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<String> updateActivityById(HttpServletRequest request, @PathVariable String id,
+                                                     @RequestBody ActivityDTO activityDTO) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            userWriteMailbox.submit(token, () -> activityService.updateActivityById(id, activityDTO, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
         return ResponseEntity.ok("Activity updated");
     }
 
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteActivityById(HttpServletRequest request, @PathVariable String id) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            userWriteMailbox.submit(token, () -> activityService.deleteActivityById(id, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        return ResponseEntity.ok("Activity deleted");
+    }
+
     @GetMapping("/getActivities")
     public ResponseEntity<?> getActivities(
             HttpServletRequest request,
@@ -55,7 +87,8 @@ public class ActivityRestController {
     @PostMapping("/addObjective")
     public ResponseEntity<String> addObjective(HttpServletRequest request, @RequestBody Integer dailyActivityObjective) {
         System.out.println(dailyActivityObjective);
-        activityService.addObjective(getTokenAuthFromRequest(request),dailyActivityObjective);
+        String token = getTokenAuthFromRequest(request);
+        userWriteMailbox.submit(token, () -> activityService.addObjective(token, dailyActivityObjective));
         return ResponseEntity.ok("Objective added");
     }
 
@@ -71,7 +104,10 @@ public class ActivityRestController {
 
     @PostMapping("/addDailySteps")
     public ResponseEntity<?> addDailySteps(HttpServletRequest request, @RequestBody DailyStepsDTO dailyStepsDTO) {
-        activityService.addDailySteps(getTokenAuthFromRequest(request), dailyStepsDTO);
+        String token = getTokenAuthFromRequest(request);
+        // Los envíos del mismo día que coincidan en el buzón se quedan en el de más pasos
+        userWriteMailbox.submitSteps(token, dailyStepsDTO.getDate(), dailyStepsDTO.getSteps(),
+                () -> activityService.addDailySteps(token, dailyStepsDTO));
         return ResponseEntity.ok("Daily steps added");
     }
 
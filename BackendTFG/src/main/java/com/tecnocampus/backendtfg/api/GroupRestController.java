@@ -0,0 +1,92 @@
+package com.tecnocampus.backendtfg.api;
+
+import com.tecnocampus.backendtfg.application.GroupChallengeService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.dto.GroupChallengeDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupJoinRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/groups")
+public class GroupRestController {
+
+    private final GroupChallengeService groupChallengeService;
+
+    // Las altas, bajas y retos del usuario pasan por su buzón, como el resto de sus escrituras
+    private final UserWriteMailbox userWriteMailbox;
+
+    public GroupRestController(GroupChallengeService groupChallengeService, UserWriteMailbox userWriteMailbox) {
+        this.groupChallengeService = groupChallengeService;
+        this.userWriteMailbox = userWriteMailbox;
+    }
+
+    private String getTokenAuthFromRequest(HttpServletRequest request) {
+        return request.getHeader("Authorization");
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createGroup(HttpServletRequest request, @RequestBody GroupDTO groupDTO) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            return ResponseEntity.ok(userWriteMailbox.submit(token, () -> groupChallengeService.createGroup(token, groupDTO)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<GroupDTO>> getUserGroups(HttpServletRequest request) {
+        return ResponseEntity.ok(groupChallengeService.getUserGroups(getTokenAuthFromRequest(request)));
+    }
+
+    @PostMapping("/{groupId}/join")
+    public ResponseEntity<?> joinGroup(HttpServletRequest request, @PathVariable String groupId,
+                                       @RequestBody(required = false) GroupJoinRequest joinRequest) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            String inviteCode = joinRequest == null ? null : joinRequest.getInviteCode();
+            userWriteMailbox.submit(token, () -> groupChallengeService.joinGroup(token, groupId, inviteCode));
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{groupId}/members")
+    public ResponseEntity<?> leaveGroup(HttpServletRequest request, @PathVariable String groupId) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            userWriteMailbox.submit(token, () -> groupChallengeService.leaveGroup(token, groupId));
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{groupId}/challenges")
+    public ResponseEntity<?> createGroupChallenge(HttpServletRequest request, @PathVariable String groupId,
+                                                  @RequestBody GroupChallengeDTO challengeDTO) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            return ResponseEntity.ok(userWriteMailbox.submit(token,
+                    () -> groupChallengeService.createGroupChallenge(token, groupId, challengeDTO)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{groupId}/challenges")
+    public ResponseEntity<?> getGroupChallenges(HttpServletRequest request, @PathVariable String groupId) {
+        try {
+            return ResponseEntity.ok(groupChallengeService.getGroupChallenges(getTokenAuthFromRequest(request), groupId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.tecnocampus.backendtfg.api;
+
+import com.tecnocampus.backendtfg.application.HeartRateService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.dto.HeartRateSampleDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+
+@RequestMapping("/heartrate")
+@RestController
+public class HeartRateRestController {
+
+    private final HeartRateService heartRateService;
+
+    // Las escrituras pasan por el buzón del usuario, que las aplica de una en una
+    private final UserWriteMailbox userWriteMailbox;
+
+    public HeartRateRestController(HeartRateService heartRateService, UserWriteMailbox userWriteMailbox) {
+        this.heartRateService = heartRateService;
+        this.userWriteMailbox = userWriteMailbox;
+    }
+
+    @PostMapping("/samples")
+    public ResponseEntity<?> addSamples(HttpServletRequest request, @RequestBody List<HeartRateSampleDTO> samples) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            return ResponseEntity.ok(userWriteMailbox.submit(token, () -> heartRateService.ingestSamples(token, samples)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getSeries(HttpServletRequest request,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                       @RequestParam(defaultValue = "300") int resolution) {
+        try {
+            return ResponseEntity.ok(heartRateService.getSeries(getTokenAuthFromRequest(request), from, to, resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private String getTokenAuthFromRequest(HttpServletRequest request) {
+        return request.getHeader("Authorization");
+    }
+}
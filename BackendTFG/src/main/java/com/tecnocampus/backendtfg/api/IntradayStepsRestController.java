@@ -0,0 +1,63 @@
+package com.tecnocampus.backendtfg.api;
+
+import com.tecnocampus.backendtfg.application.IntradayStepsService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.dto.StepIntervalDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RequestMapping("/activity/steps")
+@RestController
+public class IntradayStepsRestController {
+
+    private final IntradayStepsService intradayStepsService;
+
+    // Las escrituras pasan por el buzón del usuario, que las aplica de una en una
+    private final UserWriteMailbox userWriteMailbox;
+
+    public IntradayStepsRestController(IntradayStepsService intradayStepsService, UserWriteMailbox userWriteMailbox) {
+        this.intradayStepsService = intradayStepsService;
+        this.userWriteMailbox = userWriteMailbox;
+    }
+
+    @PostMapping("/intraday")
+    public ResponseEntity<?> addIntervals(HttpServletRequest request, @RequestBody List<StepIntervalDTO> intervals) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            return ResponseEntity.ok(userWriteMailbox.submit(token, () -> intradayStepsService.ingestIntervals(token, intervals)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/intraday")
+    public ResponseEntity<?> getIntraday(HttpServletRequest request,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                         @RequestParam(defaultValue = "15") int resolution) {
+        try {
+            return ResponseEntity.ok(intradayStepsService.getIntraday(getTokenAuthFromRequest(request), date, resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/byHour")
+    public ResponseEntity<?> getStepsByHour(HttpServletRequest request,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(intradayStepsService.getStepsByHour(getTokenAuthFromRequest(request), from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private String getTokenAuthFromRequest(HttpServletRequest request) {
+        return request.getHeader("Authorization");
+    }
+}
@@ -0,0 +1,50 @@
+package com.tecnocampus.backendtfg.api;
+
+import com.tecnocampus.backendtfg.application.LeaderboardService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/leaderboard")
+public class LeaderboardRestController {
+
+    private final LeaderboardService leaderboardService;
+
+    public LeaderboardRestController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    private String getTokenAuthFromRequest(HttpServletRequest request) {
+        return request.getHeader("Authorization");
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getTop(HttpServletRequest request, @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getTop(getTokenAuthFromRequest(request), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/around")
+    public ResponseEntity<?> getAround(HttpServletRequest request, @RequestParam(defaultValue = "5") int radius) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getAround(getTokenAuthFromRequest(request), radius));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/groups/{groupId}")
+    public ResponseEntity<?> getGroupTop(HttpServletRequest request, @PathVariable String groupId,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(leaderboardService.getGroupTop(getTokenAuthFromRequest(request), groupId, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+}
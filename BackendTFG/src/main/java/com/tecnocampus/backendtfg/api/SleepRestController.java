@@ -1,9 +1,11 @@
 package com.tecnocampus.backendtfg.api;
 
 import com.tecnocampus.backendtfg.application.SleepService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
 import com.tecnocampus.backendtfg.application.dto.SleepDTO;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,29 +17,60 @@ public class SleepRestController {
 
     private final SleepService sleepService;
 
-    public SleepRestController(SleepService sleepService) {
+    // Las escrituras pasan por el buzón del usuario, que las aplica de una en una
+    private final UserWriteMailbox userWriteMailbox;
+
+    public SleepRestController(SleepService sleepService, UserWriteMailbox userWriteMailbox) {
         this.sleepService = sleepService;
+        this.userWriteMailbox = userWriteMailbox;
     }
 
     @PostMapping("/createSleep")
-    public ResponseEntity<SleepDTO> createSleep(HttpServletRequest request, @RequestBody SleepDTO sleepDTO) {
+    public ResponseEntity<?> createSleep(HttpServletRequest request, @RequestBody SleepDTO sleepDTO) {
         String token = getTokenAuthFromRequest(request);
-        sleepService.createSleep(sleepDTO,token);
+        try {
+            userWriteMailbox.submit(token, () -> sleepService.createSleep(sleepDTO, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok(sleepDTO);
     }
 
     @DeleteMapping("/deleteSleep")
     public ResponseEntity<String> deleteSleep(@RequestBody SleepDTO sleepDTO, String email) {
-        sleepService.deleteSleep(sleepDTO,email);
+        userWriteMailbox.submitForEmail(email, () -> sleepService.deleteSleep(sleepDTO, email));
         return ResponseEntity.ok("Sleep deleted");
     }
 
     @PutMapping("/updateSleep")
     public ResponseEntity<String> updateSleep(@RequestBody SleepDTO sleepDTO, String email) {
-        sleepService.updateSleep(sleepDTO,email);
+        userWriteMailbox.submitForEmail(email, () -> sleepService.updateSleep(sleepDTO, email));
+        return ResponseEntity.ok("Sleep updated");
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<String> updateSleepById(HttpServletRequest request, @PathVariable String id,
+                                                  @RequestBody SleepDTO sleepDTO) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            userWriteMailbox.submit(token, () -> sleepService.updateSleepById(id, sleepDTO, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
         return ResponseEntity.ok("Sleep updated");
     }
 
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteSleepById(HttpServletRequest request, @PathVariable String id) {
+        try {
+            String token = getTokenAuthFromRequest(request);
+            userWriteMailbox.submit(token, () -> sleepService.deleteSleepById(id, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        return ResponseEntity.ok("Sleep deleted");
+    }
+
     @GetMapping("/getSleeps")
     public ResponseEntity<?> getSleeps(HttpServletRequest request,
                                        @RequestParam(required = false)
@@ -50,7 +83,7 @@ public class SleepRestController {
     @PostMapping("/addObjective")
     public ResponseEntity<String> addObjective(HttpServletRequest request, @RequestBody double dailyObjectiveSleep) {
         String token = getTokenAuthFromRequest(request);
-        sleepService.addObjective(token,dailyObjectiveSleep);
+        userWriteMailbox.submit(token, () -> sleepService.addObjective(token, dailyObjectiveSleep));
         return ResponseEntity.ok("Objective added");
     }
 
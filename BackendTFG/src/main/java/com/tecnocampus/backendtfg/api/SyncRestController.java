@@ -0,0 +1,103 @@
+package com.tecnocampus.backendtfg.api;
+
+import com.tecnocampus.backendtfg.application.HealthConnectSyncService;
+import com.tecnocampus.backendtfg.application.HealthExportImportService;
+import com.tecnocampus.backendtfg.application.ImportTooLargeException;
+import com.tecnocampus.backendtfg.application.SyncChangeService;
+import com.tecnocampus.backendtfg.application.SyncStateService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.dto.HealthConnectSyncDTO;
+import com.tecnocampus.backendtfg.application.dto.HealthConnectSyncResultDTO;
+import com.tecnocampus.backendtfg.application.dto.SyncStateDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RequestMapping("/sync")
+@RestController
+public class SyncRestController {
+
+    private final HealthConnectSyncService healthConnectSyncService;
+
+    private final SyncStateService syncStateService;
+
+    private final SyncChangeService syncChangeService;
+
+    private final HealthExportImportService healthExportImportService;
+
+    private final UserWriteMailbox userWriteMailbox;
+
+    public SyncRestController(HealthConnectSyncService healthConnectSyncService, SyncStateService syncStateService,
+                              SyncChangeService syncChangeService,
+                              HealthExportImportService healthExportImportService,
+                              UserWriteMailbox userWriteMailbox) {
+        this.healthConnectSyncService = healthConnectSyncService;
+        this.syncStateService = syncStateService;
+        this.syncChangeService = syncChangeService;
+        this.healthExportImportService = healthExportImportService;
+        this.userWriteMailbox = userWriteMailbox;
+    }
+
+    // El cuerpo es el fichero NDJSON tal cual (application/x-ndjson); se procesa en segundo plano
+    @PostMapping("/import")
+    public ResponseEntity<?> importExport(HttpServletRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(healthExportImportService.startImport(getTokenAuthFromRequest(request),
+                            request.getInputStream(), request.getContentLengthLong()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (ImportTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not read import file");
+        }
+    }
+
+    @GetMapping("/import/{id}")
+    public ResponseEntity<?> getImport(HttpServletRequest request, @PathVariable String id) {
+        try {
+            return ResponseEntity.ok(healthExportImportService.getImport(getTokenAuthFromRequest(request), id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(HttpServletRequest request,
+                                        @RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(syncChangeService.getChanges(getTokenAuthFromRequest(request), since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/state")
+    public ResponseEntity<List<SyncStateDTO>> getSyncState(HttpServletRequest request) {
+        return ResponseEntity.ok(syncStateService.getSyncState(getTokenAuthFromRequest(request)));
+    }
+
+    @PostMapping("/healthconnect")
+    public ResponseEntity<?> syncHealthConnect(HttpServletRequest request, @RequestBody HealthConnectSyncDTO syncDTO) {
+        try {
+            // Por el buzón del usuario: no se cruza con lo que la app esté escribiendo a la vez
+            String token = getTokenAuthFromRequest(request);
+            HealthConnectSyncResultDTO result = userWriteMailbox.submit(token, () -> healthConnectSyncService.sync(syncDTO, token));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private String getTokenAuthFromRequest(HttpServletRequest request) {
+        return request.getHeader("Authorization");
+    }
+}
@@ -1,20 +1,28 @@
 package com.tecnocampus.backendtfg.api;
 
+import com.tecnocampus.backendtfg.application.UnsupportedImageTypeException;
 import com.tecnocampus.backendtfg.application.UserService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
 import com.tecnocampus.backendtfg.application.dto.DataProfileDTO;
+import com.tecnocampus.backendtfg.application.dto.ProfileImageDTO;
 import com.tecnocampus.backendtfg.application.dto.UserDTO;
 import com.tecnocampus.backendtfg.domain.User;
 import com.tecnocampus.backendtfg.domain.UserImage;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.Getter;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.util.Map;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
 
 @RequestMapping("/user")
 @RestController
@@ -22,8 +30,11 @@ public class UserRestController {
 
     private final UserService userService;
 
-    public UserRestController(UserService userService) {
+    private final UserWriteMailbox userWriteMailbox;
+
+    public UserRestController(UserService userService, UserWriteMailbox userWriteMailbox) {
         this.userService = userService;
+        this.userWriteMailbox = userWriteMailbox;
     }
 
     /*
@@ -47,7 +58,7 @@ public class UserRestController {
     @PostMapping("/setDataProfile")
     public ResponseEntity<String> setDataProfile(HttpServletRequest request, @RequestBody DataProfileDTO dataProfileDTO) {
         String token = getTokenAuthFromRequest(request);
-        userService.setDataProfile(token,dataProfileDTO);
+        userWriteMailbox.submit(token, () -> userService.setDataProfile(token, dataProfileDTO));
         return ResponseEntity.ok("Data profile updated");
     }
 
@@ -72,6 +83,8 @@ public class UserRestController {
             return ResponseEntity.ok().body("Imagen de perfil guardada con éxito");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (UnsupportedImageTypeException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error al procesar la imagen: " + e.getMessage());
@@ -85,8 +98,10 @@ public class UserRestController {
     public ResponseEntity<?> getProfileImage(HttpServletRequest request) {
         try {
             String token = getTokenAuthFromRequest(request);
-            Map<String, String> imageData = userService.getUserProfileImageAsBase64(token);
-            return ResponseEntity.ok(imageData);
+            ProfileImageDTO profileImage = userService.getUserProfileImage(token);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .body(profileImage);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         } catch (Exception e) {
@@ -95,6 +110,57 @@ public class UserRestController {
         }
     }
 
+    @GetMapping("/profile-image/{contentHash}")
+    public ResponseEntity<?> getProfileImageContent(WebRequest webRequest, @PathVariable String contentHash,
+                                                    @RequestParam(required = false) Integer size) {
+        ProfileImageDTO profileImage;
+        try {
+            profileImage = userService.getProfileImageByHash(contentHash, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+
+        // El contenido de una URL con hash no cambia: el cliente puede guardarlo indefinidamente.
+        // Si se pidió una variante que aún se está generando, se sirve el original sin cachear.
+        boolean pendingVariant = size != null && profileImage.getVariantSize() == null;
+        CacheControl cacheControl = pendingVariant
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+        String servedHash = profileImage.getContentHash();
+        String etag = "\"" + servedHash + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        StreamingResponseBody body = outputStream ->
+                userService.writeProfileImage(servedHash, Channels.newChannel(outputStream));
+        // nosniff: el navegador no debe reinterpretar los bytes como otra cosa (p. ej. HTML)
+        return ResponseEntity.ok()
+                .contentType(servedImageType(profileImage.getImageType()))
+                .header("X-Content-Type-Options", "nosniff")
+                .contentLength(profileImage.getSize())
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(body);
+    }
+
+    // Imágenes guardadas antes de validar el tipo en la subida pueden traer cualquier valor
+    private static MediaType servedImageType(String imageType) {
+        if (imageType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(imageType);
+            return "image".equals(mediaType.getType()) && !mediaType.getSubtype().contains("svg")
+                    ? mediaType : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
     private String getTokenAuthFromRequest(HttpServletRequest request) {
         return request.getHeader("Authorization");
     }
@@ -0,0 +1,96 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.domain.ChallengeType;
+import com.tecnocampus.backendtfg.persistence.ChallengeRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice en memoria de los tipos de reto que cada usuario tiene sin completar, guardados como
+ * máscara de bits (un int por usuario). Se carga al primer uso de cada usuario y se invalida al
+ * generar, completar o limpiar retos, así que las escrituras de usuarios sin un reto del tipo
+ * no llegan a la base de datos.
+ *
+ * Una carga que coincide con una invalidación no deja en el índice lo que leyó: tras guardarla
+ * se comprueba el contador de invalidaciones y, si ha cambiado, se descarta.
+ */
+@Component
+public class ActiveChallengeIndex {
+
+    private static final int MAX_USERS = 100_000;
+
+    private final ChallengeRepository challengeRepository;
+
+    private final Map<String, Integer> activeTypes = new ConcurrentHashMap<>();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ActiveChallengeIndex(ChallengeRepository challengeRepository) {
+        this.challengeRepository = challengeRepository;
+    }
+
+    public boolean hasActive(String userId, ChallengeType type) {
+        return (activeMask(userId) & bit(type)) != 0;
+    }
+
+    /**
+     * Olvida los retos del usuario. Dentro de una transacción se repite al confirmarla, para que
+     * una carga concurrente no se quede con lo que había antes del commit.
+     */
+    public void invalidate(String userId) {
+        invalidate(List.of(userId));
+    }
+
+    public void invalidate(Collection<String> userIds) {
+        evict(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userIds);
+                }
+            });
+        }
+    }
+
+    private int activeMask(String userId) {
+        Integer cached = activeTypes.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = invalidations.get();
+        int mask = 0;
+        for (ChallengeType type : challengeRepository.findActiveTypesByUserId(userId)) {
+            mask |= bit(type);
+        }
+
+        if (activeTypes.size() >= MAX_USERS) {
+            activeTypes.clear();
+        }
+        activeTypes.putIfAbsent(userId, mask);
+        if (invalidations.get() != stamp) {
+            activeTypes.remove(userId, mask);
+        }
+        return mask;
+    }
+
+    private void evict(Collection<String> userIds) {
+        // Primero el contador: una carga en curso verá el cambio y quitará lo que haya puesto
+        invalidations.incrementAndGet();
+        for (String userId : userIds) {
+            activeTypes.remove(userId);
+        }
+    }
+
+    private static int bit(ChallengeType type) {
+        return 1 << type.ordinal();
+    }
+}
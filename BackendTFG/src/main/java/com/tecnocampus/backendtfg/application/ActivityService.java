@@ -8,11 +8,14 @@ import com.tecnocampus.backendtfg.domain.*;
 import com.tecnocampus.backendtfg.persistence.ActivityProfileRepository;
 import com.tecnocampus.backendtfg.persistence.ActivityRepository;
 import com.tecnocampus.backendtfg.persistence.DailyStepsRepository;
+import com.tecnocampus.backendtfg.persistence.HealthConnectActivityRepository;
 import com.tecnocampus.backendtfg.persistence.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +26,8 @@ public class ActivityService {
 
     private final ActivityRepository activityRepository;
 
+    private final HealthConnectActivityRepository healthConnectActivityRepository;
+
     private final UserRepository userRepository;
 
     private final ActivityProfileRepository activityProfileRepository;
@@ -31,20 +36,27 @@ public class ActivityService {
 
     private final ChallengeService challengeService;
 
+    private final HealthConnectIngestionService ingestionService;
+
     private final JwtUtils jwtUtils;
 
     public ActivityService(ActivityRepository activityRepository, UserRepository userRepository,
                            ActivityProfileRepository activityProfileRepository, JwtUtils jwtUtils,
                            DailyStepsRepository dailyStepsRepository,
-                           ChallengeService challengeService) {
+                           ChallengeService challengeService,
+                           HealthConnectActivityRepository healthConnectActivityRepository,
+                           HealthConnectIngestionService ingestionService) {
         this.activityRepository = activityRepository;
+        this.healthConnectActivityRepository = healthConnectActivityRepository;
         this.userRepository = userRepository;
         this.activityProfileRepository = activityProfileRepository;
         this.jwtUtils = jwtUtils;
         this.dailyStepsRepository = dailyStepsRepository;
         this.challengeService = challengeService;
+        this.ingestionService = ingestionService;
     }
 
+    @Transactional
     public void createActivity(ActivityDTO activityDTO, String token) {
         System.out.println(activityDTO.toString());
         String email = getEmailFromToken(token);
@@ -54,20 +66,40 @@ public class ActivityService {
         User user = userRepository.findByEmail(email);
         ActivityProfile activityProfile = user.getActivityProfile();
 
-        // Check for duplicate, especially important for Health Connect activities
-        if (activityDTO.getOrigin() == ActivityOrigin.HEALTH_CONNECT &&
-                isDuplicateActivity(activityDTO, activityProfile)) {
-            throw new IllegalArgumentException("Duplicate activity");
+        // Check for duplicate, especially important for Health Connect activities.
+        // Con id de Health Connect o clave de idempotencia basta la consulta por índice; sin ellos
+        // se compara con las existentes
+        if (activityDTO.getExternalId() != null && activityDTO.getExternalId().isBlank()) {
+            activityDTO.setExternalId(null);
+        }
+        if (activityDTO.getIdempotencyKey() != null && activityDTO.getIdempotencyKey().isBlank()) {
+            activityDTO.setIdempotencyKey(null);
+        }
+        if (activityDTO.getOrigin() == ActivityOrigin.HEALTH_CONNECT) {
+            boolean duplicate;
+            if (activityDTO.getExternalId() != null || activityDTO.getIdempotencyKey() != null) {
+                duplicate = (activityDTO.getExternalId() != null
+                        && healthConnectActivityRepository.existsByActivityProfileAndExternalId(activityProfile, activityDTO.getExternalId()))
+                        || (activityDTO.getIdempotencyKey() != null
+                        && healthConnectActivityRepository.existsByActivityProfileAndIdempotencyKey(activityProfile, activityDTO.getIdempotencyKey()));
+            } else {
+                duplicate = isDuplicateActivity(activityDTO, activityProfile);
+            }
+            if (duplicate) {
+                throw new IllegalArgumentException("Duplicate activity");
+            }
         }
         AbstractActivity activity;
         if (activityDTO.getOrigin() != null && activityDTO.getOrigin() == ActivityOrigin.HEALTH_CONNECT) {
             // Instantiate a HealthConnectActivity.
-            activity = new HealthConnectActivity(activityDTO.getDuration(),
+            HealthConnectActivity healthConnectActivity = new HealthConnectActivity(activityDTO.getDuration(),
                     activityDTO.getDate(),
                     activityDTO.getType(),
                     activityDTO.getDescription(),
                     activityProfile);
-            activity.setOrigin(ActivityOrigin.HEALTH_CONNECT);
+            healthConnectActivity.setExternalId(activityDTO.getExternalId());
+            healthConnectActivity.setIdempotencyKey(activityDTO.getIdempotencyKey());
+            activity = healthConnectActivity;
         } else {
             // Default to AppActivity.
             activity = new AppActivity(activityDTO.getDuration(),
@@ -77,8 +109,8 @@ public class ActivityService {
                     activityProfile);
             activity.setOrigin(ActivityOrigin.APP);
         }
-        activity.calculateCalories();
-        challengeService.updateChallengeProgress(token, ChallengeType.ACTIVITY_DURATION,
+        calculateCalories(activity, email);
+        challengeService.recordProgress(user, ChallengeType.ACTIVITY_DURATION,
                 (int)activityDTO.getDuration());
         activityProfile.addActivity(activity);
         activityProfileRepository.save(activityProfile);
@@ -109,6 +141,36 @@ public class ActivityService {
         activityProfileRepository.save(activityProfile);
     }
 
+    public void updateActivityById(String id, ActivityDTO activityDTO, String token) {
+        String email = getEmailFromToken(token);
+        AbstractActivity activity = activityRepository.findByIdAndActivityProfileUserEmail(id, email)
+                .orElseThrow(() -> new IllegalArgumentException("Activity not found"));
+        if (activity instanceof HealthConnectActivity) {
+            ((HealthConnectActivity) activity).update(activityDTO);
+        } else {
+            ((AppActivity) activity).update(activityDTO);
+        }
+        calculateCalories(activity, email);
+        activityRepository.save(activity);
+    }
+
+    // Con la frecuencia cardíaca guardada de su ventana, como las que llegan de Health Connect o
+    // se recalculan: si no, editar una actividad cambiaría sus calorías por las del MET
+    private void calculateCalories(AbstractActivity activity, String email) {
+        if (activity.getDate() == null) {
+            activity.calculateCalories();
+            return;
+        }
+        activity.calculateCalories(ingestionService.loadHeartRate(email, List.of(new ActivityDTO(activity))));
+    }
+
+    public void deleteActivityById(String id, String token) {
+        String email = getEmailFromToken(token);
+        AbstractActivity activity = activityRepository.findByIdAndActivityProfileUserEmail(id, email)
+                .orElseThrow(() -> new IllegalArgumentException("Activity not found"));
+        activityRepository.delete(activity);
+    }
+
     public List<ActivityDTO> getActivities(String token, Date date) {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
@@ -156,11 +218,13 @@ public class ActivityService {
         return jwtUtils.extractEmail(token);
     }
 
+    @Transactional
     public void addDailySteps(String token, DailyStepsDTO dailyStepsDTO) {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
         ActivityProfile activityProfile = user.getActivityProfile();
-        DailySteps existingDailySteps = dailyStepsRepository.findByDay(dailyStepsDTO.getDate());
+        // Solo los pasos de este usuario: findByDay devolvía los de cualquiera con la misma fecha
+        DailySteps existingDailySteps = findDailySteps(dailyStepsDTO.getDate(), activityProfile);
 
         if (existingDailySteps != null) {
             if (existingDailySteps.getSteps() < dailyStepsDTO.getSteps()) {
@@ -175,7 +239,7 @@ public class ActivityService {
             dailySteps.setActivityProfile(activityProfile);
             activityProfile.addDailySteps(dailySteps);
             dailySteps.calculateCalories();
-            challengeService.updateChallengeProgress(token, ChallengeType.STEPS, dailyStepsDTO.getSteps());
+            challengeService.recordProgress(user, ChallengeType.STEPS, dailyStepsDTO.getSteps());
             activityProfileRepository.save(activityProfile);
             dailyStepsRepository.save(dailySteps);
         }
@@ -185,7 +249,8 @@ public class ActivityService {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
         ActivityProfile activityProfile = user.getActivityProfile();
-        DailyStepsDTO dailyStepsDTO = dailyStepsRepository.getDailyStepsDTOByDateAndActivityProfile(date, activityProfile);
+        DailyStepsDTO dailyStepsDTO = dailyStepsRepository.getDailyStepsDTOByActivityProfileAndDateBetween(activityProfile,
+                HealthConnectIngestionService.startOfDay(date), HealthConnectIngestionService.endOfDay(date));
         if (dailyStepsDTO == null ) {
             throw new IllegalArgumentException("No daily steps found for the given date");
         }
@@ -201,18 +266,21 @@ public class ActivityService {
     }
 
     private boolean isDuplicateActivity(ActivityDTO activityDTO, ActivityProfile activityProfile) {
-        if (activityDTO == null || activityProfile == null) {
+        if (activityDTO == null || activityProfile == null || activityDTO.getDate() == null) {
             return false;
         }
 
-        return activityProfile.getActivities().stream()
-                .anyMatch(existingActivity ->
-                        existingActivity.getType() == activityDTO.getType() &&
-                                existingActivity.getDate() != null &&
-                                activityDTO.getDate() != null &&
-                                Math.abs(existingActivity.getDate().getTime() - activityDTO.getDate().getTime()) < 60000 && // Within 1 minute
-                                Math.abs(existingActivity.getDuration() - activityDTO.getDuration()) < 0.1 && // Similar duration
-                                existingActivity.getOrigin() == activityDTO.getOrigin());
+        // Consulta por rango en lugar de recorrer todas las actividades del perfil; la misma sesión
+        // puede estar ya guardada desde la app con límites algo distintos
+        long start = activityDTO.getDate().getTime();
+        long end = start + Math.round(activityDTO.getDuration() * 60000);
+        return activityRepository.findByActivityProfileAndDateBetween(activityProfile,
+                        new Date(start - HealthConnectSyncService.MAX_SESSION_MILLIS), new Date(end)).stream()
+                .anyMatch(existing -> existing.getType() == activityDTO.getType()
+                        && existing.getDate() != null
+                        && IntervalTree.overlapRatio(start, end, existing.getDate().getTime(),
+                        existing.getDate().getTime() + Math.round(existing.getDuration() * 60000))
+                        >= HealthConnectSyncService.NEAR_DUPLICATE_OVERLAP);
     }
 
     private boolean isDuplicateDailySteps(DailyStepsDTO dailyStepsDTO, ActivityProfile activityProfile) {
@@ -221,8 +289,14 @@ public class ActivityService {
         }
 
         // Usar el repositorio para búsqueda por día
-        DailySteps existingDailySteps = dailyStepsRepository.findByDay(dailyStepsDTO.getDate());
-        return existingDailySteps != null;
+        return findDailySteps(dailyStepsDTO.getDate(), activityProfile) != null;
+    }
+
+    private DailySteps findDailySteps(Date date, ActivityProfile activityProfile) {
+        return dailyStepsRepository.findByActivityProfileAndDateBetween(activityProfile,
+                        HealthConnectIngestionService.startOfDay(date), HealthConnectIngestionService.endOfDay(date)).stream()
+                .max(Comparator.comparingInt(DailySteps::getSteps))
+                .orElse(null);
     }
 
     public double getTotalCalories(String token, Date date) {
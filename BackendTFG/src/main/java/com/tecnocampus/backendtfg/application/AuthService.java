@@ -17,10 +17,14 @@ public class AuthService {
 
     private final PasswordEncoder passwordEncoder;
 
-    public AuthService(UserRepository userRepository,JwtUtils jwtUtils, PasswordEncoder passwordEncoder) {
+    private final HydrationStatusCache hydrationStatusCache;
+
+    public AuthService(UserRepository userRepository,JwtUtils jwtUtils, PasswordEncoder passwordEncoder,
+                       HydrationStatusCache hydrationStatusCache) {
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
+        this.hydrationStatusCache = hydrationStatusCache;
     }
 
     public JwtDTO registerUser (UserDTO userDTO) {
@@ -74,6 +78,8 @@ public class AuthService {
             }
             User user = userRepository.findByEmail(email);
             userRepository.delete(user);
+            // Un registro posterior con el mismo email no debe ver el estado del usuario borrado
+            hydrationStatusCache.invalidate(email);
             return true;
         } catch (Exception e) {
             throw new RuntimeException("Error al eliminar usuario: " + e.getMessage());
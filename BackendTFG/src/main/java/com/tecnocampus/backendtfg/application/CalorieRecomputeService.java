@@ -0,0 +1,258 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.CalorieRowDTO;
+import com.tecnocampus.backendtfg.component.CalorieCalculator;
+import com.tecnocampus.backendtfg.component.HeartRateCalorieCalculator;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Mantiene el histórico de peso y recalcula las calorías guardadas cuando cambian los datos
+ * corporales. La petición que cambia el perfil solo registra el trabajo; el recálculo corre en
+ * recomputeExecutor por trozos de chunkSize filas, cada uno en su transacción: lectura por
+ * cursor de las columnas necesarias, cálculo en memoria y un único UPDATE masivo.
+ */
+@Service
+public class CalorieRecomputeService {
+
+    private static final List<RecomputePhase> UNFINISHED = List.of(RecomputePhase.ACTIVITIES, RecomputePhase.DAILY_STEPS);
+
+    private final CalorieRecomputeJobRepository jobRepository;
+
+    private final WeightEntryRepository weightEntryRepository;
+
+    private final ActivityRepository activityRepository;
+
+    private final DailyStepsRepository dailyStepsRepository;
+
+    private final HeartRateBlockRepository heartRateBlockRepository;
+
+    private final CalorieUpdateRepository calorieUpdateRepository;
+
+    private final SyncChangeLog syncChangeLog;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ThreadPoolTaskExecutor recomputeExecutor;
+
+    private final int chunkSize;
+
+    public CalorieRecomputeService(CalorieRecomputeJobRepository jobRepository,
+                                   WeightEntryRepository weightEntryRepository,
+                                   ActivityRepository activityRepository,
+                                   DailyStepsRepository dailyStepsRepository,
+                                   HeartRateBlockRepository heartRateBlockRepository,
+                                   CalorieUpdateRepository calorieUpdateRepository,
+                                   SyncChangeLog syncChangeLog,
+                                   PlatformTransactionManager transactionManager,
+                                   ThreadPoolTaskExecutor recomputeExecutor,
+                                   @Value("${calories.recompute.chunk-size:500}") int chunkSize) {
+        this.jobRepository = jobRepository;
+        this.weightEntryRepository = weightEntryRepository;
+        this.activityRepository = activityRepository;
+        this.dailyStepsRepository = dailyStepsRepository;
+        this.heartRateBlockRepository = heartRateBlockRepository;
+        this.calorieUpdateRepository = calorieUpdateRepository;
+        this.syncChangeLog = syncChangeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recomputeExecutor = recomputeExecutor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Se llama con el usuario ya guardado con sus datos nuevos. Un cambio de peso vale desde hoy:
+     * se anota en el histórico y se recalcula desde hoy. Un cambio de sexo o edad es una
+     * corrección y se recalcula todo el histórico.
+     */
+    public void onBodyDataChanged(User user, Double previousWeight, Gender previousGender, int previousAge) {
+        Date today = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date from = null;
+
+        if (user.getWeight() != null && !user.getWeight().equals(previousWeight)) {
+            if (previousWeight != null && !weightEntryRepository.existsByUser(user)) {
+                // Primer cambio: el peso anterior es el de todo lo registrado hasta hoy
+                weightEntryRepository.save(new WeightEntry(user, previousWeight, new Date(0)));
+            }
+            // Varios cambios en el mismo día dejan una sola entrada, la última
+            WeightEntry entry = weightEntryRepository.findByUserAndEffectiveFrom(user, today)
+                    .orElseGet(() -> new WeightEntry(user, user.getWeight(), today));
+            entry.setWeight(user.getWeight());
+            weightEntryRepository.save(entry);
+            from = previousWeight == null ? new Date(0) : today;
+        }
+        if (user.getGender() != previousGender || user.getAge() != previousAge) {
+            from = new Date(0);
+        }
+        if (from != null) {
+            schedule(user, from);
+        }
+    }
+
+    private void schedule(User user, Date from) {
+        // Un trabajo pendiente del mismo usuario se sustituye por uno que cubra los dos rangos
+        for (CalorieRecomputeJob pending : jobRepository.findByUserAndPhaseIn(user, UNFINISHED)) {
+            Date pendingFrom = pending.getPhase() == RecomputePhase.ACTIVITIES ? pending.getCursorDate() : pending.getFromDate();
+            if (pendingFrom.before(from)) {
+                from = pendingFrom;
+            }
+            jobRepository.supersede(pending.getId());
+        }
+        CalorieRecomputeJob job = jobRepository.save(new CalorieRecomputeJob(user, from));
+        submit(job.getId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        for (CalorieRecomputeJob job : jobRepository.findByPhaseInOrderByCreatedAtAsc(UNFINISHED)) {
+            System.out.println("Retomando recálculo de calorías " + job.getId());
+            submit(job.getId());
+        }
+    }
+
+    private void submit(String jobId) {
+        try {
+            recomputeExecutor.execute(() -> run(jobId));
+        } catch (TaskRejectedException e) {
+            // Queda guardado como pendiente y se retoma en el próximo arranque
+            System.out.println("Cola de recálculo llena, el trabajo " + jobId + " queda pendiente");
+        }
+    }
+
+    public void run(String jobId) {
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> processChunk(jobId)))) {
+                // Un trozo por transacción
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            System.out.println("Recálculo de calorías " + jobId + " sustituido por uno más reciente");
+        } catch (RuntimeException e) {
+            System.out.println("Error en el recálculo de calorías " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Procesa el siguiente trozo del trabajo y guarda el cursor. Devuelve false cuando ya no
+     * queda nada.
+     */
+    boolean processChunk(String jobId) {
+        CalorieRecomputeJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        User user = job.getUser();
+        ActivityProfile activityProfile = user.getActivityProfile();
+        boolean activities = job.getPhase() == RecomputePhase.ACTIVITIES;
+        PageRequest page = PageRequest.of(0, chunkSize);
+        List<CalorieRowDTO> rows = activityProfile == null ? List.of() : activities
+                ? activityRepository.findCalorieRowsAfter(activityProfile, job.getCursorDate(), job.getCursorId(), page)
+                : dailyStepsRepository.findCalorieRowsAfter(activityProfile, job.getCursorDate(), job.getCursorId(), page);
+
+        if (rows.isEmpty()) {
+            job.restartPhase(activities ? RecomputePhase.DAILY_STEPS : RecomputePhase.COMPLETED);
+            jobRepository.save(job);
+            return !job.isFinished();
+        }
+
+        WeightTimeline weights = new WeightTimeline(weightEntryRepository.findByUserOrderByEffectiveFromAsc(user), user.getWeight());
+        Map<LocalDate, HeartRateSeries> heartRate = activities ? loadHeartRate(user, rows) : Map.of();
+        Map<String, Double> changed = new LinkedHashMap<>();
+        for (CalorieRowDTO row : rows) {
+            double calories = activities
+                    ? activityCalories(user, row, weights.at(row.getDate()), heartRate)
+                    : CalorieCalculator.calculateCaloriesBurned(weights.at(row.getDate()), user.getGender(),
+                            TypeActivity.WALKING, row.getDuration());
+            if (calories != row.getCaloriesBurned()) {
+                changed.put(row.getId(), calories);
+            }
+        }
+
+        calorieUpdateRepository.updateCalories(activities ? "AbstractActivity" : "DailySteps", changed);
+        // El UPDATE masivo no pasa por ChangeTrackingListener: las cachés del cliente se enteran por aquí
+        ChangeEntityType entityType = activities ? ChangeEntityType.ACTIVITY : ChangeEntityType.DAILY_STEPS;
+        List<SyncChange> changes = new ArrayList<>(changed.size());
+        for (String id : changed.keySet()) {
+            changes.add(new SyncChange(user.getId(), entityType, id, ChangeOperation.UPSERT));
+        }
+        syncChangeLog.record(changes);
+
+        CalorieRowDTO last = rows.get(rows.size() - 1);
+        job.advance(last.getDate(), last.getId(), changed.size());
+        jobRepository.save(job);
+        return true;
+    }
+
+    private static double activityCalories(User user, CalorieRowDTO row, double weight,
+                                           Map<LocalDate, HeartRateSeries> heartRateByDay) {
+        long start = row.getDate().getTime();
+        long end = start + Math.round(row.getDuration() * 60000);
+        HeartRateSeries heartRate = HeartRateSeries.forWindow(heartRateByDay, start, end);
+        if (heartRate == null) {
+            return CalorieCalculator.calculateCaloriesBurned(weight, user.getGender(), row.getType(), row.getDuration());
+        }
+        return HeartRateCalorieCalculator.calculateCaloriesBurned(weight, user.getAge(), user.getGender(),
+                row.getType(), start, end, heartRate);
+    }
+
+    private Map<LocalDate, HeartRateSeries> loadHeartRate(User user, List<CalorieRowDTO> rows) {
+        Set<LocalDate> days = new HashSet<>();
+        for (CalorieRowDTO row : rows) {
+            long start = row.getDate().getTime();
+            days.add(toLocalDate(start));
+            days.add(toLocalDate(start + Math.round(row.getDuration() * 60000)));
+        }
+        Map<LocalDate, HeartRateSeries> heartRateByDay = new HashMap<>();
+        for (HeartRateBlock block : heartRateBlockRepository.findByUserEmailAndDayIn(user.getEmail(), days)) {
+            heartRateByDay.put(block.getDay(), block.getSeries());
+        }
+        return heartRateByDay;
+    }
+
+    private static LocalDate toLocalDate(long time) {
+        return new Date(time).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Peso vigente en cada fecha: la última entrada con effectiveFrom anterior o igual, o la
+     * primera si la fecha es anterior a todas. Sin histórico, el peso actual.
+     */
+    static final class WeightTimeline {
+        private final long[] from;
+        private final double[] weight;
+        private final double current;
+
+        WeightTimeline(List<WeightEntry> entries, Double current) {
+            this.from = new long[entries.size()];
+            this.weight = new double[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                from[i] = entries.get(i).getEffectiveFrom().getTime();
+                weight[i] = entries.get(i).getWeight();
+            }
+            this.current = current == null ? 0 : current;
+        }
+
+        double at(Date date) {
+            if (from.length == 0) {
+                return current;
+            }
+            int index = Arrays.binarySearch(from, date.getTime());
+            if (index < 0) {
+                index = -index - 2;
+            }
+            return weight[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.domain.ChallengeEvent;
+import com.tecnocampus.backendtfg.domain.ChallengeType;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.ChallengeEventRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aplica en segundo plano el progreso de retos guardado en el outbox (challenge_events). Cada
+ * lote suma los eventos por usuario y tipo, carga cada usuario y sus retos activos una sola vez
+ * y borra los eventos en la misma transacción: un evento se aplica exactamente una vez aunque
+ * el proceso se caiga a mitad.
+ *
+ * Se despierta tras el commit de cada escritura que genera eventos y, por si se pierde el aviso
+ * (reinicio, cola llena), cada pocos segundos.
+ */
+@Service
+public class ChallengeEventProcessor {
+
+    private final ChallengeEventRepository challengeEventRepository;
+
+    private final UserRepository userRepository;
+
+    private final ChallengeService challengeService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ThreadPoolTaskExecutor challengeExecutor;
+
+    private final int batchSize;
+
+    // Como mucho un drenado en cola: los avisos que llegan mientras tanto se agrupan en él
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final ReentrantLock draining = new ReentrantLock();
+
+    public ChallengeEventProcessor(ChallengeEventRepository challengeEventRepository, UserRepository userRepository,
+                                   ChallengeService challengeService, PlatformTransactionManager transactionManager,
+                                   ThreadPoolTaskExecutor challengeExecutor,
+                                   @Value("${challenges.events.batch-size:500}") int batchSize) {
+        this.challengeEventRepository = challengeEventRepository;
+        this.userRepository = userRepository;
+        this.challengeService = challengeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.challengeExecutor = challengeExecutor;
+        this.batchSize = batchSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventsRecorded(ChallengeEventsRecorded event) {
+        wakeUp();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${challenges.events.poll-millis:5000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            challengeExecutor.execute(() -> {
+                scheduled.set(false);
+                drain();
+            });
+        } catch (TaskRejectedException e) {
+            scheduled.set(false);
+        }
+    }
+
+    /**
+     * Procesa lotes hasta vaciar el outbox. Devuelve el número de eventos aplicados.
+     */
+    public int drain() {
+        if (!draining.tryLock()) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            int processed;
+            do {
+                processed = Objects.requireNonNullElse(transactionTemplate.execute(status -> processBatch()), 0);
+                total += processed;
+            } while (processed == batchSize);
+            return total;
+        } catch (RuntimeException e) {
+            System.out.println("Error al aplicar el progreso de retos: " + e.getMessage());
+            return 0;
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    private int processBatch() {
+        List<ChallengeEvent> events = challengeEventRepository.findByOrderByCreatedAtAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Map<ChallengeType, Integer>> totals = new HashMap<>();
+        for (ChallengeEvent event : events) {
+            totals.computeIfAbsent(event.getUserId(), id -> new EnumMap<>(ChallengeType.class))
+                    .merge(event.getType(), event.getValue(), Integer::sum);
+        }
+        for (User user : userRepository.findAllById(totals.keySet())) {
+            challengeService.applyProgress(user, totals.get(user.getId()));
+        }
+        // Los eventos de usuarios ya borrados se descartan con el resto
+        challengeEventRepository.deleteAllInBatch(events);
+        return events.size();
+    }
+}
@@ -0,0 +1,8 @@
+package com.tecnocampus.backendtfg.application;
+
+/**
+ * Aviso en memoria de que hay ChallengeEvent nuevos en el outbox. Lo que se procesa son las
+ * filas guardadas; el aviso solo evita esperar al siguiente sondeo.
+ */
+public record ChallengeEventsRecorded(String userId) {
+}
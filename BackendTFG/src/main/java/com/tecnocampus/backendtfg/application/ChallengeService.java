@@ -1,15 +1,23 @@
 package com.tecnocampus.backendtfg.application;
 
+import com.tecnocampus.backendtfg.application.dto.ChallengeBasisDTO;
 import com.tecnocampus.backendtfg.application.dto.ChallengeDTO;
+import com.tecnocampus.backendtfg.application.dto.ChallengeOwnerDTO;
+import com.tecnocampus.backendtfg.application.dto.ChallengeRewardDTO;
 import com.tecnocampus.backendtfg.application.dto.LevelDTO;
 import com.tecnocampus.backendtfg.component.JwtUtils;
 import com.tecnocampus.backendtfg.domain.*;
-import com.tecnocampus.backendtfg.persistence.ChallengeRepository;
-import com.tecnocampus.backendtfg.persistence.UserRepository;
+import com.tecnocampus.backendtfg.persistence.*;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,12 +25,30 @@ public class ChallengeService {
 
     private final UserRepository userRepository;
     private final ChallengeRepository challengeRepository;
+    private final ChallengeEventRepository challengeEventRepository;
+    private final ActiveChallengeIndex activeChallengeIndex;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final SyncChangeLog syncChangeLog;
+    private final GroupChallengeService groupChallengeService;
+    private final ExperienceService experienceService;
+    private final ApplicationEventPublisher eventPublisher;
     private final JwtUtils jwtUtils;
-    private final Random random = new Random();
 
-    public ChallengeService(UserRepository userRepository, ChallengeRepository challengeRepository, JwtUtils jwtUtils) {
+    public ChallengeService(UserRepository userRepository, ChallengeRepository challengeRepository,
+                            ChallengeEventRepository challengeEventRepository,
+                            ActiveChallengeIndex activeChallengeIndex, BulkInsertRepository bulkInsertRepository,
+                            SyncChangeLog syncChangeLog, GroupChallengeService groupChallengeService,
+                            ExperienceService experienceService,
+                            ApplicationEventPublisher eventPublisher, JwtUtils jwtUtils) {
         this.userRepository = userRepository;
         this.challengeRepository = challengeRepository;
+        this.challengeEventRepository = challengeEventRepository;
+        this.activeChallengeIndex = activeChallengeIndex;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.syncChangeLog = syncChangeLog;
+        this.groupChallengeService = groupChallengeService;
+        this.experienceService = experienceService;
+        this.eventPublisher = eventPublisher;
         this.jwtUtils = jwtUtils;
     }
 
@@ -32,57 +58,84 @@ public class ChallengeService {
         return new LevelDTO(user.getLevel());
     }
 
+    /**
+     * Devuelve los retos del día. Los genera el trabajo de medianoche (DailyChallengeScheduler):
+     * aquí solo se crean si el usuario aún no tiene, porque se ha registrado hoy o el trabajo
+     * todavía no ha llegado a él.
+     */
+    @Transactional
     public List<ChallengeDTO> generateDailyChallenges(String token) {
         String email = jwtUtils.extractEmail(token);
         User user = userRepository.findByEmail(email);
 
-        // Eliminar retos antiguos no completados
-        cleanOldChallenges(user);
-
-        // Comprobar si ya tiene retos activos hoy
-        Calendar today = Calendar.getInstance();
-        today.set(Calendar.HOUR_OF_DAY, 0);
-        today.set(Calendar.MINUTE, 0);
-        today.set(Calendar.SECOND, 0);
+        Date today = startOfToday();
+        List<Challenge> todayChallenges = challengeRepository.findByUserAndCreationDateAfter(user, today);
+        if (todayChallenges.isEmpty()) {
+            generateForUsers(List.of(user.getId()), today);
+            todayChallenges = challengeRepository.findByUserAndCreationDateAfter(user, today);
+        }
+        return todayChallenges.stream()
+                .map(ChallengeDTO::new)
+                .collect(Collectors.toList());
+    }
 
-        List<Challenge> todayChallenges = challengeRepository.findByUserAndCreationDateAfter(user, today.getTime());
-        if (todayChallenges.size() >= 3) {
-            return todayChallenges.stream()
-                    .map(ChallengeDTO::new)
-                    .collect(Collectors.toList());
+    /**
+     * Borra los retos sin completar de días anteriores y genera los del día para los usuarios
+     * que aún no los tienen. Pensado para trozos de usuarios: un DELETE masivo, una sola
+     * consulta con los datos de todos y las inserciones por lotes. Necesita una transacción.
+     */
+    public int generateForUsers(Collection<String> userIds, Date day) {
+        List<ChallengeOwnerDTO> expired = challengeRepository.findExpired(userIds, day);
+        if (!expired.isEmpty()) {
+            challengeRepository.deleteByIdIn(expired.stream().map(ChallengeOwnerDTO::getId).toList());
+            // El DELETE masivo no pasa por ChangeTrackingListener: los clientes se enteran por aquí
+            List<SyncChange> changes = new ArrayList<>(expired.size());
+            for (ChallengeOwnerDTO challenge : expired) {
+                changes.add(new SyncChange(challenge.getUserId(), ChangeEntityType.CHALLENGE,
+                        challenge.getId(), ChangeOperation.DELETE));
+            }
+            syncChangeLog.record(changes);
         }
 
-        // Generar nuevos retos
+        Date stepsSince = Date.from(day.toInstant().minus(7, ChronoUnit.DAYS));
         List<Challenge> newChallenges = new ArrayList<>();
+        for (ChallengeBasisDTO basis : challengeRepository.findChallengeBasis(userIds, day, stepsSince)) {
+            // Referencia sin cargar: el reto solo necesita la clave del usuario
+            User user = userRepository.getReferenceById(basis.getUserId());
+            newChallenges.addAll(createDailyChallenges(user, basis));
+        }
+        bulkInsertRepository.insertAll(newChallenges);
+
+        activeChallengeIndex.invalidate(userIds);
+        return newChallenges.size();
+    }
+
+    private List<Challenge> createDailyChallenges(User user, ChallengeBasisDTO basis) {
+        Random random = ThreadLocalRandom.current();
 
         // Obtener todos los tipos de desafíos disponibles
         List<ChallengeType> availableTypes = new ArrayList<>(Arrays.asList(ChallengeType.values()));
-        Collections.shuffle(availableTypes);
+        Collections.shuffle(availableTypes, random);
 
         // Determinar cuántos desafíos crear (mínimo 3, máximo según tipos disponibles)
         int numChallengesToCreate = Math.min(3 + random.nextInt(availableTypes.size() - 2), availableTypes.size());
         numChallengesToCreate = Math.max(numChallengesToCreate, 3); // Garantizar mínimo 3
 
         // Generar los desafíos
+        List<Challenge> challenges = new ArrayList<>();
         for (int i = 0; i < numChallengesToCreate; i++) {
-            ChallengeType type = availableTypes.get(i);
-            Challenge challenge = createChallengeByType(type, user);
+            Challenge challenge = createChallengeByType(availableTypes.get(i), user, basis, random);
             if (challenge != null) {
-                user.addChallenge(challenge);
-                newChallenges.add(challenge);
+                challenges.add(challenge);
             }
         }
-
-        userRepository.save(user);
-        return newChallenges.stream()
-                .map(ChallengeDTO::new)
-                .collect(Collectors.toList());
+        return challenges;
     }
 
-    private Challenge createChallengeByType(ChallengeType type, User user) {
+    private Challenge createChallengeByType(ChallengeType type, User user, ChallengeBasisDTO basis, Random random) {
         switch (type) {
             case STEPS:
-                int targetSteps = getTargetSteps(user);
+                int targetSteps = getTargetSteps(basis, random);
                 return new Challenge(
                         "Caminar " + targetSteps + " pasos hoy",
                         20,
@@ -102,8 +155,8 @@ public class ChallengeService {
                 );
 
             case SLEEP_HOURS:
-                double targetHours = Math.round((user.getSleepProfile().getDailyObjectiveSleep() > 0
-                        ? user.getSleepProfile().getDailyObjectiveSleep()
+                double targetHours = Math.round((basis.getDailyObjectiveSleep() > 0
+                        ? basis.getDailyObjectiveSleep()
                         : 8) * 10) / 10.0;
                 return new Challenge(
                         "Dormir " + targetHours + " horas esta noche",
@@ -138,63 +191,80 @@ public class ChallengeService {
         }
     }
 
-    private void cleanOldChallenges(User user) {
-        List<Challenge> activeNonCompletedChallenges = challengeRepository.findByUserAndCompletedFalse(user);
-        Calendar yesterday = Calendar.getInstance();
-        yesterday.add(Calendar.DAY_OF_MONTH, -1);
+    private int getTargetSteps(ChallengeBasisDTO basis, Random random) {
+        // Promedio de los últimos 7 días, o el valor por defecto si no hay pasos registrados
+        int baseSteps = basis.getAverageSteps() != null ? basis.getAverageSteps().intValue() : 8000;
 
-        for (Challenge challenge : activeNonCompletedChallenges) {
-            if (challenge.getCreationDate().before(yesterday.getTime())) {
-                challengeRepository.delete(challenge);
-            }
-        }
+        // Generamos un reto un poco por encima de su promedio
+        return baseSteps + random.nextInt(2000);
     }
 
+    static Date startOfToday() {
+        return Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 
-    private int getTargetSteps(User user) {
-        // Si el usuario tiene un objetivo diario, usamos ese como base
-        ActivityProfile profile = user.getActivityProfile();
-        int baseSteps = 8000; // Valor por defecto
-
-        // Verificamos si tiene pasos registrados para determinar su nivel de actividad
-        if (!profile.getDailySteps().isEmpty()) {
-            // Calculamos el promedio de los últimos 7 días
-            Calendar lastWeek = Calendar.getInstance();
-            lastWeek.add(Calendar.DAY_OF_MONTH, -7);
-
-            int totalSteps = 0;
-            int count = 0;
-
-            for (DailySteps daily : profile.getDailySteps()) {
-                if (daily.getDate().after(lastWeek.getTime())) {
-                    totalSteps += daily.getSteps();
-                    count++;
-                }
-            }
-
-            if (count > 0) {
-                baseSteps = totalSteps / count;
-            }
+    /**
+     * Registra progreso de retos para aplicarlo en segundo plano (ChallengeEventProcessor). Se
+     * guarda en la transacción del llamante: si la escritura que lo genera se deshace, el
+     * progreso también. Si el usuario no tiene ningún reto activo de ese tipo no se escribe nada.
+     * La misma cantidad suma a los retos de sus grupos (GroupChallengeService).
+     */
+    public void recordProgress(User user, ChallengeType type, int value) {
+        if (value <= 0) {
+            return;
         }
-
-        // Generamos un reto un poco por encima de su promedio
-        return baseSteps + random.nextInt(2000);
+        groupChallengeService.contribute(user.getId(), type, value);
+        if (!activeChallengeIndex.hasActive(user.getId(), type)) {
+            return;
+        }
+        challengeEventRepository.save(new ChallengeEvent(user.getId(), type, value));
+        eventPublisher.publishEvent(new ChallengeEventsRecorded(user.getId()));
     }
 
-    public void updateChallengeProgress(String token, ChallengeType type, int value) {
-        String email = jwtUtils.extractEmail(token);
-        User user = userRepository.findByEmail(email);
+    /**
+     * Suma el progreso acumulado por tipo a los retos activos del usuario y le da la experiencia
+     * de los que se completen. Todo con UPDATEs atómicos (un incremento por tipo, sin cargar los
+     * retos): dos procesadores a la vez no pierden progreso ni dan dos veces la recompensa.
+     */
+    public void applyProgress(User user, Map<ChallengeType, Integer> totals) {
+        // Los retos pueden haberse completado o limpiado desde que se registró el progreso
+        Set<ChallengeType> types = EnumSet.noneOf(ChallengeType.class);
+        for (ChallengeType type : totals.keySet()) {
+            if (activeChallengeIndex.hasActive(user.getId(), type)) {
+                types.add(type);
+            }
+        }
+        if (types.isEmpty()) {
+            return;
+        }
 
-        List<Challenge> activeChallenges = challengeRepository.findByUserAndTypeAndCompletedFalse(user, type);
+        List<String> touched = challengeRepository.findActiveIds(user.getId(), types);
+        if (touched.isEmpty()) {
+            return;
+        }
+        for (ChallengeType type : types) {
+            challengeRepository.addProgress(user.getId(), type, totals.get(type));
+        }
 
-        for (Challenge challenge : activeChallenges) {
-            boolean completed = challenge.updateProgress(value);
-            if (completed) {
-                user.getLevel().addExperience(challenge.getExpReward());
+        Date now = new Date();
+        int exp = 0;
+        for (ChallengeRewardDTO reward : challengeRepository.findCompletable(user.getId(), types)) {
+            if (challengeRepository.markCompleted(reward.getId(), now) == 1) {
+                exp += reward.getExpReward();
             }
         }
 
-        userRepository.save(user);
+        // Los UPDATE masivos no pasan por ChangeTrackingListener: los clientes se enteran por aquí
+        List<SyncChange> changes = new ArrayList<>(touched.size());
+        for (String id : touched) {
+            changes.add(new SyncChange(user.getId(), ChangeEntityType.CHALLENGE, id, ChangeOperation.UPSERT));
+        }
+        syncChangeLog.record(changes);
+
+        if (exp > 0) {
+            activeChallengeIndex.invalidate(user.getId());
+            experienceService.award(List.of(user.getId()), exp);
+        }
     }
 
     public List<ChallengeDTO> getUserChallenges(String token) {
@@ -19,7 +19,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        UserDetails userDetails = userRepository.findByEmail(email);
+        UserDetails userDetails = userRepository.findPrincipalByEmail(email);
         if (userDetails == null) {
             throw new UsernameNotFoundException("User not found");
         }
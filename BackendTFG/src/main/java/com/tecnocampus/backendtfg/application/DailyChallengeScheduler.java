@@ -0,0 +1,100 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Genera a medianoche los retos del día de todos los usuarios, así /challenges/generate solo
+ * tiene que leerlos. Recorre los usuarios por trozos con el id como cursor y reparte los trozos
+ * entre los hilos de challengeGenerationExecutor, cada uno en su propia transacción. Si la cola
+ * se llena, el trozo lo procesa el hilo que recorre los usuarios.
+ *
+ * Los usuarios que se queden sin retos (registrados durante el día, servidor parado a medianoche,
+ * un trozo que falla) los reciben en su primera llamada a /challenges/generate.
+ */
+@Service
+public class DailyChallengeScheduler {
+
+    private final UserRepository userRepository;
+
+    private final ChallengeService challengeService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ThreadPoolTaskExecutor challengeGenerationExecutor;
+
+    private final int chunkSize;
+
+    private final ReentrantLock running = new ReentrantLock();
+
+    public DailyChallengeScheduler(UserRepository userRepository, ChallengeService challengeService,
+                                   PlatformTransactionManager transactionManager,
+                                   ThreadPoolTaskExecutor challengeGenerationExecutor,
+                                   @Value("${challenges.generation.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.challengeService = challengeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.challengeGenerationExecutor = challengeGenerationExecutor;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${challenges.generation.cron:0 0 0 * * *}")
+    public void generateToday() {
+        generateAll(ChallengeService.startOfToday());
+    }
+
+    /**
+     * Genera los retos del día indicado para todos los usuarios que aún no los tienen y devuelve
+     * el número de retos creados. Si ya hay una generación en curso espera a que acabe: después
+     * solo quedan los usuarios que se le hayan escapado.
+     */
+    public int generateAll(Date day) {
+        running.lock();
+        try {
+            AtomicInteger created = new AtomicInteger();
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            String after = "";
+            List<String> userIds;
+            do {
+                userIds = userRepository.findIdsAfter(after, PageRequest.of(0, chunkSize));
+                if (!userIds.isEmpty()) {
+                    List<String> chunk = userIds;
+                    chunks.add(CompletableFuture.runAsync(() -> created.addAndGet(generateChunk(chunk, day)),
+                            challengeGenerationExecutor));
+                    after = userIds.get(userIds.size() - 1);
+                }
+            } while (userIds.size() == chunkSize);
+
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+            System.out.println("Retos diarios generados: " + created.get());
+            return created.get();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private int generateChunk(List<String> userIds, Date day) {
+        try {
+            return Objects.requireNonNullElse(
+                    transactionTemplate.execute(status -> challengeService.generateForUsers(userIds, day)), 0);
+        } catch (RuntimeException e) {
+            // El resto de trozos sigue; a estos usuarios se les generan al abrir la app
+            System.out.println("Error al generar retos para " + userIds.size() + " usuarios: " + e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO;
+import com.tecnocampus.backendtfg.persistence.LevelRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * Reparte experiencia con UPDATEs atómicos (LevelRepository) en vez de cargar y guardar cada
+ * nivel: las recompensas simultáneas de retos individuales y de grupo no se pierden. Avisa a
+ * las clasificaciones con la experiencia resultante.
+ */
+@Service
+public class ExperienceService {
+
+    private final LevelRepository levelRepository;
+
+    private final UserRepository userRepository;
+
+    private final LeaderboardService leaderboardService;
+
+    public ExperienceService(LevelRepository levelRepository, UserRepository userRepository,
+                             LeaderboardService leaderboardService) {
+        this.levelRepository = levelRepository;
+        this.userRepository = userRepository;
+        this.leaderboardService = leaderboardService;
+    }
+
+    @Transactional
+    public void award(Collection<String> userIds, int exp) {
+        if (userIds.isEmpty() || exp <= 0) {
+            return;
+        }
+        levelRepository.addExperience(userIds, exp);
+        // Cada vuelta sube un nivel; una recompensa rara vez da para más de uno
+        while (levelRepository.levelUp(userIds) > 0) {
+        }
+        for (LeaderboardEntryDTO entry : userRepository.findLeaderboardEntries(userIds)) {
+            leaderboardService.experienceChanged(entry.getUserId(), entry.getTotalExperience());
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.ChallengeTotalDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupChallengeDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupChallengeRefDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Grupos de usuarios y sus retos compartidos. Los pasos, el agua y los minutos de actividad de
+ * cada miembro suman al reto del grupo.
+ *
+ * Las aportaciones no tocan la base de datos: se acumulan en un LongAdder por reto y un volcado
+ * periódico suma cada total a una de las GroupChallengeShard del reto, elegida al azar. Miles de
+ * miembros escribiendo a la vez no compiten por un contador ni por una fila.
+ */
+@Service
+public class GroupChallengeService {
+
+    private static final Set<ChallengeType> GROUP_TYPES =
+            EnumSet.of(ChallengeType.STEPS, ChallengeType.HYDRATION, ChallengeType.ACTIVITY_DURATION);
+    // Lo que pide y da por persona el reto diario de cada tipo (ChallengeService): la recompensa
+    // de un reto de grupo se calcula con esto y no la decide el cliente
+    private static final Map<ChallengeType, Long> DAILY_TARGET =
+            Map.of(ChallengeType.STEPS, 9_000L, ChallengeType.HYDRATION, 2_500L, ChallengeType.ACTIVITY_DURATION, 45L);
+    private static final Map<ChallengeType, Integer> DAILY_REWARD =
+            Map.of(ChallengeType.STEPS, 20, ChallengeType.HYDRATION, 15, ChallengeType.ACTIVITY_DURATION, 25);
+    private static final int MAX_EXP_REWARD = 250;
+    private static final long MAX_TARGET_MEMBER_DAYS = 100_000;
+    private static final int MEMBER_PAGE_SIZE = 500;
+    private static final int MAX_INDEXED_USERS = 100_000;
+    // Tras el fin de un reto aún pueden llegar aportaciones registradas justo antes
+    private static final long PENDING_GRACE_MILLIS = 60_000;
+
+    private final ChallengeGroupRepository groupRepository;
+    private final GroupMembershipRepository membershipRepository;
+    private final GroupChallengeRepository groupChallengeRepository;
+    private final GroupChallengeShardRepository shardRepository;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final UserRepository userRepository;
+    private final ExperienceService experienceService;
+    private final TransactionTemplate transactionTemplate;
+    private final JwtUtils jwtUtils;
+
+    // Aportaciones aún sin volcar, por reto
+    private final Map<String, PendingProgress> pending = new ConcurrentHashMap<>();
+
+    // Retos de grupo activos de cada usuario, cargados al primer uso (mismo esquema que ActiveChallengeIndex)
+    private final Map<String, List<GroupChallengeRefDTO>> activeByUser = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final ReentrantLock flushing = new ReentrantLock();
+
+    public GroupChallengeService(ChallengeGroupRepository groupRepository,
+                                 GroupMembershipRepository membershipRepository,
+                                 GroupChallengeRepository groupChallengeRepository,
+                                 GroupChallengeShardRepository shardRepository,
+                                 BulkInsertRepository bulkInsertRepository, UserRepository userRepository,
+                                 ExperienceService experienceService, PlatformTransactionManager transactionManager,
+                                 JwtUtils jwtUtils) {
+        this.groupRepository = groupRepository;
+        this.membershipRepository = membershipRepository;
+        this.groupChallengeRepository = groupChallengeRepository;
+        this.shardRepository = shardRepository;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.userRepository = userRepository;
+        this.experienceService = experienceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jwtUtils = jwtUtils;
+    }
+
+    @Transactional
+    public GroupDTO createGroup(String token, GroupDTO groupDTO) {
+        User user = getUser(token);
+        if (groupDTO.getName() == null || groupDTO.getName().isBlank()) {
+            throw new IllegalArgumentException("Group name is required");
+        }
+        ChallengeGroup group = groupRepository.save(new ChallengeGroup(groupDTO.getName().trim(), user));
+        membershipRepository.save(new GroupMembership(group, user));
+        return new GroupDTO(group.getId(), group.getName(), group.getCreatedAt(), 1, group.getInviteCode());
+    }
+
+    /**
+     * Con un código que no coincide se responde igual que si el grupo no existiera, para no
+     * desvelar qué ids son grupos reales.
+     */
+    @Transactional
+    public void joinGroup(String token, String groupId, String inviteCode) {
+        User user = getUser(token);
+        ChallengeGroup group = groupRepository.findById(groupId)
+                .filter(found -> inviteCode != null && MessageDigest.isEqual(
+                        found.getInviteCode().getBytes(StandardCharsets.UTF_8),
+                        inviteCode.trim().toUpperCase().getBytes(StandardCharsets.UTF_8)))
+                .orElseThrow(() -> new IllegalArgumentException("Group not found"));
+        if (!membershipRepository.existsByGroupIdAndUserId(groupId, user.getId())) {
+            membershipRepository.save(new GroupMembership(group, user));
+            invalidate(user.getId());
+        }
+    }
+
+    @Transactional
+    public void leaveGroup(String token, String groupId) {
+        User user = getUser(token);
+        if (membershipRepository.deleteByGroupIdAndUserId(groupId, user.getId()) == 0) {
+            throw new IllegalArgumentException("Not a member of this group");
+        }
+        invalidate(user.getId());
+    }
+
+    public List<GroupDTO> getUserGroups(String token) {
+        return membershipRepository.findGroupsByUserId(getUser(token).getId());
+    }
+
+    @Transactional
+    public GroupChallengeDTO createGroupChallenge(String token, String groupId, GroupChallengeDTO challengeDTO) {
+        User user = getUser(token);
+        requireMember(groupId, user);
+        if (challengeDTO.getType() == null || !GROUP_TYPES.contains(challengeDTO.getType())) {
+            throw new IllegalArgumentException("Group challenges must be of type " + GROUP_TYPES);
+        }
+        if (challengeDTO.getTargetValue() <= 0) {
+            throw new IllegalArgumentException("targetValue must be positive");
+        }
+        long dailyTarget = DAILY_TARGET.get(challengeDTO.getType());
+        if (challengeDTO.getTargetValue() > dailyTarget * MAX_TARGET_MEMBER_DAYS) {
+            throw new IllegalArgumentException("targetValue cannot exceed " + dailyTarget * MAX_TARGET_MEMBER_DAYS);
+        }
+        if (challengeDTO.getEndDate() == null || !challengeDTO.getEndDate().after(new Date())) {
+            throw new IllegalArgumentException("endDate must be in the future");
+        }
+        int expReward = expReward(challengeDTO.getType(), challengeDTO.getTargetValue(),
+                membershipRepository.countByGroupId(groupId));
+
+        String description = challengeDTO.getDescription() != null && !challengeDTO.getDescription().isBlank()
+                ? challengeDTO.getDescription()
+                : "Llegar entre todos a " + challengeDTO.getTargetValue();
+        GroupChallenge challenge = groupChallengeRepository.save(new GroupChallenge(groupRepository.getReferenceById(groupId),
+                description, challengeDTO.getType(), challengeDTO.getTargetValue(), expReward,
+                challengeDTO.getEndDate()));
+        List<GroupChallengeShard> shards = new ArrayList<>(GroupChallengeShard.SHARD_COUNT);
+        for (int shard = 0; shard < GroupChallengeShard.SHARD_COUNT; shard++) {
+            shards.add(new GroupChallengeShard(challenge, shard));
+        }
+        bulkInsertRepository.insertAll(shards);
+
+        // El reto afecta a todos los miembros: más sencillo vaciar el índice que recorrerlos
+        invalidateAll();
+        return new GroupChallengeDTO(challenge, 0);
+    }
+
+    /**
+     * Recompensa por miembro: la del reto diario, multiplicada por los días de reto diario que le
+     * tocan a cada uno de los miembros actuales. Va de 1 a MAX_EXP_REWARD, así que un grupo de
+     * una sola persona con un objetivo mínimo no puede repartirse experiencia sin límite.
+     */
+    static int expReward(ChallengeType type, long targetValue, long members) {
+        double memberDays = (double) targetValue / DAILY_TARGET.get(type) / Math.max(1, members);
+        long reward = Math.round(DAILY_REWARD.get(type) * memberDays);
+        return (int) Math.max(1, Math.min(MAX_EXP_REWARD, reward));
+    }
+
+    public List<GroupChallengeDTO> getGroupChallenges(String token, String groupId) {
+        requireMember(groupId, getUser(token));
+        List<GroupChallenge> challenges = groupChallengeRepository.findByGroupIdOrderByStartDateDesc(groupId);
+        if (challenges.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Long> totals = currentTotals(challenges.stream().map(GroupChallenge::getId).toList());
+        return challenges.stream()
+                .map(challenge -> new GroupChallengeDTO(challenge, totals.getOrDefault(challenge.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Suma la aportación de un usuario a los retos activos de sus grupos. Dentro de una
+     * transacción se aplica al confirmarla: si la escritura que la genera se deshace, no cuenta.
+     */
+    public void contribute(String userId, ChallengeType type, long value) {
+        if (value <= 0 || !GROUP_TYPES.contains(type)) {
+            return;
+        }
+        Date now = new Date();
+        List<GroupChallengeRefDTO> targets = new ArrayList<>();
+        for (GroupChallengeRefDTO challenge : activeChallenges(userId)) {
+            if (challenge.getType() == type && challenge.getEndDate().after(now)) {
+                targets.add(challenge);
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addPending(targets, value);
+                }
+            });
+        } else {
+            addPending(targets, value);
+        }
+    }
+
+    /**
+     * Vuelca las aportaciones acumuladas, una transacción por reto, y da por completados los
+     * retos que lleguen al objetivo. Lo que no se pueda volcar se devuelve al acumulador.
+     */
+    @Scheduled(fixedDelayString = "${challenges.groups.flush-millis:5000}")
+    @PreDestroy
+    public void flush() {
+        flushing.lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, PendingProgress> entry : pending.entrySet()) {
+                PendingProgress progress = entry.getValue();
+                // getAndSet sobre cada celda: lo que se sume mientras tanto queda para el siguiente volcado
+                long delta = progress.value().sumThenReset();
+                if (delta == 0) {
+                    if (progress.endDate().getTime() + PENDING_GRACE_MILLIS < now) {
+                        pending.remove(entry.getKey(), progress);
+                    }
+                    continue;
+                }
+                // Mientras se vuelca sigue contando en las lecturas de esta instancia
+                progress.inFlight().addAndGet(delta);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> flushChallenge(entry.getKey(), delta));
+                } catch (RuntimeException e) {
+                    progress.value().add(delta);
+                    System.out.println("Error al volcar el progreso del reto de grupo " + entry.getKey() + ": " + e.getMessage());
+                } finally {
+                    progress.inFlight().addAndGet(-delta);
+                }
+            }
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    private void flushChallenge(String challengeId, long delta) {
+        GroupChallenge challenge = groupChallengeRepository.findById(challengeId).orElse(null);
+        if (challenge == null || challenge.isCompleted()) {
+            pending.remove(challengeId);
+            return;
+        }
+        shardRepository.addToShard(challengeId, ThreadLocalRandom.current().nextInt(GroupChallengeShard.SHARD_COUNT), delta);
+
+        long total = shardRepository.sumByChallengeIds(List.of(challengeId)).stream()
+                .mapToLong(ChallengeTotalDTO::getTotal)
+                .sum();
+        if (total >= challenge.getTargetValue() && groupChallengeRepository.markCompleted(challengeId, new Date()) == 1) {
+            rewardMembers(challenge);
+            pending.remove(challengeId);
+            invalidateAll();
+        }
+    }
+
+    private void rewardMembers(GroupChallenge challenge) {
+        String groupId = challenge.getGroup().getId();
+        String after = "";
+        List<String> memberIds;
+        do {
+            memberIds = membershipRepository.findMemberIdsAfter(groupId, after, PageRequest.of(0, MEMBER_PAGE_SIZE));
+            if (memberIds.isEmpty()) {
+                break;
+            }
+            // Un UPDATE por página de miembros, sin cargar sus niveles
+            experienceService.award(memberIds, challenge.getExpReward());
+            after = memberIds.get(memberIds.size() - 1);
+        } while (memberIds.size() == MEMBER_PAGE_SIZE);
+    }
+
+    private Map<String, Long> currentTotals(Collection<String> challengeIds) {
+        Map<String, Long> totals = new HashMap<>();
+        for (ChallengeTotalDTO total : shardRepository.sumByChallengeIds(challengeIds)) {
+            totals.put(total.getChallengeId(), total.getTotal());
+        }
+        // Lo que esta instancia aún no ha volcado también cuenta
+        for (String challengeId : challengeIds) {
+            PendingProgress progress = pending.get(challengeId);
+            if (progress != null) {
+                totals.merge(challengeId, progress.value().sum() + progress.inFlight().get(), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    private void addPending(List<GroupChallengeRefDTO> challenges, long value) {
+        for (GroupChallengeRefDTO challenge : challenges) {
+            pending.computeIfAbsent(challenge.getId(),
+                            id -> new PendingProgress(new LongAdder(), new AtomicLong(), challenge.getEndDate()))
+                    .value().add(value);
+        }
+    }
+
+    private List<GroupChallengeRefDTO> activeChallenges(String userId) {
+        List<GroupChallengeRefDTO> cached = activeByUser.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = invalidations.get();
+        List<GroupChallengeRefDTO> challenges = List.copyOf(groupChallengeRepository.findActiveByUserId(userId, new Date()));
+        if (activeByUser.size() >= MAX_INDEXED_USERS) {
+            activeByUser.clear();
+        }
+        activeByUser.putIfAbsent(userId, challenges);
+        if (invalidations.get() != stamp) {
+            activeByUser.remove(userId, challenges);
+        }
+        return challenges;
+    }
+
+    private void invalidate(String userId) {
+        afterCompletionToo(() -> {
+            invalidations.incrementAndGet();
+            activeByUser.remove(userId);
+        });
+    }
+
+    private void invalidateAll() {
+        afterCompletionToo(() -> {
+            invalidations.incrementAndGet();
+            activeByUser.clear();
+        });
+    }
+
+    // Ahora y al terminar la transacción, para que una carga concurrente no se quede con lo anterior al commit
+    private static void afterCompletionToo(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void requireMember(String groupId, User user) {
+        if (!membershipRepository.existsByGroupIdAndUserId(groupId, user.getId())) {
+            throw new IllegalArgumentException("Group not found");
+        }
+    }
+
+    private User getUser(String token) {
+        User user = userRepository.findByEmail(jwtUtils.extractEmail(token));
+        if (user == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return user;
+    }
+
+    private record PendingProgress(LongAdder value, AtomicLong inFlight, Date endDate) {
+    }
+}
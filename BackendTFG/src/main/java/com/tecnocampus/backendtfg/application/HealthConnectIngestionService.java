@@ -0,0 +1,243 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
+import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
+import com.tecnocampus.backendtfg.application.dto.HydrationDTO;
+import com.tecnocampus.backendtfg.application.dto.SleepDTO;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.BulkInsertRepository;
+import com.tecnocampus.backendtfg.persistence.DailyStepsRepository;
+import com.tecnocampus.backendtfg.persistence.HeartRateBlockRepository;
+import com.tecnocampus.backendtfg.persistence.HydrationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Ingesta masiva de datos de Health Connect (backfills de semanas o meses). A diferencia de
+ * ActivityService/SleepService, no guarda registro a registro a través del perfil: construye
+ * las entidades y las inserta en lotes JDBC con BulkInsertRepository.
+ */
+@Service
+public class HealthConnectIngestionService {
+
+    private final BulkInsertRepository bulkInsertRepository;
+
+    private final DailyStepsRepository dailyStepsRepository;
+
+    private final HydrationRepository hydrationRepository;
+
+    private final HeartRateBlockRepository heartRateBlockRepository;
+
+    private final HydrationService hydrationService;
+
+    private final ChallengeService challengeService;
+
+    public HealthConnectIngestionService(BulkInsertRepository bulkInsertRepository,
+                                         DailyStepsRepository dailyStepsRepository,
+                                         HydrationRepository hydrationRepository,
+                                         HeartRateBlockRepository heartRateBlockRepository,
+                                         HydrationService hydrationService,
+                                         ChallengeService challengeService) {
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.dailyStepsRepository = dailyStepsRepository;
+        this.hydrationRepository = hydrationRepository;
+        this.heartRateBlockRepository = heartRateBlockRepository;
+        this.hydrationService = hydrationService;
+        this.challengeService = challengeService;
+    }
+
+    @Transactional
+    public List<HealthConnectActivity> ingestActivities(User user, List<ActivityDTO> activityDTOs) {
+        ActivityProfile activityProfile = user.getActivityProfile();
+        LocalDate today = LocalDate.now();
+        List<HealthConnectActivity> activities = new ArrayList<>(activityDTOs.size());
+        int todayMinutes = 0;
+        Map<LocalDate, HeartRateSeries> heartRateByDay = loadHeartRate(user.getEmail(), activityDTOs);
+
+        for (ActivityDTO activityDTO : activityDTOs) {
+            HealthConnectActivity activity = new HealthConnectActivity(activityDTO.getDuration(),
+                    activityDTO.getDate(),
+                    activityDTO.getType(),
+                    activityDTO.getDescription(),
+                    activityProfile);
+            activity.setExternalId(activityDTO.getExternalId());
+            activity.setIdempotencyKey(activityDTO.getIdempotencyKey());
+            activity.calculateCalories(heartRateByDay);
+            activities.add(activity);
+            if (today.equals(toLocalDate(activityDTO.getDate()))) {
+                todayMinutes += (int) activityDTO.getDuration();
+            }
+        }
+
+        bulkInsertRepository.insertAll(activities);
+        // Un backfill trae días pasados: solo lo de hoy cuenta para los retos del día
+        if (todayMinutes > 0) {
+            challengeService.recordProgress(user, ChallengeType.ACTIVITY_DURATION, todayMinutes);
+        }
+        return activities;
+    }
+
+    /**
+     * Frecuencia cardíaca ya guardada de los días que tocan las actividades, en una sola consulta.
+     * ActivityService la usa también, para que las calorías no dependan de por dónde llega la
+     * actividad.
+     */
+    public Map<LocalDate, HeartRateSeries> loadHeartRate(String email, List<ActivityDTO> activityDTOs) {
+        Set<LocalDate> days = new HashSet<>();
+        for (ActivityDTO activityDTO : activityDTOs) {
+            long start = activityDTO.getDate().getTime();
+            days.add(toLocalDate(activityDTO.getDate()));
+            days.add(toLocalDate(new Date(start + Math.round(activityDTO.getDuration() * 60000))));
+        }
+        Map<LocalDate, HeartRateSeries> heartRateByDay = new HashMap<>();
+        if (days.isEmpty()) {
+            return heartRateByDay;
+        }
+        for (HeartRateBlock block : heartRateBlockRepository.findByUserEmailAndDayIn(email, days)) {
+            heartRateByDay.put(block.getDay(), block.getSeries());
+        }
+        return heartRateByDay;
+    }
+
+    @Transactional
+    public List<Sleep> ingestSleeps(User user, List<SleepDTO> sleepDTOs) {
+        SleepProfile sleepProfile = user.getSleepProfile();
+        LocalDate today = LocalDate.now();
+        List<Sleep> sleeps = new ArrayList<>(sleepDTOs.size());
+        int todayMinutes = 0;
+
+        for (SleepDTO sleepDTO : sleepDTOs) {
+            // Las fases se insertan por cascada en el mismo flush; order_inserts las agrupa en su lote
+            sleeps.add(new Sleep(sleepDTO, sleepProfile));
+            if (today.equals(toLocalDate(sleepDTO.getEndTime()))) {
+                todayMinutes += (int) (sleepDTO.getHours() * 60);
+            }
+        }
+
+        bulkInsertRepository.insertAll(sleeps);
+        if (todayMinutes > 0) {
+            challengeService.recordProgress(user, ChallengeType.SLEEP_HOURS, todayMinutes);
+        }
+        return sleeps;
+    }
+
+    /**
+     * Devuelve, en el orden de entrada, el registro diario escrito o null si el día ya tenía
+     * igual o más pasos.
+     */
+    @Transactional
+    public List<DailySteps> ingestDailySteps(User user, List<DailyStepsDTO> dailyStepsDTOs) {
+        List<DailySteps> written = new ArrayList<>(dailyStepsDTOs.size());
+        if (dailyStepsDTOs.isEmpty()) {
+            return written;
+        }
+        ActivityProfile activityProfile = user.getActivityProfile();
+
+        // Una sola consulta para todos los días ya guardados del rango
+        Date from = dailyStepsDTOs.stream().map(DailyStepsDTO::getDate).min(Date::compareTo).orElseThrow();
+        Date to = dailyStepsDTOs.stream().map(DailyStepsDTO::getDate).max(Date::compareTo).orElseThrow();
+        Map<LocalDate, DailySteps> existingByDay = new HashMap<>();
+        for (DailySteps dailySteps : dailyStepsRepository.findByActivityProfileAndDateBetween(
+                activityProfile, startOfDay(from), endOfDay(to))) {
+            existingByDay.put(toLocalDate(dailySteps.getDate()), dailySteps);
+        }
+
+        LocalDate today = LocalDate.now();
+        List<DailySteps> newDays = new ArrayList<>();
+        int todayIncrement = 0;
+
+        for (DailyStepsDTO dailyStepsDTO : dailyStepsDTOs) {
+            LocalDate day = toLocalDate(dailyStepsDTO.getDate());
+            DailySteps dailySteps = existingByDay.get(day);
+            int previousSteps = 0;
+            if (dailySteps == null) {
+                dailySteps = new DailySteps(dailyStepsDTO);
+                dailySteps.setActivityProfile(activityProfile);
+                dailySteps.calculateCalories();
+                existingByDay.put(day, dailySteps);
+                newDays.add(dailySteps);
+            } else if (dailySteps.getSteps() < dailyStepsDTO.getSteps()) {
+                // Entidad gestionada: el UPDATE sale en el flush de la transacción
+                previousSteps = dailySteps.getSteps();
+                dailySteps.setSteps(dailyStepsDTO.getSteps());
+                dailySteps.setDuration(dailyStepsDTO.getDuration());
+                dailySteps.adoptIds(dailyStepsDTO);
+                dailySteps.calculateCalories();
+            } else {
+                dailySteps.adoptIds(dailyStepsDTO);
+                written.add(null);
+                continue;
+            }
+            written.add(dailySteps);
+            if (today.equals(day)) {
+                todayIncrement += dailyStepsDTO.getSteps() - previousSteps;
+            }
+        }
+
+        bulkInsertRepository.insertAll(newDays);
+        if (todayIncrement > 0) {
+            challengeService.recordProgress(user, ChallengeType.STEPS, todayIncrement);
+        }
+        return written;
+    }
+
+    /**
+     * Inserta las hidrataciones que no estén ya guardadas con la misma fecha y cantidad.
+     * Devuelve cuántas se han insertado.
+     */
+    @Transactional
+    public int ingestHydrations(User user, List<HydrationDTO> hydrationDTOs) {
+        if (hydrationDTOs.isEmpty()) {
+            return 0;
+        }
+        HydrationProfile hydrationProfile = user.getHydrationProfile();
+
+        Date from = hydrationDTOs.stream().map(HydrationDTO::getDate).min(Date::compareTo).orElseThrow();
+        Date to = hydrationDTOs.stream().map(HydrationDTO::getDate).max(Date::compareTo).orElseThrow();
+        Set<String> known = new HashSet<>();
+        for (Hydration hydration : hydrationRepository.findByHydrationProfileAndDateBetween(hydrationProfile, from, to)) {
+            known.add(hydrationKey(hydration.getDate(), hydration.getQuantity()));
+        }
+
+        LocalDate today = LocalDate.now();
+        List<Hydration> hydrations = new ArrayList<>();
+        double todayAmount = 0;
+        for (HydrationDTO hydrationDTO : hydrationDTOs) {
+            if (!known.add(hydrationKey(hydrationDTO.getDate(), hydrationDTO.getQuantity()))) {
+                continue;
+            }
+            hydrations.add(new Hydration(hydrationDTO.getQuantity(), hydrationDTO.getDate(), hydrationProfile));
+            if (today.equals(toLocalDate(hydrationDTO.getDate()))) {
+                todayAmount += hydrationDTO.getQuantity();
+            }
+        }
+
+        bulkInsertRepository.insertAll(hydrations);
+        if (todayAmount > 0) {
+            // Suma atómica; si el perfil se quedó en otro día se empieza de cero
+            hydrationService.addToDailyAmount(user, todayAmount);
+            challengeService.recordProgress(user, ChallengeType.HYDRATION, (int) (todayAmount * 1000));
+        }
+        return hydrations.size();
+    }
+
+    private static String hydrationKey(Date date, double quantity) {
+        return date.getTime() + "|" + Math.round(quantity * 1000);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    static Date startOfDay(Date date) {
+        return Date.from(toLocalDate(date).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    static Date endOfDay(Date date) {
+        return Date.from(toLocalDate(date).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().minusMillis(1));
+    }
+}
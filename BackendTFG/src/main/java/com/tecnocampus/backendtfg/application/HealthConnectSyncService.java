@@ -0,0 +1,472 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.*;
+import com.tecnocampus.backendtfg.application.mapper.HealthConnectMapper;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Sincronización por lotes con Health Connect: una petición por tipo de dato en lugar de una
+ * por registro. El lote se valida y se deduplica como conjunto (contra sí mismo y contra lo ya
+ * guardado en su rango de fechas) y se inserta con HealthConnectIngestionService. Las sesiones
+ * que solapan casi por completo con otra ya conocida (de la app o de Health Connect) se detectan
+ * con un IntervalTree construido con una consulta por rango.
+ * Los registros con id de Health Connect o clave de idempotencia ya guardados se resuelven
+ * con una consulta indexada por lote y se devuelven como DUPLICATE con el id existente.
+ * Si otra petición guarda a la vez alguno de ellos, el índice único rechaza el lote y se repite
+ * una vez: la consulta ya los encuentra y salen como DUPLICATE sin perder el resto.
+ */
+@Service
+public class HealthConnectSyncService {
+
+    static final long MAX_SESSION_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Dos sesiones son la misma si el solape cubre al menos este porcentaje de la más corta
+    static final double NEAR_DUPLICATE_OVERLAP = 0.8;
+
+    private final HealthConnectIngestionService ingestionService;
+
+    private final ActivityRepository activityRepository;
+
+    private final HealthConnectActivityRepository healthConnectActivityRepository;
+
+    private final SleepRepository sleepRepository;
+
+    private final DailyStepsRepository dailyStepsRepository;
+
+    private final UserRepository userRepository;
+
+    private final SyncStateService syncStateService;
+
+    private final JwtUtils jwtUtils;
+
+    public HealthConnectSyncService(HealthConnectIngestionService ingestionService,
+                                    ActivityRepository activityRepository,
+                                    HealthConnectActivityRepository healthConnectActivityRepository,
+                                    SleepRepository sleepRepository, DailyStepsRepository dailyStepsRepository,
+                                    UserRepository userRepository, SyncStateService syncStateService,
+                                    JwtUtils jwtUtils) {
+        this.ingestionService = ingestionService;
+        this.activityRepository = activityRepository;
+        this.healthConnectActivityRepository = healthConnectActivityRepository;
+        this.sleepRepository = sleepRepository;
+        this.dailyStepsRepository = dailyStepsRepository;
+        this.userRepository = userRepository;
+        this.syncStateService = syncStateService;
+        this.jwtUtils = jwtUtils;
+    }
+
+    /**
+     * Se une a la transacción de quien llama (el lote del buzón). Si otra petición guarda a la vez
+     * algún registro del lote, el índice único lanza DataIntegrityViolationException y el buzón
+     * repite la escritura sola, donde ese registro ya sale como DUPLICATE.
+     */
+    @Transactional
+    public HealthConnectSyncResultDTO sync(HealthConnectSyncDTO syncDTO, String token) {
+        String email = jwtUtils.extractEmail(token);
+        User user = userRepository.findByEmail(email);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return sync(user, syncDTO);
+    }
+
+    /**
+     * Sincroniza un lote para un usuario ya cargado en la transacción actual (la importación de
+     * exportaciones lo usa trozo a trozo).
+     */
+    @Transactional
+    public HealthConnectSyncResultDTO sync(User user, HealthConnectSyncDTO syncDTO) {
+        // Una clave vacía no identifica nada: se trata como ausente para no chocar con el índice único
+        orEmpty(syncDTO.getExerciseSessions()).stream().filter(Objects::nonNull).forEach(e -> {
+            e.setExternalId(blankToNull(e.getExternalId()));
+            e.setIdempotencyKey(blankToNull(e.getIdempotencyKey()));
+        });
+        orEmpty(syncDTO.getSleepSessions()).stream().filter(Objects::nonNull).forEach(s -> {
+            s.setExternalId(blankToNull(s.getExternalId()));
+            s.setIdempotencyKey(blankToNull(s.getIdempotencyKey()));
+        });
+        orEmpty(syncDTO.getDailySteps()).stream().filter(Objects::nonNull).forEach(d -> {
+            d.setExternalId(blankToNull(d.getExternalId()));
+            d.setIdempotencyKey(blankToNull(d.getIdempotencyKey()));
+        });
+
+        HealthConnectSyncResultDTO result = new HealthConnectSyncResultDTO();
+        List<HealthConnectExerciseDTO> exercises = orEmpty(syncDTO.getExerciseSessions());
+        List<SleepDTO> sleeps = orEmpty(syncDTO.getSleepSessions());
+        List<DailyStepsDTO> dailySteps = orEmpty(syncDTO.getDailySteps());
+        result.setExerciseSessions(syncExercises(user, exercises));
+        result.setSleepSessions(syncSleeps(user, sleeps));
+        result.setDailySteps(syncDailySteps(user, dailySteps));
+
+        // Todo registro válido (guardado o ya conocido) hace avanzar la marca de su tipo
+        Map<SyncDataType, String> changeTokens = syncDTO.getChangeTokens() != null
+                ? syncDTO.getChangeTokens() : Map.of();
+        syncStateService.advance(user, SyncDataType.EXERCISE,
+                latestEnd(exercises, result.getExerciseSessions(), HealthConnectExerciseDTO::getEndTime),
+                changeTokens.get(SyncDataType.EXERCISE));
+        syncStateService.advance(user, SyncDataType.SLEEP,
+                latestEnd(sleeps, result.getSleepSessions(), SleepDTO::getEndTime),
+                changeTokens.get(SyncDataType.SLEEP));
+        syncStateService.advance(user, SyncDataType.STEPS,
+                latestEnd(dailySteps, result.getDailySteps(), DailyStepsDTO::getDate),
+                changeTokens.get(SyncDataType.STEPS));
+        result.setState(syncStateService.getSyncState(user));
+        return result;
+    }
+
+    private List<SyncRecordResultDTO> syncExercises(User user, List<HealthConnectExerciseDTO> exercises) {
+        SyncRecordResultDTO[] results = new SyncRecordResultDTO[exercises.size()];
+        Map<String, TypeActivity> types = HealthConnectMapper.mapExerciseTypes(
+                exercises.stream().filter(Objects::nonNull).map(HealthConnectExerciseDTO::getExerciseType).toList());
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < exercises.size(); i++) {
+            HealthConnectExerciseDTO exercise = exercises.get(i);
+            String error = exercise == null ? "Empty record"
+                    : validateRange(exercise.getStartTime(), exercise.getEndTime());
+            if (error != null) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.INVALID, null, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        // Índice de intervalos con lo ya guardado, de cualquier origen, que puede solapar con el lote
+        IntervalTree<KnownActivity> known = new IntervalTree<>();
+        if (!validIndexes.isEmpty()) {
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (int i : validIndexes) {
+                from = Math.min(from, exercises.get(i).getStartTime().getTime());
+                to = Math.max(to, exercises.get(i).getEndTime().getTime());
+            }
+            for (AbstractActivity existing : activityRepository.findByActivityProfileAndDateBetween(
+                    user.getActivityProfile(), new Date(from - MAX_SESSION_MILLIS), new Date(to))) {
+                if (existing.getDate() != null) {
+                    long start = existing.getDate().getTime();
+                    known.insert(start, start + Math.round(existing.getDuration() * 60000),
+                            new KnownActivity(existing.getType(), existing));
+                }
+            }
+        }
+
+        ReplayIndex replays = new ReplayIndex();
+        List<String> externalIds = distinctNonNull(validIndexes, i -> exercises.get(i).getExternalId());
+        List<String> idempotencyKeys = distinctNonNull(validIndexes, i -> exercises.get(i).getIdempotencyKey());
+        if (!externalIds.isEmpty()) {
+            healthConnectActivityRepository.findByActivityProfileAndExternalIdIn(user.getActivityProfile(), externalIds)
+                    .forEach(a -> replays.addStored(a.getExternalId(), a.getIdempotencyKey(), a.getId()));
+        }
+        if (!idempotencyKeys.isEmpty()) {
+            healthConnectActivityRepository.findByActivityProfileAndIdempotencyKeyIn(user.getActivityProfile(), idempotencyKeys)
+                    .forEach(a -> replays.addStored(a.getExternalId(), a.getIdempotencyKey(), a.getId()));
+        }
+
+        List<Integer> newIndexes = new ArrayList<>();
+        List<ActivityDTO> activityDTOs = new ArrayList<>();
+        for (int i : validIndexes) {
+            HealthConnectExerciseDTO exercise = exercises.get(i);
+            if (isReplay(replays, exercise.getExternalId(), exercise.getIdempotencyKey(), i, results)) {
+                continue;
+            }
+            TypeActivity type = types.get(exercise.getExerciseType());
+            long start = exercise.getStartTime().getTime();
+            long end = exercise.getEndTime().getTime();
+            // La misma sesión registrada en la app y en Health Connect no coincide al segundo
+            IntervalTree.Entry<KnownActivity> match = known.bestOverlap(start, end, NEAR_DUPLICATE_OVERLAP,
+                    candidate -> candidate.type() == type);
+            if (match != null) {
+                AbstractActivity stored = match.value().stored();
+                if (stored instanceof HealthConnectActivity healthConnectActivity) {
+                    adoptIds(healthConnectActivity, exercise);
+                }
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.DUPLICATE,
+                        stored != null ? stored.getId() : null, "Duplicate activity");
+                continue;
+            }
+            known.insert(start, end, new KnownActivity(type, null));
+            double duration = Math.round((end - start) / 60000.0);
+            newIndexes.add(i);
+            ActivityDTO activityDTO = new ActivityDTO(duration, exercise.getStartTime(), type,
+                    exercise.getDescription(), ActivityOrigin.HEALTH_CONNECT);
+            activityDTO.setExternalId(exercise.getExternalId());
+            activityDTO.setIdempotencyKey(exercise.getIdempotencyKey());
+            activityDTOs.add(activityDTO);
+        }
+
+        List<HealthConnectActivity> saved = ingestionService.ingestActivities(user, activityDTOs);
+        for (int j = 0; j < saved.size(); j++) {
+            int i = newIndexes.get(j);
+            results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.SAVED, saved.get(j).getId(), null);
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<SyncRecordResultDTO> syncSleeps(User user, List<SleepDTO> sleeps) {
+        SyncRecordResultDTO[] results = new SyncRecordResultDTO[sleeps.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < sleeps.size(); i++) {
+            SleepDTO sleep = sleeps.get(i);
+            String error = sleep == null ? "Empty record" : validateRange(sleep.getStartTime(), sleep.getEndTime());
+            if (error != null) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.INVALID, null, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        IntervalTree<Sleep> known = new IntervalTree<>();
+        if (!validIndexes.isEmpty()) {
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (int i : validIndexes) {
+                from = Math.min(from, sleeps.get(i).getStartTime().getTime());
+                to = Math.max(to, sleeps.get(i).getEndTime().getTime());
+            }
+            for (Sleep existing : sleepRepository.findBySleepProfileAndStartTimeBetween(user.getSleepProfile(),
+                    new Date(from - MAX_SESSION_MILLIS), new Date(to))) {
+                if (existing.getStartTime() != null && existing.getEndTime() != null) {
+                    known.insert(existing.getStartTime().getTime(), existing.getEndTime().getTime(), existing);
+                }
+            }
+        }
+
+        ReplayIndex replays = new ReplayIndex();
+        List<String> externalIds = distinctNonNull(validIndexes, i -> sleeps.get(i).getExternalId());
+        List<String> idempotencyKeys = distinctNonNull(validIndexes, i -> sleeps.get(i).getIdempotencyKey());
+        if (!externalIds.isEmpty()) {
+            sleepRepository.findBySleepProfileAndExternalIdIn(user.getSleepProfile(), externalIds)
+                    .forEach(s -> replays.addStored(s.getExternalId(), s.getIdempotencyKey(), s.getId()));
+        }
+        if (!idempotencyKeys.isEmpty()) {
+            sleepRepository.findBySleepProfileAndIdempotencyKeyIn(user.getSleepProfile(), idempotencyKeys)
+                    .forEach(s -> replays.addStored(s.getExternalId(), s.getIdempotencyKey(), s.getId()));
+        }
+
+        List<Integer> newIndexes = new ArrayList<>();
+        List<SleepDTO> newSleeps = new ArrayList<>();
+        for (int i : validIndexes) {
+            SleepDTO sleep = sleeps.get(i);
+            if (isReplay(replays, sleep.getExternalId(), sleep.getIdempotencyKey(), i, results)) {
+                continue;
+            }
+            long start = sleep.getStartTime().getTime();
+            long end = sleep.getEndTime().getTime();
+            // Las noches del lote entran en el índice con valor null
+            IntervalTree.Entry<Sleep> match = known.bestOverlap(start, end, NEAR_DUPLICATE_OVERLAP, candidate -> true);
+            if (match != null) {
+                Sleep stored = match.value();
+                if (stored != null) {
+                    stored.mergeFrom(sleep);
+                }
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.DUPLICATE,
+                        stored != null ? stored.getId() : null, "Duplicate sleep record overlapping an existing one");
+                continue;
+            }
+            known.insert(start, end, null);
+            newIndexes.add(i);
+            newSleeps.add(sleep);
+        }
+
+        List<Sleep> saved = ingestionService.ingestSleeps(user, newSleeps);
+        for (int j = 0; j < saved.size(); j++) {
+            int i = newIndexes.get(j);
+            results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.SAVED, saved.get(j).getId(), null);
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<SyncRecordResultDTO> syncDailySteps(User user, List<DailyStepsDTO> dailySteps) {
+        SyncRecordResultDTO[] results = new SyncRecordResultDTO[dailySteps.size()];
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < dailySteps.size(); i++) {
+            if (dailySteps.get(i) != null) {
+                all.add(i);
+            }
+        }
+        ReplayIndex replays = new ReplayIndex();
+        List<String> externalIds = distinctNonNull(all, i -> dailySteps.get(i).getExternalId());
+        List<String> idempotencyKeys = distinctNonNull(all, i -> dailySteps.get(i).getIdempotencyKey());
+        if (!externalIds.isEmpty()) {
+            dailyStepsRepository.findByActivityProfileAndExternalIdIn(user.getActivityProfile(), externalIds)
+                    .forEach(d -> replays.addStored(d.getExternalId(), d.getIdempotencyKey(), d.getId()));
+        }
+        if (!idempotencyKeys.isEmpty()) {
+            dailyStepsRepository.findByActivityProfileAndIdempotencyKeyIn(user.getActivityProfile(), idempotencyKeys)
+                    .forEach(d -> replays.addStored(d.getExternalId(), d.getIdempotencyKey(), d.getId()));
+        }
+
+        // Un registro por día: se queda el de más pasos y los demás del mismo día son duplicados
+        Map<LocalDate, Integer> bestByDay = new LinkedHashMap<>();
+        Map<Integer, String> replayedIds = new HashMap<>();
+        for (int i = 0; i < dailySteps.size(); i++) {
+            DailyStepsDTO steps = dailySteps.get(i);
+            if (steps == null || steps.getDate() == null) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.INVALID, null, "Missing date");
+                continue;
+            }
+            if (steps.getSteps() < 0 || steps.getDuration() < 0) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.INVALID, null, "Negative steps or duration");
+                continue;
+            }
+            // Un día ya guardado con el mismo id no se descarta: si trae más pasos, actualiza la fila
+            String storedId = replays.storedId(steps.getExternalId(), steps.getIdempotencyKey());
+            if (storedId != null) {
+                replayedIds.put(i, storedId);
+            } else if (isReplay(replays, steps.getExternalId(), steps.getIdempotencyKey(), i, results)) {
+                continue;
+            }
+            LocalDate day = steps.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            Integer best = bestByDay.get(day);
+            if (best == null || dailySteps.get(best).getSteps() < steps.getSteps()) {
+                if (best != null) {
+                    results[best] = new SyncRecordResultDTO(best, SyncRecordStatus.DUPLICATE, null, "Duplicate day");
+                }
+                bestByDay.put(day, i);
+            } else {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.DUPLICATE, null, "Duplicate day");
+            }
+        }
+
+        List<Integer> indexes = new ArrayList<>(bestByDay.values());
+        List<DailySteps> written = ingestionService.ingestDailySteps(user,
+                indexes.stream().map(dailySteps::get).toList());
+        for (int j = 0; j < written.size(); j++) {
+            int i = indexes.get(j);
+            DailySteps steps = written.get(j);
+            if (steps != null) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.SAVED, steps.getId(), null);
+            } else if (replayedIds.containsKey(i)) {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.DUPLICATE, replayedIds.get(i), "Already ingested");
+            } else {
+                results[i] = new SyncRecordResultDTO(i, SyncRecordStatus.UNCHANGED, null, null);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static boolean isReplay(ReplayIndex replays, String externalId, String idempotencyKey,
+                                    int index, SyncRecordResultDTO[] results) {
+        String storedId = replays.storedId(externalId, idempotencyKey);
+        if (storedId != null) {
+            results[index] = new SyncRecordResultDTO(index, SyncRecordStatus.DUPLICATE, storedId, "Already ingested");
+            return true;
+        }
+        if (!replays.claim(externalId, idempotencyKey)) {
+            results[index] = new SyncRecordResultDTO(index, SyncRecordStatus.DUPLICATE, null, "Repeated in batch");
+            return true;
+        }
+        return false;
+    }
+
+    private static List<String> distinctNonNull(List<Integer> indexes, IntFunction<String> getter) {
+        Set<String> values = new LinkedHashSet<>();
+        for (int i : indexes) {
+            String value = getter.apply(i);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return new ArrayList<>(values);
+    }
+
+    private static String validateRange(Date startTime, Date endTime) {
+        if (startTime == null || endTime == null) {
+            return "Missing startTime or endTime";
+        }
+        long millis = endTime.getTime() - startTime.getTime();
+        if (millis <= 0) {
+            return "endTime must be after startTime";
+        }
+        if (millis > MAX_SESSION_MILLIS) {
+            return "Session longer than 24 hours";
+        }
+        return null;
+    }
+
+    // Fin más tardío entre los registros no inválidos del lote: hasta ahí avanza la marca del tipo
+    private static <T> Date latestEnd(List<T> records, List<SyncRecordResultDTO> results, Function<T, Date> endOf) {
+        Date latest = null;
+        for (SyncRecordResultDTO recordResult : results) {
+            if (recordResult.getStatus() == SyncRecordStatus.INVALID) {
+                continue;
+            }
+            Date end = endOf.apply(records.get(recordResult.getIndex()));
+            if (end != null && (latest == null || end.after(latest))) {
+                latest = end;
+            }
+        }
+        return latest;
+    }
+
+    // Una sesión guardada sin id de Health Connect adopta el del registro que la duplica, así que
+    // las siguientes repeticiones se resuelven con la consulta por índice. Las noches lo hacen en
+    // Sleep.mergeFrom y los días de pasos en DailySteps.adoptIds, al ingerirlos
+    private static void adoptIds(HealthConnectActivity stored, HealthConnectExerciseDTO exercise) {
+        if (stored.getExternalId() == null) {
+            stored.setExternalId(exercise.getExternalId());
+        }
+        if (stored.getIdempotencyKey() == null) {
+            stored.setIdempotencyKey(exercise.getIdempotencyKey());
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    /**
+     * Ids de Health Connect y claves de idempotencia ya guardados (con el id del registro) y los
+     * ya vistos en el lote en curso.
+     */
+    private static final class ReplayIndex {
+        private final Map<String, String> stored = new HashMap<>();
+        private final Set<String> claimed = new HashSet<>();
+
+        void addStored(String externalId, String idempotencyKey, String id) {
+            if (externalId != null) {
+                stored.put("e:" + externalId, id);
+            }
+            if (idempotencyKey != null) {
+                stored.put("k:" + idempotencyKey, id);
+            }
+        }
+
+        String storedId(String externalId, String idempotencyKey) {
+            String id = externalId != null ? stored.get("e:" + externalId) : null;
+            return id != null || idempotencyKey == null ? id : stored.get("k:" + idempotencyKey);
+        }
+
+        boolean claim(String externalId, String idempotencyKey) {
+            if ((externalId != null && claimed.contains("e:" + externalId))
+                    || (idempotencyKey != null && claimed.contains("k:" + idempotencyKey))) {
+                return false;
+            }
+            if (externalId != null) {
+                claimed.add("e:" + externalId);
+            }
+            if (idempotencyKey != null) {
+                claimed.add("k:" + idempotencyKey);
+            }
+            return true;
+        }
+    }
+
+    private record KnownActivity(TypeActivity type, AbstractActivity stored) {
+    }
+}
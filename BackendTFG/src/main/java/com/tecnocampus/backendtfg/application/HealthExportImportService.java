@@ -0,0 +1,344 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecnocampus.backendtfg.application.dto.*;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.component.MappedFileInputStream;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Importación de historiales completos exportados en NDJSON: un objeto JSON por línea con un
+ * campo "type" ("activity", "sleep", "steps" o "hydration") y los campos del DTO
+ * correspondiente (HealthConnectExerciseDTO, SleepDTO con sus fases, DailyStepsDTO,
+ * HydrationDTO).
+ *
+ * El fichero se lee con el parser en streaming de Jackson y se procesa en trozos de tamaño fijo,
+ * por el mismo camino que /sync/healthconnect (validación, deduplicación e inserción por
+ * lotes). Cada trozo es una escritura del buzón del usuario (UserWriteMailbox), que lo confirma
+ * con su lote y no se cruza con lo que la app o la sincronización escriban a la vez. La memoria usada no depende del tamaño del fichero, y como los trozos ya confirmados se
+ * reconocen como duplicados, una importación interrumpida se puede repetir entera.
+ *
+ * El fichero subido se limita a import.max-bytes: lo que pase de ahí se rechaza con 413
+ * (ImportTooLargeException) sin llegar a ocupar más disco.
+ */
+@Service
+public class HealthExportImportService {
+
+    private static final int MAX_WARNINGS = 50;
+    private static final long FINISHED_RETENTION_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final HealthConnectSyncService healthConnectSyncService;
+
+    private final HealthConnectIngestionService ingestionService;
+
+    private final UserRepository userRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final UserWriteMailbox userWriteMailbox;
+
+    private final ThreadPoolTaskExecutor importExecutor;
+
+    private final JwtUtils jwtUtils;
+
+    private final int chunkSize;
+
+    private final long maxBytes;
+
+    private final Map<String, ImportJob> imports = new ConcurrentHashMap<>();
+
+    public HealthExportImportService(HealthConnectSyncService healthConnectSyncService,
+                                     HealthConnectIngestionService ingestionService,
+                                     UserRepository userRepository, ObjectMapper objectMapper,
+                                     UserWriteMailbox userWriteMailbox,
+                                     ThreadPoolTaskExecutor importExecutor, JwtUtils jwtUtils,
+                                     @Value("${import.chunk-size:500}") int chunkSize,
+                                     @Value("${import.max-bytes:536870912}") long maxBytes) {
+        this.healthConnectSyncService = healthConnectSyncService;
+        this.ingestionService = ingestionService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.userWriteMailbox = userWriteMailbox;
+        this.importExecutor = importExecutor;
+        this.jwtUtils = jwtUtils;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Vuelca el cuerpo de la petición a un fichero temporal y lo importa en segundo plano: la
+     * petición termina en cuanto se ha recibido el fichero y el progreso se consulta con getImport.
+     * declaredLength es el Content-Length de la petición, o -1 si no lo trae: si ya pasa del
+     * máximo se rechaza sin leer nada; si no, se cuenta lo que llega mientras se copia.
+     */
+    public HealthImportDTO startImport(String token, InputStream body, long declaredLength) throws IOException {
+        String email = jwtUtils.extractEmail(token);
+        if (!userRepository.existsByEmail(email)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        if (declaredLength > maxBytes) {
+            throw tooLarge();
+        }
+
+        Path file = Files.createTempFile("health-import-", ".ndjson");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            copyLimited(body, out);
+        } catch (IOException | ImportTooLargeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+
+        pruneFinished();
+        HealthImportDTO progress = newProgress();
+        imports.put(progress.getId(), new ImportJob(email, progress));
+        try {
+            importExecutor.execute(() -> {
+                try {
+                    importFile(email, file, progress);
+                } finally {
+                    deleteQuietly(file);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            imports.remove(progress.getId());
+            deleteQuietly(file);
+            throw new IllegalStateException("Too many imports in progress, try again later");
+        }
+        return progress;
+    }
+
+    private void copyLimited(InputStream body, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw tooLarge();
+            }
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private ImportTooLargeException tooLarge() {
+        return new ImportTooLargeException("Import file exceeds the maximum size of " + maxBytes + " bytes");
+    }
+
+    public HealthImportDTO getImport(String token, String id) {
+        String email = jwtUtils.extractEmail(token);
+        ImportJob job = imports.get(id);
+        if (job == null || !job.email().equals(email)) {
+            throw new IllegalArgumentException("Import not found");
+        }
+        return job.progress();
+    }
+
+    /**
+     * Importa un fichero local leyéndolo mapeado en memoria (lo usa HealthExportImportRunner).
+     */
+    public HealthImportDTO importFile(String email, Path file) {
+        HealthImportDTO progress = newProgress();
+        importFile(email, file, progress);
+        return progress;
+    }
+
+    public HealthImportDTO importStream(String email, InputStream in) {
+        HealthImportDTO progress = newProgress();
+        importStream(email, in, progress);
+        return progress;
+    }
+
+    private void importFile(String email, Path file, HealthImportDTO progress) {
+        try (InputStream in = new MappedFileInputStream(file)) {
+            importStream(email, in, progress);
+        } catch (IOException e) {
+            fail(progress, "Could not read import file: " + e.getMessage());
+        }
+    }
+
+    private void importStream(String email, InputStream in, HealthImportDTO progress) {
+        Chunk chunk = new Chunk();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                int line = parser.currentTokenLocation().getLineNr();
+                progress.setRecords(progress.getRecords() + 1);
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    reject(progress, line, "Expected a JSON object");
+                    continue;
+                }
+                // Solo se materializa el registro actual, nunca el fichero
+                JsonNode node = parser.readValueAsTree();
+                addRecord(chunk, node, line, progress);
+                if (chunk.size() >= chunkSize) {
+                    flush(email, chunk, progress);
+                }
+            }
+            flush(email, chunk, progress);
+            progress.setStatus(ImportStatus.COMPLETED);
+        } catch (JsonProcessingException e) {
+            fail(progress, "Malformed JSON at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage());
+        } catch (IOException | RuntimeException e) {
+            fail(progress, e.getMessage());
+        } finally {
+            progress.setFinishedAt(new Date());
+        }
+    }
+
+    private void addRecord(Chunk chunk, JsonNode node, int line, HealthImportDTO progress) {
+        String type = node.path("type").asText("");
+        try {
+            switch (type) {
+                case "activity" -> {
+                    chunk.exercises.add(objectMapper.treeToValue(node, HealthConnectExerciseDTO.class));
+                    chunk.exerciseLines.add(line);
+                }
+                case "sleep" -> {
+                    chunk.sleeps.add(objectMapper.treeToValue(node, SleepDTO.class));
+                    chunk.sleepLines.add(line);
+                }
+                case "steps" -> {
+                    chunk.dailySteps.add(objectMapper.treeToValue(node, DailyStepsDTO.class));
+                    chunk.dailyStepsLines.add(line);
+                }
+                case "hydration" -> {
+                    HydrationDTO hydration = objectMapper.treeToValue(node, HydrationDTO.class);
+                    if (hydration.getDate() == null || hydration.getQuantity() <= 0) {
+                        reject(progress, line, "Hydration needs a date and a positive quantity");
+                    } else {
+                        chunk.hydrations.add(hydration);
+                    }
+                }
+                default -> reject(progress, line, "Unknown record type '" + type + "'");
+            }
+        } catch (JsonProcessingException e) {
+            reject(progress, line, "Invalid " + type + " record: " + e.getOriginalMessage());
+        }
+    }
+
+    private void flush(String email, Chunk chunk, HealthImportDTO progress) {
+        if (chunk.size() == 0) {
+            return;
+        }
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setExerciseSessions(chunk.exercises);
+        syncDTO.setSleepSessions(chunk.sleeps);
+        syncDTO.setDailySteps(chunk.dailySteps);
+
+        // Si una sincronización guarda a la vez algún registro del trozo, el buzón lo repite solo
+        ChunkResult result = writeChunk(email, chunk, syncDTO);
+
+        tally(progress, result.sync().getExerciseSessions(), chunk.exerciseLines);
+        tally(progress, result.sync().getSleepSessions(), chunk.sleepLines);
+        tally(progress, result.sync().getDailySteps(), chunk.dailyStepsLines);
+        progress.setSaved(progress.getSaved() + result.hydrations());
+        progress.setDuplicates(progress.getDuplicates() + chunk.hydrations.size() - result.hydrations());
+        chunk.clear();
+    }
+
+    private ChunkResult writeChunk(String email, Chunk chunk, HealthConnectSyncDTO syncDTO) {
+        return userWriteMailbox.submitInBackground(email, () -> {
+            User user = userRepository.findByEmail(email);
+            if (user == null) {
+                throw new IllegalArgumentException("User not found");
+            }
+            return new ChunkResult(healthConnectSyncService.sync(user, syncDTO),
+                    ingestionService.ingestHydrations(user, chunk.hydrations));
+        });
+    }
+
+    private void tally(HealthImportDTO progress, List<SyncRecordResultDTO> results, List<Integer> lines) {
+        for (SyncRecordResultDTO result : results) {
+            switch (result.getStatus()) {
+                case SAVED -> progress.setSaved(progress.getSaved() + 1);
+                case UNCHANGED -> progress.setUnchanged(progress.getUnchanged() + 1);
+                case DUPLICATE -> progress.setDuplicates(progress.getDuplicates() + 1);
+                case INVALID -> reject(progress, lines.get(result.getIndex()), result.getMessage());
+            }
+        }
+    }
+
+    private void reject(HealthImportDTO progress, int line, String message) {
+        progress.setInvalid(progress.getInvalid() + 1);
+        if (progress.getWarnings().size() < MAX_WARNINGS) {
+            progress.getWarnings().add("Line " + line + ": " + message);
+        }
+    }
+
+    private void fail(HealthImportDTO progress, String message) {
+        System.out.println("Error en la importación " + progress.getId() + ": " + message);
+        progress.setError(message);
+        progress.setStatus(ImportStatus.FAILED);
+    }
+
+    private HealthImportDTO newProgress() {
+        HealthImportDTO progress = new HealthImportDTO();
+        progress.setId(UUID.randomUUID().toString());
+        progress.setStatus(ImportStatus.RUNNING);
+        progress.setStartedAt(new Date());
+        return progress;
+    }
+
+    private void pruneFinished() {
+        long limit = System.currentTimeMillis() - FINISHED_RETENTION_MILLIS;
+        imports.values().removeIf(job -> job.progress().getFinishedAt() != null
+                && job.progress().getFinishedAt().getTime() < limit);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("No se pudo borrar el fichero temporal " + file + ": " + e.getMessage());
+        }
+    }
+
+    private record ImportJob(String email, HealthImportDTO progress) {
+    }
+
+    private record ChunkResult(HealthConnectSyncResultDTO sync, int hydrations) {
+    }
+
+    // Registros pendientes del trozo actual, con la línea de cada uno para los avisos
+    private static final class Chunk {
+        private final List<HealthConnectExerciseDTO> exercises = new ArrayList<>();
+        private final List<Integer> exerciseLines = new ArrayList<>();
+        private final List<SleepDTO> sleeps = new ArrayList<>();
+        private final List<Integer> sleepLines = new ArrayList<>();
+        private final List<DailyStepsDTO> dailySteps = new ArrayList<>();
+        private final List<Integer> dailyStepsLines = new ArrayList<>();
+        private final List<HydrationDTO> hydrations = new ArrayList<>();
+
+        private int size() {
+            return exercises.size() + sleeps.size() + dailySteps.size() + hydrations.size();
+        }
+
+        private void clear() {
+            exercises.clear();
+            exerciseLines.clear();
+            sleeps.clear();
+            sleepLines.clear();
+            dailySteps.clear();
+            dailyStepsLines.clear();
+            hydrations.clear();
+        }
+    }
+}
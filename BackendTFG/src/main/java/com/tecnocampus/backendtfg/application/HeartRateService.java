@@ -0,0 +1,212 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.HeartRateBucketDTO;
+import com.tecnocampus.backendtfg.application.dto.HeartRateIngestResultDTO;
+import com.tecnocampus.backendtfg.application.dto.HeartRateSampleDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.AbstractActivity;
+import com.tecnocampus.backendtfg.domain.HeartRateBlock;
+import com.tecnocampus.backendtfg.domain.HeartRateSeries;
+import com.tecnocampus.backendtfg.domain.SyncDataType;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.ActivityRepository;
+import com.tecnocampus.backendtfg.persistence.HeartRateBlockRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Serie temporal de frecuencia cardíaca. Las muestras no se guardan como filas: cada lote se
+ * agrupa por día y se fusiona con el bloque comprimido de ese día (HeartRateBlock), así que un
+ * día con decenas de miles de muestras es una sola fila de unos pocos cientos de KB como mucho.
+ * Al recibir muestras se recalculan las calorías de las actividades de esos días con
+ * HeartRateCalorieCalculator.
+ */
+@Service
+public class HeartRateService {
+
+    private static final int MIN_BPM = 20;
+    private static final int MAX_BPM = 250;
+    private static final int MAX_SAMPLES_PER_REQUEST = 100_000;
+    private static final long MAX_RANGE_MILLIS = 31L * 24 * 60 * 60 * 1000;
+    private static final int MAX_BUCKETS = 10_000;
+
+    private final HeartRateBlockRepository heartRateBlockRepository;
+
+    private final ActivityRepository activityRepository;
+
+    private final UserRepository userRepository;
+
+    private final SyncStateService syncStateService;
+
+    private final JwtUtils jwtUtils;
+
+    public HeartRateService(HeartRateBlockRepository heartRateBlockRepository, ActivityRepository activityRepository,
+                            UserRepository userRepository, SyncStateService syncStateService, JwtUtils jwtUtils) {
+        this.heartRateBlockRepository = heartRateBlockRepository;
+        this.activityRepository = activityRepository;
+        this.userRepository = userRepository;
+        this.syncStateService = syncStateService;
+        this.jwtUtils = jwtUtils;
+    }
+
+    @Transactional
+    public HeartRateIngestResultDTO ingestSamples(String token, List<HeartRateSampleDTO> samples) {
+        String email = jwtUtils.extractEmail(token);
+        User user = userRepository.findByEmail(email);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        if (samples == null || samples.size() > MAX_SAMPLES_PER_REQUEST) {
+            throw new IllegalArgumentException("Send between 0 and " + MAX_SAMPLES_PER_REQUEST + " samples per request");
+        }
+
+        Map<LocalDate, HeartRateSeries> byDay = new TreeMap<>();
+        int rejected = 0;
+        long latest = Long.MIN_VALUE;
+        for (HeartRateSampleDTO sample : samples) {
+            if (sample == null || sample.getTime() == null
+                    || sample.getBeatsPerMinute() < MIN_BPM || sample.getBeatsPerMinute() > MAX_BPM) {
+                rejected++;
+                continue;
+            }
+            long time = sample.getTime().getTime();
+            byDay.computeIfAbsent(toLocalDate(time), day -> new HeartRateSeries()).add(time, sample.getBeatsPerMinute());
+            latest = Math.max(latest, time);
+        }
+        if (byDay.isEmpty()) {
+            return new HeartRateIngestResultDTO(0, rejected, 0);
+        }
+
+        Map<LocalDate, HeartRateBlock> blocks = new HashMap<>();
+        for (HeartRateBlock block : heartRateBlockRepository.findByUserAndDayIn(user, byDay.keySet())) {
+            blocks.put(block.getDay(), block);
+        }
+        List<HeartRateBlock> toSave = new ArrayList<>(byDay.size());
+        Map<LocalDate, HeartRateSeries> merged = new HashMap<>();
+        for (Map.Entry<LocalDate, HeartRateSeries> entry : byDay.entrySet()) {
+            HeartRateSeries incoming = entry.getValue().sorted();
+            HeartRateBlock block = blocks.get(entry.getKey());
+            HeartRateSeries series;
+            if (block == null) {
+                block = new HeartRateBlock(user, entry.getKey());
+                series = incoming;
+            } else {
+                // Un reenvío de las mismas muestras sustituye los instantes repetidos, no los duplica
+                series = block.getSeries().merge(incoming);
+            }
+            block.setSeries(series);
+            merged.put(entry.getKey(), series);
+            toSave.add(block);
+        }
+        heartRateBlockRepository.saveAll(toSave);
+        rescoreActivities(user, merged);
+        syncStateService.advance(user, SyncDataType.HEART_RATE, new Date(latest), null);
+        return new HeartRateIngestResultDTO(samples.size() - rejected, rejected, byDay.size());
+    }
+
+    /**
+     * Recalcula las calorías de las actividades que empiezan en los días recibidos. Las entidades
+     * están gestionadas: los UPDATE salen en el flush de la transacción.
+     */
+    private void rescoreActivities(User user, Map<LocalDate, HeartRateSeries> seriesByDay) {
+        if (user.getActivityProfile() == null) {
+            return;
+        }
+        LocalDate first = Collections.min(seriesByDay.keySet());
+        LocalDate last = Collections.max(seriesByDay.keySet());
+        List<AbstractActivity> activities = activityRepository.findByActivityProfileAndDateBetween(
+                user.getActivityProfile(), toDate(first), new Date(toDate(last.plusDays(1)).getTime() - 1));
+        if (activities.isEmpty()) {
+            return;
+        }
+
+        // Las actividades que pasan de medianoche necesitan también el día siguiente
+        Set<LocalDate> nextDays = new HashSet<>();
+        for (LocalDate day : seriesByDay.keySet()) {
+            if (!seriesByDay.containsKey(day.plusDays(1))) {
+                nextDays.add(day.plusDays(1));
+            }
+        }
+        Map<LocalDate, HeartRateSeries> heartRateByDay = new HashMap<>(seriesByDay);
+        for (HeartRateBlock block : heartRateBlockRepository.findByUserEmailAndDayIn(user.getEmail(), nextDays)) {
+            heartRateByDay.put(block.getDay(), block.getSeries());
+        }
+        for (AbstractActivity activity : activities) {
+            if (seriesByDay.containsKey(toLocalDate(activity.getDate().getTime()))) {
+                activity.calculateCalories(heartRateByDay);
+            }
+        }
+    }
+
+    /**
+     * Serie reducida a intervalos de resolutionSeconds entre from (incluido) y to (excluido),
+     * con el mínimo, la media y el máximo de cada intervalo. Los intervalos sin muestras no se
+     * devuelven.
+     */
+    public List<HeartRateBucketDTO> getSeries(String token, Date from, Date to, int resolutionSeconds) {
+        if (from == null || to == null || !from.before(to)) {
+            throw new IllegalArgumentException("Invalid time range");
+        }
+        if (to.getTime() - from.getTime() > MAX_RANGE_MILLIS) {
+            throw new IllegalArgumentException("Time range cannot exceed 31 days");
+        }
+        if (resolutionSeconds < 1) {
+            throw new IllegalArgumentException("Resolution must be at least one second");
+        }
+        long start = from.getTime();
+        long end = to.getTime();
+        long resolution = resolutionSeconds * 1000L;
+        long bucketCount = (end - start + resolution - 1) / resolution;
+        if (bucketCount > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Resolution too fine for the requested range");
+        }
+
+        int buckets = (int) bucketCount;
+        int[] min = new int[buckets];
+        int[] max = new int[buckets];
+        long[] sum = new long[buckets];
+        int[] count = new int[buckets];
+        Arrays.fill(min, Integer.MAX_VALUE);
+
+        String email = jwtUtils.extractEmail(token);
+        for (HeartRateBlock block : heartRateBlockRepository.findByUserEmailAndDayBetweenOrderByDayAsc(
+                email, toLocalDate(start), toLocalDate(end - 1))) {
+            HeartRateSeries series = block.getSeries();
+            for (int i = 0; i < series.size(); i++) {
+                long time = series.timeAt(i);
+                if (time < start || time >= end) {
+                    continue;
+                }
+                int bucket = (int) ((time - start) / resolution);
+                int bpm = series.bpmAt(i);
+                min[bucket] = Math.min(min[bucket], bpm);
+                max[bucket] = Math.max(max[bucket], bpm);
+                sum[bucket] += bpm;
+                count[bucket]++;
+            }
+        }
+
+        List<HeartRateBucketDTO> result = new ArrayList<>();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (count[bucket] > 0) {
+                double avg = Math.round(sum[bucket] * 10.0 / count[bucket]) / 10.0;
+                result.add(new HeartRateBucketDTO(new Date(start + bucket * resolution),
+                        min[bucket], avg, max[bucket], count[bucket]));
+            }
+        }
+        return result;
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate toLocalDate(long time) {
+        return new Date(time).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -1,20 +1,36 @@
 package com.tecnocampus.backendtfg.application;
 
+import com.tecnocampus.backendtfg.application.dto.HydrationOwnerDTO;
 import com.tecnocampus.backendtfg.application.dto.HydrationStatusDTO;
 import com.tecnocampus.backendtfg.application.dto.HydrationUpdateRequest;
 import com.tecnocampus.backendtfg.component.JwtUtils;
 import com.tecnocampus.backendtfg.domain.ChallengeType;
-import com.tecnocampus.backendtfg.domain.Gender;
+import com.tecnocampus.backendtfg.domain.ChangeEntityType;
+import com.tecnocampus.backendtfg.domain.ChangeOperation;
 import com.tecnocampus.backendtfg.domain.Hydration;
 import com.tecnocampus.backendtfg.domain.HydrationProfile;
+import com.tecnocampus.backendtfg.domain.SyncChange;
 import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.BulkInsertRepository;
+import com.tecnocampus.backendtfg.persistence.HydrationIntakeLog.Intake;
 import com.tecnocampus.backendtfg.persistence.HydrationProfileRepository;
 import com.tecnocampus.backendtfg.persistence.HydrationRepository;
+import com.tecnocampus.backendtfg.persistence.SyncChangeLog;
 import com.tecnocampus.backendtfg.persistence.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Calendar;
-import java.util.Date;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Service
 public class HydrationService {
@@ -23,101 +39,246 @@ public class HydrationService {
     private final HydrationRepository hydrationRepository;
     private final HydrationProfileRepository hydrationProfileRepository;
     private final JwtUtils jwtUtils;
+    private final SyncChangeLog syncChangeLog;
     private final ChallengeService challengeService;
+    private final HydrationStatusCache hydrationStatusCache;
+    private final HydrationWriteBehind writeBehind;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final ThreadPoolTaskExecutor hydrationFlushExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final UserWriteMailbox userWriteMailbox;
+    private final int flushEntries;
+
+    private final ReentrantLock flushing = new ReentrantLock();
+
+    // Las lecturas del estado cogen la de lectura; un volcado, la de escritura desde justo antes de
+    // su commit hasta quitar el lote de pendientes. Así ninguna lectura cuenta el lote dos veces,
+    // en la base de datos y en pendientes
+    private final ReentrantReadWriteLock flushVisibility = new ReentrantReadWriteLock();
 
     public HydrationService(UserRepository userRepository,
                             HydrationRepository hydrationRepository,
                             HydrationProfileRepository hydrationProfileRepository,
+                            SyncChangeLog syncChangeLog,
                             JwtUtils jwtUtils,
-                            ChallengeService challengeService) {
+                            ChallengeService challengeService,
+                            HydrationStatusCache hydrationStatusCache,
+                            HydrationWriteBehind writeBehind,
+                            BulkInsertRepository bulkInsertRepository,
+                            ThreadPoolTaskExecutor hydrationFlushExecutor,
+                            PlatformTransactionManager transactionManager,
+                            UserWriteMailbox userWriteMailbox,
+                            @Value("${hydration.write-behind.flush-entries:200}") int flushEntries) {
         this.userRepository = userRepository;
         this.hydrationRepository = hydrationRepository;
         this.hydrationProfileRepository = hydrationProfileRepository;
+        this.syncChangeLog = syncChangeLog;
         this.jwtUtils = jwtUtils;
         this.challengeService = challengeService;
+        this.hydrationStatusCache = hydrationStatusCache;
+        this.writeBehind = writeBehind;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.hydrationFlushExecutor = hydrationFlushExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userWriteMailbox = userWriteMailbox;
+        this.flushEntries = flushEntries;
     }
 
+    /**
+     * Solo lectura y normalmente sin tocar la base de datos (HydrationStatusCache). El acumulado
+     * de un día anterior cuenta como 0 sin reescribir el perfil: la siguiente suma ya empieza de
+     * cero (addToDailyAmount). Incluye las tomas de hoy que aún no se han volcado.
+     */
     public HydrationStatusDTO getHydrationStatus(String token) {
         String email = jwtUtils.extractEmail(token);
-        User user = userRepository.findByEmail(email);
-
-        HydrationProfile hydrationProfile = hydrationProfileRepository.findByUser(user);
-
-        // Calcular objetivo diario de hidratación externamente
-        double dailyTarget = calculateDailyObjective(user);
-        hydrationProfile.setDailyObjectiveWater(dailyTarget);
-
-        // Guardar el perfil con el objetivo actualizado
-        hydrationProfileRepository.save(hydrationProfile);
-
-        // Verificar si es un nuevo día para resetear
-        if (isNewDay(hydrationProfile.getLastUpdate())) {
-            hydrationProfile.resetDailyAmount();
-            hydrationProfileRepository.save(hydrationProfile);
+        HydrationStatusDTO status;
+        HydrationWriteBehind.PendingTotal pending;
+        flushVisibility.readLock().lock();
+        try {
+            status = hydrationStatusCache.get(email);
+            pending = writeBehind.pendingToday(email);
+        } finally {
+            flushVisibility.readLock().unlock();
+        }
+        if (status == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        if (pending != null) {
+            status.setCurrentAmount(status.getCurrentAmount() + pending.amount());
+            if (status.getLastUpdate() == null || pending.lastIntake().after(status.getLastUpdate())) {
+                status.setLastUpdate(pending.lastIntake());
+            }
         }
+        return status;
+    }
 
-        return new HydrationStatusDTO(
-                hydrationProfile.getDailyObjectiveWater(),
-                hydrationProfile.getCurrentAmount(),
-                hydrationProfile.getLastUpdate()
-        );
+    /**
+     * Recalcula el objetivo diario con los datos actuales del usuario. Lo llama
+     * UserService.setDataProfile cuando cambian el peso, la edad o el género.
+     */
+    public void updateDailyObjective(User user) {
+        HydrationProfile profile = hydrationProfileRepository.findByUser(user);
+        if (profile == null) {
+            return;
+        }
+        double previous = profile.getDailyObjectiveWater();
+        profile.recalculateDailyObjectiveWater();
+        if (profile.getDailyObjectiveWater() != previous) {
+            // Con versión: si coincide con una suma concurrente falla en vez de pisarla
+            hydrationProfileRepository.save(profile);
+            hydrationStatusCache.invalidate(user.getEmail());
+        }
     }
 
+    /**
+     * Con el modo write-behind (hydration.write-behind.enabled) la toma solo se apunta en el log
+     * local y en memoria, sin tocar la base de datos; flushPending la escribe junto con las demás.
+     * Sin él, la escritura directa pasa por el buzón del usuario como las demás.
+     */
     public void updateHydration(String token, HydrationUpdateRequest updateRequest) {
         String email = jwtUtils.extractEmail(token);
-        User user = userRepository.findByEmail(email);
+        if (writeBehind.isEnabled()) {
+            int pending = writeBehind.record(email, updateRequest.getAmount());
+            if (pending >= flushEntries) {
+                hydrationFlushExecutor.execute(this::flushPending);
+            }
+            if (pending >= 0) {
+                return;
+            }
+            // Sin log no hay durabilidad: se escribe directamente
+        }
 
-        HydrationProfile profile = hydrationProfileRepository.findByUser(user);
+        userWriteMailbox.submitForEmail(email, () -> {
+            User user = userRepository.findByEmail(email);
 
-        // Verificar si es un nuevo día
-        if (isNewDay(profile.getLastUpdate())) {
-            profile.resetDailyAmount();
+            // Crear nueva entrada de hidratación con la fecha actual
+            Hydration hydration = new Hydration(
+                    updateRequest.getAmount(),
+                    new Date(),
+                    user.getHydrationProfile()
+            );
+
+            hydrationRepository.save(hydration);
+            addToDailyAmount(user, updateRequest.getAmount());
+            challengeService.recordProgress(user, ChallengeType.HYDRATION, (int)(updateRequest.getAmount() * 1000));
+        });
+    }
+
+    /**
+     * Escribe las tomas pendientes en una transacción: inserciones por lotes, una suma al
+     * acumulado del día y un registro de progreso de retos por usuario. Si falla, las tomas
+     * vuelven a la cola y lo intenta el siguiente volcado.
+     */
+    @Scheduled(fixedDelayString = "${hydration.write-behind.flush-millis:3000}")
+    @PreDestroy
+    public void flushPending() {
+        flushing.lock();
+        try {
+            HydrationWriteBehind.Batch batch = writeBehind.drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    writePending(batch.intakes());
+                    TransactionSynchronizationManager.registerSynchronization(new CompleteOnCommit(batch));
+                });
+            } catch (RuntimeException e) {
+                writeBehind.restore(batch);
+                System.out.println("Error al volcar las tomas de agua pendientes: " + e.getMessage());
+            }
+        } catch (IOException e) {
+            System.out.println("Error al rotar el log de hidratación: " + e.getMessage());
+        } finally {
+            flushing.unlock();
         }
+    }
 
-        // Crear nueva entrada de hidratación con la fecha actual
-        Date currentDate = new Date();
+    // Pasa el lote de pendiente a escrito de una vez para las lecturas. Las invalidaciones de
+    // HydrationStatusCache se registran antes durante el volcado, así que al soltar el cerrojo
+    // la caché ya está vacía y la siguiente lectura carga los datos nuevos
+    private final class CompleteOnCommit implements TransactionSynchronization {
+        private final HydrationWriteBehind.Batch batch;
+        private boolean locked;
+
+        private CompleteOnCommit(HydrationWriteBehind.Batch batch) {
+            this.batch = batch;
+        }
 
-        Hydration hydration = new Hydration(
-                updateRequest.getAmount(),
-                currentDate,
-                profile
-        );
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flushVisibility.writeLock().lock();
+            locked = true;
+        }
 
-        profile.addHydration(hydration);
-        hydrationProfileRepository.save(profile);
-        challengeService.updateChallengeProgress(token, ChallengeType.HYDRATION, (int)(updateRequest.getAmount() * 1000));
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                if (status == STATUS_COMMITTED) {
+                    writeBehind.complete(batch);
+                }
+            } finally {
+                if (locked) {
+                    flushVisibility.writeLock().unlock();
+                }
+            }
+        }
     }
 
-    private double calculateDailyObjective(User user) {
-        // Fórmula básica: Peso (kg) * 0.033 litros (33 ml por kg)
-        if (user.getWeight() != null) {
-            double baseAmount = user.getWeight() * 0.033;
+    private void writePending(Map<String, List<Intake>> intakesByEmail) {
+        Map<String, HydrationOwnerDTO> owners = new HashMap<>();
+        for (HydrationOwnerDTO owner : userRepository.findHydrationOwners(intakesByEmail.keySet())) {
+            owners.put(owner.getEmail(), owner);
+        }
+        // Tras una caída el log puede repetir tomas que ya se habían escrito
+        Set<String> written = new HashSet<>(hydrationRepository.findExistingIds(
+                intakesByEmail.values().stream().flatMap(List::stream).map(Intake::id).toList()));
 
-            // Ajuste por edad (los mayores necesitan más)
-            if (user.getAge() > 30) {
-                baseAmount *= 1.1;
+        long startOfToday = ChallengeService.startOfToday().getTime();
+        List<Hydration> hydrations = new ArrayList<>();
+        for (Map.Entry<String, List<Intake>> entry : intakesByEmail.entrySet()) {
+            HydrationOwnerDTO owner = owners.get(entry.getKey());
+            if (owner == null) {
+                // Usuario borrado mientras tanto
+                continue;
             }
-
-            // Ajuste por género
-            if (user.getGender() == Gender.MALE) {
-                baseAmount *= 1.1;
+            HydrationProfile profile = hydrationProfileRepository.getReferenceById(owner.getProfileId());
+            double todayAmount = 0;
+            for (Intake intake : entry.getValue()) {
+                if (written.contains(intake.id())) {
+                    continue;
+                }
+                Hydration hydration = new Hydration(intake.amount(), new Date(intake.date()), profile);
+                hydration.setId(intake.id());
+                hydrations.add(hydration);
+                // Las de antes de medianoche solo se guardan: el acumulado y los retos son de hoy
+                if (intake.date() >= startOfToday) {
+                    todayAmount += intake.amount();
+                }
+            }
+            if (todayAmount > 0) {
+                addToDailyAmount(owner.getUserId(), owner.getEmail(), owner.getProfileId(), todayAmount);
+                challengeService.recordProgress(userRepository.getReferenceById(owner.getUserId()),
+                        ChallengeType.HYDRATION, (int) (todayAmount * 1000));
             }
-
-            return Math.round(baseAmount * 100) / 100.0;
-        } else {
-            // Valor por defecto si no hay peso registrado (2.5 litros)
-            return 2.5;
         }
+        bulkInsertRepository.insertAll(hydrations);
     }
 
-    private boolean isNewDay(Date lastUpdate) {
-        if (lastUpdate == null) return true;
+    /**
+     * Suma al acumulado del día con un UPDATE atómico, sin cargar el perfil: las
+     * sincronizaciones simultáneas no se pisan. Necesita una transacción.
+     */
+    public void addToDailyAmount(User user, double amount) {
+        addToDailyAmount(user.getId(), user.getEmail(), user.getHydrationProfile().getId(), amount);
+    }
 
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal2.setTime(lastUpdate);
+    private void addToDailyAmount(String userId, String email, String profileId, double amount) {
+        Date now = new Date();
+        hydrationProfileRepository.addAmount(profileId, amount, ChallengeService.startOfToday(), now);
 
-        return cal1.get(Calendar.DAY_OF_YEAR) != cal2.get(Calendar.DAY_OF_YEAR)
-                || cal1.get(Calendar.YEAR) != cal2.get(Calendar.YEAR);
+        // El UPDATE masivo no pasa por ChangeTrackingListener: las cachés del cliente se enteran por aquí
+        syncChangeLog.record(new SyncChange(userId, ChangeEntityType.HYDRATION_STATUS, profileId, ChangeOperation.UPSERT));
+        hydrationStatusCache.invalidate(email);
     }
 }
\ No newline at end of file
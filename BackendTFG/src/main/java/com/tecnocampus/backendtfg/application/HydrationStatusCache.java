@@ -0,0 +1,94 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.HydrationStatusDTO;
+import com.tecnocampus.backendtfg.persistence.HydrationProfileRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de hidratación de cada usuario en memoria, por email (lo que trae el token), para que
+ * la consulta que el cliente hace continuamente no llegue a la base de datos. Se guarda la fila
+ * tal cual y el cambio de día se deduce al leer: si la última suma es de otro día, hoy van 0.
+ *
+ * Se invalida al sumar hidratación, al recalcular el objetivo y al borrar el usuario, con el
+ * mismo esquema que ActiveChallengeIndex para que una carga concurrente no deje datos viejos.
+ */
+@Component
+public class HydrationStatusCache {
+
+    private static final int MAX_USERS = 100_000;
+
+    private final HydrationProfileRepository hydrationProfileRepository;
+
+    private final Map<String, HydrationStatusDTO> statuses = new ConcurrentHashMap<>();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public HydrationStatusCache(HydrationProfileRepository hydrationProfileRepository) {
+        this.hydrationProfileRepository = hydrationProfileRepository;
+    }
+
+    /**
+     * Estado de hoy del usuario, o null si no tiene perfil de hidratación.
+     */
+    public HydrationStatusDTO get(String email) {
+        HydrationStatusDTO status = statuses.get(email);
+        if (status == null) {
+            status = load(email);
+            if (status == null) {
+                return null;
+            }
+        }
+        return forToday(status.getDailyTarget(), status.getCurrentAmount(), status.getLastUpdate());
+    }
+
+    /**
+     * Olvida el estado del usuario. Dentro de una transacción se repite al terminarla, para que
+     * una carga concurrente no se quede con lo que había antes del commit.
+     */
+    public void invalidate(String email) {
+        evict(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(email);
+                }
+            });
+        }
+    }
+
+    static HydrationStatusDTO forToday(double dailyTarget, double currentAmount, Date lastUpdate) {
+        boolean today = lastUpdate != null && !lastUpdate.before(ChallengeService.startOfToday());
+        return new HydrationStatusDTO(dailyTarget, today ? currentAmount : 0, lastUpdate);
+    }
+
+    private HydrationStatusDTO load(String email) {
+        long stamp = invalidations.get();
+        HydrationStatusDTO status = hydrationProfileRepository.findStatusByUserEmail(email);
+        if (status == null) {
+            return null;
+        }
+
+        if (statuses.size() >= MAX_USERS) {
+            statuses.clear();
+        }
+        statuses.putIfAbsent(email, status);
+        if (invalidations.get() != stamp) {
+            statuses.remove(email, status);
+        }
+        return status;
+    }
+
+    private void evict(String email) {
+        // Primero el contador: una carga en curso verá el cambio y quitará lo que haya puesto
+        invalidations.incrementAndGet();
+        statuses.remove(email);
+    }
+}
@@ -0,0 +1,200 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.persistence.HydrationIntakeLog;
+import com.tecnocampus.backendtfg.persistence.HydrationIntakeLog.Intake;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tomas de agua pendientes de escribir en la base de datos. Cada toma se apunta en el log local
+ * (HydrationIntakeLog), se suma al contador de su día para el usuario (un DoubleAdder, que reparte
+ * las sumas concurrentes en celdas) y se encola; HydrationService las vuelca por lotes.
+ *
+ * Un volcado toma lo encolado con drain y, según salga, lo da por escrito (complete) o lo
+ * devuelve a la cola (restore). Hasta complete el contador lo sigue incluyendo, así que el estado
+ * que ve el cliente no baja mientras el lote se escribe.
+ */
+@Component
+public class HydrationWriteBehind {
+
+    private final HydrationIntakeLog log;
+
+    private final boolean enabled;
+
+    // Pendiente por email, que es lo que trae el token: tomar agua no consulta la base de datos
+    private final Map<String, PendingIntakes> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger entries = new AtomicInteger();
+
+    // Las tomas cogen la de lectura; drain, complete y restore la de escritura
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public HydrationWriteBehind(HydrationIntakeLog log,
+                                @Value("${hydration.write-behind.enabled:true}") boolean enabled) {
+        this.log = log;
+        this.enabled = enabled;
+    }
+
+    public record Batch(long nextSegment, Map<String, List<Intake>> intakes) {
+        public boolean isEmpty() {
+            return intakes.isEmpty();
+        }
+    }
+
+    public record PendingTotal(double amount, Date lastIntake) {
+    }
+
+    // Un contador por día: tras medianoche, o con tomas recuperadas de días anteriores, el estado
+    // de hoy solo debe sumar las de hoy
+    private record PendingIntakes(Map<LocalDate, DoubleAdder> amountByDay, Queue<Intake> intakes,
+                                  AtomicLong lastIntake) {
+        private PendingIntakes() {
+            this(new ConcurrentHashMap<>(), new ConcurrentLinkedQueue<>(), new AtomicLong());
+        }
+
+        private void add(Intake intake) {
+            intakes.add(intake);
+            amount(intake).add(intake.amount());
+            lastIntake.accumulateAndGet(intake.date(), Math::max);
+        }
+
+        private DoubleAdder amount(Intake intake) {
+            return amountByDay.computeIfAbsent(dayOf(intake.date()), day -> new DoubleAdder());
+        }
+    }
+
+    private static LocalDate dayOf(long date) {
+        return Instant.ofEpochMilli(date).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Tomas que quedaron en el log sin volcar en la ejecución anterior: vuelven a la cola y el
+     * siguiente volcado las escribe; al completarlo se borran sus segmentos. Si no queda ninguna,
+     * los segmentos cerrados (vacíos o ya volcados) se borran aquí, que si no cada arranque
+     * dejaría uno más.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        if (!log.isAvailable()) {
+            return;
+        }
+        List<Intake> recovered = log.readSealed();
+        for (Intake intake : recovered) {
+            pending.computeIfAbsent(intake.email(), email -> new PendingIntakes()).add(intake);
+        }
+        entries.addAndGet(recovered.size());
+        if (recovered.isEmpty()) {
+            log.deleteSealed();
+        } else {
+            System.out.println("Recuperadas " + recovered.size() + " tomas de agua sin volcar");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled && log.isAvailable();
+    }
+
+    /**
+     * Apunta una toma. Devuelve cuántas hay pendientes en total, o -1 si no se ha podido escribir
+     * en el log (entonces no se ha apuntado nada y hay que escribirla directamente).
+     */
+    public int record(String email, double amount) {
+        Intake intake = new Intake(UUID.randomUUID().toString(), email, amount, System.currentTimeMillis());
+        lock.readLock().lock();
+        try {
+            log.append(intake);
+            pending.computeIfAbsent(email, key -> new PendingIntakes()).add(intake);
+            return entries.incrementAndGet();
+        } catch (IOException e) {
+            System.out.println("Error al escribir en el log de hidratación: " + e.getMessage());
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lo que el usuario ha tomado hoy y aún no está en la base de datos, o null si no hay nada.
+     */
+    public PendingTotal pendingToday(String email) {
+        PendingIntakes intakes = pending.get(email);
+        if (intakes == null) {
+            return null;
+        }
+        long lastIntake = intakes.lastIntake().get();
+        DoubleAdder today = intakes.amountByDay().get(LocalDate.now());
+        if (today == null || lastIntake < ChallengeService.startOfToday().getTime()) {
+            return null;
+        }
+        return new PendingTotal(today.sum(), new Date(lastIntake));
+    }
+
+    public Batch drain() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Map<String, List<Intake>> drained = new HashMap<>();
+            for (Map.Entry<String, PendingIntakes> entry : pending.entrySet()) {
+                List<Intake> intakes = new ArrayList<>();
+                Intake intake;
+                while ((intake = entry.getValue().intakes().poll()) != null) {
+                    intakes.add(intake);
+                }
+                if (!intakes.isEmpty()) {
+                    drained.put(entry.getKey(), intakes);
+                }
+            }
+            // Todo lo drenado queda en segmentos anteriores al nuevo
+            long nextSegment = drained.isEmpty() ? 0 : log.rotate();
+            return new Batch(nextSegment, drained);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void complete(Batch batch) {
+        lock.writeLock().lock();
+        try {
+            int count = 0;
+            for (Map.Entry<String, List<Intake>> entry : batch.intakes().entrySet()) {
+                PendingIntakes intakes = pending.get(entry.getKey());
+                for (Intake intake : entry.getValue()) {
+                    intakes.amount(intake).add(-intake.amount());
+                }
+                count += entry.getValue().size();
+                if (intakes.intakes().isEmpty()) {
+                    pending.remove(entry.getKey());
+                }
+            }
+            entries.addAndGet(-count);
+            log.deleteBefore(batch.nextSegment());
+        } catch (IOException e) {
+            // Ya están en la base de datos: si se vuelven a leer tras una caída se descartan por id
+            System.out.println("Error al borrar el log de hidratación: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void restore(Batch batch) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, List<Intake>> entry : batch.intakes().entrySet()) {
+                pending.get(entry.getKey()).intakes().addAll(entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.tecnocampus.backendtfg.application;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * El fichero de importación pasa de import.max-bytes. Se responde 413 y no se guarda nada.
+ */
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ImportTooLargeException extends RuntimeException {
+
+    public ImportTooLargeException(String message) {
+        super(message);
+    }
+}
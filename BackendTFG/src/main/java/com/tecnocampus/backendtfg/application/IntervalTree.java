@@ -0,0 +1,156 @@
+package com.tecnocampus.backendtfg.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Árbol de intervalos aumentado (AVL ordenado por inicio, cada nodo guarda el fin máximo de su
+ * subárbol). Inserción en O(log n) y búsqueda de solapes en O(log n + k), donde k es el número
+ * de intervalos que solapan. Los intervalos son semiabiertos: [start, end).
+ */
+public class IntervalTree<T> {
+
+    public record Entry<T>(long start, long end, T value) {
+    }
+
+    private Node<T> root;
+
+    private int size;
+
+    public void insert(long start, long end, T value) {
+        root = insert(root, new Entry<>(start, end, value));
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<Entry<T>> overlapping(long start, long end) {
+        List<Entry<T>> found = new ArrayList<>();
+        collect(root, start, end, found);
+        return found;
+    }
+
+    /**
+     * Devuelve el intervalo que más se solapa con [start, end) entre los que cumplen el filtro,
+     * siempre que el solape cubra al menos minRatio del más corto de los dos; null si no hay.
+     */
+    public Entry<T> bestOverlap(long start, long end, double minRatio, Predicate<T> filter) {
+        Entry<T> best = null;
+        double bestRatio = minRatio;
+        for (Entry<T> entry : overlapping(start, end)) {
+            double ratio = overlapRatio(start, end, entry.start(), entry.end());
+            if (ratio >= bestRatio && filter.test(entry.value())) {
+                best = entry;
+                bestRatio = ratio;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Parte del intervalo más corto que queda cubierta por el otro (1 si uno contiene al otro).
+     */
+    public static double overlapRatio(long startA, long endA, long startB, long endB) {
+        long overlap = Math.min(endA, endB) - Math.max(startA, startB);
+        if (overlap <= 0) {
+            return 0;
+        }
+        long shorter = Math.max(1, Math.min(endA - startA, endB - startB));
+        return Math.min(1.0, (double) overlap / shorter);
+    }
+
+    private void collect(Node<T> node, long start, long end, List<Entry<T>> found) {
+        // Ningún intervalo de este subárbol termina después de start: no puede solapar
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collect(node.left, start, end, found);
+        if (node.entry.start() < end && node.entry.end() > start) {
+            found.add(node.entry);
+        }
+        // A la derecha todos empiezan igual o más tarde que este nodo
+        if (node.entry.start() < end) {
+            collect(node.right, start, end, found);
+        }
+    }
+
+    private Node<T> insert(Node<T> node, Entry<T> entry) {
+        if (node == null) {
+            return new Node<>(entry);
+        }
+        if (entry.start() < node.entry.start()) {
+            node.left = insert(node.left, entry);
+        } else {
+            node.right = insert(node.right, entry);
+        }
+        return rebalance(node);
+    }
+
+    private Node<T> rebalance(Node<T> node) {
+        node.update();
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<T> {
+        private final Entry<T> entry;
+        private Node<T> left;
+        private Node<T> right;
+        private long maxEnd;
+        private int height;
+
+        private Node(Entry<T> entry) {
+            this.entry = entry;
+            this.maxEnd = entry.end();
+            this.height = 1;
+        }
+
+        private void update() {
+            height = 1 + Math.max(height(left), height(right));
+            maxEnd = entry.end();
+            if (left != null && left.maxEnd > maxEnd) {
+                maxEnd = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > maxEnd) {
+                maxEnd = right.maxEnd;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
+import com.tecnocampus.backendtfg.application.dto.StepBucketDTO;
+import com.tecnocampus.backendtfg.application.dto.StepIntervalDTO;
+import com.tecnocampus.backendtfg.application.dto.StepsByHourDTO;
+import com.tecnocampus.backendtfg.application.dto.StepsIngestResultDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.IntradaySteps;
+import com.tecnocampus.backendtfg.domain.StepSeries;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.IntradayStepsRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Pasos minuto a minuto. Los registros de Health Connect se reparten entre los minutos que
+ * cubren y se fusionan con el bloque comprimido del día (IntradaySteps), una fila por día en
+ * lugar de una por minuto. Tras cada lote, el total del día se lleva a DailySteps con la misma
+ * regla que la sincronización diaria (solo sube), así que gráficas y totales no se contradicen.
+ */
+@Service
+public class IntradayStepsService {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long MAX_INTERVAL_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int MAX_STEPS_PER_INTERVAL = 100_000;
+    private static final int MAX_INTERVALS_PER_REQUEST = 20_000;
+    private static final long MAX_PROFILE_DAYS = 366;
+
+    private final IntradayStepsRepository intradayStepsRepository;
+
+    private final HealthConnectIngestionService ingestionService;
+
+    private final UserRepository userRepository;
+
+    private final JwtUtils jwtUtils;
+
+    public IntradayStepsService(IntradayStepsRepository intradayStepsRepository,
+                                HealthConnectIngestionService ingestionService,
+                                UserRepository userRepository, JwtUtils jwtUtils) {
+        this.intradayStepsRepository = intradayStepsRepository;
+        this.ingestionService = ingestionService;
+        this.userRepository = userRepository;
+        this.jwtUtils = jwtUtils;
+    }
+
+    @Transactional
+    public StepsIngestResultDTO ingestIntervals(String token, List<StepIntervalDTO> intervals) {
+        String email = jwtUtils.extractEmail(token);
+        User user = userRepository.findByEmail(email);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        if (intervals == null || intervals.size() > MAX_INTERVALS_PER_REQUEST) {
+            throw new IllegalArgumentException("Send between 0 and " + MAX_INTERVALS_PER_REQUEST + " step records per request");
+        }
+
+        Map<LocalDate, StepSeries> byDay = new TreeMap<>();
+        int rejected = 0;
+        for (StepIntervalDTO interval : intervals) {
+            if (!isValid(interval)) {
+                rejected++;
+                continue;
+            }
+            spread(interval, byDay);
+        }
+        if (byDay.isEmpty()) {
+            return new StepsIngestResultDTO(0, rejected, 0);
+        }
+
+        Map<LocalDate, IntradaySteps> stored = new HashMap<>();
+        for (IntradaySteps intraday : intradayStepsRepository.findByActivityProfileAndDayIn(
+                user.getActivityProfile(), byDay.keySet())) {
+            stored.put(intraday.getDay(), intraday);
+        }
+        List<IntradaySteps> toSave = new ArrayList<>(byDay.size());
+        List<DailyStepsDTO> totals = new ArrayList<>(byDay.size());
+        for (Map.Entry<LocalDate, StepSeries> entry : byDay.entrySet()) {
+            IntradaySteps intraday = stored.get(entry.getKey());
+            if (intraday == null) {
+                intraday = new IntradaySteps(user.getActivityProfile(), entry.getKey());
+                intraday.setSeries(entry.getValue());
+            } else {
+                StepSeries series = intraday.getSeries();
+                series.overwriteWith(entry.getValue());
+                intraday.setSeries(series);
+            }
+            toSave.add(intraday);
+
+            DailyStepsDTO total = new DailyStepsDTO();
+            total.setDate(toDate(entry.getKey(), 0));
+            total.setSteps(intraday.getTotalSteps());
+            total.setDuration(intraday.getActiveMinutes());
+            totals.add(total);
+        }
+        intradayStepsRepository.saveAll(toSave);
+        ingestionService.ingestDailySteps(user, totals);
+        return new StepsIngestResultDTO(intervals.size() - rejected, rejected, byDay.size());
+    }
+
+    /**
+     * Pasos de un día agrupados en intervalos de resolutionMinutes. Devuelve todos los intervalos
+     * del día, también los que no tienen pasos, para que la gráfica tenga el eje completo.
+     */
+    public List<StepBucketDTO> getIntraday(String token, LocalDate day, int resolutionMinutes) {
+        if (day == null) {
+            throw new IllegalArgumentException("Date is required");
+        }
+        if (resolutionMinutes < 1 || resolutionMinutes > StepSeries.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Resolution must be between 1 and " + StepSeries.MINUTES_PER_DAY + " minutes");
+        }
+        String email = jwtUtils.extractEmail(token);
+        List<IntradaySteps> found = intradayStepsRepository.findByActivityProfileUserEmailAndDayBetweenOrderByDayAsc(email, day, day);
+        StepSeries series = found.isEmpty() ? new StepSeries() : found.get(0).getSeries();
+
+        int buckets = (StepSeries.MINUTES_PER_DAY + resolutionMinutes - 1) / resolutionMinutes;
+        int[] steps = new int[buckets];
+        for (int minute = 0; minute < StepSeries.MINUTES_PER_DAY; minute++) {
+            steps[minute / resolutionMinutes] += series.stepsAt(minute);
+        }
+        List<StepBucketDTO> result = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            result.add(new StepBucketDTO(toDate(day, bucket * resolutionMinutes), steps[bucket]));
+        }
+        return result;
+    }
+
+    /**
+     * Media de pasos por hora del día entre from y to (ambos incluidos), sobre los días que tienen
+     * datos minuto a minuto: a qué horas camina más el usuario.
+     */
+    public List<StepsByHourDTO> getStepsByHour(String token, LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_PROFILE_DAYS) {
+            throw new IllegalArgumentException("Date range cannot exceed " + MAX_PROFILE_DAYS + " days");
+        }
+        String email = jwtUtils.extractEmail(token);
+        long[] hourly = new long[24];
+        int days = 0;
+        for (IntradaySteps intraday : intradayStepsRepository.findByActivityProfileUserEmailAndDayBetweenOrderByDayAsc(email, from, to)) {
+            StepSeries series = intraday.getSeries();
+            for (int minute = 0; minute < StepSeries.MINUTES_PER_DAY; minute++) {
+                hourly[minute / 60] += series.stepsAt(minute);
+            }
+            days++;
+        }
+
+        List<StepsByHourDTO> result = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            double average = days == 0 ? 0 : Math.round(hourly[hour] * 10.0 / days) / 10.0;
+            result.add(new StepsByHourDTO(hour, average));
+        }
+        return result;
+    }
+
+    private static boolean isValid(StepIntervalDTO interval) {
+        if (interval == null || interval.getStartTime() == null || interval.getEndTime() == null) {
+            return false;
+        }
+        long length = interval.getEndTime().getTime() - interval.getStartTime().getTime();
+        return length >= 0 && length <= MAX_INTERVAL_MILLIS
+                && interval.getCount() > 0 && interval.getCount() <= MAX_STEPS_PER_INTERVAL;
+    }
+
+    /**
+     * Reparte los pasos del registro entre los minutos que cubre, en proporción al tiempo de cada
+     * minuto dentro del registro. El redondeo es acumulado para que la suma sea exactamente count.
+     */
+    private static void spread(StepIntervalDTO interval, Map<LocalDate, StepSeries> byDay) {
+        long start = interval.getStartTime().getTime();
+        long end = interval.getEndTime().getTime();
+        long length = end - start;
+        if (length == 0) {
+            addToMinute(byDay, start, interval.getCount());
+            return;
+        }
+        long covered = 0;
+        int assigned = 0;
+        for (long minuteStart = Math.floorDiv(start, MINUTE_MILLIS) * MINUTE_MILLIS; minuteStart < end; minuteStart += MINUTE_MILLIS) {
+            covered += Math.min(end, minuteStart + MINUTE_MILLIS) - Math.max(start, minuteStart);
+            int target = (int) Math.round((double) interval.getCount() * covered / length);
+            if (target > assigned) {
+                addToMinute(byDay, Math.max(start, minuteStart), target - assigned);
+                assigned = target;
+            }
+        }
+    }
+
+    private static void addToMinute(Map<LocalDate, StepSeries> byDay, long time, int steps) {
+        LocalDateTime local = LocalDateTime.ofInstant(new Date(time).toInstant(), ZoneId.systemDefault());
+        byDay.computeIfAbsent(local.toLocalDate(), day -> new StepSeries())
+                .add(local.getHour() * 60 + local.getMinute(), steps);
+    }
+
+    private static Date toDate(LocalDate day, int minuteOfDay) {
+        return Date.from(day.atStartOfDay().plusMinutes(minuteOfDay).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
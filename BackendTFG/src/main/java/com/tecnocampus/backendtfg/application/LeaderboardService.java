@@ -0,0 +1,286 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.LeaderboardDTO;
+import com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO;
+import com.tecnocampus.backendtfg.application.dto.UserPrincipalDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.persistence.GroupMembershipRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Clasificaciones por experiencia total (Level.getTotalExperience), servidas desde memoria: un
+ * RankingTree con todos los usuarios da la posición de cada uno, el top y los vecinos en
+ * O(log n), sin ordenar la tabla de usuarios en cada petición.
+ *
+ * El árbol se construye al arrancar a partir de los niveles guardados y se actualiza tras el
+ * commit de cada cambio de experiencia. La experiencia solo crece, así que de dos
+ * actualizaciones del mismo usuario que lleguen desordenadas gana la mayor.
+ */
+@Service
+public class LeaderboardService {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int MEMBER_PAGE_SIZE = 1000;
+    private static final int MAX_ENTRIES = 100;
+
+    private final UserRepository userRepository;
+
+    private final GroupMembershipRepository membershipRepository;
+
+    private final JwtUtils jwtUtils;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por lock
+    private final RankingTree ranking = new RankingTree();
+    private final Map<String, Long> scores = new HashMap<>();
+    private final Map<String, Long> updatesWhileLoading = new HashMap<>();
+    private boolean loaded;
+
+    private final Object loading = new Object();
+
+    public LeaderboardService(UserRepository userRepository, GroupMembershipRepository membershipRepository,
+                              JwtUtils jwtUtils) {
+        this.userRepository = userRepository;
+        this.membershipRepository = membershipRepository;
+        this.jwtUtils = jwtUtils;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensureLoaded();
+    }
+
+    /**
+     * Avisa de la nueva experiencia total del usuario. Dentro de una transacción se aplica al
+     * confirmarla.
+     */
+    public void experienceChanged(String userId, long score) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(userId, score);
+                }
+            });
+        } else {
+            update(userId, score);
+        }
+    }
+
+    public LeaderboardDTO getTop(String token, int limit) {
+        String userId = currentUserId(token);
+        ensureLoaded();
+        List<RankingTree.Entry> top;
+        int myRank;
+        int total;
+        lock.writeLock().lock();
+        try {
+            myRank = rankOf(userId);
+            total = ranking.size();
+            top = ranking.range(0, clamp(limit));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new LeaderboardDTO(myRank + 1, total, toEntries(top, 0, userId));
+    }
+
+    public LeaderboardDTO getAround(String token, int radius) {
+        String userId = currentUserId(token);
+        ensureLoaded();
+        int span = clamp(radius * 2 + 1) / 2;
+        List<RankingTree.Entry> around;
+        int myRank;
+        int total;
+        lock.writeLock().lock();
+        try {
+            myRank = rankOf(userId);
+            total = ranking.size();
+            around = ranking.range(myRank - span, myRank + span + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new LeaderboardDTO(myRank + 1, total, toEntries(around, Math.max(0, myRank - span), userId));
+    }
+
+    /**
+     * Clasificación entre los miembros de un grupo: se ordenan solo sus puntuaciones, que ya
+     * están en memoria.
+     */
+    public LeaderboardDTO getGroupTop(String token, String groupId, int limit) {
+        String userId = currentUserId(token);
+        if (!membershipRepository.existsByGroupIdAndUserId(groupId, userId)) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        ensureLoaded();
+
+        List<String> memberIds = new ArrayList<>();
+        List<String> page;
+        String after = "";
+        do {
+            page = membershipRepository.findMemberIdsAfter(groupId, after, PageRequest.of(0, MEMBER_PAGE_SIZE));
+            memberIds.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == MEMBER_PAGE_SIZE);
+
+        List<RankingTree.Entry> members = new ArrayList<>(memberIds.size());
+        lock.readLock().lock();
+        try {
+            for (String memberId : memberIds) {
+                members.add(new RankingTree.Entry(memberId, scores.getOrDefault(memberId, 0L)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        members.sort(Comparator.comparingLong(RankingTree.Entry::score).reversed().thenComparing(RankingTree.Entry::id));
+
+        int myRank = 0;
+        while (myRank < members.size() && !members.get(myRank).id().equals(userId)) {
+            myRank++;
+        }
+        List<RankingTree.Entry> top = members.subList(0, Math.min(clamp(limit), members.size()));
+        return new LeaderboardDTO(myRank + 1, members.size(), toEntries(top, 0, userId));
+    }
+
+    private void update(String userId, long score) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                updatesWhileLoading.merge(userId, score, Math::max);
+                return;
+            }
+            apply(userId, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        synchronized (loading) {
+            // La carga lee la base de datos sin bloquear: las actualizaciones que lleguen mientras
+            // se guardan aparte y se aplican al final
+            Map<String, Long> loadedScores = new HashMap<>();
+            String after = "";
+            List<LeaderboardEntryDTO> page;
+            do {
+                page = userRepository.findLeaderboardEntriesAfter(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (LeaderboardEntryDTO entry : page) {
+                    loadedScores.put(entry.getUserId(), entry.getTotalExperience());
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getUserId();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    return;
+                }
+                loadedScores.forEach(this::apply);
+                updatesWhileLoading.forEach(this::apply);
+                updatesWhileLoading.clear();
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Con el write lock tomado
+    private void apply(String userId, long score) {
+        Long previous = scores.get(userId);
+        if (previous != null) {
+            if (previous >= score) {
+                return;
+            }
+            ranking.remove(userId, previous);
+        }
+        scores.put(userId, score);
+        ranking.insert(userId, score);
+    }
+
+    // Con el write lock tomado: un usuario sin experiencia entra en la clasificación al consultarla
+    private int rankOf(String userId) {
+        if (!scores.containsKey(userId)) {
+            apply(userId, 0);
+        }
+        return ranking.rankOf(userId, scores.get(userId));
+    }
+
+    private List<LeaderboardEntryDTO> toEntries(List<RankingTree.Entry> entries, int firstRank, String userId) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Map<String, LeaderboardEntryDTO> byId = new HashMap<>();
+        for (LeaderboardEntryDTO entry : userRepository.findLeaderboardEntries(entries.stream().map(RankingTree.Entry::id).toList())) {
+            byId.put(entry.getUserId(), entry);
+        }
+
+        List<LeaderboardEntryDTO> result = new ArrayList<>(entries.size());
+        List<RankingTree.Entry> deleted = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            LeaderboardEntryDTO entry = byId.get(entries.get(i).id());
+            if (entry == null) {
+                deleted.add(entries.get(i));
+                continue;
+            }
+            entry.setRank(firstRank + i + 1);
+            entry.setMe(entry.getUserId().equals(userId));
+            result.add(entry);
+        }
+        if (!deleted.isEmpty()) {
+            // Usuarios borrados: se quitan al encontrarlos en vez de avisar desde cada borrado
+            forget(deleted);
+        }
+        return result;
+    }
+
+    private void forget(List<RankingTree.Entry> entries) {
+        lock.writeLock().lock();
+        try {
+            for (RankingTree.Entry entry : entries) {
+                if (scores.remove(entry.id(), entry.score())) {
+                    ranking.remove(entry.id(), entry.score());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private String currentUserId(String token) {
+        UserPrincipalDTO principal = userRepository.findPrincipalByEmail(jwtUtils.extractEmail(token));
+        if (principal == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return principal.getId();
+    }
+
+    private static int clamp(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(limit, MAX_ENTRIES);
+    }
+}
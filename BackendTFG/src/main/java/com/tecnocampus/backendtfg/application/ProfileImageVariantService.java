@@ -0,0 +1,164 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.component.ImageResizer;
+import com.tecnocampus.backendtfg.domain.ImageVariant;
+import com.tecnocampus.backendtfg.domain.UnresizableImage;
+import com.tecnocampus.backendtfg.persistence.BlobStore;
+import com.tecnocampus.backendtfg.persistence.ImageVariantRepository;
+import com.tecnocampus.backendtfg.persistence.UnresizableImageRepository;
+import com.tecnocampus.backendtfg.persistence.UserImageRepository;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class ProfileImageVariantService {
+
+    private final BlobStore blobStore;
+
+    private final ImageVariantRepository imageVariantRepository;
+
+    private final UnresizableImageRepository unresizableImageRepository;
+
+    private final UserImageRepository userImageRepository;
+
+    private final ThreadPoolTaskExecutor imageProcessingExecutor;
+
+    // Hashes con generación en curso, para no encolar dos veces la misma imagen
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    // Altas (lectura) y borrados (escritura) de contenido del almacén, que comparten originales y
+    // variantes. FileSystemBlobStore es local, así que basta un cerrojo de la instancia
+    private final ReadWriteLock blobReferences = new ReentrantReadWriteLock();
+
+    public ProfileImageVariantService(BlobStore blobStore, ImageVariantRepository imageVariantRepository,
+                                      UnresizableImageRepository unresizableImageRepository,
+                                      UserImageRepository userImageRepository,
+                                      ThreadPoolTaskExecutor imageProcessingExecutor) {
+        this.blobStore = blobStore;
+        this.imageVariantRepository = imageVariantRepository;
+        this.unresizableImageRepository = unresizableImageRepository;
+        this.userImageRepository = userImageRepository;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+    }
+
+    public ReadWriteLock blobReferences() {
+        return blobReferences;
+    }
+
+    public void generateVariantsAsync(String sourceHash) {
+        if (!inProgress.add(sourceHash)) {
+            return;
+        }
+        try {
+            imageProcessingExecutor.execute(() -> {
+                try {
+                    generateVariants(sourceHash);
+                } catch (Exception e) {
+                    System.out.println("Error generating image variants for " + sourceHash + ": " + e.getMessage());
+                } finally {
+                    inProgress.remove(sourceHash);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Cola llena: se reintentará cuando se pida la variante
+            inProgress.remove(sourceHash);
+        }
+    }
+
+    public void generateVariants(String sourceHash) throws IOException {
+        if (unresizableImageRepository.existsById(sourceHash)) {
+            return;
+        }
+        int largest = ImageResizer.VARIANT_SIZES[ImageResizer.VARIANT_SIZES.length - 1];
+        BufferedImage source;
+        try (InputStream input = blobStore.open(sourceHash)) {
+            try {
+                source = ImageResizer.read(input, largest);
+            } catch (IOException | RuntimeException e) {
+                // El contenido no cambia con el hash: volver a intentarlo daría el mismo error
+                unresizableImageRepository.save(new UnresizableImage(sourceHash, e.getMessage()));
+                return;
+            }
+        }
+
+        for (int size : ImageResizer.VARIANT_SIZES) {
+            if (imageVariantRepository.findBySourceHashAndSize(sourceHash, size).isPresent()) {
+                continue;
+            }
+            BufferedImage thumbnail = ImageResizer.squareThumbnail(source, size);
+            Path upload = blobStore.createUploadFile();
+            try (OutputStream output = Files.newOutputStream(upload)) {
+                ImageResizer.writeJpeg(thumbnail, output);
+            }
+            long byteSize = Files.size(upload);
+            blobReferences.readLock().lock();
+            try {
+                String variantHash = blobStore.commit(upload);
+                imageVariantRepository.save(new ImageVariant(sourceHash, size, variantHash,
+                        ImageResizer.VARIANT_TYPE, byteSize));
+            } finally {
+                blobReferences.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Devuelve la variante más pequeña que cubre el tamaño pedido. Si aún no existe, se encola
+     * su generación y se devuelve vacío para que se sirva el original. Las imágenes marcadas como
+     * no redimensionables devuelven vacío sin encolar nada.
+     */
+    public Optional<ImageVariant> findVariant(String sourceHash, int requestedSize) {
+        Integer size = null;
+        for (int candidate : ImageResizer.VARIANT_SIZES) {
+            if (candidate >= requestedSize) {
+                size = candidate;
+                break;
+            }
+        }
+        if (size == null) {
+            return Optional.empty();
+        }
+        Optional<ImageVariant> variant = imageVariantRepository.findBySourceHashAndSize(sourceHash, size);
+        if (variant.isEmpty() && !unresizableImageRepository.existsById(sourceHash)) {
+            generateVariantsAsync(sourceHash);
+        }
+        return variant;
+    }
+
+    /**
+     * Borra las variantes de una imagen. El contenido de cada una solo se borra si ninguna otra
+     * variante ni ninguna imagen de perfil lo referencia.
+     */
+    public void deleteVariants(String sourceHash) throws IOException {
+        blobReferences.writeLock().lock();
+        try {
+            for (ImageVariant variant : imageVariantRepository.findBySourceHash(sourceHash)) {
+                imageVariantRepository.delete(variant);
+                String contentHash = variant.getContentHash();
+                if (!imageVariantRepository.existsByContentHash(contentHash)
+                        && !userImageRepository.existsByContentHash(contentHash)) {
+                    blobStore.delete(contentHash);
+                }
+            }
+            // La marca se va con la imagen, como sus variantes
+            if (unresizableImageRepository.existsById(sourceHash)) {
+                unresizableImageRepository.deleteById(sourceHash);
+            }
+        } finally {
+            blobReferences.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.tecnocampus.backendtfg.application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Árbol de estadísticos de orden (AVL en el que cada nodo guarda el tamaño de su subárbol)
+ * ordenado por puntuación descendente y, a igualdad, por id. Inserción, borrado, posición de
+ * una entrada y entrada en una posición en O(log n). Las posiciones empiezan en 0.
+ *
+ * No es seguro para hilos: quien lo use debe sincronizar el acceso.
+ */
+public class RankingTree {
+
+    public record Entry(String id, long score) {
+    }
+
+    private Node root;
+
+    public int size() {
+        return size(root);
+    }
+
+    public void insert(String id, long score) {
+        root = insert(root, new Entry(id, score));
+    }
+
+    public boolean remove(String id, long score) {
+        int before = size(root);
+        root = remove(root, new Entry(id, score));
+        return size(root) < before;
+    }
+
+    /**
+     * Número de entradas por delante de la indicada, que debe estar en el árbol.
+     */
+    public int rankOf(String id, long score) {
+        Entry entry = new Entry(id, score);
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int comparison = compare(entry, node.entry);
+            if (comparison == 0) {
+                return rank + size(node.left);
+            }
+            if (comparison < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        throw new IllegalStateException("Entry not in ranking: " + id);
+    }
+
+    public Entry get(int rank) {
+        if (rank < 0 || rank >= size(root)) {
+            throw new IndexOutOfBoundsException(rank);
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.entry;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Entradas en las posiciones [from, to), recortadas a los límites del árbol.
+     */
+    public List<Entry> range(int from, int to) {
+        int start = Math.max(0, from);
+        int end = Math.min(to, size(root));
+        List<Entry> found = new ArrayList<>(Math.max(0, end - start));
+        collect(root, start, end, 0, found);
+        return found;
+    }
+
+    private void collect(Node node, int from, int to, int offset, List<Entry> found) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int position = offset + size(node.left);
+        // Solo se baja a los subárboles que tienen posiciones dentro del rango
+        if (from < position) {
+            collect(node.left, from, to, offset, found);
+        }
+        if (position >= from && position < to) {
+            found.add(node.entry);
+        }
+        if (position + 1 < to) {
+            collect(node.right, from, to, position + 1, found);
+        }
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int byScore = Long.compare(b.score(), a.score());
+        return byScore != 0 ? byScore : a.id().compareTo(b.id());
+    }
+
+    private Node insert(Node node, Entry entry) {
+        if (node == null) {
+            return new Node(entry);
+        }
+        int comparison = compare(entry, node.entry);
+        if (comparison == 0) {
+            return node;
+        }
+        if (comparison < 0) {
+            node.left = insert(node.left, entry);
+        } else {
+            node.right = insert(node.right, entry);
+        }
+        return rebalance(node);
+    }
+
+    private Node remove(Node node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = compare(entry, node.entry);
+        if (comparison < 0) {
+            node.left = remove(node.left, entry);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, entry);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Se sustituye por la menor entrada del subárbol derecho
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.right = remove(node.right, successor.entry);
+            node.entry = successor.entry;
+        }
+        return rebalance(node);
+    }
+
+    private Node rebalance(Node node) {
+        node.update();
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private Entry entry;
+        private Node left;
+        private Node right;
+        private int height;
+        private int size;
+
+        private Node(Entry entry) {
+            this.entry = entry;
+            this.height = 1;
+            this.size = 1;
+        }
+
+        private void update() {
+            height = 1 + Math.max(height(left), height(right));
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
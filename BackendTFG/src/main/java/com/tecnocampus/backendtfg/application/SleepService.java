@@ -10,6 +10,7 @@ import com.tecnocampus.backendtfg.persistence.SleepProfileRepository;
 import com.tecnocampus.backendtfg.persistence.SleepRepository;
 import com.tecnocampus.backendtfg.persistence.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -38,6 +39,7 @@ public class SleepService {
         this.challengeService = challengeService;
     }
 
+    @Transactional
     public void createSleep(SleepDTO sleepDTO, String token) {
         String email = getEmailFromToken(token);
         if (!userRepository.existsByEmail(email)) {
@@ -47,12 +49,28 @@ public class SleepService {
         User user = userRepository.findByEmail(email);
         SleepProfile sleepProfile = user.getSleepProfile();
 
-        // Check for duplicate sleep
-        if (isDuplicateSleep(sleepProfile, sleepDTO)) {
+        // Check for duplicate sleep: por id de Health Connect o clave de idempotencia si trae alguno,
+        // si no por rango horario
+        if (sleepDTO.getExternalId() != null && sleepDTO.getExternalId().isBlank()) {
+            sleepDTO.setExternalId(null);
+        }
+        if (sleepDTO.getIdempotencyKey() != null && sleepDTO.getIdempotencyKey().isBlank()) {
+            sleepDTO.setIdempotencyKey(null);
+        }
+        boolean duplicate;
+        if (sleepDTO.getExternalId() != null || sleepDTO.getIdempotencyKey() != null) {
+            duplicate = (sleepDTO.getExternalId() != null
+                    && sleepRepository.existsBySleepProfileAndExternalId(sleepProfile, sleepDTO.getExternalId()))
+                    || (sleepDTO.getIdempotencyKey() != null
+                    && sleepRepository.existsBySleepProfileAndIdempotencyKey(sleepProfile, sleepDTO.getIdempotencyKey()));
+        } else {
+            duplicate = isDuplicateSleep(sleepProfile, sleepDTO);
+        }
+        if (duplicate) {
             throw new IllegalArgumentException("Duplicate sleep record with the same time range");
         }
         Sleep sleep = new Sleep(sleepDTO, sleepProfile);
-        challengeService.updateChallengeProgress(token, ChallengeType.SLEEP_HOURS,
+        challengeService.recordProgress(user, ChallengeType.SLEEP_HOURS,
                 (int)(sleepDTO.getHours() * 60));
         sleepProfile.addSleep(sleep);
         sleepProfileRepository.save(sleepProfile);
@@ -84,6 +102,21 @@ public class SleepService {
         }
     }
 
+    public void updateSleepById(String id, SleepDTO sleepDTO, String token) {
+        String email = getEmailFromToken(token);
+        Sleep sleep = sleepRepository.findByIdAndSleepProfileUserEmail(id, email)
+                .orElseThrow(() -> new IllegalArgumentException("Sleep record not found"));
+        sleep.update(sleepDTO);
+        sleepRepository.save(sleep);
+    }
+
+    public void deleteSleepById(String id, String token) {
+        String email = getEmailFromToken(token);
+        Sleep sleep = sleepRepository.findByIdAndSleepProfileUserEmail(id, email)
+                .orElseThrow(() -> new IllegalArgumentException("Sleep record not found"));
+        sleepRepository.delete(sleep);
+    }
+
     public List<SleepDTO> getSleeps(String token, Date date) {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
@@ -137,8 +170,13 @@ public class SleepService {
         if (sleepProfile == null || sleepDTO == null || sleepDTO.getStartTime() == null || sleepDTO.getEndTime() == null) {
             return false;
         }
-        Sleep existingSleep = sleepRepository.findByStartTimeAndEndTime(sleepDTO.getStartTime(), sleepDTO.getEndTime());
-        return existingSleep != null;
+        // La misma noche puede llegar de dos fuentes con límites algo distintos: basta un solape casi total
+        long start = sleepDTO.getStartTime().getTime();
+        long end = sleepDTO.getEndTime().getTime();
+        return sleepRepository.findBySleepProfileAndStartTimeBetween(sleepProfile,
+                        new Date(start - HealthConnectSyncService.MAX_SESSION_MILLIS), sleepDTO.getEndTime()).stream()
+                .anyMatch(existing -> IntervalTree.overlapRatio(start, end, existing.getStartTime().getTime(),
+                        existing.getEndTime().getTime()) >= HealthConnectSyncService.NEAR_DUPLICATE_OVERLAP);
     }
 
     private Sleep findSleepByTimeRange(SleepProfile sleepProfile, Date startTime, Date endTime) {
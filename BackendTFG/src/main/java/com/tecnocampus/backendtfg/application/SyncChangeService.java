@@ -0,0 +1,156 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.*;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.ChangeEntityType;
+import com.tecnocampus.backendtfg.domain.ChangeOperation;
+import com.tecnocampus.backendtfg.domain.SyncChange;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sincronización incremental de las cachés del cliente: devuelve lo insertado, modificado y
+ * borrado desde un cursor en lugar de listas completas por día.
+ *
+ * Los seq de cada usuario son consecutivos y se confirman en orden (SyncChangeLog), así que un
+ * hueco tras el cursor solo puede ser una purga: entonces el cliente tiene que recargar entero.
+ */
+@Service
+public class SyncChangeService {
+
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final SyncChangeRepository syncChangeRepository;
+    private final SyncChangeCounterRepository syncChangeCounterRepository;
+    private final UserRepository userRepository;
+    private final ActivityRepository activityRepository;
+    private final SleepRepository sleepRepository;
+    private final DailyStepsRepository dailyStepsRepository;
+    private final HydrationRepository hydrationRepository;
+    private final HydrationProfileRepository hydrationProfileRepository;
+    private final ChallengeRepository challengeRepository;
+    private final JwtUtils jwtUtils;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+
+    public SyncChangeService(SyncChangeRepository syncChangeRepository,
+                             SyncChangeCounterRepository syncChangeCounterRepository, UserRepository userRepository,
+                             ActivityRepository activityRepository, SleepRepository sleepRepository,
+                             DailyStepsRepository dailyStepsRepository, HydrationRepository hydrationRepository,
+                             HydrationProfileRepository hydrationProfileRepository,
+                             ChallengeRepository challengeRepository, JwtUtils jwtUtils,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${sync.changes.retention-days:30}") int retentionDays) {
+        this.syncChangeRepository = syncChangeRepository;
+        this.syncChangeCounterRepository = syncChangeCounterRepository;
+        this.userRepository = userRepository;
+        this.activityRepository = activityRepository;
+        this.sleepRepository = sleepRepository;
+        this.dailyStepsRepository = dailyStepsRepository;
+        this.hydrationRepository = hydrationRepository;
+        this.hydrationProfileRepository = hydrationProfileRepository;
+        this.challengeRepository = challengeRepository;
+        this.jwtUtils = jwtUtils;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+    }
+
+    public ChangesDTO getChanges(String token, long since, Integer limit) {
+        String email = jwtUtils.extractEmail(token);
+        UserPrincipalDTO principal = userRepository.findPrincipalByEmail(email);
+        if (principal == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // El contador antes que la página: lo que él ya cuenta está confirmado y tiene que aparecer
+        Long counter = syncChangeCounterRepository.findLastSeq(principal.getId());
+        long lastSeq = counter == null ? 0 : counter;
+        List<SyncChange> page = syncChangeRepository.findByUserIdAndSeqGreaterThanOrderBySeqAsc(
+                principal.getId(), since, PageRequest.of(0, pageSize + 1));
+        boolean purged = page.isEmpty() ? since < lastSeq : page.get(0).getSeq() != since + 1;
+        if (purged || since > lastSeq) {
+            // Cursor purgado o de otra base de datos: recarga completa y se sigue desde el último seq
+            return new ChangesDTO(List.of(), lastSeq, false, true);
+        }
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+        long cursor = page.isEmpty() ? since : page.get(page.size() - 1).getSeq();
+
+        // Solo interesa el último cambio de cada registro dentro de la página
+        Map<String, SyncChange> latest = new LinkedHashMap<>();
+        for (SyncChange change : page) {
+            String key = change.getEntityType() + ":" + change.getEntityId();
+            latest.remove(key);
+            latest.put(key, change);
+        }
+
+        Map<ChangeEntityType, Set<String>> upsertIds = new EnumMap<>(ChangeEntityType.class);
+        for (SyncChange change : latest.values()) {
+            if (change.getOperation() == ChangeOperation.UPSERT) {
+                upsertIds.computeIfAbsent(change.getEntityType(), type -> new HashSet<>()).add(change.getEntityId());
+            }
+        }
+        Map<ChangeEntityType, Map<String, Object>> data = new EnumMap<>(ChangeEntityType.class);
+        upsertIds.forEach((type, ids) -> data.put(type, loadData(type, ids)));
+
+        List<ChangeDTO> changes = new ArrayList<>(latest.size());
+        for (SyncChange change : latest.values()) {
+            Object current = change.getOperation() == ChangeOperation.UPSERT
+                    ? data.get(change.getEntityType()).get(change.getEntityId())
+                    : null;
+            // Si ya no existe se borró después: se envía como lápida sin esperar a su entrada DELETE
+            ChangeOperation operation = current != null ? ChangeOperation.UPSERT : ChangeOperation.DELETE;
+            changes.add(new ChangeDTO(change.getSeq(), change.getEntityType(), change.getEntityId(), operation, current));
+        }
+        return new ChangesDTO(changes, cursor, hasMore, false);
+    }
+
+    /**
+     * Purga los cambios más antiguos que la retención. Los clientes con un cursor anterior
+     * reciben resyncRequired en su siguiente petición.
+     */
+    @Scheduled(cron = "${sync.changes.prune-cron:0 30 3 * * *}")
+    public int pruneOldChanges() {
+        Date before = Date.from(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+        Integer deleted = transactionTemplate.execute(status -> syncChangeRepository.deleteChangedBefore(before));
+        System.out.println("Purgados " + deleted + " cambios de sincronización anteriores a " + before);
+        return deleted;
+    }
+
+    private Map<String, Object> loadData(ChangeEntityType type, Set<String> ids) {
+        return switch (type) {
+            case ACTIVITY -> toMap(activityRepository.findAllById(ids), ActivityDTO::new, ActivityDTO::getId);
+            case SLEEP -> toMap(sleepRepository.findAllById(ids), SleepDTO::new, SleepDTO::getId);
+            case DAILY_STEPS -> toMap(dailyStepsRepository.findAllById(ids), DailyStepsDTO::new, DailyStepsDTO::getId);
+            case HYDRATION -> toMap(hydrationRepository.findAllById(ids), HydrationDTO::new, HydrationDTO::getId);
+            case HYDRATION_STATUS -> hydrationProfileRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(profile -> profile.getId(), profile -> (Object) HydrationStatusCache.forToday(
+                            profile.getDailyObjectiveWater(), profile.getCurrentAmount(), profile.getLastUpdate())));
+            case CHALLENGE -> toMap(challengeRepository.findAllById(ids), ChallengeDTO::new, ChallengeDTO::getId);
+        };
+    }
+
+    private static <E, D> Map<String, Object> toMap(List<E> entities, Function<E, D> toDTO, Function<D, String> idOf) {
+        Map<String, Object> map = new HashMap<>();
+        for (E entity : entities) {
+            D dto = toDTO.apply(entity);
+            map.put(idOf.apply(dto), dto);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.application.dto.SyncStateDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.SyncDataType;
+import com.tecnocampus.backendtfg.domain.SyncWatermark;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.SyncWatermarkRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+@Service
+public class SyncStateService {
+
+    private final SyncWatermarkRepository syncWatermarkRepository;
+
+    private final JwtUtils jwtUtils;
+
+    public SyncStateService(SyncWatermarkRepository syncWatermarkRepository, JwtUtils jwtUtils) {
+        this.syncWatermarkRepository = syncWatermarkRepository;
+        this.jwtUtils = jwtUtils;
+    }
+
+    public List<SyncStateDTO> getSyncState(String token) {
+        return findSyncState(jwtUtils.extractEmail(token));
+    }
+
+    public List<SyncStateDTO> getSyncState(User user) {
+        return findSyncState(user.getEmail());
+    }
+
+    private List<SyncStateDTO> findSyncState(String email) {
+        return syncWatermarkRepository.findByUserEmail(email).stream()
+                .map(SyncStateDTO::new)
+                .toList();
+    }
+
+    public void advance(User user, SyncDataType dataType, Date endTime, String changeToken) {
+        if (endTime == null && (changeToken == null || changeToken.isBlank())) {
+            return;
+        }
+        SyncWatermark watermark = syncWatermarkRepository.findByUserAndDataType(user, dataType)
+                .orElseGet(() -> new SyncWatermark(user, dataType));
+        watermark.advance(endTime, changeToken);
+        syncWatermarkRepository.save(watermark);
+    }
+}
@@ -0,0 +1,16 @@
+package com.tecnocampus.backendtfg.application;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La subida no declara un tipo de imagen que se pueda servir tal cual. Se responde 415 y no se
+ * guarda nada.
+ */
+@ResponseStatus(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+public class UnsupportedImageTypeException extends RuntimeException {
+
+    public UnsupportedImageTypeException(String message) {
+        super(message);
+    }
+}
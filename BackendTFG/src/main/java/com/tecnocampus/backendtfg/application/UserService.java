@@ -4,34 +4,67 @@ package com.tecnocampus.backendtfg.application;
 import com.tecnocampus.backendtfg.application.dto.ActivityTypeDTO;
 import com.tecnocampus.backendtfg.application.dto.DataProfileDTO;
 import com.tecnocampus.backendtfg.application.dto.GenderTypeDTO;
+import com.tecnocampus.backendtfg.application.dto.ProfileImageDTO;
 import com.tecnocampus.backendtfg.application.dto.UserDTO;
 import com.tecnocampus.backendtfg.component.JwtUtils;
 import com.tecnocampus.backendtfg.domain.Gender;
+import com.tecnocampus.backendtfg.domain.ImageVariant;
 import com.tecnocampus.backendtfg.domain.TypeActivity;
 import com.tecnocampus.backendtfg.domain.User;
 import com.tecnocampus.backendtfg.domain.UserImage;
+import com.tecnocampus.backendtfg.persistence.BlobStore;
+import com.tecnocampus.backendtfg.persistence.ImageVariantRepository;
 import com.tecnocampus.backendtfg.persistence.UserImageRepository;
 import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    // Tipos que se sirven tal cual desde /user/profile-image/{hash}. SVG queda fuera: puede
+    // llevar scripts y se ejecutaría en nuestro origen
+    private static final Set<String> PROFILE_IMAGE_TYPES =
+            Set.of("image/jpeg", "image/png", "image/gif", "image/webp", "image/heic", "image/heif");
+
     private final UserRepository userRepository;
 
     private final UserImageRepository userImageRepository;
 
+    private final BlobStore blobStore;
+
+    private final ProfileImageVariantService profileImageVariantService;
+
+    private final CalorieRecomputeService calorieRecomputeService;
+
+    private final HydrationService hydrationService;
+
     private final JwtUtils jwtUtils;
 
+    private final ImageVariantRepository imageVariantRepository;
+
     public UserService(UserRepository userRepository,UserImageRepository userImageRepository
-            ,JwtUtils jwtUtils) {
+            ,BlobStore blobStore, ProfileImageVariantService profileImageVariantService,
+                       CalorieRecomputeService calorieRecomputeService, HydrationService hydrationService,
+                       JwtUtils jwtUtils, ImageVariantRepository imageVariantRepository) {
         this.userRepository = userRepository;
         this.userImageRepository = userImageRepository;
+        this.imageVariantRepository = imageVariantRepository;
+        this.blobStore = blobStore;
+        this.profileImageVariantService = profileImageVariantService;
+        this.calorieRecomputeService = calorieRecomputeService;
+        this.hydrationService = hydrationService;
         this.jwtUtils = jwtUtils;
     }
     /*
@@ -58,8 +91,18 @@ public class UserService {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
         System.out.println(dataProfileDTO.getGender());
+        Double previousWeight = user.getWeight();
+        Gender previousGender = user.getGender();
+        int previousAge = user.getAge();
         user.setDataProfile(dataProfileDTO);
         userRepository.save(user);
+        // Solo registra el recálculo del histórico: se hace en segundo plano
+        calorieRecomputeService.onBodyDataChanged(user, previousWeight, previousGender, previousAge);
+        // El objetivo de hidratación solo depende de estos datos: se recalcula aquí y no al consultarlo
+        if (!Objects.equals(previousWeight, user.getWeight()) || previousGender != user.getGender()
+                || previousAge != user.getAge()) {
+            hydrationService.updateDailyObjective(user);
+        }
     }
 
     public List<GenderTypeDTO> getGenderTypes (){
@@ -78,6 +121,9 @@ public class UserService {
     }
 
 
+    // Fuera de cualquier transacción: cada save se confirma al momento, así la referencia nueva ya
+    // es visible cuando se comprueba si el contenido anterior sigue en uso
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void saveUserProfileImage(String token, MultipartFile file) throws IOException {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
@@ -90,43 +136,98 @@ public class UserService {
             userImage = new UserImage();
             userImage.setUser(user);
             user.setUserImage(userImage);
-        } else {
-            // Liberar explícitamente los datos de la imagen anterior
-            userImage.setImageData(null);
-            userImage.setImageType(null);
-            userImage.setFilename(null);
-            // Realizar un guardado intermedio para liberar memoria
+        }
+
+        String imageType = profileImageType(file.getContentType());
+
+        // Volcar la subida directamente al almacén sin cargarla en memoria
+        Path upload = blobStore.createUploadFile();
+        file.transferTo(upload.toFile());
+
+        String previousHash = userImage.getContentHash();
+        String contentHash;
+        // Del commit del fichero al de la referencia no puede colarse el borrado de ese mismo
+        // contenido, que otro usuario puede estar soltando a la vez
+        Lock uploading = profileImageVariantService.blobReferences().readLock();
+        uploading.lock();
+        try {
+            contentHash = blobStore.commit(upload);
+            userImage.setContentHash(contentHash);
+            userImage.setSize(file.getSize());
+            userImage.setImageType(imageType);
+            userImage.setFilename(file.getOriginalFilename());
+
             userImageRepository.save(userImage);
+        } finally {
+            uploading.unlock();
         }
+        profileImageVariantService.generateVariantsAsync(contentHash);
 
-        // Guardar la nueva imagen
-        userImage.setImageData(file.getBytes());
-        userImage.setImageType(file.getContentType());
-        userImage.setFilename(file.getOriginalFilename());
+        if (previousHash != null && !previousHash.equals(contentHash)) {
+            deleteIfUnreferenced(previousHash);
+        }
+    }
+
+    // El tipo lo declara el cliente y es el que se devuelve al servir la imagen: solo se aceptan
+    // tipos de imagen conocidos, normalizados sin parámetros
+    private static String profileImageType(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new UnsupportedImageTypeException("Unsupported image type: " + contentType);
+        }
+        String imageType = (mediaType.getType() + "/" + mediaType.getSubtype()).toLowerCase(Locale.ROOT);
+        if (!PROFILE_IMAGE_TYPES.contains(imageType)) {
+            throw new UnsupportedImageTypeException("Unsupported image type: " + contentType);
+        }
+        return imageType;
+    }
 
-        userImageRepository.save(userImage);
+    // Con la nueva referencia ya confirmada: el contenido anterior solo se borra si, en ese
+    // momento, ninguna otra imagen ni variante lo comparte (el almacén es común a ambas)
+    private void deleteIfUnreferenced(String contentHash) throws IOException {
+        Lock deleting = profileImageVariantService.blobReferences().writeLock();
+        deleting.lock();
+        try {
+            if (!userImageRepository.existsByContentHash(contentHash)) {
+                profileImageVariantService.deleteVariants(contentHash);
+                if (!imageVariantRepository.existsByContentHash(contentHash)) {
+                    blobStore.delete(contentHash);
+                }
+            }
+        } finally {
+            deleting.unlock();
+        }
     }
 
-    public Map<String, String> getUserProfileImageAsBase64(String token) {
+    public ProfileImageDTO getUserProfileImage(String token) {
         String email = getEmailFromToken(token);
         User user = userRepository.findByEmail(email);
 
         UserImage userImage = userImageRepository.findByUser(user).orElse(null);
 
-        if (userImage == null || userImage.getImageData() == null) {
+        if (userImage == null || userImage.getContentHash() == null) {
             throw new IllegalArgumentException("No se encontró la imagen del usuario");
         }
+        return new ProfileImageDTO(userImage);
+    }
 
-        // Convertir datos binarios a base64
-        String base64Image = Base64.getEncoder().encodeToString(userImage.getImageData());
-
-        // Crear mapa con la información de la imagen
-        Map<String, String> imageData = new HashMap<>();
-        imageData.put("imageType", userImage.getImageType());
-        imageData.put("imageData", base64Image);
-        imageData.put("filename", userImage.getFilename());
+    public ProfileImageDTO getProfileImageByHash(String contentHash, Integer size) {
+        // El hash solo es válido si alguna imagen de perfil lo referencia
+        UserImage userImage = userImageRepository.findFirstByContentHash(contentHash)
+                .orElseThrow(() -> new IllegalArgumentException("No se encontró la imagen"));
+        if (size != null) {
+            Optional<ImageVariant> variant = profileImageVariantService.findVariant(contentHash, size);
+            if (variant.isPresent()) {
+                return new ProfileImageDTO(userImage, variant.get());
+            }
+        }
+        return new ProfileImageDTO(userImage);
+    }
 
-        return imageData;
+    public void writeProfileImage(String contentHash, WritableByteChannel target) throws IOException {
+        blobStore.transferTo(contentHash, target);
     }
 
     private String getEmailFromToken(String token) {
@@ -0,0 +1,278 @@
+package com.tecnocampus.backendtfg.application;
+
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Buzón de escrituras por usuario. La app, la sincronización de Health Connect y el sondeo de
+ * pasos pueden escribir a la vez para el mismo usuario; aquí se encolan (por email, lo que trae
+ * el token) y una sola tarea por usuario las aplica en orden, así que dos escrituras suyas nunca
+ * se pisan sobre el mismo perfil.
+ *
+ * Cada tarea toma lo que haya en la cola y lo escribe en una única transacción. Si el lote falla,
+ * se repite escritura por escritura, cada una en la suya, para que el error de una no tumbe a las
+ * demás; la que falle por DataIntegrityViolationException (otra petición ha guardado lo mismo a
+ * la vez) se repite una vez, y al repetirla ese registro ya se ve como existente. Los pasos del mismo día se combinan antes: solo cuenta el mayor, que es lo que acabaría
+ * guardado de todos modos.
+ *
+ * Quien envía la escritura espera a que se aplique y recibe su resultado o su excepción, igual
+ * que si llamara al servicio directamente. La espera de una petición está acotada: si se agota,
+ * recibe UserWriteTimeoutException (503) aunque la escritura se acabe aplicando.
+ *
+ * Pasan por aquí las escrituras de actividad, pasos, sueño, frecuencia
+ * cardíaca, sincronización de Health Connect y trozos de importación, datos del perfil,
+ * hidratación directa y altas, bajas y retos de grupo. Quedan fuera, a propósito:
+ * - las tomas de agua con write-behind: solo se apuntan en el log local y en memoria, y las
+ *   escribe un único volcado (HydrationService.flushPending);
+ * - la imagen de perfil: confirma cada paso fuera de transacción para poder borrar el contenido
+ *   anterior con seguridad (UserService.saveUserProfileImage), así que no puede ir en un lote;
+ * - registro, login, logout y borrado de la cuenta (AuthRestController), que crean o retiran al
+ *   usuario entero.
+ * Los retos de grupo se ordenan respecto a las demás escrituras de quien los crea; lo que
+ * comparten con otros miembros (las partes del reto) ya está preparado para escrituras simultáneas.
+ */
+@Component
+public class UserWriteMailbox {
+
+    private final ThreadPoolTaskExecutor userWriteExecutor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JwtUtils jwtUtils;
+
+    private final int batchSize;
+
+    private final long timeoutMillis;
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public UserWriteMailbox(ThreadPoolTaskExecutor userWriteExecutor, PlatformTransactionManager transactionManager,
+                            JwtUtils jwtUtils, @Value("${user-writes.batch-size:50}") int batchSize,
+                            @Value("${user-writes.timeout-millis:30000}") long timeoutMillis) {
+        this.userWriteExecutor = userWriteExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jwtUtils = jwtUtils;
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // La cola no lleva bloqueos; el indicador garantiza una sola tarea de vaciado por usuario
+    private static final class Mailbox {
+        private final Queue<Write> writes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    // stepsDay a null para las escrituras que no se combinan
+    private record Write(Supplier<?> action, LocalDate stepsDay, int steps, List<CompletableFuture<Object>> callers) {
+        private Write(Supplier<?> action, LocalDate stepsDay, int steps) {
+            this(action, stepsDay, steps, new ArrayList<>(List.of(new CompletableFuture<>())));
+        }
+
+        private void complete(Object result) {
+            callers.forEach(caller -> caller.complete(result));
+        }
+
+        private void fail(Throwable error) {
+            callers.forEach(caller -> caller.completeExceptionally(error));
+        }
+    }
+
+    public <T> T submit(String token, Supplier<T> action) {
+        return submitForEmail(jwtUtils.extractEmail(token), action);
+    }
+
+    public void submit(String token, Runnable action) {
+        submit(token, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Para los endpoints antiguos que reciben el email en lugar del token. Sin email no hay buzón:
+     * la escritura se aplica directamente y el servicio dará el error que corresponda.
+     */
+    public <T> T submitForEmail(String email, Supplier<T> action) {
+        if (email == null) {
+            return action.get();
+        }
+        return await(enqueue(email, new Write(action, null, 0)), timeoutMillis);
+    }
+
+    public void submitForEmail(String email, Runnable action) {
+        submitForEmail(email, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Para trabajos en segundo plano (importaciones): nadie espera la respuesta con un límite, así
+     * que se aguarda a que se aplique aunque la cola del usuario vaya cargada.
+     */
+    public <T> T submitInBackground(String email, Supplier<T> action) {
+        return await(enqueue(email, new Write(action, null, 0)), 0);
+    }
+
+    /**
+     * Pasos del día: las escrituras del mismo día que coincidan en un lote se quedan en la de
+     * más pasos y las demás reciben su mismo resultado.
+     */
+    public void submitSteps(String token, Date day, int steps, Runnable action) {
+        Supplier<Object> write = () -> {
+            action.run();
+            return null;
+        };
+        LocalDate stepsDay = day == null ? null : day.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        await(enqueue(jwtUtils.extractEmail(token), new Write(write, stepsDay, steps)), timeoutMillis);
+    }
+
+    private CompletableFuture<Object> enqueue(String email, Write write) {
+        // Encolar dentro de compute: así el buzón no se retira entre que se obtiene y se usa
+        Mailbox mailbox = mailboxes.compute(email, (key, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox();
+            target.writes.add(write);
+            return target;
+        });
+        schedule(email, mailbox);
+        return write.callers().get(0);
+    }
+
+    private void schedule(String email, Mailbox mailbox) {
+        if (mailbox.scheduled.compareAndSet(false, true) && !submitDrain(email, mailbox)) {
+            // Cola llena: vacía quien envía, que de todos modos iba a esperar a su escritura
+            drain(email, mailbox);
+        }
+    }
+
+    private boolean submitDrain(String email, Mailbox mailbox) {
+        try {
+            userWriteExecutor.execute(() -> drain(email, mailbox));
+            return true;
+        } catch (TaskRejectedException e) {
+            return false;
+        }
+    }
+
+    private void drain(String email, Mailbox mailbox) {
+        boolean again;
+        do {
+            again = false;
+            try {
+                List<Write> batch = new ArrayList<>();
+                Write write;
+                while (batch.size() < batchSize && (write = mailbox.writes.poll()) != null) {
+                    batch.add(write);
+                }
+                apply(coalesce(batch));
+            } finally {
+                mailbox.scheduled.set(false);
+                if (!mailbox.writes.isEmpty()) {
+                    // Lo que quede vuelve a la cola del pool para dar turno a otros usuarios; si está
+                    // llena se sigue en este mismo bucle, nunca en una llamada anidada
+                    again = mailbox.scheduled.compareAndSet(false, true) && !submitDrain(email, mailbox);
+                } else {
+                    // Solo se retira vacío y sin tarea: lo que se encole después crea uno nuevo
+                    mailboxes.computeIfPresent(email, (key, current) ->
+                            current == mailbox && current.writes.isEmpty() && !current.scheduled.get() ? null : current);
+                }
+            }
+        } while (again);
+    }
+
+    private List<Write> coalesce(List<Write> batch) {
+        List<Write> result = new ArrayList<>(batch.size());
+        Map<LocalDate, Integer> stepsPosition = new HashMap<>();
+        for (Write write : batch) {
+            if (write.stepsDay() == null) {
+                result.add(write);
+                continue;
+            }
+            Integer position = stepsPosition.get(write.stepsDay());
+            if (position == null) {
+                stepsPosition.put(write.stepsDay(), result.size());
+                result.add(write);
+                continue;
+            }
+            Write kept = result.get(position);
+            Write max = write.steps() > kept.steps() ? write : kept;
+            List<CompletableFuture<Object>> callers = new ArrayList<>(kept.callers());
+            callers.addAll(write.callers());
+            result.set(position, new Write(max.action(), max.stepsDay(), max.steps(), callers));
+        }
+        return result;
+    }
+
+    private void apply(List<Write> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() > 1) {
+            try {
+                List<Object> results = transactionTemplate.execute(status -> {
+                    List<Object> applied = new ArrayList<>(batch.size());
+                    for (Write write : batch) {
+                        applied.add(write.action().get());
+                    }
+                    return applied;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).complete(results.get(i));
+                }
+                return;
+            } catch (RuntimeException | Error e) {
+                // Se ha deshecho entero: se repite cada escritura por separado
+            }
+        }
+        for (Write write : batch) {
+            try {
+                write.complete(applyAlone(write));
+            } catch (RuntimeException | Error e) {
+                write.fail(e);
+            }
+        }
+    }
+
+    private Object applyAlone(Write write) {
+        try {
+            return transactionTemplate.execute(status -> write.action().get());
+        } catch (DataIntegrityViolationException e) {
+            return transactionTemplate.execute(status -> write.action().get());
+        }
+    }
+
+    // timeoutMillis a 0 espera sin límite
+    private static <T> T await(CompletableFuture<Object> result, long timeoutMillis) {
+        try {
+            @SuppressWarnings("unchecked")
+            T value = (T) (timeoutMillis > 0 ? result.get(timeoutMillis, TimeUnit.MILLISECONDS) : result.get());
+            return value;
+        } catch (TimeoutException e) {
+            throw new UserWriteTimeoutException("Too many pending writes for this user, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserWriteTimeoutException("Interrupted while waiting for the write to be applied");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
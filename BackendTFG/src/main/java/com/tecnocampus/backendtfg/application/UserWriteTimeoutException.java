@@ -0,0 +1,16 @@
+package com.tecnocampus.backendtfg.application;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * La escritura sigue en el buzón del usuario pero no se ha aplicado dentro del tiempo de espera.
+ * Se responde 503 para que el cliente la reintente más tarde.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UserWriteTimeoutException extends RuntimeException {
+
+    public UserWriteTimeoutException(String message) {
+        super(message);
+    }
+}
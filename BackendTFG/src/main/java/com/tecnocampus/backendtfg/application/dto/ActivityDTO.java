@@ -3,6 +3,7 @@ package com.tecnocampus.backendtfg.application.dto;
 
 import com.tecnocampus.backendtfg.domain.AbstractActivity;
 import com.tecnocampus.backendtfg.domain.ActivityOrigin;
+import com.tecnocampus.backendtfg.domain.HealthConnectActivity;
 import com.tecnocampus.backendtfg.domain.TypeActivity;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -16,12 +17,15 @@ import java.util.Date;
 @Setter
 @ToString
 public class ActivityDTO {
+    private String id;
     private double duration;
     private Date date;
     private TypeActivity type;
     private String description;
     private ActivityOrigin origin;
     private Double calories;
+    private String externalId;
+    private String idempotencyKey;
 
     public ActivityDTO(double duration, Date date, TypeActivity type, String description, ActivityOrigin origin) {
         this.duration = duration;
@@ -33,11 +37,15 @@ public class ActivityDTO {
 
 
     public ActivityDTO(AbstractActivity abstractActivity) {
+        this.id = abstractActivity.getId();
         this.duration = abstractActivity.getDuration();
         this.date = abstractActivity.getDate();
         this.origin = abstractActivity.getOrigin();
         this.type = abstractActivity.getType();
         this.description = abstractActivity.getDescription();
         this.calories = abstractActivity.getCaloriesBurned();
+        if (abstractActivity instanceof HealthConnectActivity healthConnectActivity) {
+            this.externalId = healthConnectActivity.getExternalId();
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.TypeActivity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Lo mínimo de una actividad o registro de pasos para recalcular sus calorías sin cargar la
+ * entidad. type es null en los pasos.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class CalorieRowDTO {
+    private String id;
+    private TypeActivity type;
+    private double duration;
+    private Date date;
+    private double caloriesBurned;
+}
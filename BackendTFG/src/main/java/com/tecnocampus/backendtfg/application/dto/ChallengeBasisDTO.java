@@ -0,0 +1,21 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Datos de un usuario con los que se fijan los objetivos de sus retos diarios, leídos en una
+ * sola consulta para todo un trozo de usuarios. averageSteps es null si no tiene pasos en la
+ * última semana.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ChallengeBasisDTO {
+    private String userId;
+    private double dailyObjectiveSleep;
+    private Double averageSteps;
+}
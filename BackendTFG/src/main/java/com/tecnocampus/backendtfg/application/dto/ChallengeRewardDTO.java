@@ -0,0 +1,15 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ChallengeRewardDTO {
+    private String id;
+    private int expReward;
+}
@@ -0,0 +1,24 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.ChangeEntityType;
+import com.tecnocampus.backendtfg.domain.ChangeOperation;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Cambio de /sync/changes. En un UPSERT data lleva el estado actual del registro con el mismo
+ * DTO que su endpoint de lectura; un DELETE es una lápida sin data.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ChangeDTO {
+    private long seq;
+    private ChangeEntityType entityType;
+    private String entityId;
+    private ChangeOperation operation;
+    private Object data;
+}
@@ -0,0 +1,21 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ChangesDTO {
+    private List<ChangeDTO> changes;
+    // Valor de since para la siguiente petición
+    private long cursor;
+    private boolean hasMore;
+    // El cursor ya no está en el registro (purgado): hay que recargar todo y seguir desde cursor
+    private boolean resyncRequired;
+}
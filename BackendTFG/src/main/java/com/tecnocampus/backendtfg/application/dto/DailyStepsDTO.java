@@ -1,5 +1,6 @@
 package com.tecnocampus.backendtfg.application.dto;
 
+import com.tecnocampus.backendtfg.domain.DailySteps;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,9 +13,19 @@ import java.util.Date;
 @Setter
 public class DailyStepsDTO {
 
+    private String id;
     private int steps;
     private Date date;
     private int duration;
+    private String externalId;
+    private String idempotencyKey;
+
+    public DailyStepsDTO(DailySteps dailySteps) {
+        this.id = dailySteps.getId();
+        this.steps = dailySteps.getSteps();
+        this.date = dailySteps.getDate();
+        this.duration = dailySteps.getDuration();
+    }
 
     public DailyStepsDTO(int steps, Date date, int duration) {
         this.steps = steps;
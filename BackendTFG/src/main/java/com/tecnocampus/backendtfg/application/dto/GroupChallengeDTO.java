@@ -0,0 +1,40 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.ChallengeType;
+import com.tecnocampus.backendtfg.domain.GroupChallenge;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class GroupChallengeDTO {
+    private String id;
+    private String description;
+    private ChallengeType type;
+    private long targetValue;
+    private long currentValue;
+    private double progress;
+    private int expReward;
+    private Date startDate;
+    private Date endDate;
+    private boolean completed;
+    private Date completionDate;
+
+    public GroupChallengeDTO(GroupChallenge challenge, long currentValue) {
+        this.id = challenge.getId();
+        this.description = challenge.getDescription();
+        this.type = challenge.getType();
+        this.targetValue = challenge.getTargetValue();
+        this.currentValue = currentValue;
+        this.progress = targetValue == 0 ? 0 : Math.min(100, (currentValue * 100.0) / targetValue);
+        this.expReward = challenge.getExpReward();
+        this.startDate = challenge.getStartDate();
+        this.endDate = challenge.getEndDate();
+        this.completed = challenge.isCompleted();
+        this.completionDate = challenge.getCompletionDate();
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.ChallengeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Reto de grupo activo de un usuario: lo justo para saber a qué retos suma cada aportación.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class GroupChallengeRefDTO {
+    private String id;
+    private ChallengeType type;
+    private Date endDate;
+}
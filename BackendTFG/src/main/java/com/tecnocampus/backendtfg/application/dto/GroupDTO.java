@@ -0,0 +1,21 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class GroupDTO {
+    private String id;
+    private String name;
+    private Date createdAt;
+    private long members;
+    // Solo llega a los miembros, que son quienes pueden invitar
+    private String inviteCode;
+}
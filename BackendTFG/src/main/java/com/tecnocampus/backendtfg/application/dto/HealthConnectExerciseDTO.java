@@ -0,0 +1,23 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Sesión de ejercicio tal y como la lee el cliente de Health Connect: el tipo llega como la
+ * constante EXERCISE_TYPE_* y se traduce en el servidor con HealthConnectMapper.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class HealthConnectExerciseDTO {
+    private String externalId;
+    private String idempotencyKey;
+    private String exerciseType;
+    private Date startTime;
+    private Date endTime;
+    private String description;
+}
@@ -0,0 +1,22 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.SyncDataType;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class HealthConnectSyncDTO {
+    private List<HealthConnectExerciseDTO> exerciseSessions = new ArrayList<>();
+    private List<SleepDTO> sleepSessions = new ArrayList<>();
+    private List<DailyStepsDTO> dailySteps = new ArrayList<>();
+    // Token de cambios de Health Connect por tipo, se guarda con la marca de sincronización
+    private Map<SyncDataType, String> changeTokens = new EnumMap<>(SyncDataType.class);
+}
@@ -0,0 +1,18 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class HealthConnectSyncResultDTO {
+    private List<SyncRecordResultDTO> exerciseSessions = new ArrayList<>();
+    private List<SyncRecordResultDTO> sleepSessions = new ArrayList<>();
+    private List<SyncRecordResultDTO> dailySteps = new ArrayList<>();
+    private List<SyncStateDTO> state = new ArrayList<>();
+}
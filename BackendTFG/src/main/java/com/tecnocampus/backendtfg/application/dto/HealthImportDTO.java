@@ -0,0 +1,31 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Progreso de una importación de exportación NDJSON. Los contadores se actualizan al
+ * confirmar cada trozo, así que reflejan lo ya guardado aunque la importación siga en marcha.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class HealthImportDTO {
+    private String id;
+    private volatile ImportStatus status;
+    private volatile long records;
+    private volatile long saved;
+    private volatile long unchanged;
+    private volatile long duplicates;
+    private volatile long invalid;
+    private volatile String error;
+    private List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+    private Date startedAt;
+    private volatile Date finishedAt;
+}
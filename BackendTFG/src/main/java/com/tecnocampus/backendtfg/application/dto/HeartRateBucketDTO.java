@@ -0,0 +1,23 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Agregado de las muestras de un intervalo de la serie reducida: start es el inicio del intervalo.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class HeartRateBucketDTO {
+    private Date start;
+    private int min;
+    private double avg;
+    private int max;
+    private int count;
+}
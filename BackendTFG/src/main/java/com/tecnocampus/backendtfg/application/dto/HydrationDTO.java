@@ -0,0 +1,23 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.Hydration;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class HydrationDTO {
+    private String id;
+    private double quantity;
+    private Date date;
+
+    public HydrationDTO(Hydration hydration) {
+        this.id = hydration.getId();
+        this.quantity = hydration.getQuantity();
+        this.date = hydration.getDate();
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Un tramo de la clasificación. myRank es la posición del usuario que consulta (desde 1) y
+ * totalUsers el número de usuarios clasificados.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class LeaderboardDTO {
+    private int myRank;
+    private int totalUsers;
+    private List<LeaderboardEntryDTO> entries;
+}
@@ -0,0 +1,27 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.Level;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class LeaderboardEntryDTO {
+    private int rank;
+    private String userId;
+    private String name;
+    private int currentLevel;
+    private int currentExp;
+    private long totalExperience;
+    private boolean me;
+
+    public LeaderboardEntryDTO(String userId, String name, int currentLevel, int currentExp) {
+        this.userId = userId;
+        this.name = name;
+        this.currentLevel = currentLevel;
+        this.currentExp = currentExp;
+        this.totalExperience = Level.totalExperience(currentLevel, currentExp);
+    }
+}
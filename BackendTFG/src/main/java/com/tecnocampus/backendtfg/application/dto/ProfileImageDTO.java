@@ -0,0 +1,39 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.ImageVariant;
+import com.tecnocampus.backendtfg.domain.UserImage;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProfileImageDTO {
+
+    private String contentHash;
+    private String imageType;
+    private String filename;
+    private long size;
+    // URL versionada por hash: su contenido no cambia nunca
+    private String url;
+    // Lado de la variante servida; null cuando se trata de la imagen original
+    private Integer variantSize;
+
+    public ProfileImageDTO(UserImage userImage) {
+        this.contentHash = userImage.getContentHash();
+        this.imageType = userImage.getImageType();
+        this.filename = userImage.getFilename();
+        this.size = userImage.getSize();
+        this.url = "/user/profile-image/" + userImage.getContentHash();
+    }
+
+    public ProfileImageDTO(UserImage userImage, ImageVariant variant) {
+        this.contentHash = variant.getContentHash();
+        this.imageType = variant.getImageType();
+        this.filename = userImage.getFilename();
+        this.size = variant.getByteSize();
+        this.url = "/user/profile-image/" + userImage.getContentHash() + "?size=" + variant.getSize();
+        this.variantSize = variant.getSize();
+    }
+}
@@ -12,14 +12,18 @@ import java.util.List;
 @Getter
 @Setter
 public class SleepDTO {
+    private String id;
     private Date startTime;
     private Date endTime;
     private double hours;
     private int quality;
     private List<SleepStageDTO> sleepStagesDTO;
     private String comment;
+    private String externalId;
+    private String idempotencyKey;
 
     public SleepDTO(Sleep sleep) {
+        this.id = sleep.getId();
         this.startTime = sleep.getStartTime();
         this.endTime = sleep.getEndTime();
         this.hours = sleep.getHours();
@@ -28,12 +32,14 @@ public class SleepDTO {
                 .map(SleepStageDTO::new)
                 .toList();
         this.comment = sleep.getComment();
+        this.externalId = sleep.getExternalId();
     }
 
     @Override
     public String toString() {
         return "SleepDTO{" +
-                "startTime=" + startTime +
+                "id='" + id + '\'' +
+                ", startTime=" + startTime +
                 ", endTime=" + endTime +
                 ", hours=" + hours +
                 ", quality=" + quality +
@@ -0,0 +1,21 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Registro de pasos de Health Connect: count pasos entre startTime y endTime.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class StepIntervalDTO {
+    private Date startTime;
+    private Date endTime;
+    private int count;
+}
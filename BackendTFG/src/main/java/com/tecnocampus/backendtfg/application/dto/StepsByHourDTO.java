@@ -0,0 +1,18 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Media de pasos en una hora del día (0-23) sobre los días del rango con datos minuto a minuto.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class StepsByHourDTO {
+    private int hour;
+    private double averageSteps;
+}
@@ -0,0 +1,20 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Resultado de un registro del lote: index es su posición en la lista enviada por el cliente.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class SyncRecordResultDTO {
+    private int index;
+    private SyncRecordStatus status;
+    private String id;
+    private String message;
+}
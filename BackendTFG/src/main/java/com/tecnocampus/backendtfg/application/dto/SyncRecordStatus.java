@@ -0,0 +1,5 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+public enum SyncRecordStatus {
+    SAVED, UNCHANGED, DUPLICATE, INVALID
+}
@@ -0,0 +1,26 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import com.tecnocampus.backendtfg.domain.SyncDataType;
+import com.tecnocampus.backendtfg.domain.SyncWatermark;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class SyncStateDTO {
+    private SyncDataType dataType;
+    private Date lastEndTime;
+    private String changeToken;
+    private Date updatedAt;
+
+    public SyncStateDTO(SyncWatermark watermark) {
+        this.dataType = watermark.getDataType();
+        this.lastEndTime = watermark.getLastEndTime();
+        this.changeToken = watermark.getChangeToken();
+        this.updatedAt = watermark.getUpdatedAt();
+    }
+}
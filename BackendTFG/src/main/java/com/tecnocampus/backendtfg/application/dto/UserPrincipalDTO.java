@@ -0,0 +1,37 @@
+package com.tecnocampus.backendtfg.application.dto;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Principal mínimo para la autenticación: solo id, email y hash de la contraseña,
+ * sin cargar perfiles, nivel ni imagen del usuario.
+ */
+@Getter
+public class UserPrincipalDTO implements UserDetails {
+
+    private final String id;
+    private final String email;
+    private final String password;
+
+    public UserPrincipalDTO(String id, String email, String password) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+    }
+
+    @Override
+    public String getUsername() {
+        return this.email;
+    }
+}
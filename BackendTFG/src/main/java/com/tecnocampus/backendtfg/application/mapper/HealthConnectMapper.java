@@ -2,8 +2,23 @@ package com.tecnocampus.backendtfg.application.mapper;
 
 import com.tecnocampus.backendtfg.domain.TypeActivity;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public class HealthConnectMapper {
 
+    // Traduce cada tipo distinto una sola vez para todo el lote
+    public static Map<String, TypeActivity> mapExerciseTypes(Collection<String> exerciseTypes) {
+        Map<String, TypeActivity> mapped = new HashMap<>();
+        for (String exerciseType : exerciseTypes) {
+            if (!mapped.containsKey(exerciseType)) {
+                mapped.put(exerciseType, mapExerciseTypeToTypeActivity(exerciseType));
+            }
+        }
+        return mapped;
+    }
+
     public static TypeActivity mapExerciseTypeToTypeActivity(String exerciseType) {
         if (exerciseType == null) {
             return TypeActivity.WALKING;  // Default value
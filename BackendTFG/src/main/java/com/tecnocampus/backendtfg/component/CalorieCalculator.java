@@ -7,30 +7,56 @@ import com.tecnocampus.backendtfg.domain.User;
 
 public class CalorieCalculator {
 
+    // Tabla MET indexada por ordinal: se compila una vez a partir del switch
+    private static final double[] MET_BY_TYPE = compileMetTable();
+
+    private static final double DEFAULT_MET = 4.0;
+
     public static double calculateCaloriesBurned(User user, TypeActivity activityType, double durationInMinutes) {
         if (user == null || user.getWeight() == null) {
             return 0;
         }
+        return calculateCaloriesBurned(user.getWeight(), user.getGender(), activityType, durationInMinutes);
+    }
 
+    /**
+     * Igual que la versión con User, pero con el peso y el sexo explícitos: la recalculación del
+     * histórico usa el peso que tenía el usuario en la fecha de cada registro.
+     */
+    public static double calculateCaloriesBurned(double weight, Gender gender, TypeActivity activityType,
+                                                 double durationInMinutes) {
         // Get MET value for activity type
-        double metValue = getMETValueForActivity(activityType);
+        double metValue = getMETValue(activityType);
 
         // Formula: Calories = MET * weight(kg) * duration(hours)
         double durationInHours = durationInMinutes / 60.0;
-        double weight = user.getWeight();
 
         double calories;
-        if (user.getGender() == null) {
+        if (gender == null) {
             calories = metValue * weight * durationInHours;
         } else {
             // Apply gender adjustment if available (typically 10% lower for females)
-            double genderFactor = (user.getGender() == Gender.FEMALE) ? 0.9 : 1.0;
+            double genderFactor = (gender == Gender.FEMALE) ? 0.9 : 1.0;
             calories = metValue * weight * durationInHours * genderFactor;
         }
 
         // Round to one decimal place
         return Math.round(calories * 10.0) / 10.0;
     }
+
+    public static double getMETValue(TypeActivity type) {
+        return type == null ? DEFAULT_MET : MET_BY_TYPE[type.ordinal()];
+    }
+
+    private static double[] compileMetTable() {
+        TypeActivity[] types = TypeActivity.values();
+        double[] table = new double[types.length];
+        for (TypeActivity type : types) {
+            table[type.ordinal()] = getMETValueForActivity(type);
+        }
+        return table;
+    }
+
     private static double getMETValueForActivity(TypeActivity type) {
         // MET values from Compendium of Physical Activities
         switch (type) {
@@ -103,7 +129,7 @@ public class CalorieCalculator {
             case WATER_POLO: return 10.0;
             case WEIGHTLIFTING: return 6.0;
             case WHEELCHAIR: return 2.5;
-            default: return 4.0;
+            default: return DEFAULT_MET;
         }
     }
 }
@@ -0,0 +1,81 @@
+package com.tecnocampus.backendtfg.component;
+
+import com.tecnocampus.backendtfg.domain.Gender;
+import com.tecnocampus.backendtfg.domain.HeartRateSeries;
+import com.tecnocampus.backendtfg.domain.TypeActivity;
+import com.tecnocampus.backendtfg.domain.User;
+
+/**
+ * Calorías de una actividad a partir de la frecuencia cardíaca (ecuaciones de Keytel et al.,
+ * 2005): kcal/min = (a + b·bpm + c·peso + d·edad) / 4.184, con coeficientes distintos por sexo.
+ * Cada muestra cuenta hasta la siguiente (como mucho MAX_SAMPLE_GAP_MILLIS) y el tiempo sin
+ * muestras se calcula con el MET del tipo de actividad, como CalorieCalculator. Si las muestras
+ * no cubren ni la mitad de la actividad se usa solo el MET.
+ */
+public class HeartRateCalorieCalculator {
+
+    private static final long MAX_SAMPLE_GAP_MILLIS = 2 * 60 * 1000;
+    private static final double MIN_COVERAGE = 0.5;
+    private static final int DEFAULT_AGE = 30;
+    private static final double KJ_PER_KCAL = 4.184;
+
+    public static double calculateCaloriesBurned(User user, TypeActivity activityType, long start, long end,
+                                                 HeartRateSeries heartRate) {
+        if (user == null || user.getWeight() == null) {
+            return CalorieCalculator.calculateCaloriesBurned(user, activityType, (end - start) / 60000.0);
+        }
+        return calculateCaloriesBurned(user.getWeight(), user.getAge(), user.getGender(), activityType,
+                start, end, heartRate);
+    }
+
+    public static double calculateCaloriesBurned(double weight, int age, Gender gender, TypeActivity activityType,
+                                                 long start, long end, HeartRateSeries heartRate) {
+        double durationInMinutes = (end - start) / 60000.0;
+        if (heartRate == null || end <= start) {
+            return CalorieCalculator.calculateCaloriesBurned(weight, gender, activityType, durationInMinutes);
+        }
+
+        if (age <= 0) {
+            age = DEFAULT_AGE;
+        }
+        double slope;
+        double intercept;
+        if (gender == Gender.FEMALE) {
+            slope = 0.4472;
+            intercept = -20.4022 - 0.1263 * weight + 0.074 * age;
+        } else if (gender == Gender.MALE) {
+            slope = 0.6309;
+            intercept = -55.0969 + 0.1988 * weight + 0.2017 * age;
+        } else {
+            // Sin sexo conocido: media de las dos ecuaciones
+            slope = (0.4472 + 0.6309) / 2;
+            intercept = (-20.4022 - 0.1263 * weight + 0.074 * age - 55.0969 + 0.1988 * weight + 0.2017 * age) / 2;
+        }
+        slope /= KJ_PER_KCAL;
+        intercept /= KJ_PER_KCAL;
+        // Con pulsaciones bajas la ecuación da valores absurdos: nunca menos que 1 MET
+        double restingPerMinute = weight / 60.0;
+
+        int first = heartRate.indexOf(start);
+        int last = heartRate.indexOf(end);
+        double calories = 0;
+        long covered = 0;
+        for (int i = first; i < last; i++) {
+            long next = i + 1 < heartRate.size() ? heartRate.timeAt(i + 1) : end;
+            long dt = Math.min(Math.min(next, end) - heartRate.timeAt(i), MAX_SAMPLE_GAP_MILLIS);
+            double perMinute = Math.max(slope * heartRate.bpmAt(i) + intercept, restingPerMinute);
+            calories += perMinute * dt;
+            covered += dt;
+        }
+        if (covered < (end - start) * MIN_COVERAGE) {
+            return CalorieCalculator.calculateCaloriesBurned(weight, gender, activityType, durationInMinutes);
+        }
+
+        calories /= 60000.0;
+        double uncoveredMinutes = (end - start - covered) / 60000.0;
+        if (uncoveredMinutes > 0) {
+            calories += CalorieCalculator.calculateCaloriesBurned(weight, gender, activityType, uncoveredMinutes);
+        }
+        return Math.round(calories * 10.0) / 10.0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tecnocampus.backendtfg.component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+public class ImageResizer {
+
+    // Tamaños (lado en píxeles) de las variantes cuadradas que se generan para cada imagen
+    public static final int[] VARIANT_SIZES = {64, 128, 512};
+
+    public static final String VARIANT_TYPE = "image/jpeg";
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Decodifica la imagen submuestreando al leer, de forma que una foto de varios
+     * megapíxeles no se cargue entera en memoria si solo se necesitan variantes pequeñas.
+     */
+    public static BufferedImage read(InputStream input, int maxTargetSize) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+            if (imageInput == null) {
+                throw new IOException("Unsupported image stream");
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                // Se deja margen x2 para que el reescalado final conserve calidad
+                int subsampling = Math.max(1, shortSide / (maxTargetSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Recorta el centro de la imagen a un cuadrado y lo reduce a {@code size} píxeles de lado.
+     * Nunca amplía: si la imagen es menor, la variante conserva su tamaño.
+     */
+    public static BufferedImage squareThumbnail(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        BufferedImage current = source.getSubimage(x, y, side, side);
+        int target = Math.min(size, side);
+
+        // Reducción progresiva a la mitad: con bilineal evita el aliasing de un único salto grande
+        int currentSide = side;
+        do {
+            currentSide = Math.max(target, currentSide / 2);
+            current = scale(current, currentSide);
+        } while (currentSide > target);
+        return current;
+    }
+
+    public static void writeJpeg(BufferedImage image, OutputStream output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int side) {
+        // JPEG no admite transparencia: se pinta sobre fondo blanco en RGB
+        BufferedImage scaled = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, side, side);
+            graphics.drawImage(source, 0, 0, side, side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
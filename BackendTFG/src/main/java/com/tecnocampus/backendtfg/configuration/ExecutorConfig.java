@@ -0,0 +1,103 @@
+package com.tecnocampus.backendtfg.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Pool acotado para el redimensionado de imágenes: si la cola se llena, la tarea se descarta
+    // y la variante se vuelve a pedir la próxima vez que se solicite
+    @Bean
+    public ThreadPoolTaskExecutor imageProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("image-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Importaciones de exportaciones completas: pocas a la vez, cada una ya escribe en lotes grandes
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(5);
+        executor.setThreadNamePrefix("import-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Recalculación de calorías en segundo plano: un hilo basta, cada trabajo avanza por trozos
+    // y los que no quepan en la cola se retoman al arrancar
+    @Bean
+    public ThreadPoolTaskExecutor recomputeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("recompute-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Progreso de retos desde el outbox: un único hilo, así los lotes nunca se pisan
+    @Bean
+    public ThreadPoolTaskExecutor challengeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("challenges-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Volcado de tomas de agua al llegar a muchas pendientes: un hilo y un hueco en la cola, porque
+    // un volcado ya en espera escribe también las que lleguen después
+    @Bean
+    public ThreadPoolTaskExecutor hydrationFlushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setThreadNamePrefix("hydration-flush-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Buzones de escritura por usuario: cada tarea vacía el de uno solo, así que varios hilos
+    // atienden a usuarios distintos. Con la cola llena se rechaza y UserWriteMailbox decide quién
+    // vacía: quien envía, o el mismo hilo que ya estaba vaciando ese buzón
+    @Bean
+    public ThreadPoolTaskExecutor userWriteExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("user-writes-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Generación de retos de medianoche: varios trozos de usuarios a la vez; con la cola llena el
+    // trozo lo procesa quien lo envía, que así deja de leer usuarios hasta que haya hueco
+    @Bean
+    public ThreadPoolTaskExecutor challengeGenerationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(8);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("challenge-gen-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.tecnocampus.backendtfg.configuration;
+
+import com.tecnocampus.backendtfg.application.HealthExportImportService;
+import com.tecnocampus.backendtfg.application.dto.HealthImportDTO;
+import com.tecnocampus.backendtfg.application.dto.ImportStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Importación desde línea de comandos de un fichero local, para migraciones grandes sin pasar
+ * por HTTP:
+ *   java -jar BackendTFG.jar --import.file=/ruta/export.ndjson --import.user=usuario@example.com
+ *     --spring.main.web-application-type=none
+ * La aplicación termina al acabar la importación (código 1 si ha fallado).
+ */
+@Component
+@ConditionalOnProperty(name = "import.file")
+public class HealthExportImportRunner implements ApplicationRunner {
+
+    private final HealthExportImportService healthExportImportService;
+
+    private final ConfigurableApplicationContext context;
+
+    private final String file;
+
+    private final String email;
+
+    public HealthExportImportRunner(HealthExportImportService healthExportImportService,
+                                    ConfigurableApplicationContext context,
+                                    @Value("${import.file}") String file,
+                                    @Value("${import.user:}") String email) {
+        this.healthExportImportService = healthExportImportService;
+        this.context = context;
+        this.file = file;
+        this.email = email;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path path = Path.of(file);
+        int exitCode;
+        if (email.isBlank() || !Files.isRegularFile(path)) {
+            System.out.println("Uso: --import.file=<fichero NDJSON> --import.user=<email>");
+            exitCode = 1;
+        } else {
+            HealthImportDTO result = healthExportImportService.importFile(email, path);
+            System.out.println("Importación " + result.getStatus() + ": " + result.getRecords() + " registros, "
+                    + result.getSaved() + " guardados, " + result.getUnchanged() + " sin cambios, "
+                    + result.getDuplicates() + " duplicados, " + result.getInvalid() + " inválidos");
+            result.getWarnings().forEach(System.out::println);
+            if (result.getError() != null) {
+                System.out.println(result.getError());
+            }
+            exitCode = result.getStatus() == ImportStatus.COMPLETED ? 0 : 1;
+        }
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
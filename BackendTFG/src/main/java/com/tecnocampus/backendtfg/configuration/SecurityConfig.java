@@ -37,7 +37,7 @@ public class SecurityConfig {
         http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/register", "/auth/login", "/auth/verifyToken","/h2-console/**").permitAll()
-                        .requestMatchers("/activity/**","/user/**","/sleep/**","/stats/**","/trend/**").authenticated()
+                        .requestMatchers("/activity/**","/user/**","/sleep/**","/stats/**","/trend/**","/sync/**","/heartrate/**").authenticated()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
@@ -2,18 +2,28 @@ package com.tecnocampus.backendtfg.domain;
 
 import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
 import com.tecnocampus.backendtfg.component.CalorieCalculator;
+import com.tecnocampus.backendtfg.component.HeartRateCalorieCalculator;
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.Map;
 
 @Entity
+// La tabla es única para toda la jerarquía: los índices de los ids de Health Connect se declaran aquí
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_activity_external_id", columnNames = {"activity_profile_id", "external_id"}),
+        @UniqueConstraint(name = "uk_activity_idempotency_key", columnNames = {"activity_profile_id", "idempotency_key"})
+}, indexes = @Index(name = "idx_activity_profile_date", columnList = "activity_profile_id, date"))
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@EntityListeners(ChangeTrackingListener.class)
 @DiscriminatorColumn(name = "activity_origin", discriminatorType = DiscriminatorType.STRING)
 @Getter
 @Setter
-public abstract class AbstractActivity {
+public abstract class AbstractActivity implements ChangeTracked {
 
     @Id
     private String id = java.util.UUID.randomUUID().toString();
@@ -44,4 +54,30 @@ public abstract class AbstractActivity {
         this.caloriesBurned = CalorieCalculator.calculateCaloriesBurned(
                 user, this.type, this.duration);
     }
-}
\ No newline at end of file
+
+    /**
+     * Como calculateCalories, pero con la frecuencia cardíaca de los días que toca la actividad
+     * si la hay. date es el inicio y duration los minutos.
+     */
+    public void calculateCalories(Map<LocalDate, HeartRateSeries> heartRateByDay) {
+        long start = this.date.getTime();
+        long end = start + Math.round(this.duration * 60000);
+        HeartRateSeries heartRate = HeartRateSeries.forWindow(heartRateByDay, start, end);
+        if (heartRate == null) {
+            calculateCalories();
+            return;
+        }
+        this.caloriesBurned = HeartRateCalorieCalculator.calculateCaloriesBurned(
+                this.activityProfile.getUser(), this.type, start, end, heartRate);
+    }
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.ACTIVITY;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return activityProfile != null && activityProfile.getUser() != null ? activityProfile.getUser().getId() : null;
+    }
+}
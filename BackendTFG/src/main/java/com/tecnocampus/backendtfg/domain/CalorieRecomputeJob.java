@@ -0,0 +1,75 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Recalculación de las calorías de un usuario desde una fecha tras cambiar sus datos corporales.
+ * Avanza por trozos ordenados por (fecha, id); el cursor se guarda en la misma transacción que
+ * cada trozo, así que un reinicio continúa donde se quedó.
+ */
+@Entity
+@Table(name = "calorie_recompute_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CalorieRecomputeJob {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private Date fromDate;
+
+    @Enumerated(EnumType.STRING)
+    private RecomputePhase phase = RecomputePhase.ACTIVITIES;
+
+    private Date cursorDate;
+
+    @Column(length = 36)
+    private String cursorId;
+
+    private int updatedRows;
+
+    // Un trabajo sustituido mientras procesa un trozo no puede volver a guardarse encima
+    @Version
+    private long version;
+
+    private Date createdAt;
+
+    private Date updatedAt;
+
+    public CalorieRecomputeJob(User user, Date fromDate) {
+        this.user = user;
+        this.fromDate = fromDate;
+        this.createdAt = new Date();
+        this.updatedAt = this.createdAt;
+        restartPhase(RecomputePhase.ACTIVITIES);
+    }
+
+    public boolean isFinished() {
+        return phase == RecomputePhase.COMPLETED || phase == RecomputePhase.SUPERSEDED;
+    }
+
+    public void advance(Date date, String id, int updated) {
+        this.cursorDate = date;
+        this.cursorId = id;
+        this.updatedRows += updated;
+        this.updatedAt = new Date();
+    }
+
+    // El cursor queda justo antes de fromDate: el primer trozo empieza en fromDate incluida
+    public void restartPhase(RecomputePhase phase) {
+        this.phase = phase;
+        this.cursorDate = new Date(fromDate.getTime() - 1);
+        this.cursorId = "";
+        this.updatedAt = new Date();
+    }
+}
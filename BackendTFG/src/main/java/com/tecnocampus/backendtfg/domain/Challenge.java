@@ -1,5 +1,6 @@
 package com.tecnocampus.backendtfg.domain;
 
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -11,7 +12,8 @@ import java.util.Date;
 @Getter
 @Setter
 @NoArgsConstructor
-public class Challenge {
+@EntityListeners(ChangeTrackingListener.class)
+public class Challenge implements ChangeTracked {
     @Id
     private String id = java.util.UUID.randomUUID().toString();
     private String description;
@@ -26,6 +28,10 @@ public class Challenge {
     private int targetValue;  // valor objetivo (pasos, minutos, etc.)
     private int currentValue; // valor actual
 
+    // El progreso se suma con ChallengeRepository.addProgress; esto protege el resto de escrituras
+    @Version
+    private Long version;
+
     @ManyToOne
     private User user;
 
@@ -48,4 +54,14 @@ public class Challenge {
         }
         return false; // Reto aún no completado
     }
-}
\ No newline at end of file
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.CHALLENGE;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return user != null ? user.getId() : null;
+    }
+}
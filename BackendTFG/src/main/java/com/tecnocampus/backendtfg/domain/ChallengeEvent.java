@@ -0,0 +1,42 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Progreso de retos pendiente de aplicar (outbox). Se guarda en la misma transacción que el
+ * registro que lo genera y ChallengeEventProcessor lo aplica después, por lotes.
+ */
+@Entity
+@Table(name = "challenge_events", indexes = @Index(name = "idx_challenge_events_created", columnList = "createdAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ChallengeEvent {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @Column(length = 36)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    private ChallengeType type;
+
+    // VALUE es palabra reservada en H2
+    @Column(name = "event_value")
+    private int value;
+
+    private Date createdAt;
+
+    public ChallengeEvent(String userId, ChallengeType type, int value) {
+        this.userId = userId;
+        this.type = type;
+        this.value = value;
+        this.createdAt = new Date();
+    }
+}
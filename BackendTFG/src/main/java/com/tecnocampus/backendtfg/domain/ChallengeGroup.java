@@ -0,0 +1,57 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.security.SecureRandom;
+import java.util.Date;
+
+/**
+ * Grupo de usuarios (familia, equipo, empresa) con retos compartidos. Los miembros están en
+ * GroupMembership, no en una colección: un grupo puede tener miles.
+ *
+ * Para unirse hace falta el código de invitación, que solo ven los miembros: el id del grupo
+ * aparece en URLs y rankings y no basta.
+ */
+@Entity
+@Table(name = "challenge_groups")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ChallengeGroup {
+
+    // Sin 0/O ni 1/I/L, que se confunden al dictarlo
+    private static final String INVITE_ALPHABET = "ABCDEFGHJKMNPQRSTUVWXYZ23456789";
+    private static final int INVITE_LENGTH = 10;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    private String name;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private User owner;
+
+    private Date createdAt;
+
+    @Column(nullable = false, unique = true, length = INVITE_LENGTH)
+    private String inviteCode;
+
+    public ChallengeGroup(String name, User owner) {
+        this.name = name;
+        this.owner = owner;
+        this.createdAt = new Date();
+        this.inviteCode = newInviteCode();
+    }
+
+    public static String newInviteCode() {
+        StringBuilder code = new StringBuilder(INVITE_LENGTH);
+        for (int i = 0; i < INVITE_LENGTH; i++) {
+            code.append(INVITE_ALPHABET.charAt(RANDOM.nextInt(INVITE_ALPHABET.length())));
+        }
+        return code.toString();
+    }
+}
@@ -0,0 +1,5 @@
+package com.tecnocampus.backendtfg.domain;
+
+public enum ChangeEntityType {
+    ACTIVITY, SLEEP, DAILY_STEPS, HYDRATION, HYDRATION_STATUS, CHALLENGE
+}
@@ -0,0 +1,15 @@
+package com.tecnocampus.backendtfg.domain;
+
+/**
+ * Entidad cuyas altas, cambios y bajas se publican en el registro de cambios (sync_changes)
+ * que consultan las cachés del cliente.
+ */
+public interface ChangeTracked {
+
+    String getId();
+
+    ChangeEntityType changeEntityType();
+
+    // Id del usuario propietario, o null si la entidad aún no está asociada a ninguno
+    String ownerUserId();
+}
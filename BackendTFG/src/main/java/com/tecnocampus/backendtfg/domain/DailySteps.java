@@ -3,22 +3,27 @@ package com.tecnocampus.backendtfg.domain;
 
 import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
 import com.tecnocampus.backendtfg.component.CalorieCalculator;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.ManyToOne;
-import jakarta.persistence.Table;
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.ZoneId;
 import java.util.Date;
 
 @Entity
-@Table(name = "DailySteps")
+@Table(name = "DailySteps", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_steps_external_id", columnNames = {"activity_profile_id", "external_id"}),
+        @UniqueConstraint(name = "uk_daily_steps_idempotency_key", columnNames = {"activity_profile_id", "idempotency_key"}),
+        // Una fila por día y perfil aunque dos escrituras se salten el buzón del usuario
+        @UniqueConstraint(name = "uk_daily_steps_day", columnNames = {"activity_profile_id", "date"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
-public class DailySteps {
+@EntityListeners(ChangeTrackingListener.class)
+public class DailySteps implements ChangeTracked {
 
     @Id
     private String id = java.util.UUID.randomUUID().toString();
@@ -34,17 +39,48 @@ public class DailySteps {
     @ManyToOne
     private ActivityProfile activityProfile;
 
+    @Column(name = "external_id", length = 100)
+    private String externalId;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     public DailySteps(int steps, Date date,int duration, ActivityProfile activityProfile) {
         this.steps = steps;
-        this.date = date;
+        this.date = startOfDay(date);
         this.duration = duration;
         this.activityProfile = activityProfile;
     }
 
     public DailySteps (DailyStepsDTO dailySteps) {
         this.steps = dailySteps.getSteps();
-        this.date = dailySteps.getDate();
+        this.date = startOfDay(dailySteps.getDate());
         this.duration = dailySteps.getDuration();
+        this.externalId = dailySteps.getExternalId();
+        this.idempotencyKey = dailySteps.getIdempotencyKey();
+    }
+
+    // La fecha se guarda siempre a medianoche: es lo que hace que el índice único sea por día
+    public void setDate(Date date) {
+        this.date = startOfDay(date);
+    }
+
+    private static Date startOfDay(Date date) {
+        return date == null ? null : Date.from(date.toInstant().atZone(ZoneId.systemDefault())
+                .toLocalDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Un día ya guardado sin ids de Health Connect adopta los del registro que lo repite, así que
+     * las siguientes repeticiones se resuelven con la consulta por índice (como Sleep.mergeFrom).
+     */
+    public void adoptIds(DailyStepsDTO dailySteps) {
+        if (this.externalId == null) {
+            this.externalId = dailySteps.getExternalId();
+        }
+        if (this.idempotencyKey == null) {
+            this.idempotencyKey = dailySteps.getIdempotencyKey();
+        }
     }
 
     public void calculateCalories() {
@@ -54,4 +90,14 @@ public class DailySteps {
                     user, TypeActivity.WALKING, this.duration);
         }
     }
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.DAILY_STEPS;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return activityProfile != null && activityProfile.getUser() != null ? activityProfile.getUser().getId() : null;
+    }
 }
@@ -0,0 +1,56 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Reto con un objetivo común para todos los miembros de un grupo. El progreso no está en esta
+ * fila sino repartido en GroupChallengeShard: las aportaciones de miles de miembros no se
+ * ponen en cola sobre un único bloqueo de fila.
+ */
+@Entity
+@Table(name = "group_challenges", indexes = @Index(name = "idx_group_challenges_group", columnList = "group_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class GroupChallenge {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id")
+    private ChallengeGroup group;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    private ChallengeType type;
+
+    private long targetValue;
+
+    private int expReward;
+
+    private Date startDate;
+
+    private Date endDate;
+
+    private boolean completed = false;
+
+    private Date completionDate;
+
+    public GroupChallenge(ChallengeGroup group, String description, ChallengeType type, long targetValue,
+                          int expReward, Date endDate) {
+        this.group = group;
+        this.description = description;
+        this.type = type;
+        this.targetValue = targetValue;
+        this.expReward = expReward;
+        this.startDate = new Date();
+        this.endDate = endDate;
+    }
+}
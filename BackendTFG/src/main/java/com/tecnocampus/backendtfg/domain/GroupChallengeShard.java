@@ -0,0 +1,39 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Una parte del progreso de un reto de grupo. Cada volcado suma a una parte elegida al azar,
+ * así que volcados concurrentes (varias instancias) casi nunca esperan por la misma fila; el
+ * progreso es la suma de todas.
+ */
+@Entity
+@Table(name = "group_challenge_shards",
+        uniqueConstraints = @UniqueConstraint(name = "uk_group_challenge_shards", columnNames = {"group_challenge_id", "shard"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class GroupChallengeShard {
+
+    public static final int SHARD_COUNT = 16;
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_challenge_id")
+    private GroupChallenge challenge;
+
+    private int shard;
+
+    @Column(name = "shard_value")
+    private long value;
+
+    public GroupChallengeShard(GroupChallenge challenge, int shard) {
+        this.challenge = challenge;
+        this.shard = shard;
+    }
+}
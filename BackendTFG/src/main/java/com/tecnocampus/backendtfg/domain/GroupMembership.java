@@ -0,0 +1,37 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Entity
+@Table(name = "group_memberships",
+        uniqueConstraints = @UniqueConstraint(name = "uk_group_memberships", columnNames = {"group_id", "user_id"}),
+        indexes = @Index(name = "idx_group_memberships_user", columnList = "user_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class GroupMembership {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "group_id")
+    private ChallengeGroup group;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private Date joinedAt;
+
+    public GroupMembership(ChallengeGroup group, User user) {
+        this.group = group;
+        this.user = user;
+        this.joinedAt = new Date();
+    }
+}
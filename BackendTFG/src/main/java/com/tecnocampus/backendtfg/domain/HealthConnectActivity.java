@@ -1,15 +1,28 @@
 package com.tecnocampus.backendtfg.domain;
 
 import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
+import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.util.Date;
 
 @Entity
 @DiscriminatorValue("HEALTH_CONNECT")
+@Getter
+@Setter
 public class HealthConnectActivity extends AbstractActivity {
 
+    // Id del registro en Health Connect (metadata.id)
+    @Column(name = "external_id", length = 100)
+    private String externalId;
+
+    // Clave que envía el cliente para que reenviar el mismo registro no tenga efecto
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     public HealthConnectActivity() {
         setOrigin(ActivityOrigin.HEALTH_CONNECT);
     }
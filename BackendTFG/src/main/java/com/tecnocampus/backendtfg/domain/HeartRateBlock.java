@@ -0,0 +1,79 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Todas las muestras de frecuencia cardíaca de un usuario en un día, codificadas en un único
+ * bloque con HeartRateSeries. Guarda además los agregados del día para no tener que decodificar
+ * el bloque cuando solo se piden resúmenes diarios.
+ */
+@Entity
+@Table(name = "heart_rate_blocks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_heart_rate_block_day", columnNames = {"user_id", "sample_day"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class HeartRateBlock {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(name = "sample_day")
+    private LocalDate day;
+
+    private int sampleCount;
+
+    private int minBpm;
+
+    private int maxBpm;
+
+    private long sumBpm;
+
+    private Date firstSampleAt;
+
+    private Date lastSampleAt;
+
+    private Date updatedAt;
+
+    @Column(length = 8 * 1024 * 1024)
+    private byte[] data;
+
+    public HeartRateBlock(User user, LocalDate day) {
+        this.user = user;
+        this.day = day;
+    }
+
+    public HeartRateSeries getSeries() {
+        return HeartRateSeries.decode(data);
+    }
+
+    public void setSeries(HeartRateSeries series) {
+        this.data = series.encode();
+        this.sampleCount = series.size();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+        for (int i = 0; i < series.size(); i++) {
+            int bpm = series.bpmAt(i);
+            min = Math.min(min, bpm);
+            max = Math.max(max, bpm);
+            sum += bpm;
+        }
+        this.minBpm = series.size() == 0 ? 0 : min;
+        this.maxBpm = series.size() == 0 ? 0 : max;
+        this.sumBpm = sum;
+        this.firstSampleAt = series.size() == 0 ? null : new Date(series.timeAt(0));
+        this.lastSampleAt = series.size() == 0 ? null : new Date(series.timeAt(series.size() - 1));
+        this.updatedAt = new Date();
+    }
+}
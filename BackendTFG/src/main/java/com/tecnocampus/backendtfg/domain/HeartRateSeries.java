@@ -0,0 +1,199 @@
+package com.tecnocampus.backendtfg.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Serie de muestras de frecuencia cardíaca ordenada por tiempo, con su codificación compacta:
+ * los instantes se guardan como delta de deltas (con muestras a intervalo regular casi todo es
+ * 0) y los bpm como diferencia con la muestra anterior, todo en varints zigzag. Una muestra
+ * típica ocupa 2 bytes en lugar de una fila.
+ */
+public class HeartRateSeries {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private long[] times;
+    private int[] bpm;
+    private int size;
+
+    public HeartRateSeries() {
+        this(16);
+    }
+
+    public HeartRateSeries(int capacity) {
+        this.times = new long[Math.max(1, capacity)];
+        this.bpm = new int[Math.max(1, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timeAt(int index) {
+        return times[index];
+    }
+
+    public int bpmAt(int index) {
+        return bpm[index];
+    }
+
+    /**
+     * Índice de la primera muestra con instante igual o posterior a time (size si no hay). La
+     * serie debe estar ordenada.
+     */
+    public int indexOf(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Muestras para la ventana [start, end) a partir de las series por día: la del día de inicio
+     * y, si la ventana pasa de medianoche, también la del día siguiente. null si no hay ninguna.
+     */
+    public static HeartRateSeries forWindow(Map<LocalDate, HeartRateSeries> seriesByDay, long start, long end) {
+        HeartRateSeries first = seriesByDay.get(toLocalDate(start));
+        HeartRateSeries last = seriesByDay.get(toLocalDate(end));
+        if (first == null) {
+            return last;
+        }
+        return last == null || last == first ? first : first.merge(last);
+    }
+
+    public void add(long time, int value) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            bpm = Arrays.copyOf(bpm, size * 2);
+        }
+        times[size] = time;
+        bpm[size] = value;
+        size++;
+    }
+
+    /**
+     * Devuelve una serie nueva con las muestras de las dos, ordenada y sin instantes repetidos
+     * (si coinciden se queda la de other). Ambas deben estar ordenadas.
+     */
+    public HeartRateSeries merge(HeartRateSeries other) {
+        HeartRateSeries merged = new HeartRateSeries(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && times[i] < other.times[j])) {
+                merged.addDistinct(times[i], bpm[i]);
+                i++;
+            } else {
+                if (i < size && times[i] == other.times[j]) {
+                    i++;
+                }
+                merged.addDistinct(other.times[j], other.bpm[j]);
+                j++;
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Devuelve las muestras ordenadas y sin instantes repetidos (se queda la última recibida).
+     */
+    public HeartRateSeries sorted() {
+        boolean ordered = true;
+        for (int k = 1; k < size && ordered; k++) {
+            ordered = times[k - 1] < times[k];
+        }
+        // Health Connect ya entrega las muestras en orden: lo normal es no tener que ordenar
+        if (ordered) {
+            return this;
+        }
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) {
+            order[k] = k;
+        }
+        // Orden estable: entre instantes iguales la última añadida queda detrás y es la que se conserva
+        Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+        HeartRateSeries result = new HeartRateSeries(size);
+        for (int k = 0; k < size; k++) {
+            int index = order[k];
+            if (result.size > 0 && result.times[result.size - 1] == times[index]) {
+                result.bpm[result.size - 1] = bpm[index];
+            } else {
+                result.add(times[index], bpm[index]);
+            }
+        }
+        return result;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 2 + 16);
+        out.write(FORMAT_VERSION);
+        VarInts.write(out, size);
+        long previousTime = 0;
+        long previousDelta = 0;
+        int previousBpm = 0;
+        for (int k = 0; k < size; k++) {
+            long delta = times[k] - previousTime;
+            // La primera muestra guarda el instante completo; la segunda, su delta; el resto, delta de deltas
+            VarInts.write(out, VarInts.zigzag(k == 0 ? times[k] : delta - previousDelta));
+            VarInts.write(out, VarInts.zigzag(bpm[k] - previousBpm));
+            previousDelta = k == 0 ? 0 : delta;
+            previousTime = times[k];
+            previousBpm = bpm[k];
+        }
+        return out.toByteArray();
+    }
+
+    public static HeartRateSeries decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new HeartRateSeries();
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalStateException("Unknown heart rate block format " + data[0]);
+        }
+        int[] position = {1};
+        int count = (int) VarInts.read(data, position);
+        HeartRateSeries series = new HeartRateSeries(count);
+        long previousTime = 0;
+        long previousDelta = 0;
+        int previousBpm = 0;
+        for (int k = 0; k < count; k++) {
+            long encodedTime = VarInts.unzigzag(VarInts.read(data, position));
+            long time;
+            if (k == 0) {
+                time = encodedTime;
+            } else {
+                previousDelta += encodedTime;
+                time = previousTime + previousDelta;
+            }
+            int value = previousBpm + (int) VarInts.unzigzag(VarInts.read(data, position));
+            series.add(time, value);
+            previousTime = time;
+            previousBpm = value;
+        }
+        return series;
+    }
+
+    private static LocalDate toLocalDate(long time) {
+        return Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private void addDistinct(long time, int value) {
+        if (size > 0 && times[size - 1] == time) {
+            bpm[size - 1] = value;
+        } else {
+            add(time, value);
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.tecnocampus.backendtfg.domain;
 
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.ManyToOne;
-import jakarta.persistence.Table;
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
+import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -16,7 +14,8 @@ import java.util.Date;
 @Getter
 @Setter
 @NoArgsConstructor
-public class Hydration {
+@EntityListeners(ChangeTrackingListener.class)
+public class Hydration implements ChangeTracked {
 
     @Id
     private String id = java.util.UUID.randomUUID().toString();
@@ -31,4 +30,14 @@ public class Hydration {
         this.date = date;
         this.hydrationProfile = hydrationProfile;
     }
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.HYDRATION;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return hydrationProfile != null && hydrationProfile.getUser() != null ? hydrationProfile.getUser().getId() : null;
+    }
 }
@@ -1,5 +1,6 @@
 package com.tecnocampus.backendtfg.domain;
 
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,7 +14,8 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
-public class HydrationProfile {
+@EntityListeners(ChangeTrackingListener.class)
+public class HydrationProfile implements ChangeTracked {
 
     @Id
     private String id = java.util.UUID.randomUUID().toString();
@@ -21,6 +23,10 @@ public class HydrationProfile {
     private double currentAmount;
     private Date lastUpdate;
 
+    // Los incrementos van por HydrationProfileRepository.addAmount; esto protege el resto de escrituras
+    @Version
+    private Long version;
+
     @OneToOne
     private User user;
 
@@ -31,8 +37,7 @@ public class HydrationProfile {
         this.user = user;
         this.lastUpdate = new Date();
         this.currentAmount = 0;
-        this.calculateDailyObjectiveWater();
-
+        this.recalculateDailyObjectiveWater();
     }
 
     public void addHydration(Hydration hydration) {
@@ -47,7 +52,11 @@ public class HydrationProfile {
         this.lastUpdate = new Date();
     }
 
-    private void calculateDailyObjectiveWater() {
+    /**
+     * Objetivo diario a partir del peso, la edad y el género del usuario: 33 ml por kg, un 10%
+     * más a partir de los 30 años y otro 10% para hombres. Sin peso, 2.5 litros.
+     */
+    public void recalculateDailyObjectiveWater() {
         if (user.getWeight() != null) {
             double baseAmount = user.getWeight() * 0.033;
             if (user.getAge() > 30) baseAmount *= 1.1;
@@ -57,4 +66,14 @@ public class HydrationProfile {
             this.dailyObjectiveWater = 2.5;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.HYDRATION_STATUS;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return user != null ? user.getId() : null;
+    }
+}
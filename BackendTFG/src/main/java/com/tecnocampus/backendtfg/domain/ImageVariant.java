@@ -0,0 +1,44 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Versión redimensionada de una imagen almacenada en el BlobStore. Se indexa por el hash
+ * de la imagen original, así que usuarios con la misma foto comparten sus variantes.
+ */
+@Entity
+@Table(name = "image_variants",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"source_hash", "variant_size"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImageVariant {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+
+    // Lado en píxeles de la variante cuadrada
+    @Column(name = "variant_size")
+    private int size;
+
+    @Column(length = 64)
+    private String contentHash;
+
+    private String imageType;
+
+    private long byteSize;
+
+    public ImageVariant(String sourceHash, int size, String contentHash, String imageType, long byteSize) {
+        this.sourceHash = sourceHash;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.imageType = imageType;
+        this.byteSize = byteSize;
+    }
+}
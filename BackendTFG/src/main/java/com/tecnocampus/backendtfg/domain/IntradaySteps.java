@@ -0,0 +1,58 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Pasos minuto a minuto de un día, codificados en un único bloque con StepSeries. El total y los
+ * minutos activos se guardan aparte para que el total diario (DailySteps) se pueda comparar sin
+ * decodificar el bloque.
+ */
+@Entity
+@Table(name = "intraday_steps",
+        uniqueConstraints = @UniqueConstraint(name = "uk_intraday_steps_day", columnNames = {"activity_profile_id", "step_day"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class IntradaySteps {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "activity_profile_id")
+    private ActivityProfile activityProfile;
+
+    @Column(name = "step_day")
+    private LocalDate day;
+
+    private int totalSteps;
+
+    private int activeMinutes;
+
+    private Date updatedAt;
+
+    @Column(length = 16 * 1024)
+    private byte[] data;
+
+    public IntradaySteps(ActivityProfile activityProfile, LocalDate day) {
+        this.activityProfile = activityProfile;
+        this.day = day;
+    }
+
+    public StepSeries getSeries() {
+        return StepSeries.decode(data);
+    }
+
+    public void setSeries(StepSeries series) {
+        this.data = series.encode();
+        this.totalSteps = series.total();
+        this.activeMinutes = series.activeMinutes();
+        this.updatedAt = new Date();
+    }
+}
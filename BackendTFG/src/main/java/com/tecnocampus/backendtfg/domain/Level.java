@@ -16,12 +16,20 @@ public class Level {
     private int currentExp = 0;
     private int expToNextLevel = 100;
 
-    public void addExperience(int exp) {
-        this.currentExp += exp;
-        while (this.currentExp >= this.expToNextLevel) {
-            this.currentExp -= this.expToNextLevel;
-            this.currentLevel++;
-            this.expToNextLevel = 100 + (currentLevel - 1) * 50;
-        }
+    // La experiencia se suma con LevelRepository; esto protege el resto de escrituras
+    @Version
+    private Long version;
+
+    /**
+     * Experiencia acumulada desde el nivel 1: la de los niveles ya superados (100, 150, 200...)
+     * más la del actual. Es lo que ordena las clasificaciones.
+     */
+    public long getTotalExperience() {
+        return totalExperience(currentLevel, currentExp);
+    }
+
+    public static long totalExperience(int level, int exp) {
+        long previousLevels = level - 1L;
+        return previousLevels * 100 + 50 * previousLevels * (previousLevels - 1) / 2 + exp;
     }
-}
\ No newline at end of file
+}
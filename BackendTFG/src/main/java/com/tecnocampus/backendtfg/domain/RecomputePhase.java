@@ -0,0 +1,5 @@
+package com.tecnocampus.backendtfg.domain;
+
+public enum RecomputePhase {
+    ACTIVITIES, DAILY_STEPS, COMPLETED, SUPERSEDED
+}
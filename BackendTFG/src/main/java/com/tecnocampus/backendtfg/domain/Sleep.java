@@ -3,6 +3,7 @@ package com.tecnocampus.backendtfg.domain;
 
 import com.tecnocampus.backendtfg.application.dto.SleepDTO;
 import com.tecnocampus.backendtfg.application.dto.SleepStageDTO;
+import com.tecnocampus.backendtfg.persistence.ChangeTrackingListener;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,11 +14,15 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "Sleeps")
+@Table(name = "Sleeps", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sleep_external_id", columnNames = {"sleep_profile_id", "external_id"}),
+        @UniqueConstraint(name = "uk_sleep_idempotency_key", columnNames = {"sleep_profile_id", "idempotency_key"})
+}, indexes = @Index(name = "idx_sleep_profile_start_time", columnList = "sleep_profile_id, start_time"))
 @Getter
 @Setter
 @NoArgsConstructor
-public class Sleep {
+@EntityListeners(ChangeTrackingListener.class)
+public class Sleep implements ChangeTracked {
 
     @Id
     private String id = java.util.UUID.randomUUID().toString();
@@ -36,6 +41,12 @@ public class Sleep {
     @ManyToOne
     private SleepProfile sleepProfile;
 
+    @Column(name = "external_id", length = 100)
+    private String externalId;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     public Sleep(double hours, Date startTime, Date endTime, int quality, String comment, List<SleepStage> sleepStages, SleepProfile sleepProfile) {
         this.hours = hours;
         this.startTime = startTime;
@@ -54,6 +65,8 @@ public class Sleep {
         getSleepStages(sleepDTO.getSleepStagesDTO());
         this.comment = sleepDTO.getComment();
         this.sleepProfile = sleepProfile;
+        this.externalId = sleepDTO.getExternalId();
+        this.idempotencyKey = sleepDTO.getIdempotencyKey();
     }
 
     public void update(SleepDTO sleepDTO) {
@@ -61,11 +74,30 @@ public class Sleep {
         this.startTime = sleepDTO.getStartTime();
         this.endTime = sleepDTO.getEndTime();
         this.quality = sleepDTO.getQuality();
-        getSleepStages(sleepDTO.getSleepStagesDTO());
+        if (sleepDTO.getSleepStagesDTO() != null) {
+            this.sleepStages.clear();
+            getSleepStages(sleepDTO.getSleepStagesDTO());
+        }
         this.comment = sleepDTO.getComment();
     }
 
+    // Completa un registro guardado con lo que aporta otra fuente para la misma noche
+    public void mergeFrom(SleepDTO sleepDTO) {
+        if (this.externalId == null) {
+            this.externalId = sleepDTO.getExternalId();
+        }
+        if (this.idempotencyKey == null) {
+            this.idempotencyKey = sleepDTO.getIdempotencyKey();
+        }
+        if (this.sleepStages.isEmpty()) {
+            getSleepStages(sleepDTO.getSleepStagesDTO());
+        }
+    }
+
     private void getSleepStages(List<SleepStageDTO> sleepStagesDTO) {
+        if (sleepStagesDTO == null) {
+            return;
+        }
         for (SleepStageDTO sleepStageDTO : sleepStagesDTO) {
             SleepStage sleepStage = new SleepStage(sleepStageDTO.getStartTime(),
                     sleepStageDTO.getEndTime(), sleepStageDTO.getStageType(), this);
@@ -113,4 +145,14 @@ public class Sleep {
                 })
                 .sum();
     }
+
+    @Override
+    public ChangeEntityType changeEntityType() {
+        return ChangeEntityType.SLEEP;
+    }
+
+    @Override
+    public String ownerUserId() {
+        return sleepProfile != null && sleepProfile.getUser() != null ? sleepProfile.getUser().getId() : null;
+    }
 }
@@ -0,0 +1,92 @@
+package com.tecnocampus.backendtfg.domain;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Pasos de un día minuto a minuto (índice = minuto del día en hora local). Se codifica de forma
+ * dispersa: solo los minutos con pasos, como distancia al minuto anterior con pasos y número de
+ * pasos, en varints. Un día normal tiene unos cientos de minutos activos y ocupa 1-2 KB.
+ */
+public class StepSeries {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int[] steps = new int[MINUTES_PER_DAY];
+
+    public int stepsAt(int minute) {
+        return steps[minute];
+    }
+
+    public void set(int minute, int value) {
+        steps[minute] = value;
+    }
+
+    public void add(int minute, int value) {
+        steps[minute] += value;
+    }
+
+    /**
+     * Copia los minutos con pasos de other sobre esta serie. Sustituye en lugar de sumar: reenviar
+     * los mismos registros deja la serie igual.
+     */
+    public void overwriteWith(StepSeries other) {
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (other.steps[minute] > 0) {
+                steps[minute] = other.steps[minute];
+            }
+        }
+    }
+
+    public int total() {
+        int total = 0;
+        for (int value : steps) {
+            total += value;
+        }
+        return total;
+    }
+
+    public int activeMinutes() {
+        int active = 0;
+        for (int value : steps) {
+            if (value > 0) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        out.write(FORMAT_VERSION);
+        VarInts.write(out, activeMinutes());
+        int previous = -1;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (steps[minute] > 0) {
+                VarInts.write(out, minute - previous);
+                VarInts.write(out, steps[minute]);
+                previous = minute;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static StepSeries decode(byte[] data) {
+        StepSeries series = new StepSeries();
+        if (data == null || data.length == 0) {
+            return series;
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalStateException("Unknown step block format " + data[0]);
+        }
+        int[] position = {1};
+        int count = (int) VarInts.read(data, position);
+        int minute = -1;
+        for (int k = 0; k < count; k++) {
+            minute += (int) VarInts.read(data, position);
+            series.steps[minute] = (int) VarInts.read(data, position);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Entrada del registro de cambios. seq es la posición en el registro de su usuario: lo asigna
+ * SyncChangeLog con el contador del usuario en la misma transacción que el cambio, así que es
+ * consecutivo y crece en orden de commit. Sirve de cursor para /sync/changes.
+ */
+@Entity
+@Table(name = "sync_changes",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sync_changes_user_seq", columnNames = {"user_id", "seq"}),
+        indexes = @Index(name = "idx_sync_changes_changed_at", columnList = "changedAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class SyncChange {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeEntityType entityType;
+
+    private String entityId;
+
+    @Enumerated(EnumType.STRING)
+    private ChangeOperation operation;
+
+    private Date changedAt;
+
+    public SyncChange(String userId, ChangeEntityType entityType, String entityId, ChangeOperation operation) {
+        this.userId = userId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Último seq asignado en el registro de cambios de un usuario. Se incrementa con un UPDATE en la
+ * transacción que escribe los cambios: el bloqueo de la fila hace que dos transacciones del mismo
+ * usuario tomen sus seq una detrás de otra, en el orden en que confirman.
+ *
+ * Sin clave ajena a users: se crea en una transacción aparte y el usuario puede no estar
+ * confirmado todavía.
+ */
+@Entity
+@Table(name = "sync_change_counters")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SyncChangeCounter {
+
+    @Id
+    @Column(name = "user_id", length = 36)
+    private String userId;
+
+    private long lastSeq;
+
+    public SyncChangeCounter(String userId) {
+        this.userId = userId;
+    }
+}
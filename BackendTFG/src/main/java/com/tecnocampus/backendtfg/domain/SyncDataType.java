@@ -0,0 +1,5 @@
+package com.tecnocampus.backendtfg.domain;
+
+public enum SyncDataType {
+    EXERCISE, SLEEP, STEPS, HEART_RATE
+}
@@ -0,0 +1,54 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Hasta dónde ha llegado la sincronización con Health Connect de un usuario para un tipo de
+ * dato: el fin del registro más reciente ingerido y el último token de cambios del cliente.
+ */
+@Entity
+@Table(name = "sync_watermarks",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "data_type"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class SyncWatermark {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "data_type")
+    private SyncDataType dataType;
+
+    private Date lastEndTime;
+
+    private String changeToken;
+
+    private Date updatedAt;
+
+    public SyncWatermark(User user, SyncDataType dataType) {
+        this.user = user;
+        this.dataType = dataType;
+    }
+
+    // La marca solo avanza: un lote con datos antiguos (backfill) no la hace retroceder
+    public void advance(Date endTime, String changeToken) {
+        if (endTime != null && (this.lastEndTime == null || endTime.after(this.lastEndTime))) {
+            this.lastEndTime = endTime;
+        }
+        if (changeToken != null && !changeToken.isBlank()) {
+            this.changeToken = changeToken;
+        }
+        this.updatedAt = new Date();
+    }
+}
@@ -0,0 +1,38 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Imagen original que no se ha podido decodificar para generar sus variantes. Mientras exista la
+ * marca se sirve el original tal cual y no se vuelve a intentar en cada petición.
+ */
+@Entity
+@Table(name = "unresizable_images")
+@Getter
+@Setter
+@NoArgsConstructor
+public class UnresizableImage {
+
+    private static final int REASON_LENGTH = 255;
+
+    @Id
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+
+    @Column(length = REASON_LENGTH)
+    private String reason;
+
+    private Date failedAt;
+
+    public UnresizableImage(String sourceHash, String reason) {
+        this.sourceHash = sourceHash;
+        // El mensaje viene del decodificador y puede ser arbitrariamente largo
+        this.reason = reason != null && reason.length() > REASON_LENGTH ? reason.substring(0, REASON_LENGTH) : reason;
+        this.failedAt = new Date();
+    }
+}
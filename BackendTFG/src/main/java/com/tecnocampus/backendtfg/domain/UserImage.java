@@ -21,8 +21,11 @@ public class UserImage {
     @OneToOne(mappedBy = "userImage", cascade = CascadeType.ALL)
     private User user;
 
-    @Lob
-    private byte[] imageData;
+    // Clave (SHA-256) del contenido en el BlobStore; los bytes no se guardan en la base de datos
+    @Column(length = 64)
+    private String contentHash;
+
+    private long size;
 
     private String imageType;
 
@@ -0,0 +1,41 @@
+package com.tecnocampus.backendtfg.domain;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Varints con codificación zigzag para las series compactas (HeartRateSeries, StepSeries):
+ * 7 bits por byte y el bit alto indica que el número sigue.
+ */
+final class VarInts {
+
+    private VarInts() {
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void write(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long read(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
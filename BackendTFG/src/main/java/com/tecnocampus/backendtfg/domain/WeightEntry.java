@@ -0,0 +1,38 @@
+package com.tecnocampus.backendtfg.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Peso del usuario a partir de una fecha. Las calorías de cada registro se calculan con el peso
+ * vigente en su fecha, no con el actual.
+ */
+@Entity
+@Table(name = "weight_history", indexes = @Index(name = "idx_weight_history_user", columnList = "user_id, effective_from"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class WeightEntry {
+
+    @Id
+    private String id = java.util.UUID.randomUUID().toString();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private double weight;
+
+    @Column(name = "effective_from")
+    private Date effectiveFrom;
+
+    public WeightEntry(User user, double weight, Date effectiveFrom) {
+        this.user = user;
+        this.weight = weight;
+        this.effectiveFrom = effectiveFrom;
+    }
+}
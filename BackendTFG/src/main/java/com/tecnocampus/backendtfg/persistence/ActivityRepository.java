@@ -2,21 +2,40 @@ package com.tecnocampus.backendtfg.persistence;
 
 
 import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
+import com.tecnocampus.backendtfg.application.dto.CalorieRowDTO;
 import com.tecnocampus.backendtfg.domain.AbstractActivity;
+import com.tecnocampus.backendtfg.domain.ActivityProfile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ActivityRepository extends JpaRepository<AbstractActivity, Long> {
+public interface ActivityRepository extends JpaRepository<AbstractActivity, String> {
 
     AbstractActivity findByDate(Date date);
 
+    // Búsqueda por clave primaria restringida al propietario de la actividad
+    Optional<AbstractActivity> findByIdAndActivityProfileUserEmail(String id, String email);
+
+    List<AbstractActivity> findByActivityProfileAndDateBetween(ActivityProfile activityProfile, Date from, Date to);
+
     @Query("SELECT new com.tecnocampus.backendtfg.application.dto.ActivityDTO(a) " +
             "FROM AbstractActivity a " +
             "WHERE a.origin = com.tecnocampus.backendtfg.domain.ActivityOrigin.APP")
     List<ActivityDTO> findAppActivities();
+
+    // Paginación por cursor (fecha, id) para la recalculación de calorías: sin OFFSET ni entidades
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.CalorieRowDTO(a.id, a.type, a.duration, a.date, a.caloriesBurned) " +
+            "FROM AbstractActivity a WHERE a.activityProfile = :activityProfile " +
+            "AND (a.date > :cursorDate OR (a.date = :cursorDate AND a.id > :cursorId)) " +
+            "ORDER BY a.date, a.id")
+    List<CalorieRowDTO> findCalorieRowsAfter(@Param("activityProfile") ActivityProfile activityProfile,
+                                             @Param("cursorDate") Date cursorDate,
+                                             @Param("cursorId") String cursorId, Pageable pageable);
 }
@@ -0,0 +1,38 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Almacén de ficheros binarios direccionado por contenido. La clave de cada blob es
+ * el hash SHA-256 (hex) de sus bytes, así que subir dos veces el mismo fichero no
+ * duplica datos.
+ */
+public interface BlobStore {
+
+    /**
+     * Devuelve una ruta temporal (aún no creada) dentro del almacén donde volcar una
+     * subida, para que el fichero pueda moverse después sin copiarlo.
+     */
+    Path createUploadFile() throws IOException;
+
+    /**
+     * Calcula el hash de la subida, la mueve a su ubicación definitiva y devuelve la clave.
+     */
+    String commit(Path upload) throws IOException;
+
+    boolean exists(String key);
+
+    long size(String key) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Escribe el contenido del blob en el canal de destino sin pasar por el heap.
+     */
+    long transferTo(String key, WritableByteChannel target) throws IOException;
+
+    void delete(String key) throws IOException;
+}
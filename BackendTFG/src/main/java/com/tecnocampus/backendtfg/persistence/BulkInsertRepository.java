@@ -0,0 +1,55 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Inserción masiva con el batching JDBC de Hibernate. Usa persist (no merge), así que las
+ * entidades con id asignado no generan un SELECT previo, y se vacía el contexto de
+ * persistencia cada lote para que la memoria no crezca con el número de filas.
+ */
+@Repository
+public class BulkInsertRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int batchSize;
+
+    public BulkInsertRepository(@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public <T> int insertAll(Collection<T> entities) {
+        List<T> pending = new ArrayList<>(Math.min(batchSize, entities.size()));
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            pending.add(entity);
+            if (pending.size() == batchSize) {
+                flushAndDetach(pending);
+            }
+        }
+        flushAndDetach(pending);
+        return entities.size();
+    }
+
+    private <T> void flushAndDetach(List<T> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        // Solo se separan las entidades insertadas: el resto del contexto de la petición sigue gestionado
+        for (T entity : pending) {
+            entityManager.detach(entity);
+        }
+        pending.clear();
+    }
+}
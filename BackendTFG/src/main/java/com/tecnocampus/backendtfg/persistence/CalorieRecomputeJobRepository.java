@@ -0,0 +1,29 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.CalorieRecomputeJob;
+import com.tecnocampus.backendtfg.domain.RecomputePhase;
+import com.tecnocampus.backendtfg.domain.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CalorieRecomputeJobRepository extends JpaRepository<CalorieRecomputeJob, String> {
+
+    List<CalorieRecomputeJob> findByUserAndPhaseIn(User user, Collection<RecomputePhase> phases);
+
+    List<CalorieRecomputeJob> findByPhaseInOrderByCreatedAtAsc(Collection<RecomputePhase> phases);
+
+    // Sube la versión: si el hilo del recálculo tiene el trabajo cargado, su próximo guardado falla
+    @Modifying
+    @Transactional
+    @Query("UPDATE CalorieRecomputeJob j SET j.phase = com.tecnocampus.backendtfg.domain.RecomputePhase.SUPERSEDED, " +
+            "j.version = j.version + 1 WHERE j.id = :id")
+    int supersede(@Param("id") String id);
+}
@@ -0,0 +1,47 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+/**
+ * Actualización masiva de calorías: un único UPDATE por trozo con un CASE sobre el id, en lugar
+ * de cargar cada entidad y dejar que el flush escriba fila a fila.
+ */
+@Repository
+public class CalorieUpdateRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * entityName es el nombre JPA de la entidad (AbstractActivity o DailySteps). Devuelve las
+     * filas actualizadas.
+     */
+    @Transactional
+    public int updateCalories(String entityName, Map<String, Double> caloriesById) {
+        if (caloriesById.isEmpty()) {
+            return 0;
+        }
+        StringBuilder jpql = new StringBuilder("UPDATE ").append(entityName)
+                .append(" e SET e.caloriesBurned = CASE e.id");
+        for (int i = 0; i < caloriesById.size(); i++) {
+            jpql.append(" WHEN :id").append(i).append(" THEN :calories").append(i);
+        }
+        jpql.append(" ELSE e.caloriesBurned END WHERE e.id IN :ids");
+
+        Query query = entityManager.createQuery(jpql.toString());
+        int i = 0;
+        for (Map.Entry<String, Double> entry : caloriesById.entrySet()) {
+            query.setParameter("id" + i, entry.getKey());
+            query.setParameter("calories" + i, entry.getValue());
+            i++;
+        }
+        query.setParameter("ids", caloriesById.keySet());
+        return query.executeUpdate();
+    }
+}
@@ -0,0 +1,21 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.ChallengeEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChallengeEventRepository extends JpaRepository<ChallengeEvent, String> {
+
+    // FOR UPDATE SKIP LOCKED: con varias instancias cada una se lleva un lote distinto
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<ChallengeEvent> findByOrderByCreatedAtAsc(Pageable pageable);
+}
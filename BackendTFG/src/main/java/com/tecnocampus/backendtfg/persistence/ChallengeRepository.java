@@ -1,11 +1,18 @@
 package com.tecnocampus.backendtfg.persistence;
 
+import com.tecnocampus.backendtfg.application.dto.ChallengeBasisDTO;
+import com.tecnocampus.backendtfg.application.dto.ChallengeOwnerDTO;
+import com.tecnocampus.backendtfg.application.dto.ChallengeRewardDTO;
 import com.tecnocampus.backendtfg.domain.Challenge;
 import com.tecnocampus.backendtfg.domain.ChallengeType;
 import com.tecnocampus.backendtfg.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -14,4 +21,44 @@ public interface ChallengeRepository extends JpaRepository<Challenge, String> {
     List<Challenge> findByUserAndCompletedFalse(User user);
     List<Challenge> findByUserAndCreationDateAfter(User user, Date date);
     List<Challenge> findByUserAndTypeAndCompletedFalse(User user, ChallengeType type);
+    List<Challenge> findByUserAndTypeInAndCompletedFalse(User user, Collection<ChallengeType> types);
+
+    @Query("SELECT DISTINCT c.type FROM Challenge c WHERE c.user.id = :userId AND c.completed = false")
+    List<ChallengeType> findActiveTypesByUserId(@Param("userId") String userId);
+
+    @Query("SELECT c.id FROM Challenge c WHERE c.user.id = :userId AND c.type IN :types AND c.completed = false")
+    List<String> findActiveIds(@Param("userId") String userId, @Param("types") Collection<ChallengeType> types);
+
+    // Suma atómica: dos sincronizaciones a la vez no pierden progreso y no hace falta cargar los retos
+    @Modifying
+    @Query("UPDATE Challenge c SET c.currentValue = c.currentValue + :value, c.version = c.version + 1 " +
+            "WHERE c.user.id = :userId AND c.type = :type AND c.completed = false")
+    int addProgress(@Param("userId") String userId, @Param("type") ChallengeType type, @Param("value") int value);
+
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.ChallengeRewardDTO(c.id, c.expReward) FROM Challenge c " +
+            "WHERE c.user.id = :userId AND c.type IN :types AND c.completed = false AND c.currentValue >= c.targetValue")
+    List<ChallengeRewardDTO> findCompletable(@Param("userId") String userId, @Param("types") Collection<ChallengeType> types);
+
+    // Solo una transacción consigue marcarlo (devuelve 1) y se lleva la experiencia
+    @Modifying
+    @Query("UPDATE Challenge c SET c.completed = true, c.completionDate = :now, c.version = c.version + 1 " +
+            "WHERE c.id = :id AND c.completed = false AND c.currentValue >= c.targetValue")
+    int markCompleted(@Param("id") String id, @Param("now") Date now);
+
+    // Retos del día anterior (o más antiguos) que no se completaron
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.ChallengeOwnerDTO(c.id, c.user.id) FROM Challenge c " +
+            "WHERE c.user.id IN :userIds AND c.completed = false AND c.creationDate < :before")
+    List<ChallengeOwnerDTO> findExpired(@Param("userIds") Collection<String> userIds, @Param("before") Date before);
+
+    @Modifying
+    @Query("DELETE FROM Challenge c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+
+    // Usuarios del trozo que aún no tienen retos del día, con lo necesario para generarlos
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.ChallengeBasisDTO(u.id, COALESCE(s.dailyObjectiveSleep, 0), " +
+            "(SELECT AVG(d.steps) FROM DailySteps d WHERE d.activityProfile.user = u AND d.date > :stepsSince)) " +
+            "FROM User u LEFT JOIN u.sleepProfile s WHERE u.id IN :userIds " +
+            "AND NOT EXISTS (SELECT 1 FROM Challenge c WHERE c.user = u AND c.creationDate >= :day)")
+    List<ChallengeBasisDTO> findChallengeBasis(@Param("userIds") Collection<String> userIds,
+                                               @Param("day") Date day, @Param("stepsSince") Date stepsSince);
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.ChangeOperation;
+import com.tecnocampus.backendtfg.domain.ChangeTracked;
+import com.tecnocampus.backendtfg.domain.SyncChange;
+import jakarta.persistence.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de las entidades ChangeTracked. Pasa cada cambio a SyncChangeLog, que lo escribe
+ * en sync_changes dentro de la misma transacción, justo antes de su commit.
+ */
+@Component
+public class ChangeTrackingListener {
+
+    private final ObjectProvider<SyncChangeLog> syncChangeLog;
+
+    public ChangeTrackingListener(ObjectProvider<SyncChangeLog> syncChangeLog) {
+        this.syncChangeLog = syncChangeLog;
+    }
+
+    // Los @Post* de una entidad nueva o modificada pueden no llegar hasta el flush del commit;
+    // abrir el registro al cargarla, guardarla o borrarla asegura que ese flush se hace antes
+    @PostLoad
+    @PrePersist
+    @PreRemove
+    public void touched(Object entity) {
+        if (entity instanceof ChangeTracked) {
+            syncChangeLog.getObject().open();
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void upserted(Object entity) {
+        track(entity, ChangeOperation.UPSERT);
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        track(entity, ChangeOperation.DELETE);
+    }
+
+    private void track(Object entity, ChangeOperation operation) {
+        if (!(entity instanceof ChangeTracked tracked)) {
+            return;
+        }
+        String userId = tracked.ownerUserId();
+        if (userId == null) {
+            return;
+        }
+        syncChangeLog.getObject().recordInTransaction(
+                new SyncChange(userId, tracked.changeEntityType(), tracked.getId(), operation));
+    }
+}
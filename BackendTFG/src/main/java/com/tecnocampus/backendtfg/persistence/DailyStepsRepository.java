@@ -1,27 +1,43 @@
 package com.tecnocampus.backendtfg.persistence;
 
+import com.tecnocampus.backendtfg.application.dto.CalorieRowDTO;
 import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
 import com.tecnocampus.backendtfg.domain.ActivityProfile;
 import com.tecnocampus.backendtfg.domain.DailySteps;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Repository
-public interface DailyStepsRepository extends JpaRepository<DailySteps, Long> {
+public interface DailyStepsRepository extends JpaRepository<DailySteps, String> {
 
     DailySteps findByDate(Date date);
 
-    // Usando FORMATDATETIME para H2
-    @Query("SELECT ds FROM DailySteps ds WHERE FORMATDATETIME(ds.date, 'yyyy-MM-dd') = FORMATDATETIME(:date, 'yyyy-MM-dd')")
-    DailySteps findByDay(@Param("date") Date date);
+    List<DailySteps> findByActivityProfileAndDateBetween(ActivityProfile activityProfile, Date from, Date to);
 
-    // Consulta para DTO usando el mismo enfoque
+    List<DailySteps> findByActivityProfileAndExternalIdIn(ActivityProfile activityProfile, Collection<String> externalIds);
+
+    List<DailySteps> findByActivityProfileAndIdempotencyKeyIn(ActivityProfile activityProfile,
+                                                              Collection<String> idempotencyKeys);
+
+    // Los días ocupan de medianoche a medianoche; el rango sirve también para filas con hora
     @Query("SELECT new com.tecnocampus.backendtfg.application.dto.DailyStepsDTO(ds.steps, ds.date, ds.duration) " +
-            "FROM DailySteps ds WHERE FORMATDATETIME(ds.date, 'yyyy-MM-dd') = FORMATDATETIME(:date, 'yyyy-MM-dd') " +
-            "AND ds.activityProfile = :activityProfile")
-    DailyStepsDTO getDailyStepsDTOByDateAndActivityProfile(@Param("date") Date date, @Param("activityProfile") ActivityProfile activityProfile);
-}
\ No newline at end of file
+            "FROM DailySteps ds WHERE ds.activityProfile = :activityProfile AND ds.date BETWEEN :from AND :to")
+    DailyStepsDTO getDailyStepsDTOByActivityProfileAndDateBetween(@Param("activityProfile") ActivityProfile activityProfile,
+                                                                  @Param("from") Date from, @Param("to") Date to);
+
+    // Mismo cursor (fecha, id) que ActivityRepository.findCalorieRowsAfter; los pasos no tienen tipo
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.CalorieRowDTO(ds.id, null, ds.duration, ds.date, ds.caloriesBurned) " +
+            "FROM DailySteps ds WHERE ds.activityProfile = :activityProfile " +
+            "AND (ds.date > :cursorDate OR (ds.date = :cursorDate AND ds.id > :cursorId)) " +
+            "ORDER BY ds.date, ds.id")
+    List<CalorieRowDTO> findCalorieRowsAfter(@Param("activityProfile") ActivityProfile activityProfile,
+                                             @Param("cursorDate") Date cursorDate,
+                                             @Param("cursorId") String cursorId, Pageable pageable);
+}
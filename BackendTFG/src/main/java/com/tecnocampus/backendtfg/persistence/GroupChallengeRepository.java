@@ -0,0 +1,29 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.application.dto.GroupChallengeRefDTO;
+import com.tecnocampus.backendtfg.domain.GroupChallenge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface GroupChallengeRepository extends JpaRepository<GroupChallenge, String> {
+
+    List<GroupChallenge> findByGroupIdOrderByStartDateDesc(String groupId);
+
+    // Retos sin completar de todos los grupos del usuario
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.GroupChallengeRefDTO(c.id, c.type, c.endDate) " +
+            "FROM GroupChallenge c JOIN GroupMembership m ON m.group = c.group " +
+            "WHERE m.user.id = :userId AND c.completed = false AND c.endDate > :now")
+    List<GroupChallengeRefDTO> findActiveByUserId(@Param("userId") String userId, @Param("now") Date now);
+
+    // Solo un volcado gana: el que lo cambia es el que reparte la experiencia
+    @Modifying
+    @Query("UPDATE GroupChallenge c SET c.completed = true, c.completionDate = :now WHERE c.id = :id AND c.completed = false")
+    int markCompleted(@Param("id") String id, @Param("now") Date now);
+}
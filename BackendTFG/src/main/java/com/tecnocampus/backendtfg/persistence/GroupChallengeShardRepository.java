@@ -0,0 +1,24 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.application.dto.ChallengeTotalDTO;
+import com.tecnocampus.backendtfg.domain.GroupChallengeShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupChallengeShardRepository extends JpaRepository<GroupChallengeShard, String> {
+
+    @Modifying
+    @Query("UPDATE GroupChallengeShard s SET s.value = s.value + :delta WHERE s.challenge.id = :challengeId AND s.shard = :shard")
+    int addToShard(@Param("challengeId") String challengeId, @Param("shard") int shard, @Param("delta") long delta);
+
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.ChallengeTotalDTO(s.challenge.id, SUM(s.value)) " +
+            "FROM GroupChallengeShard s WHERE s.challenge.id IN :challengeIds GROUP BY s.challenge.id")
+    List<ChallengeTotalDTO> sumByChallengeIds(@Param("challengeIds") Collection<String> challengeIds);
+}
@@ -0,0 +1,33 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.application.dto.GroupDTO;
+import com.tecnocampus.backendtfg.domain.GroupMembership;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GroupMembershipRepository extends JpaRepository<GroupMembership, String> {
+
+    boolean existsByGroupIdAndUserId(String groupId, String userId);
+
+    long countByGroupId(String groupId);
+
+    @Modifying
+    @Query("DELETE FROM GroupMembership m WHERE m.group.id = :groupId AND m.user.id = :userId")
+    int deleteByGroupIdAndUserId(@Param("groupId") String groupId, @Param("userId") String userId);
+
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.GroupDTO(g.id, g.name, g.createdAt, " +
+            "(SELECT COUNT(o) FROM GroupMembership o WHERE o.group = g), g.inviteCode) " +
+            "FROM GroupMembership m JOIN m.group g WHERE m.user.id = :userId ORDER BY g.createdAt")
+    List<GroupDTO> findGroupsByUserId(@Param("userId") String userId);
+
+    // Miembros de un grupo por trozos, con el último id como cursor
+    @Query("SELECT m.user.id FROM GroupMembership m WHERE m.group.id = :groupId AND m.user.id > :after ORDER BY m.user.id")
+    List<String> findMemberIdsAfter(@Param("groupId") String groupId, @Param("after") String after, Pageable pageable);
+}
@@ -0,0 +1,24 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.ActivityProfile;
+import com.tecnocampus.backendtfg.domain.HealthConnectActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HealthConnectActivityRepository extends JpaRepository<HealthConnectActivity, String> {
+
+    boolean existsByActivityProfileAndExternalId(ActivityProfile activityProfile, String externalId);
+
+    boolean existsByActivityProfileAndIdempotencyKey(ActivityProfile activityProfile, String idempotencyKey);
+
+    // Búsquedas por lote sobre los índices únicos (perfil, external_id) y (perfil, idempotency_key)
+    List<HealthConnectActivity> findByActivityProfileAndExternalIdIn(ActivityProfile activityProfile,
+                                                                     Collection<String> externalIds);
+
+    List<HealthConnectActivity> findByActivityProfileAndIdempotencyKeyIn(ActivityProfile activityProfile,
+                                                                         Collection<String> idempotencyKeys);
+}
@@ -0,0 +1,24 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.HeartRateBlock;
+import com.tecnocampus.backendtfg.domain.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HeartRateBlockRepository extends JpaRepository<HeartRateBlock, String> {
+
+    // Bloqueo de escritura: dos lotes del mismo día no pueden fusionarse a la vez sobre el mismo bloque
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<HeartRateBlock> findByUserAndDayIn(User user, Collection<LocalDate> days);
+
+    List<HeartRateBlock> findByUserEmailAndDayIn(String email, Collection<LocalDate> days);
+
+    List<HeartRateBlock> findByUserEmailAndDayBetweenOrderByDayAsc(String email, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,156 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Log local de solo añadir con las tomas de agua que aún no están en la base de datos (ver
+ * HydrationWriteBehind). Cada toma es una línea que se fuerza a disco antes de responder, así
+ * que sobrevive a una caída del proceso.
+ *
+ * El log se divide en segmentos numerados. Un volcado cierra el activo (rotate) y, cuando sus
+ * tomas ya están confirmadas, borra los anteriores (deleteBefore). Solo un proceso puede usar el
+ * directorio: si otro lo tiene bloqueado el log queda no disponible.
+ */
+@Repository
+public class HydrationIntakeLog {
+
+    private static final Pattern SEGMENT = Pattern.compile("hydration-(\\d+)\\.log");
+
+    public record Intake(String id, String email, double amount, long date) {
+    }
+
+    private final Path directory;
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    // Protegidos por this
+    private FileChannel active;
+    private long activeSegment;
+
+    public HydrationIntakeLog(@Value("${hydration.write-behind.path:data/hydration-log}") String path) throws IOException {
+        this.directory = Paths.get(path).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            System.out.println("Log de hidratación en uso por otro proceso: " + directory);
+            lockChannel.close();
+            return;
+        }
+        activeSegment = segments().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        active = open(activeSegment);
+    }
+
+    public boolean isAvailable() {
+        return lock != null;
+    }
+
+    public synchronized void append(Intake intake) throws IOException {
+        String line = intake.id() + "\t" + intake.email() + "\t" + intake.amount() + "\t" + intake.date() + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        active.force(false);
+    }
+
+    /**
+     * Cierra el segmento activo y abre uno nuevo. Devuelve el número del nuevo: todo lo escrito
+     * hasta ahora está en segmentos anteriores.
+     */
+    public synchronized long rotate() throws IOException {
+        active.close();
+        activeSegment++;
+        active = open(activeSegment);
+        return activeSegment;
+    }
+
+    public synchronized void deleteBefore(long segment) throws IOException {
+        for (long number : segments()) {
+            if (number < segment) {
+                Files.deleteIfExists(path(number));
+            }
+        }
+    }
+
+    /**
+     * Borra todos los segmentos cerrados. Solo cuando ninguno guarda tomas sin volcar.
+     */
+    public synchronized void deleteSealed() throws IOException {
+        deleteBefore(activeSegment);
+    }
+
+    /**
+     * Tomas de los segmentos cerrados, las que quedaron sin volcar en la ejecución anterior. Una
+     * línea a medias (caída durante la escritura) se ignora: esa toma nunca se confirmó al cliente.
+     */
+    public synchronized List<Intake> readSealed() throws IOException {
+        List<Intake> intakes = new ArrayList<>();
+        for (long number : segments()) {
+            if (number >= activeSegment) {
+                continue;
+            }
+            String content = Files.readString(path(number), StandardCharsets.UTF_8);
+            // Solo cuentan las líneas terminadas: lo que haya tras el último salto quedó a medias
+            for (String line : content.substring(0, content.lastIndexOf('\n') + 1).split("\n")) {
+                String[] fields = line.split("\t");
+                if (fields.length == 4) {
+                    intakes.add(new Intake(fields[0], fields[1], Double.parseDouble(fields[2]), Long.parseLong(fields[3])));
+                }
+            }
+        }
+        return intakes;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (lock == null) {
+            return;
+        }
+        active.close();
+        lock.release();
+        lockChannel.close();
+        lock = null;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        return numbers;
+    }
+
+    private FileChannel open(long segment) throws IOException {
+        return FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long segment) {
+        return directory.resolve("hydration-" + segment + ".log");
+    }
+}
@@ -1,8 +1,12 @@
 package com.tecnocampus.backendtfg.persistence;
 
 import com.tecnocampus.backendtfg.domain.HydrationProfile;
+import com.tecnocampus.backendtfg.application.dto.HydrationStatusDTO;
 import com.tecnocampus.backendtfg.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
@@ -14,4 +18,19 @@ public interface HydrationProfileRepository extends JpaRepository<HydrationProfi
     List<HydrationProfile> findByDailyObjectiveWaterGreaterThan(double amount);
     List<HydrationProfile> findByCurrentAmountGreaterThan(double amount);
     List<HydrationProfile> findByLastUpdateAfter(Date date);
+
+    /**
+     * Suma al acumulado del día en una sola sentencia, sin cargar el perfil ni perder sumas
+     * concurrentes. Si la última actualización es de otro día se empieza de cero.
+     */
+    @Modifying
+    @Query("UPDATE HydrationProfile p SET p.currentAmount = CASE WHEN p.lastUpdate < :startOfDay THEN :amount " +
+            "ELSE p.currentAmount + :amount END, p.lastUpdate = :now, p.version = p.version + 1 WHERE p.id = :id")
+    int addAmount(@Param("id") String id, @Param("amount") double amount,
+                  @Param("startOfDay") Date startOfDay, @Param("now") Date now);
+
+    // Fila tal cual: el cambio de día lo deduce HydrationStatusCache al leer
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.HydrationStatusDTO(p.dailyObjectiveWater, p.currentAmount, p.lastUpdate) " +
+            "FROM HydrationProfile p WHERE p.user.email = :email")
+    HydrationStatusDTO findStatusByUserEmail(@Param("email") String email);
 }
@@ -3,8 +3,11 @@ package com.tecnocampus.backendtfg.persistence;
 import com.tecnocampus.backendtfg.domain.Hydration;
 import com.tecnocampus.backendtfg.domain.HydrationProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -12,4 +15,8 @@ import java.util.List;
 public interface HydrationRepository extends JpaRepository<Hydration, String> {
     List<Hydration> findByHydrationProfile(HydrationProfile profile);
     List<Hydration> findByHydrationProfileAndDate(HydrationProfile profile, Date date);
+    List<Hydration> findByHydrationProfileAndDateBetween(HydrationProfile profile, Date start, Date end);
+
+    @Query("SELECT h.id FROM Hydration h WHERE h.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.ImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, String> {
+    Optional<ImageVariant> findBySourceHashAndSize(String sourceHash, int size);
+
+    List<ImageVariant> findBySourceHash(String sourceHash);
+
+    boolean existsByContentHash(String contentHash);
+}
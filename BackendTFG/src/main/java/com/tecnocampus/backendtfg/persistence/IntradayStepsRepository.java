@@ -0,0 +1,22 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.ActivityProfile;
+import com.tecnocampus.backendtfg.domain.IntradaySteps;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IntradayStepsRepository extends JpaRepository<IntradaySteps, String> {
+
+    // Bloqueo de escritura, como en HeartRateBlockRepository: un bloque por día y un lote a la vez
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<IntradaySteps> findByActivityProfileAndDayIn(ActivityProfile activityProfile, Collection<LocalDate> days);
+
+    List<IntradaySteps> findByActivityProfileUserEmailAndDayBetweenOrderByDayAsc(String email, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,31 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.Level;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Suma de experiencia con sentencias atómicas: dos recompensas a la vez no se pisan y no hace
+ * falta cargar el nivel. Es la única vía para sumarla (ExperienceService.award): primero
+ * addExperience y después levelUp hasta que no suba nadie.
+ */
+@Repository
+public interface LevelRepository extends JpaRepository<Level, String> {
+
+    @Modifying
+    @Query("UPDATE Level l SET l.currentExp = l.currentExp + :exp, l.version = l.version + 1 " +
+            "WHERE l.id IN (SELECT u.level.id FROM User u WHERE u.id IN :userIds)")
+    int addExperience(@Param("userIds") Collection<String> userIds, @Param("exp") int exp);
+
+    // Sube un nivel a quien le sobre experiencia; a la derecha del SET se leen los valores anteriores
+    @Modifying
+    @Query("UPDATE Level l SET l.currentExp = l.currentExp - l.expToNextLevel, l.currentLevel = l.currentLevel + 1, " +
+            "l.expToNextLevel = 100 + l.currentLevel * 50, l.version = l.version + 1 " +
+            "WHERE l.id IN (SELECT u.level.id FROM User u WHERE u.id IN :userIds) AND l.currentExp >= l.expToNextLevel")
+    int levelUp(@Param("userIds") Collection<String> userIds);
+}
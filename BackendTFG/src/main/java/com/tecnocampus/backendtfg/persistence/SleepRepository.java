@@ -5,13 +5,29 @@ import com.tecnocampus.backendtfg.domain.SleepProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface SleepRepository extends JpaRepository<Sleep, Long> {
+public interface SleepRepository extends JpaRepository<Sleep, String> {
     List<Sleep> findBySleepProfile(SleepProfile sleepProfile);
 
     Sleep findByStartTimeAndEndTime(Date startTime, Date endTime);
 
+    List<Sleep> findBySleepProfileAndStartTimeBetween(SleepProfile sleepProfile, Date from, Date to);
+
+    boolean existsBySleepProfileAndExternalId(SleepProfile sleepProfile, String externalId);
+
+    boolean existsBySleepProfileAndIdempotencyKey(SleepProfile sleepProfile, String idempotencyKey);
+
+    // Búsquedas por lote sobre los índices únicos (perfil, external_id) y (perfil, idempotency_key)
+    List<Sleep> findBySleepProfileAndExternalIdIn(SleepProfile sleepProfile, Collection<String> externalIds);
+
+    List<Sleep> findBySleepProfileAndIdempotencyKeyIn(SleepProfile sleepProfile, Collection<String> idempotencyKeys);
+
+    // Búsqueda por clave primaria restringida al propietario del registro
+    Optional<Sleep> findByIdAndSleepProfileUserEmail(String id, String email);
+
 }
@@ -0,0 +1,20 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.SyncChangeCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncChangeCounterRepository extends JpaRepository<SyncChangeCounter, String> {
+
+    // Bloquea la fila hasta el commit: es lo que ordena los seq de las transacciones concurrentes
+    @Modifying
+    @Query("UPDATE SyncChangeCounter c SET c.lastSeq = c.lastSeq + :count WHERE c.userId = :userId")
+    int advance(@Param("userId") String userId, @Param("count") long count);
+
+    @Query("SELECT c.lastSeq FROM SyncChangeCounter c WHERE c.userId = :userId")
+    Long findLastSeq(@Param("userId") String userId);
+}
@@ -0,0 +1,177 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.SyncChange;
+import com.tecnocampus.backendtfg.domain.SyncChangeCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Escritura del registro de cambios (sync_changes). Los cambios se acumulan durante la
+ * transacción y se escriben justo antes de su commit, dentro de ella: o se confirman junto con
+ * los datos o no se confirma nada.
+ *
+ * El seq de cada cambio sale del contador del usuario (SyncChangeCounter), que se incrementa en
+ * ese mismo momento. La fila del contador queda bloqueada hasta el commit, así que los seq de un
+ * usuario son consecutivos y se hacen visibles en orden: un cliente que ha leído hasta N nunca
+ * verá aparecer después un seq menor que N.
+ */
+@Repository
+public class SyncChangeLog {
+
+    // Dependencias perezosas: ChangeTrackingListener lo usa mientras se crea la factoría de JPA
+    private final ObjectProvider<SyncChangeRepository> syncChangeRepository;
+
+    private final ObjectProvider<SyncChangeCounterRepository> counterRepository;
+
+    private final ObjectProvider<BulkInsertRepository> bulkInsertRepository;
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    public SyncChangeLog(ObjectProvider<SyncChangeRepository> syncChangeRepository,
+                         ObjectProvider<SyncChangeCounterRepository> counterRepository,
+                         ObjectProvider<BulkInsertRepository> bulkInsertRepository,
+                         ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                         ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.syncChangeRepository = syncChangeRepository;
+        this.counterRepository = counterRepository;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Apunta cambios para el commit de la transacción actual. Varios cambios de la misma entidad
+     * dejan una sola entrada (la última). Sin transacción se escriben en una propia.
+     */
+    public void record(Collection<SyncChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            new TransactionTemplate(transactionManager.getObject()).executeWithoutResult(status -> record(changes));
+            return;
+        }
+        PendingChanges pending = open();
+        for (SyncChange change : changes) {
+            pending.changes.put(change.getEntityType() + ":" + change.getEntityId(), change);
+        }
+    }
+
+    public void record(SyncChange change) {
+        record(List.of(change));
+    }
+
+    // Para el listener: fuera de una transacción no hay nada que acompañar
+    void recordInTransaction(SyncChange change) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            record(change);
+        }
+    }
+
+    // Registra la escritura en el commit de la transacción actual, aunque aún no haya cambios
+    PendingChanges open() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private void write(Collection<SyncChange> changes) {
+        // Contadores siempre en el mismo orden: dos transacciones con varios usuarios no se interbloquean
+        Map<String, List<SyncChange>> byUser = new TreeMap<>();
+        for (SyncChange change : changes) {
+            byUser.computeIfAbsent(change.getUserId(), userId -> new ArrayList<>()).add(change);
+        }
+        Date now = new Date();
+        for (Map.Entry<String, List<SyncChange>> entry : byUser.entrySet()) {
+            List<SyncChange> userChanges = entry.getValue();
+            long seq = advance(entry.getKey(), userChanges.size()) - userChanges.size();
+            for (SyncChange change : userChanges) {
+                change.setSeq(++seq);
+                change.setChangedAt(now);
+            }
+        }
+        syncChangeRepository.getObject().saveAll(changes);
+    }
+
+    // Reserva count seq y devuelve el último
+    private long advance(String userId, int count) {
+        SyncChangeCounterRepository counters = counterRepository.getObject();
+        if (counters.advance(userId, count) == 0) {
+            createCounter(userId);
+            counters.advance(userId, count);
+        }
+        return counters.findLastSeq(userId);
+    }
+
+    private void createCounter(String userId) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager.getObject());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            // persist y no merge: un merge sobre una fila recién creada por otro pondría el contador a 0
+            template.executeWithoutResult(status ->
+                    bulkInsertRepository.getObject().insertAll(List.of(new SyncChangeCounter(userId))));
+        } catch (DataIntegrityViolationException e) {
+            // Otra transacción lo ha creado a la vez: el UPDATE siguiente ya lo encuentra
+        }
+    }
+
+    final class PendingChanges implements TransactionSynchronization {
+        private final Map<String, SyncChange> changes = new LinkedHashMap<>();
+
+        // Una transacción REQUIRES_NEW dentro de esta lleva su propio registro
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(SyncChangeLog.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(SyncChangeLog.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (readOnly && changes.isEmpty()) {
+                return;
+            }
+            // Las entidades aún sin volcar generan sus cambios en el flush (ChangeTrackingListener)
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory.getObject());
+            if (entityManager != null) {
+                entityManager.flush();
+            }
+            while (!changes.isEmpty()) {
+                List<SyncChange> toWrite = new ArrayList<>(changes.values());
+                changes.clear();
+                write(toWrite);
+                if (entityManager != null) {
+                    entityManager.flush();
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SyncChangeLog.this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.SyncChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface SyncChangeRepository extends JpaRepository<SyncChange, String> {
+
+    List<SyncChange> findByUserIdAndSeqGreaterThanOrderBySeqAsc(String userId, long since, Pageable page);
+
+    @Modifying
+    @Query("DELETE FROM SyncChange c WHERE c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") Date before);
+}
@@ -0,0 +1,17 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.SyncDataType;
+import com.tecnocampus.backendtfg.domain.SyncWatermark;
+import com.tecnocampus.backendtfg.domain.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+    Optional<SyncWatermark> findByUserAndDataType(User user, SyncDataType dataType);
+
+    List<SyncWatermark> findByUserEmail(String email);
+}
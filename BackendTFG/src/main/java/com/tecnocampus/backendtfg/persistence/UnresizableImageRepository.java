@@ -0,0 +1,9 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.UnresizableImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UnresizableImageRepository extends JpaRepository<UnresizableImage, String> {
+}
@@ -10,4 +10,8 @@ import java.util.Optional;
 @Repository
 public interface UserImageRepository extends JpaRepository<UserImage, Long> {
     Optional<UserImage> findByUser(User user);
+
+    boolean existsByContentHash(String contentHash);
+
+    Optional<UserImage> findFirstByContentHash(String contentHash);
 }
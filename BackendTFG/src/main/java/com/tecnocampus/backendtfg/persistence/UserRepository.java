@@ -1,13 +1,45 @@
 package com.tecnocampus.backendtfg.persistence;
 
+import com.tecnocampus.backendtfg.application.dto.HydrationOwnerDTO;
+import com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO;
+import com.tecnocampus.backendtfg.application.dto.UserPrincipalDTO;
 import com.tecnocampus.backendtfg.domain.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, String> {
 
     User findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    // Proyección mínima usada en cada petición autenticada
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.UserPrincipalDTO(u.id, u.email, u.password) " +
+            "FROM User u WHERE u.email = :email")
+    UserPrincipalDTO findPrincipalByEmail(@Param("email") String email);
+
+    // Recorrido de todos los usuarios por trozos, con el último id como cursor
+    @Query("SELECT u.id FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<String> findIdsAfter(@Param("after") String after, Pageable pageable);
+
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO(u.id, u.name, l.currentLevel, l.currentExp) " +
+            "FROM User u JOIN u.level l WHERE u.id IN :ids")
+    List<LeaderboardEntryDTO> findLeaderboardEntries(@Param("ids") Collection<String> ids);
+
+    // Carga inicial de la clasificación, por trozos con el último id como cursor
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO(u.id, u.name, l.currentLevel, l.currentExp) " +
+            "FROM User u JOIN u.level l WHERE u.id > :after ORDER BY u.id")
+    List<LeaderboardEntryDTO> findLeaderboardEntriesAfter(@Param("after") String after, Pageable pageable);
+
+    // Destino de las tomas de agua pendientes, que solo conocen el email
+    @Query("SELECT new com.tecnocampus.backendtfg.application.dto.HydrationOwnerDTO(u.email, u.id, p.id) " +
+            "FROM User u JOIN u.hydrationProfile p WHERE u.email IN :emails")
+    List<HydrationOwnerDTO> findHydrationOwners(@Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,20 @@
+package com.tecnocampus.backendtfg.persistence;
+
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.domain.WeightEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WeightEntryRepository extends JpaRepository<WeightEntry, String> {
+
+    List<WeightEntry> findByUserOrderByEffectiveFromAsc(User user);
+
+    boolean existsByUser(User user);
+
+    Optional<WeightEntry> findByUserAndEffectiveFrom(User user, Date effectiveFrom);
+}
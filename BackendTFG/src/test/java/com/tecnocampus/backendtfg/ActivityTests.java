@@ -1,6 +1,9 @@
 package com.tecnocampus.backendtfg;
 
+import com.tecnocampus.backendtfg.api.ActivityRestController;
 import com.tecnocampus.backendtfg.application.ActivityService;
+import com.tecnocampus.backendtfg.application.HealthConnectIngestionService;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
 import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
 import com.tecnocampus.backendtfg.component.JwtUtils;
 import com.tecnocampus.backendtfg.domain.*;
@@ -12,12 +15,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 
 @SpringBootTest
@@ -38,6 +45,12 @@ public class ActivityTests {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private UserWriteMailbox userWriteMailbox;
+
+    @Mock
+    private HealthConnectIngestionService ingestionService;
+
     @Test
     public void createActivityTest() {
         // Arrange
@@ -180,4 +193,186 @@ public class ActivityTests {
         Mockito.verify(activityProfileRepository, Mockito.times(1)).save(Mockito.any(ActivityProfile.class));
         Mockito.verify(userRepository, Mockito.times(1)).save(Mockito.any(User.class));
     }
+
+    @Test
+    public void updateActivityByIdTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+        AbstractActivity activity = ownedActivity(email);
+
+        ActivityDTO activityDTO = new ActivityDTO();
+        activityDTO.setDuration(2.0);
+        activityDTO.setDate(activity.getDate());
+        activityDTO.setType(TypeActivity.CYCLING);
+        activityDTO.setDescription("Updated Description");
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail(activity.getId(), email))
+                .thenReturn(Optional.of(activity));
+
+        // Act
+        ResponseEntity<String> response = controller().updateActivityById(request(token), activity.getId(), activityDTO);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.times(1)).save(activity);
+        assertEquals(TypeActivity.CYCLING, activity.getType());
+        assertEquals("Updated Description", activity.getDescription());
+    }
+
+    @Test
+    public void updateActivityByIdUsesHeartRateTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+        AbstractActivity activity = ownedActivity(email);
+        long start = activity.getDate().getTime();
+        HeartRateSeries series = new HeartRateSeries();
+        for (int minute = 0; minute <= 60; minute++) {
+            series.add(start + minute * 60_000L, 160);
+        }
+        Map<LocalDate, HeartRateSeries> heartRateByDay = new HashMap<>();
+        heartRateByDay.put(activity.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), series);
+
+        ActivityDTO activityDTO = new ActivityDTO();
+        activityDTO.setDuration(60);
+        activityDTO.setDate(activity.getDate());
+        activityDTO.setType(TypeActivity.RUNNING);
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail(activity.getId(), email))
+                .thenReturn(Optional.of(activity));
+        Mockito.when(ingestionService.loadHeartRate(Mockito.eq(email), Mockito.anyList())).thenReturn(heartRateByDay);
+
+        // Act
+        activityService.updateActivityById(activity.getId(), activityDTO, token);
+
+        // Assert: las mismas calorías que le daría la sincronización, no las del MET
+        AppActivity expected = ownedActivity(email);
+        expected.update(activityDTO);
+        expected.calculateCalories(heartRateByDay);
+        AppActivity metOnly = ownedActivity(email);
+        metOnly.update(activityDTO);
+        metOnly.calculateCalories();
+        assertEquals(expected.getCaloriesBurned(), activity.getCaloriesBurned(), 1e-9);
+        assertNotEquals(metOnly.getCaloriesBurned(), activity.getCaloriesBurned(), 1e-9);
+    }
+
+    @Test
+    public void updateActivityByIdNotOwnedTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+        // La actividad es de otro usuario: la consulta filtra por el email del token y no la encuentra
+        AbstractActivity activity = ownedActivity("other@email.com");
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail(activity.getId(), email))
+                .thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<String> response = controller().updateActivityById(request(token), activity.getId(), new ActivityDTO());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.never()).save(Mockito.any(AbstractActivity.class));
+        assertEquals("Original Description", activity.getDescription());
+    }
+
+    @Test
+    public void updateActivityByIdUnknownTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail("unknown-id", email))
+                .thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<String> response = controller().updateActivityById(request(token), "unknown-id", new ActivityDTO());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.never()).save(Mockito.any(AbstractActivity.class));
+    }
+
+    @Test
+    public void deleteActivityByIdTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+        AbstractActivity activity = ownedActivity(email);
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail(activity.getId(), email))
+                .thenReturn(Optional.of(activity));
+
+        // Act
+        ResponseEntity<String> response = controller().deleteActivityById(request(token), activity.getId());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.times(1)).delete(activity);
+    }
+
+    @Test
+    public void deleteActivityByIdNotOwnedTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+        AbstractActivity activity = ownedActivity("other@email.com");
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail(activity.getId(), email))
+                .thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<String> response = controller().deleteActivityById(request(token), activity.getId());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.never()).delete(Mockito.any(AbstractActivity.class));
+    }
+
+    @Test
+    public void deleteActivityByIdUnknownTest() {
+        // Arrange
+        String token = "test-token";
+        String email = "example@email.com";
+
+        Mockito.when(jwtUtils.extractEmail(token)).thenReturn(email);
+        Mockito.when(activityRepository.findByIdAndActivityProfileUserEmail("unknown-id", email))
+                .thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<String> response = controller().deleteActivityById(request(token), "unknown-id");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Mockito.verify(activityRepository, Mockito.never()).delete(Mockito.any(AbstractActivity.class));
+    }
+
+    // Controlador con el servicio de arriba y un buzón que aplica la escritura al momento
+    private ActivityRestController controller() {
+        Mockito.doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(userWriteMailbox).submit(Mockito.anyString(), Mockito.any(Runnable.class));
+        return new ActivityRestController(activityService, userWriteMailbox);
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", token);
+        return request;
+    }
+
+    private static AppActivity ownedActivity(String email) {
+        User user = new User("Owner", email, "password", 70.0, 175, 30, Gender.MALE);
+        ActivityProfile activityProfile = new ActivityProfile(user);
+        user.setActivityProfile(activityProfile);
+        return new AppActivity(1.0, new Date(), TypeActivity.RUNNING, "Original Description", activityProfile);
+    }
 }
@@ -0,0 +1,83 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.persistence.FileSystemBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobStoreTests {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemBlobStore blobStore;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(tempDir.toString());
+    }
+
+    @Test
+    public void testCommitAndTransfer() throws IOException {
+        // Arrange
+        byte[] content = "profile image bytes".getBytes(StandardCharsets.UTF_8);
+        Path upload = blobStore.createUploadFile();
+        Files.write(upload, content);
+
+        // Act
+        String key = blobStore.commit(upload);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long transferred = blobStore.transferTo(key, Channels.newChannel(out));
+
+        // Assert
+        assertEquals(64, key.length());
+        assertFalse(Files.exists(upload));
+        assertTrue(blobStore.exists(key));
+        assertEquals(content.length, blobStore.size(key));
+        assertEquals(content.length, transferred);
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    public void testSameContentSameKey() throws IOException {
+        // Arrange
+        byte[] content = "same content".getBytes(StandardCharsets.UTF_8);
+        Path first = blobStore.createUploadFile();
+        Files.write(first, content);
+        Path second = blobStore.createUploadFile();
+        Files.write(second, content);
+
+        // Act
+        String firstKey = blobStore.commit(first);
+        String secondKey = blobStore.commit(second);
+
+        // Assert
+        assertEquals(firstKey, secondKey);
+        assertFalse(Files.exists(second));
+    }
+
+    @Test
+    public void testDeleteAndInvalidKey() throws IOException {
+        // Arrange
+        Path upload = blobStore.createUploadFile();
+        Files.write(upload, new byte[]{1, 2, 3});
+        String key = blobStore.commit(upload);
+
+        // Act
+        blobStore.delete(key);
+
+        // Assert
+        assertFalse(blobStore.exists(key));
+        assertFalse(blobStore.exists("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> blobStore.size("../secret"));
+    }
+}
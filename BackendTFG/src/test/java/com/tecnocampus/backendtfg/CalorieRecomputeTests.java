@@ -0,0 +1,158 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.CalorieRecomputeService;
+import com.tecnocampus.backendtfg.application.dto.CalorieRowDTO;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto nuevo por lo mismo que SyncChangeTests: guarda actividades y se escriben cambios
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class CalorieRecomputeTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Mock
+    private CalorieRecomputeJobRepository jobRepository;
+
+    @Mock
+    private WeightEntryRepository weightEntryRepository;
+
+    @Mock
+    private ActivityRepository mockActivityRepository;
+
+    @Mock
+    private DailyStepsRepository dailyStepsRepository;
+
+    @Mock
+    private HeartRateBlockRepository heartRateBlockRepository;
+
+    @Mock
+    private CalorieUpdateRepository mockCalorieUpdateRepository;
+
+    @Mock
+    private SyncChangeLog syncChangeLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ThreadPoolTaskExecutor recomputeExecutor;
+
+    @Autowired
+    private CalorieUpdateRepository calorieUpdateRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SyncChangeRepository realSyncChangeRepository;
+
+    private CalorieRecomputeService recomputeService(int chunkSize) {
+        return new CalorieRecomputeService(jobRepository, weightEntryRepository, mockActivityRepository,
+                dailyStepsRepository, heartRateBlockRepository, mockCalorieUpdateRepository, syncChangeLog,
+                transactionManager, recomputeExecutor, chunkSize);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJobRecomputesInChunksWithHistoricWeight() {
+        User user = new User("Test", "recompute@test.com", "password", 80.0, 175, 30, Gender.MALE);
+        ActivityProfile activityProfile = user.getActivityProfile();
+        Date weightChange = new Date(1_700_000_000_000L);
+        Mockito.when(weightEntryRepository.findByUserOrderByEffectiveFromAsc(user)).thenReturn(List.of(
+                new WeightEntry(user, 70.0, new Date(0)),
+                new WeightEntry(user, 80.0, weightChange)));
+
+        CalorieRecomputeJob job = new CalorieRecomputeJob(user, new Date(0));
+        Mockito.when(jobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+
+        Date before = new Date(weightChange.getTime() - DAY);
+        Date after = new Date(weightChange.getTime() + DAY);
+        // 60 min corriendo (MET 9.8): 686 kcal con 70 kg y 784 con 80 kg
+        CalorieRowDTO old = new CalorieRowDTO("a1", TypeActivity.RUNNING, 60, before, 784);
+        CalorieRowDTO unchanged = new CalorieRowDTO("a2", TypeActivity.RUNNING, 60, after, 784);
+        CalorieRowDTO recent = new CalorieRowDTO("a3", TypeActivity.YOGA, 60, after, 175);
+        Mockito.when(mockActivityRepository.findCalorieRowsAfter(Mockito.eq(activityProfile), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(old, unchanged), List.of(recent), List.of());
+        Mockito.when(dailyStepsRepository.findCalorieRowsAfter(Mockito.eq(activityProfile), Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(new CalorieRowDTO("s1", null, 60, before, 280)), List.of());
+
+        recomputeService(2).run(job.getId());
+
+        ArgumentCaptor<Map<String, Double>> updates = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(mockCalorieUpdateRepository, Mockito.times(2)).updateCalories(Mockito.eq("AbstractActivity"), updates.capture());
+        assertEquals(Map.of("a1", 686.0), updates.getAllValues().get(0));
+        assertEquals(Map.of("a3", 200.0), updates.getAllValues().get(1));
+        // Pasos: 60 min caminando (MET 3.5) con 70 kg
+        Mockito.verify(mockCalorieUpdateRepository).updateCalories("DailySteps", Map.of("s1", 245.0));
+        assertEquals(RecomputePhase.COMPLETED, job.getPhase());
+        assertEquals(3, job.getUpdatedRows());
+    }
+
+    @Test
+    public void testFirstWeightChangeRecordsHistoryAndSchedules() {
+        User user = new User("Test", "recompute@test.com", "password", 82.0, 175, 30, Gender.MALE);
+        Mockito.when(weightEntryRepository.existsByUser(user)).thenReturn(false);
+        Mockito.when(weightEntryRepository.findByUserAndEffectiveFrom(Mockito.eq(user), Mockito.any())).thenReturn(Optional.empty());
+        Mockito.when(jobRepository.save(Mockito.any(CalorieRecomputeJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        recomputeService(500).onBodyDataChanged(user, 78.0, Gender.MALE, 30);
+
+        ArgumentCaptor<WeightEntry> entries = ArgumentCaptor.forClass(WeightEntry.class);
+        Mockito.verify(weightEntryRepository, Mockito.times(2)).save(entries.capture());
+        assertEquals(78.0, entries.getAllValues().get(0).getWeight());
+        assertEquals(new Date(0), entries.getAllValues().get(0).getEffectiveFrom());
+        assertEquals(82.0, entries.getAllValues().get(1).getWeight());
+
+        ArgumentCaptor<CalorieRecomputeJob> job = ArgumentCaptor.forClass(CalorieRecomputeJob.class);
+        Mockito.verify(jobRepository).save(job.capture());
+        // Solo cambia el peso: se recalcula desde hoy, y la petición no espera al recálculo
+        assertEquals(entries.getAllValues().get(1).getEffectiveFrom(), job.getValue().getFromDate());
+        Mockito.verify(recomputeExecutor).execute(Mockito.any(Runnable.class));
+        Mockito.verifyNoInteractions(mockActivityRepository);
+    }
+
+    @Test
+    public void testBulkUpdateWritesOnlyGivenRows() {
+        User user = userRepository.save(new User("Recompute", "recompute-bulk@test.com", "password",
+                70.0, 175, 30, Gender.MALE));
+        AbstractActivity first = activityRepository.save(new AppActivity(30, new Date(),
+                TypeActivity.RUNNING, "Test", user.getActivityProfile()));
+        AbstractActivity second = activityRepository.save(new AppActivity(30, new Date(),
+                TypeActivity.YOGA, "Test", user.getActivityProfile()));
+        try {
+
+            int updated = calorieUpdateRepository.updateCalories("AbstractActivity", Map.of(first.getId(), 123.4));
+
+            assertEquals(1, updated);
+            assertEquals(123.4, activityRepository.findById(first.getId()).orElseThrow().getCaloriesBurned());
+            assertEquals(second.getCaloriesBurned(), activityRepository.findById(second.getId()).orElseThrow().getCaloriesBurned());
+        } finally {
+            activityRepository.deleteAll(List.of(first, second));
+            realSyncChangeRepository.deleteAll(realSyncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.delete(user);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.ActiveChallengeIndex;
+import com.tecnocampus.backendtfg.application.ChallengeEventProcessor;
+import com.tecnocampus.backendtfg.application.ChallengeEventsRecorded;
+import com.tecnocampus.backendtfg.application.ChallengeService;
+import com.tecnocampus.backendtfg.application.ExperienceService;
+import com.tecnocampus.backendtfg.application.GroupChallengeService;
+import com.tecnocampus.backendtfg.application.dto.ChallengeRewardDTO;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ChallengeEventTests {
+
+    @InjectMocks
+    private ChallengeService challengeService;
+
+    @Mock
+    private ChallengeService mockChallengeService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ChallengeRepository challengeRepository;
+
+    @Mock
+    private ChallengeEventRepository challengeEventRepository;
+
+    @Mock
+    private ActiveChallengeIndex activeChallengeIndex;
+
+    @Mock
+    private BulkInsertRepository bulkInsertRepository;
+
+    @Mock
+    private SyncChangeLog syncChangeLog;
+
+    @Mock
+    private GroupChallengeService groupChallengeService;
+
+    @Mock
+    private ExperienceService experienceService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ThreadPoolTaskExecutor challengeExecutor;
+
+    @Test
+    public void testRecordProgressWritesOutboxRow() {
+        User user = new User();
+        Mockito.when(activeChallengeIndex.hasActive(user.getId(), ChallengeType.STEPS)).thenReturn(true);
+
+        challengeService.recordProgress(user, ChallengeType.STEPS, 1500);
+        challengeService.recordProgress(user, ChallengeType.STEPS, 0);
+
+        ArgumentCaptor<ChallengeEvent> event = ArgumentCaptor.forClass(ChallengeEvent.class);
+        Mockito.verify(challengeEventRepository).save(event.capture());
+        assertEquals(user.getId(), event.getValue().getUserId());
+        assertEquals(1500, event.getValue().getValue());
+        Mockito.verify(eventPublisher).publishEvent(new ChallengeEventsRecorded(user.getId()));
+        // La petición no toca los retos: eso lo hace el procesador
+        Mockito.verifyNoInteractions(challengeRepository, userRepository);
+    }
+
+    @Test
+    public void testProcessorCoalescesEventsPerUser() {
+        User user = new User();
+        List<ChallengeEvent> events = List.of(
+                new ChallengeEvent(user.getId(), ChallengeType.STEPS, 1000),
+                new ChallengeEvent(user.getId(), ChallengeType.HYDRATION, 250),
+                new ChallengeEvent(user.getId(), ChallengeType.STEPS, 2000));
+        Mockito.when(challengeEventRepository.findByOrderByCreatedAtAsc(Mockito.any())).thenReturn(events, List.of());
+        Mockito.when(userRepository.findAllById(Mockito.anyIterable())).thenReturn(List.of(user));
+        ChallengeEventProcessor processor = new ChallengeEventProcessor(challengeEventRepository, userRepository,
+                mockChallengeService, transactionManager, challengeExecutor, 500);
+
+        assertEquals(3, processor.drain());
+
+        Mockito.verify(mockChallengeService).applyProgress(user,
+                Map.of(ChallengeType.STEPS, 3000, ChallengeType.HYDRATION, 250));
+        Mockito.verify(challengeEventRepository).deleteAllInBatch(events);
+    }
+
+    @Test
+    public void testApplyProgressCompletesChallengesAndGrantsExperience() {
+        User user = new User();
+        Mockito.when(activeChallengeIndex.hasActive(Mockito.eq(user.getId()), Mockito.any())).thenReturn(true);
+        Mockito.when(challengeRepository.findActiveIds(Mockito.eq(user.getId()), Mockito.anyCollection()))
+                .thenReturn(List.of("steps", "water", "walk"));
+        Mockito.when(challengeRepository.findCompletable(Mockito.eq(user.getId()), Mockito.anyCollection()))
+                .thenReturn(List.of(new ChallengeRewardDTO("steps", 20), new ChallengeRewardDTO("walk", 25)));
+        Mockito.when(challengeRepository.markCompleted(Mockito.eq("steps"), Mockito.any())).thenReturn(1);
+        // Otro procesador ya lo ha marcado: la recompensa no se da dos veces
+        Mockito.when(challengeRepository.markCompleted(Mockito.eq("walk"), Mockito.any())).thenReturn(0);
+
+        challengeService.applyProgress(user, Map.of(ChallengeType.STEPS, 3000, ChallengeType.HYDRATION, 500));
+
+        Mockito.verify(challengeRepository).addProgress(user.getId(), ChallengeType.STEPS, 3000);
+        Mockito.verify(challengeRepository).addProgress(user.getId(), ChallengeType.HYDRATION, 500);
+        Mockito.verify(challengeRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(syncChangeLog).record(Mockito.<Collection<SyncChange>>argThat(changes -> changes.size() == 3));
+        Mockito.verify(activeChallengeIndex).invalidate(user.getId());
+        Mockito.verify(experienceService).award(List.of(user.getId()), 20);
+        Mockito.verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testProgressWithoutActiveChallengeSkipsDatabase() {
+        User user = new User();
+
+        challengeService.recordProgress(user, ChallengeType.SLEEP_HOURS, 480);
+        challengeService.applyProgress(user, Map.of(ChallengeType.SLEEP_HOURS, 480));
+
+        Mockito.verifyNoInteractions(challengeEventRepository, challengeRepository, userRepository, eventPublisher);
+    }
+
+    @Test
+    public void testActiveChallengeIndexLoadsOnceUntilInvalidated() {
+        ActiveChallengeIndex index = new ActiveChallengeIndex(challengeRepository);
+        Mockito.when(challengeRepository.findActiveTypesByUserId("user-1"))
+                .thenReturn(List.of(ChallengeType.STEPS), List.of());
+
+        assertTrue(index.hasActive("user-1", ChallengeType.STEPS));
+        assertFalse(index.hasActive("user-1", ChallengeType.HYDRATION));
+        Mockito.verify(challengeRepository, Mockito.times(1)).findActiveTypesByUserId("user-1");
+
+        index.invalidate("user-1");
+        assertFalse(index.hasActive("user-1", ChallengeType.STEPS));
+        Mockito.verify(challengeRepository, Mockito.times(2)).findActiveTypesByUserId("user-1");
+    }
+}
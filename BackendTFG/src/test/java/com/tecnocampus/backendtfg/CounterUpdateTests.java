@@ -0,0 +1,167 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.ExperienceService;
+import com.tecnocampus.backendtfg.application.HydrationService;
+import com.tecnocampus.backendtfg.application.dto.HydrationUpdateRequest;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.Gender;
+import com.tecnocampus.backendtfg.domain.HydrationProfile;
+import com.tecnocampus.backendtfg.domain.Level;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.HydrationProfileRepository;
+import com.tecnocampus.backendtfg.persistence.HydrationRepository;
+import com.tecnocampus.backendtfg.persistence.SyncChangeRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto nuevo por lo mismo que SyncChangeTests: escribe perfiles y niveles reales. Con su
+// propio log de hidratación, que el de otro contexto aún abierto estaría bloqueado
+@SpringBootTest(properties = "hydration.write-behind.path=target/hydration-log-counters")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class CounterUpdateTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Autowired
+    private HydrationService hydrationService;
+
+    @Autowired
+    private ExperienceService experienceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HydrationProfileRepository hydrationProfileRepository;
+
+    @Autowired
+    private HydrationRepository hydrationRepository;
+
+    @Autowired
+    private SyncChangeRepository syncChangeRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws Exception {
+        User user = userRepository.save(new User("Counter", "counter@test.com", "password", 70.0, 175, 30, Gender.MALE));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            // El acumulado guardado es de ayer: la primera suma de hoy empieza de cero
+            HydrationProfile profile = hydrationProfileRepository.findByUser(user);
+            profile.setCurrentAmount(1.5);
+            profile.setLastUpdate(new Date(System.currentTimeMillis() - DAY));
+            hydrationProfileRepository.save(profile);
+
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 40; i++) {
+                pool.execute(() -> transaction.executeWithoutResult(status -> {
+                    hydrationService.addToDailyAmount(userRepository.findById(user.getId()).orElseThrow(), 0.25);
+                    experienceService.award(List.of(user.getId()), 10);
+                }));
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals(10.0, hydrationProfileRepository.findByUser(user).getCurrentAmount(), 1e-9);
+            // 400 de experiencia: niveles de 100, 150 y sobran 150 del tercero
+            transaction.executeWithoutResult(status -> {
+                Level level = userRepository.findById(user.getId()).orElseThrow().getLevel();
+                assertEquals(3, level.getCurrentLevel());
+                assertEquals(150, level.getCurrentExp());
+                assertEquals(200, level.getExpToNextLevel());
+                assertEquals(400, level.getTotalExperience());
+            });
+        } finally {
+            syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    public void testWriteBehindIntakesAreVisibleBeforeAndAfterFlush() throws Exception {
+        User user = userRepository.save(new User("Taps", "taps@test.com", "password", 60.0, 165, 25, Gender.FEMALE));
+        String token = jwtUtils.generateToken(user.getEmail(), user.getName());
+        try {
+            double before = hydrationService.getHydrationStatus(token).getCurrentAmount();
+
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 40; i++) {
+                pool.execute(() -> hydrationService.updateHydration(token, new HydrationUpdateRequest(0.25, null)));
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+            // La última toma se ve aunque aún no esté en la base de datos
+            assertEquals(before + 10.0, hydrationService.getHydrationStatus(token).getCurrentAmount(), 1e-9);
+
+            hydrationService.flushPending();
+
+            assertEquals(before + 10.0, hydrationService.getHydrationStatus(token).getCurrentAmount(), 1e-9);
+            assertEquals(before + 10.0, hydrationProfileRepository.findByUser(user).getCurrentAmount(), 1e-9);
+            assertEquals(40, hydrationRepository.findByHydrationProfile(hydrationProfileRepository.findByUser(user)).size());
+        } finally {
+            hydrationRepository.deleteAll(hydrationRepository.findByHydrationProfile(hydrationProfileRepository.findByUser(user)));
+            syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    public void testReadsDuringFlushNeverCountTheBatchTwice() throws Exception {
+        User user = userRepository.save(new User("Reader", "reader@test.com", "password", 60.0, 165, 25, Gender.FEMALE));
+        String token = jwtUtils.generateToken(user.getEmail(), user.getName());
+        try {
+            double before = hydrationService.getHydrationStatus(token).getCurrentAmount();
+            for (int i = 0; i < 20; i++) {
+                hydrationService.updateHydration(token, new HydrationUpdateRequest(0.25, null));
+            }
+
+            // Lecturas continuas mientras el lote pasa de pendiente a la base de datos
+            AtomicBoolean flushed = new AtomicBoolean();
+            List<Double> seen = new CopyOnWriteArrayList<>();
+            Thread reader = new Thread(() -> {
+                while (!flushed.get()) {
+                    seen.add(hydrationService.getHydrationStatus(token).getCurrentAmount());
+                }
+            });
+            reader.start();
+            hydrationService.flushPending();
+            flushed.set(true);
+            reader.join();
+
+            for (double amount : seen) {
+                assertEquals(before + 5.0, amount, 1e-9);
+            }
+            assertEquals(before + 5.0, hydrationService.getHydrationStatus(token).getCurrentAmount(), 1e-9);
+        } finally {
+            hydrationRepository.deleteAll(hydrationRepository.findByHydrationProfile(hydrationProfileRepository.findByUser(user)));
+            syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.deleteById(user.getId());
+        }
+    }
+}
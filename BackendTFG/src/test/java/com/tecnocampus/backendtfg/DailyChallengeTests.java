@@ -0,0 +1,86 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.DailyChallengeScheduler;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.ChallengeRepository;
+import com.tecnocampus.backendtfg.persistence.DailyStepsRepository;
+import com.tecnocampus.backendtfg.persistence.SyncChangeRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto nuevo por lo mismo que SyncChangeTests: guarda retos y se escriben cambios
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class DailyChallengeTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Autowired
+    private DailyChallengeScheduler scheduler;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private DailyStepsRepository dailyStepsRepository;
+
+    @Autowired
+    private SyncChangeRepository syncChangeRepository;
+
+    @Test
+    public void testMidnightJobReplacesExpiredChallenges() {
+        Date today = Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+        User walker = userRepository.save(new User("Walker", "walker@test.com", "password", 70.0, 175, 30, Gender.MALE));
+        User other = userRepository.save(new User("Other", "other@test.com", "password", 60.0, 165, 25, Gender.FEMALE));
+        DailySteps steps = dailyStepsRepository.save(new DailySteps(12000, new Date(today.getTime() - DAY), 90,
+                walker.getActivityProfile()));
+
+        Challenge expired = new Challenge("Caminar", 20, ChallengeType.STEPS, 9000, walker);
+        expired.setCreationDate(new Date(today.getTime() - DAY));
+        Challenge completed = new Challenge("Beber", 15, ChallengeType.HYDRATION, 2000, walker);
+        completed.setCreationDate(new Date(today.getTime() - DAY));
+        completed.updateProgress(2000);
+        challengeRepository.saveAll(List.of(expired, completed));
+        try {
+
+            assertTrue(scheduler.generateAll(today) >= 6);
+
+            assertFalse(challengeRepository.existsById(expired.getId()));
+            assertTrue(challengeRepository.existsById(completed.getId()));
+            List<Challenge> walkerToday = challengeRepository.findByUserAndCreationDateAfter(walker, today);
+            assertTrue(walkerToday.size() >= 3);
+            assertTrue(challengeRepository.findByUserAndCreationDateAfter(other, today).size() >= 3);
+            // El objetivo de pasos parte de la media de la última semana
+            walkerToday.stream()
+                    .filter(challenge -> challenge.getType() == ChallengeType.STEPS)
+                    .forEach(challenge -> assertTrue(challenge.getTargetValue() >= 12000));
+            assertTrue(syncChangeRepository.findAll().stream().anyMatch(change ->
+                    change.getEntityId().equals(expired.getId()) && change.getOperation() == ChangeOperation.DELETE));
+
+            // Una segunda pasada no duplica los retos del día
+            assertEquals(0, scheduler.generateAll(today));
+        } finally {
+            for (User user : List.of(walker, other)) {
+                challengeRepository.deleteAll(challengeRepository.findByUserAndCreationDateAfter(user, new Date(0)));
+                syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                        .filter(change -> change.getUserId().equals(user.getId()))
+                        .toList());
+            }
+            dailyStepsRepository.delete(steps);
+            userRepository.deleteAll(List.of(walker, other));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.GroupChallengeService;
+import com.tecnocampus.backendtfg.application.dto.GroupChallengeDTO;
+import com.tecnocampus.backendtfg.application.dto.GroupDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.ChallengeType;
+import com.tecnocampus.backendtfg.domain.Gender;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto nuevo por lo mismo que SyncChangeTests: guarda grupos y usuarios reales
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class GroupChallengeTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Autowired
+    private GroupChallengeService groupChallengeService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChallengeGroupRepository groupRepository;
+
+    @Autowired
+    private GroupMembershipRepository membershipRepository;
+
+    @Autowired
+    private GroupChallengeRepository groupChallengeRepository;
+
+    @Autowired
+    private GroupChallengeShardRepository shardRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void testConcurrentContributionsCompleteGroupChallenge() throws Exception {
+        User owner = userRepository.save(new User("Owner", "owner@group.com", "password", 70.0, 175, 30, Gender.MALE));
+        User member = userRepository.save(new User("Member", "member@group.com", "password", 60.0, 165, 25, Gender.FEMALE));
+        String ownerToken = jwtUtils.generateToken(owner.getEmail(), owner.getName());
+        String memberToken = jwtUtils.generateToken(member.getEmail(), member.getName());
+        try {
+            GroupDTO group = groupChallengeService.createGroup(ownerToken, new GroupDTO(null, "Familia", null, 0, null));
+            // Sin el código del grupo no basta con conocer su id
+            assertThrows(IllegalArgumentException.class, () -> groupChallengeService.joinGroup(memberToken, group.getId(), null));
+            assertThrows(IllegalArgumentException.class, () -> groupChallengeService.joinGroup(memberToken, group.getId(), "WRONGCODE1"));
+            assertTrue(groupChallengeService.getUserGroups(memberToken).isEmpty());
+            groupChallengeService.joinGroup(memberToken, group.getId(), group.getInviteCode().toLowerCase());
+            GroupChallengeDTO request = new GroupChallengeDTO();
+            request.setType(ChallengeType.STEPS);
+            request.setTargetValue(20_000);
+            // Lo que pida el cliente no cuenta: 20.000 pasos entre dos son 1,1 retos diarios de pasos
+            request.setExpReward(40);
+            request.setEndDate(new Date(System.currentTimeMillis() + DAY));
+            GroupChallengeDTO challenge = groupChallengeService.createGroupChallenge(memberToken, group.getId(), request);
+            assertEquals(22, challenge.getExpReward());
+
+            // Muchas aportaciones a la vez de los dos miembros, sin transacción de por medio
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 4000; i++) {
+                String userId = i % 2 == 0 ? owner.getId() : member.getId();
+                pool.execute(() -> groupChallengeService.contribute(userId, ChallengeType.STEPS, 3));
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+            groupChallengeService.contribute(owner.getId(), ChallengeType.HYDRATION, 500);
+
+            // El volcado programado puede coincidir con el test: tras este ya está todo en las partes
+            groupChallengeService.flush();
+            GroupChallengeDTO flushed = groupChallengeService.getGroupChallenges(ownerToken, group.getId()).get(0);
+            assertEquals(12_000, flushed.getCurrentValue());
+            assertFalse(flushed.isCompleted());
+
+            groupChallengeService.contribute(member.getId(), ChallengeType.STEPS, 8_000);
+            groupChallengeService.flush();
+
+            GroupChallengeDTO done = groupChallengeService.getGroupChallenges(ownerToken, group.getId()).get(0);
+            assertEquals(challenge.getId(), done.getId());
+            assertEquals(20_000, done.getCurrentValue());
+            assertTrue(done.isCompleted());
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                assertEquals(22, userRepository.findById(owner.getId()).orElseThrow().getLevel().getCurrentExp());
+                assertEquals(22, userRepository.findById(member.getId()).orElseThrow().getLevel().getCurrentExp());
+            });
+            assertEquals(2, groupChallengeService.getUserGroups(memberToken).get(0).getMembers());
+            assertEquals(group.getInviteCode(), groupChallengeService.getUserGroups(memberToken).get(0).getInviteCode());
+
+            assertThrows(IllegalArgumentException.class, () -> groupChallengeService.createGroupChallenge(ownerToken,
+                    group.getId(), new GroupChallengeDTO()));
+        } finally {
+            shardRepository.deleteAll();
+            groupChallengeRepository.deleteAll();
+            membershipRepository.deleteAll();
+            groupRepository.deleteAll();
+            // Recargados: el nivel guardado ya no tiene la versión de los objetos del principio
+            userRepository.deleteAllById(List.of(owner.getId(), member.getId()));
+        }
+    }
+
+    @Test
+    public void testSoloGroupCannotMintExperience() {
+        User user = userRepository.save(new User("Solo", "solo@group.com", "password", 70.0, 175, 30, Gender.MALE));
+        String token = jwtUtils.generateToken(user.getEmail(), user.getName());
+        try {
+            GroupDTO group = groupChallengeService.createGroup(token, new GroupDTO(null, "Yo solo", null, 0, null));
+
+            // Objetivo mínimo con la recompensa más alta posible: se queda en 1 punto
+            GroupChallengeDTO request = new GroupChallengeDTO();
+            request.setType(ChallengeType.STEPS);
+            request.setTargetValue(1);
+            request.setExpReward(Integer.MAX_VALUE);
+            request.setEndDate(new Date(System.currentTimeMillis() + DAY));
+            assertEquals(1, groupChallengeService.createGroupChallenge(token, group.getId(), request).getExpReward());
+
+            groupChallengeService.contribute(user.getId(), ChallengeType.STEPS, 1);
+            groupChallengeService.flush();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    assertEquals(1, userRepository.findById(user.getId()).orElseThrow().getLevel().getCurrentExp()));
+
+            // Un objetivo enorme tiene la recompensa acotada, y uno desorbitado ni se acepta
+            request.setTargetValue(9_000L * 1_000);
+            assertEquals(250, groupChallengeService.createGroupChallenge(token, group.getId(), request).getExpReward());
+            request.setTargetValue(Long.MAX_VALUE);
+            assertThrows(IllegalArgumentException.class, () -> groupChallengeService.createGroupChallenge(token,
+                    group.getId(), request));
+        } finally {
+            shardRepository.deleteAll();
+            groupChallengeRepository.deleteAll();
+            membershipRepository.deleteAll();
+            groupRepository.deleteAll();
+            userRepository.deleteById(user.getId());
+        }
+    }
+}
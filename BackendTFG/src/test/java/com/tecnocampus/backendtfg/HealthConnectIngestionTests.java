@@ -0,0 +1,108 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.ChallengeService;
+import com.tecnocampus.backendtfg.application.HealthConnectIngestionService;
+import com.tecnocampus.backendtfg.application.HydrationService;
+import com.tecnocampus.backendtfg.application.dto.ActivityDTO;
+import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.BulkInsertRepository;
+import com.tecnocampus.backendtfg.persistence.DailyStepsRepository;
+import com.tecnocampus.backendtfg.persistence.HeartRateBlockRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class HealthConnectIngestionTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @InjectMocks
+    private HealthConnectIngestionService ingestionService;
+
+    @Mock
+    private BulkInsertRepository bulkInsertRepository;
+
+    @Mock
+    private DailyStepsRepository dailyStepsRepository;
+
+    @Mock
+    private HeartRateBlockRepository heartRateBlockRepository;
+
+    @Mock
+    private HydrationService hydrationService;
+
+    @Mock
+    private ChallengeService challengeService;
+
+    @Test
+    public void testIngestActivitiesInsertsInOneBatch() {
+        User user = new User();
+        user.setActivityProfile(new ActivityProfile());
+
+        ActivityDTO today = new ActivityDTO();
+        today.setDuration(30);
+        today.setDate(new Date());
+        today.setType(TypeActivity.RUNNING);
+        ActivityDTO lastWeek = new ActivityDTO();
+        lastWeek.setDuration(45);
+        lastWeek.setDate(new Date(System.currentTimeMillis() - 7 * DAY));
+        lastWeek.setType(TypeActivity.CYCLING);
+
+        List<HealthConnectActivity> inserted = ingestionService.ingestActivities(user, List.of(today, lastWeek));
+
+        assertEquals(2, inserted.size());
+        Mockito.verify(bulkInsertRepository, Mockito.times(1)).insertAll(Mockito.anyCollection());
+        // Solo la actividad de hoy suma al reto diario
+        Mockito.verify(challengeService).recordProgress(user, ChallengeType.ACTIVITY_DURATION, 30);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIngestDailyStepsMergesExistingDays() {
+        ActivityProfile activityProfile = new ActivityProfile();
+        User user = new User();
+        user.setActivityProfile(activityProfile);
+
+        Date now = new Date();
+        Date yesterday = new Date(now.getTime() - DAY);
+        DailySteps storedToday = new DailySteps(4000, now, 40, activityProfile);
+        DailySteps storedYesterday = new DailySteps(9000, yesterday, 90, activityProfile);
+        Mockito.when(dailyStepsRepository.findByActivityProfileAndDateBetween(
+                Mockito.eq(activityProfile), Mockito.any(Date.class), Mockito.any(Date.class)))
+                .thenReturn(List.of(storedToday, storedYesterday));
+
+        DailyStepsDTO todayDTO = new DailyStepsDTO();
+        todayDTO.setDate(now);
+        todayDTO.setSteps(6000);
+        todayDTO.setDuration(60);
+        DailyStepsDTO yesterdayDTO = new DailyStepsDTO();
+        yesterdayDTO.setDate(yesterday);
+        yesterdayDTO.setSteps(5000);
+        DailyStepsDTO olderDTO = new DailyStepsDTO();
+        olderDTO.setDate(new Date(now.getTime() - 3 * DAY));
+        olderDTO.setSteps(7000);
+
+        List<DailySteps> written = ingestionService.ingestDailySteps(user, List.of(todayDTO, yesterdayDTO, olderDTO));
+
+        assertEquals(storedToday, written.get(0));
+        assertNull(written.get(1));
+        assertNotNull(written.get(2));
+        assertEquals(6000, storedToday.getSteps());
+        assertEquals(9000, storedYesterday.getSteps());
+        ArgumentCaptor<Collection<DailySteps>> captor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(bulkInsertRepository).insertAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        Mockito.verify(challengeService).recordProgress(user, ChallengeType.STEPS, 2000);
+    }
+}
@@ -0,0 +1,293 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.HealthConnectIngestionService;
+import com.tecnocampus.backendtfg.application.HealthConnectSyncService;
+import com.tecnocampus.backendtfg.application.IntervalTree;
+import com.tecnocampus.backendtfg.application.SyncStateService;
+import com.tecnocampus.backendtfg.application.dto.*;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.*;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class HealthConnectSyncTests {
+
+    private static final String TOKEN = "test-token";
+    private static final String EMAIL = "example@email.com";
+
+    @InjectMocks
+    private HealthConnectSyncService syncService;
+
+    @Mock
+    private HealthConnectIngestionService ingestionService;
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Mock
+    private HealthConnectActivityRepository healthConnectActivityRepository;
+
+    @Mock
+    private SleepRepository sleepRepository;
+
+    @Mock
+    private DailyStepsRepository dailyStepsRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SyncStateService syncStateService;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private User mockUser() {
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setActivityProfile(new ActivityProfile());
+        user.setSleepProfile(new SleepProfile());
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+        return user;
+    }
+
+    private HealthConnectExerciseDTO exercise(String type, Date start, long minutes) {
+        HealthConnectExerciseDTO exercise = new HealthConnectExerciseDTO();
+        exercise.setExerciseType(type);
+        exercise.setStartTime(start);
+        exercise.setEndTime(new Date(start.getTime() + minutes * 60000));
+        return exercise;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSyncExercisesValidatesAndDeduplicatesAsSet() {
+        User user = mockUser();
+        Date start = new Date(System.currentTimeMillis() - 3 * 60 * 60 * 1000);
+        Date stored = new Date(start.getTime() - 24 * 60 * 60 * 1000);
+
+        AbstractActivity existing = new HealthConnectActivity(45, stored, TypeActivity.YOGA, null, user.getActivityProfile());
+        Mockito.when(activityRepository.findByActivityProfileAndDateBetween(
+                Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(existing));
+        Mockito.when(ingestionService.ingestActivities(Mockito.eq(user), Mockito.anyList()))
+                .thenAnswer(invocation -> ((List<ActivityDTO>) invocation.getArgument(1)).stream()
+                        .map(dto -> new HealthConnectActivity(dto.getDuration(), dto.getDate(), dto.getType(),
+                                dto.getDescription(), user.getActivityProfile()))
+                        .toList());
+
+        HealthConnectExerciseDTO invalid = exercise("EXERCISE_TYPE_RUNNING", start, 30);
+        invalid.setEndTime(start);
+
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setExerciseSessions(List.of(
+                exercise("EXERCISE_TYPE_RUNNING", start, 30),
+                exercise("EXERCISE_TYPE_RUNNING", start, 30),
+                invalid,
+                exercise("EXERCISE_TYPE_YOGA", stored, 45)));
+
+        HealthConnectSyncResultDTO result = syncService.sync(syncDTO, TOKEN);
+
+        List<SyncRecordResultDTO> results = result.getExerciseSessions();
+        assertEquals(SyncRecordStatus.SAVED, results.get(0).getStatus());
+        assertEquals(SyncRecordStatus.DUPLICATE, results.get(1).getStatus());
+        assertEquals(SyncRecordStatus.INVALID, results.get(2).getStatus());
+        assertEquals(SyncRecordStatus.DUPLICATE, results.get(3).getStatus());
+        Mockito.verify(ingestionService).ingestActivities(Mockito.eq(user),
+                Mockito.argThat(list -> list.size() == 1 && list.get(0).getType() == TypeActivity.RUNNING));
+        Mockito.verify(jwtUtils, Mockito.times(1)).extractEmail(TOKEN);
+        // La marca avanza hasta el final más reciente de los registros válidos, duplicados incluidos
+        Mockito.verify(syncStateService).advance(user, SyncDataType.EXERCISE,
+                new Date(start.getTime() + 30 * 60000), null);
+    }
+
+    @Test
+    public void testSyncSleepReplayIsNoOp() {
+        User user = mockUser();
+        Date start = new Date(System.currentTimeMillis() - 10 * 60 * 60 * 1000);
+        Date end = new Date(start.getTime() + 8 * 60 * 60 * 1000);
+
+        SleepDTO replayed = new SleepDTO();
+        replayed.setStartTime(start);
+        replayed.setEndTime(end);
+        replayed.setExternalId("hc-sleep-1");
+        Sleep stored = new Sleep(replayed, user.getSleepProfile());
+        Mockito.when(sleepRepository.findBySleepProfileAndExternalIdIn(user.getSleepProfile(), List.of("hc-sleep-1")))
+                .thenReturn(List.of(stored));
+        Mockito.when(ingestionService.ingestSleeps(Mockito.eq(user), Mockito.anyList())).thenReturn(List.of());
+
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setSleepSessions(List.of(replayed));
+
+        List<SyncRecordResultDTO> results = syncService.sync(syncDTO, TOKEN).getSleepSessions();
+
+        assertEquals(SyncRecordStatus.DUPLICATE, results.get(0).getStatus());
+        assertEquals(stored.getId(), results.get(0).getId());
+        Mockito.verify(ingestionService).ingestSleeps(Mockito.eq(user), Mockito.argThat(List::isEmpty));
+    }
+
+    @Test
+    public void testSyncDailyStepsKeepsBestRecordPerDay() {
+        User user = mockUser();
+        Date now = new Date();
+        DailyStepsDTO low = new DailyStepsDTO();
+        low.setDate(now);
+        low.setSteps(1000);
+        DailyStepsDTO high = new DailyStepsDTO();
+        high.setDate(now);
+        high.setSteps(3000);
+        DailySteps saved = new DailySteps(3000, now, 0, user.getActivityProfile());
+        Mockito.when(ingestionService.ingestDailySteps(Mockito.eq(user), Mockito.anyList()))
+                .thenReturn(List.of(saved));
+
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setDailySteps(List.of(low, high));
+
+        List<SyncRecordResultDTO> results = syncService.sync(syncDTO, TOKEN).getDailySteps();
+
+        assertEquals(SyncRecordStatus.DUPLICATE, results.get(0).getStatus());
+        assertEquals(SyncRecordStatus.SAVED, results.get(1).getStatus());
+        assertEquals(saved.getId(), results.get(1).getId());
+    }
+
+    @Test
+    public void testSyncDailyStepsReplayWithMoreStepsUpdatesTheDay() {
+        User user = mockUser();
+        Date now = new Date();
+        DailySteps stored = new DailySteps(2000, now, 0, user.getActivityProfile());
+        stored.setIdempotencyKey("steps-today");
+        Mockito.when(dailyStepsRepository.findByActivityProfileAndIdempotencyKeyIn(user.getActivityProfile(), List.of("steps-today")))
+                .thenReturn(List.of(stored));
+        DailyStepsDTO replay = new DailyStepsDTO();
+        replay.setDate(now);
+        replay.setSteps(5000);
+        replay.setIdempotencyKey("steps-today");
+        Mockito.when(ingestionService.ingestDailySteps(Mockito.eq(user), Mockito.anyList()))
+                .thenReturn(List.of(stored))
+                .thenReturn(Collections.singletonList(null));
+
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setDailySteps(List.of(replay));
+
+        // Con más pasos llega a la ingesta, que actualiza el día; sin cambios es un duplicado
+        SyncRecordResultDTO updated = syncService.sync(syncDTO, TOKEN).getDailySteps().get(0);
+        assertEquals(SyncRecordStatus.SAVED, updated.getStatus());
+        assertEquals(stored.getId(), updated.getId());
+        SyncRecordResultDTO repeated = syncService.sync(syncDTO, TOKEN).getDailySteps().get(0);
+        assertEquals(SyncRecordStatus.DUPLICATE, repeated.getStatus());
+        assertEquals(stored.getId(), repeated.getId());
+        Mockito.verify(ingestionService, Mockito.times(2)).ingestDailySteps(Mockito.eq(user),
+                Mockito.argThat(list -> list.size() == 1 && list.get(0).getSteps() == 5000));
+    }
+
+    @Test
+    public void testConcurrentReplayIsReportedAsDuplicate() {
+        User user = mockUser();
+        Date start = new Date(System.currentTimeMillis() - 10 * 60 * 60 * 1000);
+        SleepDTO sleep = new SleepDTO();
+        sleep.setStartTime(start);
+        sleep.setEndTime(new Date(start.getTime() + 8 * 60 * 60 * 1000));
+        sleep.setIdempotencyKey("night-1");
+        Sleep storedMeanwhile = new Sleep(sleep, user.getSleepProfile());
+        // Otra petición guarda la misma noche entre la consulta y el commit: el índice único lo rechaza
+        Mockito.when(sleepRepository.findBySleepProfileAndIdempotencyKeyIn(user.getSleepProfile(), List.of("night-1")))
+                .thenReturn(List.of())
+                .thenReturn(List.of(storedMeanwhile));
+        Mockito.when(ingestionService.ingestSleeps(Mockito.eq(user), Mockito.anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_sleeps_profile_idempotency_key"))
+                .thenReturn(List.of());
+
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setSleepSessions(List.of(sleep));
+
+        // La primera vez falla entera (el buzón la deshace) y al repetirla la noche ya está guardada
+        assertThrows(DataIntegrityViolationException.class, () -> syncService.sync(syncDTO, TOKEN));
+        SyncRecordResultDTO result = syncService.sync(syncDTO, TOKEN).getSleepSessions().get(0);
+
+        assertEquals(SyncRecordStatus.DUPLICATE, result.getStatus());
+        assertEquals(storedMeanwhile.getId(), result.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSyncCatchesCrossSourceNearDuplicates() {
+        User user = mockUser();
+        Date appStart = new Date(System.currentTimeMillis() - 5 * 60 * 60 * 1000);
+        AbstractActivity appActivity = new AppActivity(40, appStart, TypeActivity.RUNNING, null, user.getActivityProfile());
+        Mockito.when(activityRepository.findByActivityProfileAndDateBetween(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(appActivity));
+        Mockito.when(ingestionService.ingestActivities(Mockito.eq(user), Mockito.anyList()))
+                .thenAnswer(invocation -> ((List<ActivityDTO>) invocation.getArgument(1)).stream()
+                        .map(dto -> new HealthConnectActivity(dto.getDuration(), dto.getDate(), dto.getType(),
+                                dto.getDescription(), user.getActivityProfile()))
+                        .toList());
+
+        Date nightStart = new Date(appStart.getTime() - 12 * 60 * 60 * 1000);
+        Sleep manualSleep = new Sleep();
+        manualSleep.setStartTime(nightStart);
+        manualSleep.setEndTime(new Date(nightStart.getTime() + 8 * 60 * 60 * 1000));
+        Mockito.when(sleepRepository.findBySleepProfileAndStartTimeBetween(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(manualSleep));
+        Mockito.when(ingestionService.ingestSleeps(Mockito.eq(user), Mockito.anyList())).thenReturn(List.of());
+
+        // Health Connect registra la misma carrera dos minutos más tarde y la misma noche con otros límites
+        HealthConnectSyncDTO syncDTO = new HealthConnectSyncDTO();
+        syncDTO.setExerciseSessions(List.of(
+                exercise("EXERCISE_TYPE_RUNNING", new Date(appStart.getTime() + 2 * 60000), 39),
+                exercise("EXERCISE_TYPE_YOGA", new Date(appStart.getTime() + 2 * 60000), 39)));
+        SleepDTO hcSleep = new SleepDTO();
+        hcSleep.setStartTime(new Date(nightStart.getTime() + 10 * 60000));
+        hcSleep.setEndTime(new Date(nightStart.getTime() + 8 * 60 * 60 * 1000 + 20 * 60000));
+        hcSleep.setExternalId("hc-sleep-2");
+        syncDTO.setSleepSessions(List.of(hcSleep));
+
+        HealthConnectSyncResultDTO result = syncService.sync(syncDTO, TOKEN);
+
+        assertEquals(SyncRecordStatus.DUPLICATE, result.getExerciseSessions().get(0).getStatus());
+        assertEquals(appActivity.getId(), result.getExerciseSessions().get(0).getId());
+        assertEquals(SyncRecordStatus.SAVED, result.getExerciseSessions().get(1).getStatus());
+        assertEquals(SyncRecordStatus.DUPLICATE, result.getSleepSessions().get(0).getStatus());
+        // La noche guardada adopta el id de Health Connect para que las repeticiones vayan por índice
+        assertEquals("hc-sleep-2", manualSleep.getExternalId());
+    }
+
+    @Test
+    public void testIntervalTreeMatchesBruteForce() {
+        Random random = new Random(7);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        List<long[]> intervals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(1_000_000);
+            long end = start + 1 + random.nextInt(5_000);
+            tree.insert(start, end, i);
+            intervals.add(new long[]{start, end});
+        }
+
+        for (int q = 0; q < 200; q++) {
+            long start = random.nextInt(1_000_000);
+            long end = start + 1 + random.nextInt(10_000);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < intervals.size(); i++) {
+                if (intervals.get(i)[0] < end && intervals.get(i)[1] > start) {
+                    expected.add(i);
+                }
+            }
+            Set<Integer> found = new HashSet<>();
+            tree.overlapping(start, end).forEach(entry -> found.add(entry.value()));
+            assertEquals(expected, found);
+        }
+        assertEquals(2000, tree.size());
+        assertEquals(0.5, IntervalTree.overlapRatio(0, 100, 50, 300));
+    }
+}
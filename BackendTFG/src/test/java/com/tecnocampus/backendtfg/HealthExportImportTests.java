@@ -0,0 +1,158 @@
+package com.tecnocampus.backendtfg;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecnocampus.backendtfg.application.HealthConnectIngestionService;
+import com.tecnocampus.backendtfg.application.HealthConnectSyncService;
+import com.tecnocampus.backendtfg.application.HealthExportImportService;
+import com.tecnocampus.backendtfg.application.ImportTooLargeException;
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.dto.*;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.component.MappedFileInputStream;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class HealthExportImportTests {
+
+    private static final String EMAIL = "example@email.com";
+
+    @Mock
+    private HealthConnectSyncService syncService;
+
+    @Mock
+    private HealthConnectIngestionService ingestionService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserWriteMailbox userWriteMailbox;
+
+    @Mock
+    private ThreadPoolTaskExecutor importExecutor;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private HealthExportImportService importService(int chunkSize) {
+        return importService(chunkSize, 512L * 1024 * 1024);
+    }
+
+    private HealthExportImportService importService(int chunkSize, long maxBytes) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // El buzón aplica cada trozo en el mismo hilo
+        Mockito.when(userWriteMailbox.submitInBackground(Mockito.anyString(), Mockito.any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        return new HealthExportImportService(syncService, ingestionService, userRepository, objectMapper,
+                userWriteMailbox, importExecutor, jwtUtils, chunkSize, maxBytes);
+    }
+
+    private static List<SyncRecordResultDTO> allSaved(List<?> records) {
+        return IntStream.range(0, records.size())
+                .mapToObj(i -> new SyncRecordResultDTO(i, SyncRecordStatus.SAVED, "id-" + i, null))
+                .toList();
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testImportStreamsRecordsInChunks() {
+        User user = new User();
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+        Mockito.when(syncService.sync(Mockito.eq(user), Mockito.any(HealthConnectSyncDTO.class)))
+                .thenAnswer(invocation -> {
+                    HealthConnectSyncDTO batch = invocation.getArgument(1);
+                    HealthConnectSyncResultDTO result = new HealthConnectSyncResultDTO();
+                    result.setExerciseSessions(allSaved(batch.getExerciseSessions()));
+                    result.setSleepSessions(allSaved(batch.getSleepSessions()));
+                    result.setDailySteps(allSaved(batch.getDailySteps()));
+                    return result;
+                });
+        Mockito.when(ingestionService.ingestHydrations(Mockito.eq(user), Mockito.anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(1)).size());
+
+        HealthImportDTO result = importService(2).importStream(EMAIL, ndjson(
+                "{\"type\":\"activity\",\"exerciseType\":\"EXERCISE_TYPE_RUNNING\",\"startTime\":\"2023-05-01T08:00:00Z\",\"endTime\":\"2023-05-01T08:30:00Z\"}",
+                "{\"type\":\"activity\",\"exerciseType\":\"EXERCISE_TYPE_YOGA\",\"startTime\":\"2023-05-02T08:00:00Z\",\"endTime\":\"2023-05-02T09:00:00Z\"}",
+                "{\"type\":\"sleep\",\"startTime\":\"2023-05-01T22:00:00Z\",\"endTime\":\"2023-05-02T06:00:00Z\",\"hours\":8,"
+                        + "\"sleepStagesDTO\":[{\"startTime\":\"2023-05-01T22:00:00Z\",\"endTime\":\"2023-05-02T01:00:00Z\",\"stageType\":\"DEEP\"}]}",
+                "{\"type\":\"steps\",\"steps\":8000,\"date\":\"2023-05-01T00:00:00Z\",\"duration\":60}",
+                "{\"type\":\"hydration\",\"quantity\":0.25,\"date\":\"2023-05-01T10:00:00Z\"}",
+                "{\"type\":\"weight\",\"value\":70}"));
+
+        assertEquals(ImportStatus.COMPLETED, result.getStatus());
+        assertEquals(6, result.getRecords());
+        assertEquals(5, result.getSaved());
+        assertEquals(1, result.getInvalid());
+        assertTrue(result.getWarnings().get(0).startsWith("Line 6"));
+        // Trozos de 2 registros: nunca se acumula el fichero entero
+        Mockito.verify(syncService, Mockito.times(3)).sync(Mockito.eq(user), Mockito.any(HealthConnectSyncDTO.class));
+    }
+
+    @Test
+    public void testOversizedImportIsRejected() {
+        Mockito.when(jwtUtils.extractEmail("token")).thenReturn(EMAIL);
+        Mockito.when(userRepository.existsByEmail(EMAIL)).thenReturn(true);
+        HealthExportImportService service = importService(500, 100);
+
+        // Sin Content-Length se corta al pasar del máximo mientras se copia
+        assertThrows(ImportTooLargeException.class, () -> service.startImport("token",
+                new ByteArrayInputStream(new byte[101]), -1));
+        // Con uno declarado mayor se rechaza antes de leer
+        assertThrows(ImportTooLargeException.class, () -> service.startImport("token",
+                new ByteArrayInputStream(new byte[0]), 101));
+        Mockito.verifyNoInteractions(importExecutor);
+    }
+
+    @Test
+    public void testMalformedJsonFailsImportWithLine() {
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(new User());
+        Mockito.when(syncService.sync(Mockito.any(User.class), Mockito.any(HealthConnectSyncDTO.class)))
+                .thenReturn(new HealthConnectSyncResultDTO());
+
+        HealthImportDTO result = importService(500).importStream(EMAIL, ndjson(
+                "{\"type\":\"hydration\",\"quantity\":0.25,\"date\":\"2023-05-01T10:00:00Z\"}",
+                "{\"type\":\"steps\",\"steps\":"));
+
+        assertEquals(ImportStatus.FAILED, result.getStatus());
+        assertTrue(result.getError().contains("line 2"));
+        assertNotNull(result.getFinishedAt());
+    }
+
+    @Test
+    public void testMappedFileInputStreamReadsAcrossWindows() throws Exception {
+        byte[] content = new byte[10_000];
+        new Random(42).nextBytes(content);
+        Path file = Files.createTempFile("mapped-", ".bin");
+        try {
+            Files.write(file, content);
+            try (InputStream in = new MappedFileInputStream(file, 1024)) {
+                assertArrayEquals(content, in.readAllBytes());
+                assertEquals(-1, in.read());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
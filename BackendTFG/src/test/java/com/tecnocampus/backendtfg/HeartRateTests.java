@@ -0,0 +1,188 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.HeartRateService;
+import com.tecnocampus.backendtfg.application.SyncStateService;
+import com.tecnocampus.backendtfg.application.dto.HeartRateBucketDTO;
+import com.tecnocampus.backendtfg.application.dto.HeartRateIngestResultDTO;
+import com.tecnocampus.backendtfg.application.dto.HeartRateSampleDTO;
+import com.tecnocampus.backendtfg.component.CalorieCalculator;
+import com.tecnocampus.backendtfg.component.HeartRateCalorieCalculator;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.ActivityRepository;
+import com.tecnocampus.backendtfg.persistence.HeartRateBlockRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class HeartRateTests {
+
+    private static final String TOKEN = "test-token";
+    private static final String EMAIL = "example@email.com";
+
+    @InjectMocks
+    private HeartRateService heartRateService;
+
+    @Mock
+    private HeartRateBlockRepository heartRateBlockRepository;
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SyncStateService syncStateService;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private static long startOfToday() {
+        return LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void testSeriesEncodingRoundTripIsCompact() {
+        Random random = new Random(3);
+        HeartRateSeries series = new HeartRateSeries();
+        long time = startOfToday();
+        int bpm = 70;
+        for (int i = 0; i < 40_000; i++) {
+            // Muestras cada segundo con algún hueco y variaciones pequeñas de bpm
+            time += random.nextInt(20) == 0 ? 1000 + random.nextInt(5000) : 1000;
+            bpm = Math.max(40, Math.min(190, bpm + random.nextInt(5) - 2));
+            series.add(time, bpm);
+        }
+
+        byte[] encoded = series.encode();
+        HeartRateSeries decoded = HeartRateSeries.decode(encoded);
+
+        assertEquals(series.size(), decoded.size());
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals(series.timeAt(i), decoded.timeAt(i));
+            assertEquals(series.bpmAt(i), decoded.bpmAt(i));
+        }
+        assertTrue(encoded.length < series.size() * 3, "encoded size " + encoded.length);
+    }
+
+    @Test
+    public void testIngestMergesIntoExistingDayBlock() {
+        User user = new User();
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+        long base = startOfToday() + 8 * 60 * 60 * 1000;
+
+        HeartRateSeries stored = new HeartRateSeries();
+        stored.add(base, 60);
+        stored.add(base + 1000, 62);
+        HeartRateBlock block = new HeartRateBlock(user, LocalDate.now());
+        block.setSeries(stored);
+        Mockito.when(heartRateBlockRepository.findByUserAndDayIn(Mockito.eq(user), Mockito.anyCollection()))
+                .thenReturn(List.of(block));
+
+        HeartRateIngestResultDTO result = heartRateService.ingestSamples(TOKEN, List.of(
+                new HeartRateSampleDTO(new Date(base + 2000), 64),
+                new HeartRateSampleDTO(new Date(base + 1000), 63),
+                new HeartRateSampleDTO(new Date(base + 3000), 400)));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        HeartRateSeries merged = block.getSeries();
+        assertEquals(3, merged.size());
+        assertEquals(63, merged.bpmAt(1));
+        assertEquals(60, block.getMinBpm());
+        assertEquals(64, block.getMaxBpm());
+        Mockito.verify(syncStateService).advance(user, SyncDataType.HEART_RATE, new Date(base + 2000), null);
+    }
+
+    @Test
+    public void testSeriesIsDownsampledToResolution() {
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        long base = startOfToday();
+        HeartRateSeries series = new HeartRateSeries();
+        for (int i = 0; i < 600; i++) {
+            series.add(base + i * 1000L, 60 + i % 10);
+        }
+        HeartRateBlock block = new HeartRateBlock(null, LocalDate.now());
+        block.setSeries(series);
+        Mockito.when(heartRateBlockRepository.findByUserEmailAndDayBetweenOrderByDayAsc(
+                Mockito.eq(EMAIL), Mockito.any(), Mockito.any())).thenReturn(List.of(block));
+
+        List<HeartRateBucketDTO> buckets = heartRateService.getSeries(TOKEN, new Date(base),
+                new Date(base + 10 * 60 * 1000), 300);
+
+        assertEquals(2, buckets.size());
+        assertEquals(300, buckets.get(0).getCount());
+        assertEquals(60, buckets.get(0).getMin());
+        assertEquals(69, buckets.get(0).getMax());
+        assertEquals(64.5, buckets.get(0).getAvg());
+        assertEquals(new Date(base + 300 * 1000), buckets.get(1).getStart());
+        assertThrows(IllegalArgumentException.class, () -> heartRateService.getSeries(TOKEN, new Date(base),
+                new Date(base + 10 * 60 * 1000), 0));
+    }
+
+    @Test
+    public void testCaloriesFollowHeartRate() {
+        User user = new User("Test", EMAIL, "password", 70.0, 175, 30, Gender.MALE);
+        long start = startOfToday() + 10 * 60 * 60 * 1000;
+        long end = start + 30 * 60 * 1000;
+        HeartRateSeries easy = new HeartRateSeries();
+        HeartRateSeries hard = new HeartRateSeries();
+        for (long time = start; time < end; time += 5000) {
+            easy.add(time, 95);
+            hard.add(time, 165);
+        }
+
+        double met = CalorieCalculator.calculateCaloriesBurned(user, TypeActivity.YOGA, 30);
+        double easyCalories = HeartRateCalorieCalculator.calculateCaloriesBurned(user, TypeActivity.YOGA, start, end, easy);
+        double hardCalories = HeartRateCalorieCalculator.calculateCaloriesBurned(user, TypeActivity.YOGA, start, end, hard);
+
+        // Keytel, hombre de 70 kg y 30 años a 165 bpm: unas 16,5 kcal/min
+        assertEquals(494.5, hardCalories, 1);
+        assertTrue(easyCalories < hardCalories);
+        assertNotEquals(met, hardCalories);
+
+        // Muestras que cubren menos de la mitad de la actividad: se usa el MET
+        HeartRateSeries sparse = new HeartRateSeries();
+        sparse.add(start, 165);
+        assertEquals(met, HeartRateCalorieCalculator.calculateCaloriesBurned(user, TypeActivity.YOGA, start, end, sparse));
+    }
+
+    @Test
+    public void testIngestRescoresActivitiesOfTheDay() {
+        User user = new User("Test", EMAIL, "password", 70.0, 175, 30, Gender.MALE);
+        ActivityProfile activityProfile = new ActivityProfile(user);
+        user.setActivityProfile(activityProfile);
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+        long start = startOfToday() + 18 * 60 * 60 * 1000;
+
+        AppActivity run = new AppActivity(20, new Date(start), TypeActivity.RUNNING, "", activityProfile);
+        run.calculateCalories();
+        double metCalories = run.getCaloriesBurned();
+        Mockito.when(activityRepository.findByActivityProfileAndDateBetween(
+                Mockito.eq(activityProfile), Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(List.of(run));
+
+        List<HeartRateSampleDTO> samples = new java.util.ArrayList<>();
+        for (int second = 0; second < 20 * 60; second += 5) {
+            samples.add(new HeartRateSampleDTO(new Date(start + second * 1000L), 120));
+        }
+        heartRateService.ingestSamples(TOKEN, samples);
+
+        assertNotEquals(metCalories, run.getCaloriesBurned());
+        assertTrue(run.getCaloriesBurned() > 0);
+    }
+}
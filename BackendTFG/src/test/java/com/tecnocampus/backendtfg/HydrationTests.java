@@ -0,0 +1,127 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.HydrationStatusCache;
+import com.tecnocampus.backendtfg.application.HydrationWriteBehind;
+import com.tecnocampus.backendtfg.application.dto.HydrationStatusDTO;
+import com.tecnocampus.backendtfg.persistence.HydrationIntakeLog;
+import com.tecnocampus.backendtfg.persistence.HydrationProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HydrationTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static final String EMAIL = "water@test.com";
+
+    @TempDir
+    Path logDirectory;
+
+    @Test
+    public void testStatusIsReadOnceAndNeverWritten() {
+        HydrationProfileRepository repository = Mockito.mock(HydrationProfileRepository.class);
+        HydrationStatusCache cache = new HydrationStatusCache(repository);
+        Date now = new Date();
+        Mockito.when(repository.findStatusByUserEmail(EMAIL))
+                .thenReturn(new HydrationStatusDTO(2.5, 1.25, now), new HydrationStatusDTO(2.5, 1.5, now));
+
+        assertEquals(1.25, cache.get(EMAIL).getCurrentAmount());
+        assertEquals(1.25, cache.get(EMAIL).getCurrentAmount());
+        Mockito.verify(repository, Mockito.times(1)).findStatusByUserEmail(EMAIL);
+
+        cache.invalidate(EMAIL);
+        assertEquals(1.5, cache.get(EMAIL).getCurrentAmount());
+        Mockito.verify(repository, Mockito.times(2)).findStatusByUserEmail(EMAIL);
+        Mockito.verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void testAmountFromPreviousDayCountsAsZero() {
+        HydrationProfileRepository repository = Mockito.mock(HydrationProfileRepository.class);
+        HydrationStatusCache cache = new HydrationStatusCache(repository);
+        Date yesterday = new Date(System.currentTimeMillis() - DAY);
+        Mockito.when(repository.findStatusByUserEmail(EMAIL)).thenReturn(new HydrationStatusDTO(2.5, 1.75, yesterday));
+
+        HydrationStatusDTO status = cache.get(EMAIL);
+
+        assertEquals(0, status.getCurrentAmount());
+        assertEquals(2.5, status.getDailyTarget());
+        assertEquals(yesterday, status.getLastUpdate());
+        assertNull(cache.get("nobody@test.com"));
+    }
+
+    @Test
+    public void testPendingIntakesSurviveRestart() throws IOException {
+        HydrationIntakeLog log = new HydrationIntakeLog(logDirectory.toString());
+        HydrationWriteBehind writeBehind = new HydrationWriteBehind(log, true);
+        assertTrue(writeBehind.isEnabled());
+        assertEquals(1, writeBehind.record(EMAIL, 0.25));
+        assertEquals(2, writeBehind.record(EMAIL, 0.5));
+        assertEquals(0.75, writeBehind.pendingToday(EMAIL).amount());
+        // Un segundo proceso no puede usar el mismo log
+        assertFalse(new HydrationIntakeLog(logDirectory.toString()).isAvailable());
+
+        // Caída sin volcar, con la última línea escrita a medias
+        log.close();
+        try (var files = Files.list(logDirectory)) {
+            Path segment = files.filter(file -> file.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.writeString(segment, "x\t" + EMAIL + "\t1.0\t17", StandardOpenOption.APPEND);
+        }
+
+        HydrationIntakeLog reopened = new HydrationIntakeLog(logDirectory.toString());
+        HydrationWriteBehind recovered = new HydrationWriteBehind(reopened, true);
+        recovered.recover();
+        assertEquals(0.75, recovered.pendingToday(EMAIL).amount());
+
+        HydrationWriteBehind.Batch batch = recovered.drain();
+        assertEquals(2, batch.intakes().get(EMAIL).size());
+        // Hasta que el lote se confirma sigue contando para el estado
+        assertEquals(0.75, recovered.pendingToday(EMAIL).amount());
+        recovered.complete(batch);
+        assertNull(recovered.pendingToday(EMAIL));
+        assertEquals(List.of(), reopened.readSealed());
+        reopened.close();
+    }
+
+    @Test
+    public void testEmptySegmentsAreDeletedOnRecovery() throws IOException {
+        // Arranques sin ninguna toma: cada uno abre un segmento nuevo
+        for (int boot = 0; boot < 3; boot++) {
+            HydrationIntakeLog log = new HydrationIntakeLog(logDirectory.toString());
+            new HydrationWriteBehind(log, true).recover();
+            log.close();
+        }
+
+        try (var files = Files.list(logDirectory)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().endsWith(".log")).count());
+        }
+    }
+
+    @Test
+    public void testPendingTodayOnlyCountsTodaysIntakes() throws IOException {
+        // Una toma de ayer quedó sin volcar y se recupera al arrancar
+        HydrationIntakeLog log = new HydrationIntakeLog(logDirectory.toString());
+        long yesterday = System.currentTimeMillis() - 24L * 60 * 60 * 1000;
+        log.append(new HydrationIntakeLog.Intake("yesterday", EMAIL, 1.0, yesterday));
+        log.close();
+
+        HydrationIntakeLog reopened = new HydrationIntakeLog(logDirectory.toString());
+        HydrationWriteBehind writeBehind = new HydrationWriteBehind(reopened, true);
+        writeBehind.recover();
+        assertNull(writeBehind.pendingToday(EMAIL));
+
+        writeBehind.record(EMAIL, 0.25);
+        assertEquals(0.25, writeBehind.pendingToday(EMAIL).amount());
+        reopened.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.component.ImageResizer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageResizerTests {
+
+    @Test
+    public void testSquareThumbnailFromLandscape() {
+        // Arrange
+        BufferedImage source = new BufferedImage(1200, 800, BufferedImage.TYPE_INT_ARGB);
+
+        // Act
+        BufferedImage thumbnail = ImageResizer.squareThumbnail(source, 128);
+
+        // Assert
+        assertEquals(128, thumbnail.getWidth());
+        assertEquals(128, thumbnail.getHeight());
+    }
+
+    @Test
+    public void testSmallImageIsNotUpscaled() {
+        // Arrange
+        BufferedImage source = new BufferedImage(40, 60, BufferedImage.TYPE_INT_RGB);
+
+        // Act
+        BufferedImage thumbnail = ImageResizer.squareThumbnail(source, 512);
+
+        // Assert
+        assertEquals(40, thumbnail.getWidth());
+        assertEquals(40, thumbnail.getHeight());
+    }
+
+    @Test
+    public void testReadSubsamplesAndWritesJpeg() throws IOException {
+        // Arrange
+        BufferedImage source = new BufferedImage(4096, 3072, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+
+        // Act
+        BufferedImage decoded = ImageResizer.read(new ByteArrayInputStream(png.toByteArray()), 512);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageResizer.writeJpeg(ImageResizer.squareThumbnail(decoded, 64), jpeg);
+        BufferedImage written = ImageIO.read(new ByteArrayInputStream(jpeg.toByteArray()));
+
+        // Assert
+        assertTrue(decoded.getWidth() < source.getWidth());
+        assertTrue(Math.min(decoded.getWidth(), decoded.getHeight()) >= 1024);
+        assertEquals(64, written.getWidth());
+    }
+}
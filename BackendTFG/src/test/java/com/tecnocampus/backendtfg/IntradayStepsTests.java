@@ -0,0 +1,135 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.HealthConnectIngestionService;
+import com.tecnocampus.backendtfg.application.IntradayStepsService;
+import com.tecnocampus.backendtfg.application.dto.DailyStepsDTO;
+import com.tecnocampus.backendtfg.application.dto.StepBucketDTO;
+import com.tecnocampus.backendtfg.application.dto.StepIntervalDTO;
+import com.tecnocampus.backendtfg.application.dto.StepsIngestResultDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.ActivityProfile;
+import com.tecnocampus.backendtfg.domain.IntradaySteps;
+import com.tecnocampus.backendtfg.domain.StepSeries;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.IntradayStepsRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class IntradayStepsTests {
+
+    private static final String TOKEN = "test-token";
+    private static final String EMAIL = "example@email.com";
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 12);
+
+    @InjectMocks
+    private IntradayStepsService intradayStepsService;
+
+    @Mock
+    private IntradayStepsRepository intradayStepsRepository;
+
+    @Mock
+    private HealthConnectIngestionService ingestionService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private static Date at(int hour, int minute, int second) {
+        return Date.from(DAY.atTime(hour, minute, second).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    public void testSeriesEncodingRoundTrip() {
+        StepSeries series = new StepSeries();
+        series.set(0, 12);
+        series.set(480, 95);
+        series.set(481, 110);
+        series.set(StepSeries.MINUTES_PER_DAY - 1, 3);
+
+        byte[] encoded = series.encode();
+        StepSeries decoded = StepSeries.decode(encoded);
+
+        for (int minute = 0; minute < StepSeries.MINUTES_PER_DAY; minute++) {
+            assertEquals(series.stepsAt(minute), decoded.stepsAt(minute));
+        }
+        assertEquals(220, decoded.total());
+        assertTrue(encoded.length < 16, "encoded size " + encoded.length);
+    }
+
+    @Test
+    public void testIngestSpreadsRecordsAndSyncsDailyTotal() {
+        User user = new User();
+        ActivityProfile activityProfile = new ActivityProfile(user);
+        user.setActivityProfile(activityProfile);
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        Mockito.when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+
+        // Ya había 100 pasos a las 08:00 guardados de un envío anterior
+        StepSeries stored = new StepSeries();
+        stored.set(480, 100);
+        IntradaySteps intraday = new IntradaySteps(activityProfile, DAY);
+        intraday.setSeries(stored);
+        Mockito.when(intradayStepsRepository.findByActivityProfileAndDayIn(Mockito.eq(activityProfile), Mockito.anyCollection()))
+                .thenReturn(List.of(intraday));
+
+        StepsIngestResultDTO result = intradayStepsService.ingestIntervals(TOKEN, List.of(
+                // 301 pasos entre 09:00:30 y 09:03:00: medio minuto y dos minutos completos
+                new StepIntervalDTO(at(9, 0, 30), at(9, 3, 0), 301),
+                new StepIntervalDTO(at(10, 0, 0), at(9, 0, 0), 50)));
+
+        assertEquals(1, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        StepSeries merged = intraday.getSeries();
+        assertEquals(100, merged.stepsAt(480));
+        assertEquals(60, merged.stepsAt(540));
+        assertEquals(121, merged.stepsAt(541));
+        assertEquals(120, merged.stepsAt(542));
+        assertEquals(401, intraday.getTotalSteps());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<DailyStepsDTO>> totals = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(ingestionService).ingestDailySteps(Mockito.eq(user), totals.capture());
+        assertEquals(401, totals.getValue().get(0).getSteps());
+        assertEquals(4, totals.getValue().get(0).getDuration());
+
+        // Reenviar el mismo registro no suma los pasos otra vez
+        intradayStepsService.ingestIntervals(TOKEN, List.of(new StepIntervalDTO(at(9, 0, 30), at(9, 3, 0), 301)));
+        assertEquals(401, intraday.getTotalSteps());
+    }
+
+    @Test
+    public void testIntradayBucketsCoverWholeDay() {
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        StepSeries series = new StepSeries();
+        series.set(60, 10);
+        series.set(74, 5);
+        series.set(75, 7);
+        IntradaySteps intraday = new IntradaySteps(null, DAY);
+        intraday.setSeries(series);
+        Mockito.when(intradayStepsRepository.findByActivityProfileUserEmailAndDayBetweenOrderByDayAsc(EMAIL, DAY, DAY))
+                .thenReturn(List.of(intraday));
+
+        List<StepBucketDTO> buckets = intradayStepsService.getIntraday(TOKEN, DAY, 15);
+
+        assertEquals(96, buckets.size());
+        assertEquals(15, buckets.get(4).getSteps());
+        assertEquals(7, buckets.get(5).getSteps());
+        assertEquals(at(1, 15, 0), buckets.get(5).getStart());
+        assertThrows(IllegalArgumentException.class, () -> intradayStepsService.getIntraday(TOKEN, DAY, 0));
+    }
+}
@@ -0,0 +1,111 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.LeaderboardService;
+import com.tecnocampus.backendtfg.application.RankingTree;
+import com.tecnocampus.backendtfg.application.dto.LeaderboardDTO;
+import com.tecnocampus.backendtfg.application.dto.LeaderboardEntryDTO;
+import com.tecnocampus.backendtfg.application.dto.UserPrincipalDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.Level;
+import com.tecnocampus.backendtfg.domain.User;
+import com.tecnocampus.backendtfg.persistence.GroupMembershipRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class LeaderboardTests {
+
+    private static final String TOKEN = "test-token";
+    private static final String EMAIL = "example@email.com";
+
+    @InjectMocks
+    private LeaderboardService leaderboardService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private GroupMembershipRepository membershipRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Test
+    public void testRankingTreeMatchesSortedList() {
+        Random random = new Random(11);
+        RankingTree tree = new RankingTree();
+        Map<String, Long> scores = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String id = "u" + random.nextInt(500);
+            Long previous = scores.get(id);
+            if (previous != null) {
+                assertTrue(tree.remove(id, previous));
+            }
+            long score = random.nextInt(200);
+            scores.put(id, score);
+            tree.insert(id, score);
+        }
+
+        List<Map.Entry<String, Long>> expected = new ArrayList<>(scores.entrySet());
+        expected.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        assertEquals(expected.size(), tree.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            Map.Entry<String, Long> entry = expected.get(rank);
+            assertEquals(entry.getKey(), tree.get(rank).id());
+            assertEquals(rank, tree.rankOf(entry.getKey(), entry.getValue()));
+        }
+        List<RankingTree.Entry> range = tree.range(40, 50);
+        assertEquals(10, range.size());
+        assertEquals(expected.get(40).getKey(), range.get(0).id());
+        assertEquals(expected.get(49).getKey(), range.get(9).id());
+        assertEquals(3, tree.range(expected.size() - 3, expected.size() + 10).size());
+    }
+
+    @Test
+    public void testRanksFollowExperienceChanges() {
+        List<LeaderboardEntryDTO> stored = List.of(
+                new LeaderboardEntryDTO("a", "Ana", 3, 10),
+                new LeaderboardEntryDTO("b", "Bea", 1, 50),
+                new LeaderboardEntryDTO("me", "Yo", 2, 0));
+        Mockito.when(userRepository.findLeaderboardEntriesAfter(Mockito.eq(""), Mockito.any())).thenReturn(stored);
+        Mockito.when(jwtUtils.extractEmail(TOKEN)).thenReturn(EMAIL);
+        Mockito.when(userRepository.findPrincipalByEmail(EMAIL)).thenReturn(new UserPrincipalDTO("me", EMAIL, "x"));
+        Mockito.when(userRepository.findLeaderboardEntries(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return stored.stream().filter(entry -> ids.contains(entry.getUserId()))
+                    .map(entry -> new LeaderboardEntryDTO(entry.getUserId(), entry.getName(),
+                            entry.getCurrentLevel(), entry.getCurrentExp()))
+                    .toList();
+        });
+
+        // Ana: 260 de experiencia total, yo: 100, Bea: 50
+        LeaderboardDTO before = leaderboardService.getTop(TOKEN, 2);
+        assertEquals(2, before.getMyRank());
+        assertEquals(3, before.getTotalUsers());
+        assertEquals(List.of("a", "me"), before.getEntries().stream().map(LeaderboardEntryDTO::getUserId).toList());
+        assertTrue(before.getEntries().get(1).isMe());
+
+        User me = new User();
+        me.setId("me");
+        // Nivel 3 con 50: 100 + 150 + 50
+        me.getLevel().setCurrentLevel(3);
+        me.getLevel().setCurrentExp(50);
+        me.getLevel().setExpToNextLevel(200);
+        assertEquals(300, me.getLevel().getTotalExperience());
+        leaderboardService.experienceChanged("me", me.getLevel().getTotalExperience());
+
+        LeaderboardDTO after = leaderboardService.getAround(TOKEN, 1);
+        assertEquals(1, after.getMyRank());
+        assertEquals(List.of("me", "a"), after.getEntries().stream().map(LeaderboardEntryDTO::getUserId).toList());
+        assertEquals(1, after.getEntries().get(0).getRank());
+        assertEquals(260, Level.totalExperience(3, 10));
+    }
+}
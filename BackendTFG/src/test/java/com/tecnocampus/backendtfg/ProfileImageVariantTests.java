@@ -0,0 +1,115 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.ProfileImageVariantService;
+import com.tecnocampus.backendtfg.domain.ImageVariant;
+import com.tecnocampus.backendtfg.domain.UnresizableImage;
+import com.tecnocampus.backendtfg.persistence.FileSystemBlobStore;
+import com.tecnocampus.backendtfg.persistence.ImageVariantRepository;
+import com.tecnocampus.backendtfg.persistence.UnresizableImageRepository;
+import com.tecnocampus.backendtfg.persistence.UserImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfileImageVariantTests {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemBlobStore blobStore;
+
+    private ImageVariantRepository imageVariantRepository;
+
+    private UnresizableImageRepository unresizableImageRepository;
+
+    private UserImageRepository userImageRepository;
+
+    private ThreadPoolTaskExecutor imageProcessingExecutor;
+
+    private ProfileImageVariantService variantService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        blobStore = new FileSystemBlobStore(tempDir.toString());
+        imageVariantRepository = Mockito.mock(ImageVariantRepository.class);
+        unresizableImageRepository = Mockito.mock(UnresizableImageRepository.class);
+        userImageRepository = Mockito.mock(UserImageRepository.class);
+        imageProcessingExecutor = Mockito.mock(ThreadPoolTaskExecutor.class);
+        variantService = new ProfileImageVariantService(blobStore, imageVariantRepository,
+                unresizableImageRepository, userImageRepository, imageProcessingExecutor);
+        Mockito.when(imageVariantRepository.findBySourceHashAndSize(Mockito.anyString(), Mockito.anyInt()))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void testUndecodableImageIsMarkedAndNotRequeued() throws IOException {
+        // Arrange
+        Path upload = blobStore.createUploadFile();
+        Files.write(upload, "not an image".getBytes(StandardCharsets.UTF_8));
+        String hash = blobStore.commit(upload);
+
+        // Act
+        variantService.generateVariants(hash);
+
+        // Assert
+        ArgumentCaptor<UnresizableImage> marked = ArgumentCaptor.forClass(UnresizableImage.class);
+        Mockito.verify(unresizableImageRepository).save(marked.capture());
+        assertEquals(hash, marked.getValue().getSourceHash());
+        Mockito.verify(imageVariantRepository, Mockito.never()).save(Mockito.any());
+
+        // Con la marca guardada, pedir una variante sirve el original sin encolar nada
+        Mockito.when(unresizableImageRepository.existsById(hash)).thenReturn(true);
+        assertTrue(variantService.findVariant(hash, 128).isEmpty());
+        assertTrue(variantService.findVariant(hash, 128).isEmpty());
+        Mockito.verifyNoInteractions(imageProcessingExecutor);
+    }
+
+    @Test
+    public void testMissingVariantOfValidImageIsQueued() {
+        // Act
+        assertTrue(variantService.findVariant("pending-hash", 128).isEmpty());
+
+        // Assert
+        Mockito.verify(imageProcessingExecutor).execute(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void testVariantContentSharedWithProfileImageIsKept() throws IOException {
+        // Arrange
+        Path upload = blobStore.createUploadFile();
+        Files.write(upload, "thumbnail".getBytes(StandardCharsets.UTF_8));
+        String variantHash = blobStore.commit(upload);
+        ImageVariant variant = new ImageVariant("source-hash", 128, variantHash, "image/jpeg", 9);
+        Mockito.when(imageVariantRepository.findBySourceHash("source-hash")).thenReturn(List.of(variant));
+        // Alguien subió como imagen de perfil los mismos bytes que la variante
+        Mockito.when(userImageRepository.existsByContentHash(variantHash)).thenReturn(true);
+
+        // Act
+        variantService.deleteVariants("source-hash");
+
+        // Assert
+        Mockito.verify(imageVariantRepository).delete(variant);
+        assertTrue(blobStore.exists(variantHash));
+    }
+
+    @Test
+    public void testLongFailureReasonIsTruncated() {
+        // Act
+        UnresizableImage mark = new UnresizableImage("source-hash", "x".repeat(1000));
+
+        // Assert
+        assertEquals(255, mark.getReason().length());
+    }
+}
@@ -19,8 +19,10 @@ import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 public class SleepTests {
@@ -222,4 +224,49 @@ public class SleepTests {
         verify(userRepository, times(1)).save(user);
         assertEquals(dailyObjectiveSleep, sleepProfile.getDailyObjectiveSleep());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUpdateSleepById() {
+        // Arrange
+        String token = "test-token";
+        String email = "test@example.com";
+        Date startTime = new Date();
+        Date endTime = new Date(startTime.getTime() + 25200000); // 7 hours later
+
+        Sleep existingSleep = new Sleep();
+        existingSleep.setHours(6);
+
+        SleepDTO sleepDTO = new SleepDTO();
+        sleepDTO.setHours(7);
+        sleepDTO.setStartTime(startTime);
+        sleepDTO.setEndTime(endTime);
+        sleepDTO.setQuality(2);
+
+        when(jwtUtils.extractEmail(token)).thenReturn(email);
+        when(sleepRepository.findByIdAndSleepProfileUserEmail(existingSleep.getId(), email))
+                .thenReturn(Optional.of(existingSleep));
+
+        // Act
+        sleepService.updateSleepById(existingSleep.getId(), sleepDTO, token);
+
+        // Assert
+        verify(sleepRepository, times(1)).save(existingSleep);
+        verify(sleepRepository, never()).findBySleepProfile(any());
+        assertEquals(7, existingSleep.getHours());
+    }
+
+    @Test
+    public void testDeleteSleepByIdNotOwned() {
+        // Arrange
+        String token = "test-token";
+        String email = "test@example.com";
+
+        when(jwtUtils.extractEmail(token)).thenReturn(email);
+        when(sleepRepository.findByIdAndSleepProfileUserEmail("other-id", email))
+                .thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> sleepService.deleteSleepById("other-id", token));
+        verify(sleepRepository, never()).delete(any(Sleep.class));
+    }
+}
@@ -0,0 +1,105 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.SyncChangeService;
+import com.tecnocampus.backendtfg.application.dto.ChangesDTO;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import com.tecnocampus.backendtfg.domain.*;
+import com.tecnocampus.backendtfg.persistence.ActivityRepository;
+import com.tecnocampus.backendtfg.persistence.SyncChangeRepository;
+import com.tecnocampus.backendtfg.persistence.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto nuevo: con ddl-auto=create otro contexto cacheado puede haber recreado las tablas
+// y los contadores que guarda este no coincidirían con las filas
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class SyncChangeTests {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private SyncChangeRepository syncChangeRepository;
+
+    @Autowired
+    private SyncChangeService syncChangeService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    public void testActivityWritesAreLoggedWithConsecutiveSeqs() {
+        User user = userRepository.save(new User("Sync", "sync-changes@test.com", "password",
+                70.0, 175, 30, Gender.MALE));
+        try {
+            AbstractActivity activity = activityRepository.save(new AppActivity(30, new Date(),
+                    TypeActivity.RUNNING, "Test", user.getActivityProfile()));
+            activityRepository.delete(activity);
+
+            List<SyncChange> changes = syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getEntityId().equals(activity.getId()))
+                    .toList();
+
+            assertEquals(2, changes.size());
+            assertEquals(ChangeOperation.UPSERT, changes.get(0).getOperation());
+            assertEquals(ChangeOperation.DELETE, changes.get(1).getOperation());
+            assertEquals(user.getId(), changes.get(1).getUserId());
+            assertEquals(changes.get(0).getSeq() + 1, changes.get(1).getSeq());
+        } finally {
+            syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.delete(user);
+        }
+    }
+
+    @Test
+    public void testPurgedCursorRequiresResync() {
+        User user = userRepository.save(new User("Resync", "sync-resync@test.com", "password",
+                70.0, 175, 30, Gender.MALE));
+        List<AbstractActivity> activities = new ArrayList<>();
+        try {
+            activities.add(activityRepository.save(new AppActivity(30, new Date(), TypeActivity.RUNNING, "Primera", user.getActivityProfile())));
+            activities.add(activityRepository.save(new AppActivity(45, new Date(), TypeActivity.RUNNING, "Segunda", user.getActivityProfile())));
+            String token = jwtUtils.generateToken(user.getEmail(), user.getUsername());
+
+            ChangesDTO all = syncChangeService.getChanges(token, 0, null);
+            assertFalse(all.isResyncRequired());
+            // Perfil de hidratación del alta y las dos actividades
+            assertEquals(3, all.getChanges().size());
+            long first = all.getChanges().get(0).getSeq();
+
+            // Se purga el primer cambio: quien aún no lo había leído tiene que recargar
+            syncChangeRepository.delete(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()) && change.getSeq() == first)
+                    .findFirst().orElseThrow());
+            ChangesDTO purged = syncChangeService.getChanges(token, 0, null);
+            assertTrue(purged.isResyncRequired());
+            assertTrue(purged.getChanges().isEmpty());
+            assertEquals(all.getCursor(), purged.getCursor());
+
+            // Quien ya lo había leído sigue normalmente
+            ChangesDTO after = syncChangeService.getChanges(token, first, null);
+            assertFalse(after.isResyncRequired());
+            assertEquals(2, after.getChanges().size());
+        } finally {
+            activityRepository.deleteAll(activities);
+            syncChangeRepository.deleteAll(syncChangeRepository.findAll().stream()
+                    .filter(change -> change.getUserId().equals(user.getId()))
+                    .toList());
+            userRepository.delete(user);
+        }
+    }
+}
@@ -1,30 +1,48 @@
 package com.tecnocampus.backendtfg;
 
+import com.tecnocampus.backendtfg.application.CalorieRecomputeService;
+import com.tecnocampus.backendtfg.application.HydrationService;
+import com.tecnocampus.backendtfg.application.ProfileImageVariantService;
+import com.tecnocampus.backendtfg.application.UnsupportedImageTypeException;
 import com.tecnocampus.backendtfg.application.UserService;
 import com.tecnocampus.backendtfg.application.dto.DataProfileDTO;
 import com.tecnocampus.backendtfg.application.dto.GenderTypeDTO;
+import com.tecnocampus.backendtfg.application.dto.ProfileImageDTO;
 import com.tecnocampus.backendtfg.application.dto.UserDTO;
 import com.tecnocampus.backendtfg.component.JwtUtils;
 import com.tecnocampus.backendtfg.domain.Gender;
 import com.tecnocampus.backendtfg.domain.User;
 import com.tecnocampus.backendtfg.domain.UserImage;
+import com.tecnocampus.backendtfg.persistence.BlobStore;
+import com.tecnocampus.backendtfg.persistence.ImageVariantRepository;
 import com.tecnocampus.backendtfg.persistence.UserImageRepository;
 import com.tecnocampus.backendtfg.persistence.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class UserTests {
 
+    private static final String OLD_HASH = "a".repeat(64);
+    private static final String NEW_HASH = "b".repeat(64);
+
     @InjectMocks
     private UserService userService;
 
@@ -34,15 +52,31 @@ public class UserTests {
     @Mock
     private UserImageRepository userImageRepository;
 
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private ProfileImageVariantService profileImageVariantService;
+
+    @Mock
+    private CalorieRecomputeService calorieRecomputeService;
+
+    @Mock
+    private HydrationService hydrationService;
+
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private ImageVariantRepository imageVariantRepository;
+
     @Mock
     private MultipartFile mockFile;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(profileImageVariantService.blobReferences()).thenReturn(new ReentrantReadWriteLock());
     }
 
     @Test
@@ -67,6 +101,8 @@ public class UserTests {
 
         // Assert
         verify(userRepository).save(user);
+        verify(calorieRecomputeService).onBodyDataChanged(user, null, null, 0);
+        verify(hydrationService).updateDailyObjective(user);
         assertEquals(75.5, user.getWeight());
         assertEquals(180.0, user.getHeight());
         assertEquals(Gender.MALE, user.getGender());
@@ -141,12 +177,14 @@ public class UserTests {
         String token = "test-token";
         String email = "test@example.com";
         User user = new User();
-        byte[] imageData = "test image data".getBytes();
+        Path upload = Paths.get("upload.part");
 
         when(jwtUtils.extractEmail(token)).thenReturn(email);
         when(userRepository.findByEmail(email)).thenReturn(user);
         when(userImageRepository.findByUser(user)).thenReturn(Optional.empty());
-        when(mockFile.getBytes()).thenReturn(imageData);
+        when(blobStore.createUploadFile()).thenReturn(upload);
+        when(blobStore.commit(upload)).thenReturn(NEW_HASH);
+        when(mockFile.getSize()).thenReturn(15L);
         when(mockFile.getContentType()).thenReturn("image/jpeg");
         when(mockFile.getOriginalFilename()).thenReturn("profile.jpg");
 
@@ -154,9 +192,13 @@ public class UserTests {
         userService.saveUserProfileImage(token, mockFile);
 
         // Assert
+        verify(mockFile).transferTo(upload.toFile());
+        verify(mockFile, never()).getBytes();
         verify(userImageRepository, times(1)).save(any(UserImage.class));
         assertNotNull(user.getUserImage());
         assertEquals("profile.jpg", user.getUserImage().getFilename());
+        assertEquals(NEW_HASH, user.getUserImage().getContentHash());
+        verify(profileImageVariantService).generateVariantsAsync(NEW_HASH);
     }
 
     @Test
@@ -166,18 +208,20 @@ public class UserTests {
         String email = "test@example.com";
         User user = new User();
         UserImage existingImage = new UserImage();
-        existingImage.setImageData("old data".getBytes());
+        existingImage.setContentHash(OLD_HASH);
         existingImage.setImageType("image/png");
         existingImage.setFilename("old.png");
         existingImage.setUser(user);
         user.setUserImage(existingImage);
 
-        byte[] newImageData = "new image data".getBytes();
+        Path upload = Paths.get("upload.part");
 
         when(jwtUtils.extractEmail(token)).thenReturn(email);
         when(userRepository.findByEmail(email)).thenReturn(user);
         when(userImageRepository.findByUser(user)).thenReturn(Optional.of(existingImage));
-        when(mockFile.getBytes()).thenReturn(newImageData);
+        when(userImageRepository.existsByContentHash(OLD_HASH)).thenReturn(false);
+        when(blobStore.createUploadFile()).thenReturn(upload);
+        when(blobStore.commit(upload)).thenReturn(NEW_HASH);
         when(mockFile.getContentType()).thenReturn("image/jpeg");
         when(mockFile.getOriginalFilename()).thenReturn("new.jpg");
 
@@ -185,19 +229,107 @@ public class UserTests {
         userService.saveUserProfileImage(token, mockFile);
 
         // Assert
-        verify(userImageRepository, times(2)).save(existingImage);
+        verify(userImageRepository, times(1)).save(existingImage);
+        verify(blobStore, times(1)).delete(OLD_HASH);
+        verify(profileImageVariantService, times(1)).deleteVariants(OLD_HASH);
         assertEquals("new.jpg", existingImage.getFilename());
+        assertEquals(NEW_HASH, existingImage.getContentHash());
+    }
+
+    @Test
+    public void testSaveUserProfileImage_KeepsSharedPreviousContent() throws IOException {
+        // Arrange
+        String token = "test-token";
+        String email = "test@example.com";
+        User user = new User();
+        UserImage existingImage = new UserImage();
+        existingImage.setContentHash(OLD_HASH);
+        existingImage.setUser(user);
+        user.setUserImage(existingImage);
+
+        Path upload = Paths.get("upload.part");
+
+        when(jwtUtils.extractEmail(token)).thenReturn(email);
+        when(userRepository.findByEmail(email)).thenReturn(user);
+        when(userImageRepository.findByUser(user)).thenReturn(Optional.of(existingImage));
+        // Otro usuario ha subido el mismo contenido mientras tanto
+        when(userImageRepository.existsByContentHash(OLD_HASH)).thenReturn(true);
+        when(blobStore.createUploadFile()).thenReturn(upload);
+        when(blobStore.commit(upload)).thenReturn(NEW_HASH);
+        when(mockFile.getContentType()).thenReturn("image/jpeg");
+
+        // Act
+        userService.saveUserProfileImage(token, mockFile);
+
+        // Assert
+        InOrder inOrder = inOrder(userImageRepository);
+        inOrder.verify(userImageRepository).save(existingImage);
+        inOrder.verify(userImageRepository).existsByContentHash(OLD_HASH);
+        verify(blobStore, never()).delete(OLD_HASH);
+        verify(profileImageVariantService, never()).deleteVariants(OLD_HASH);
+    }
+
+    @Test
+    public void testSaveUserProfileImage_KeepsContentSharedWithVariant() throws IOException {
+        // Arrange
+        String token = "test-token";
+        String email = "test@example.com";
+        User user = new User();
+        UserImage existingImage = new UserImage();
+        existingImage.setContentHash(OLD_HASH);
+        existingImage.setUser(user);
+        user.setUserImage(existingImage);
+
+        Path upload = Paths.get("upload.part");
+
+        when(jwtUtils.extractEmail(token)).thenReturn(email);
+        when(userRepository.findByEmail(email)).thenReturn(user);
+        when(userImageRepository.findByUser(user)).thenReturn(Optional.of(existingImage));
+        when(userImageRepository.existsByContentHash(OLD_HASH)).thenReturn(false);
+        // El mismo contenido es una variante de otra imagen
+        when(imageVariantRepository.existsByContentHash(OLD_HASH)).thenReturn(true);
+        when(blobStore.createUploadFile()).thenReturn(upload);
+        when(blobStore.commit(upload)).thenReturn(NEW_HASH);
+        when(mockFile.getContentType()).thenReturn("image/jpeg");
+
+        // Act
+        userService.saveUserProfileImage(token, mockFile);
+
+        // Assert
+        verify(profileImageVariantService).deleteVariants(OLD_HASH);
+        verify(blobStore, never()).delete(OLD_HASH);
     }
 
     @Test
-    public void testGetUserProfileImageAsBase64() {
+    public void testSaveUserProfileImage_RejectsNonImageType() throws IOException {
+        // Arrange
+        String token = "test-token";
+        String email = "test@example.com";
+        User user = new User();
+
+        when(jwtUtils.extractEmail(token)).thenReturn(email);
+        when(userRepository.findByEmail(email)).thenReturn(user);
+        when(userImageRepository.findByUser(user)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        for (String contentType : new String[]{"text/html", "image/svg+xml", "not a type", null}) {
+            when(mockFile.getContentType()).thenReturn(contentType);
+            assertThrows(UnsupportedImageTypeException.class,
+                    () -> userService.saveUserProfileImage(token, mockFile));
+        }
+        verify(blobStore, never()).createUploadFile();
+        verify(userImageRepository, never()).save(any(UserImage.class));
+    }
+
+    @Test
+    public void testGetUserProfileImage() {
         // Arrange
         String token = "test-token";
         String email = "test@example.com";
         User user = new User();
         UserImage userImage = new UserImage();
-        byte[] imageData = "test image data".getBytes();
-        userImage.setImageData(imageData);
+        userImage.setContentHash(NEW_HASH);
+        userImage.setSize(15);
         userImage.setImageType("image/jpeg");
         userImage.setFilename("profile.jpg");
 
@@ -206,16 +338,35 @@ public class UserTests {
         when(userImageRepository.findByUser(user)).thenReturn(Optional.of(userImage));
 
         // Act
-        Map<String, String> result = userService.getUserProfileImageAsBase64(token);
+        ProfileImageDTO result = userService.getUserProfileImage(token);
+
+        // Assert
+        assertEquals("image/jpeg", result.getImageType());
+        assertEquals(NEW_HASH, result.getContentHash());
+        assertEquals("/user/profile-image/" + NEW_HASH, result.getUrl());
+        assertEquals("profile.jpg", result.getFilename());
+        verifyNoInteractions(blobStore);
+    }
+
+    @Test
+    public void testWriteProfileImage() throws IOException {
+        // Arrange
+        byte[] imageData = "test image data".getBytes();
+        when(blobStore.transferTo(eq(NEW_HASH), any(WritableByteChannel.class))).thenAnswer(invocation -> {
+            WritableByteChannel channel = invocation.getArgument(1);
+            return (long) channel.write(ByteBuffer.wrap(imageData));
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        userService.writeProfileImage(NEW_HASH, Channels.newChannel(out));
 
         // Assert
-        assertEquals("image/jpeg", result.get("imageType"));
-        assertEquals(Base64.getEncoder().encodeToString(imageData), result.get("imageData"));
-        assertEquals("profile.jpg", result.get("filename"));
+        assertArrayEquals(imageData, out.toByteArray());
     }
 
     @Test
-    public void testGetUserProfileImageAsBase64_NotFound() {
+    public void testGetUserProfileImage_NotFound() {
         // Arrange
         String token = "test-token";
         String email = "test@example.com";
@@ -226,6 +377,6 @@ public class UserTests {
         when(userImageRepository.findByUser(user)).thenReturn(Optional.empty());
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> userService.getUserProfileImageAsBase64(token));
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserProfileImage(token));
     }
 }
\ No newline at end of file
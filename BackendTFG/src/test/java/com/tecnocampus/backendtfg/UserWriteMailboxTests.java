@@ -0,0 +1,239 @@
+package com.tecnocampus.backendtfg;
+
+import com.tecnocampus.backendtfg.application.UserWriteMailbox;
+import com.tecnocampus.backendtfg.application.UserWriteTimeoutException;
+import com.tecnocampus.backendtfg.component.JwtUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserWriteMailboxTests {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private PlatformTransactionManager transactionManager;
+
+    private JwtUtils jwtUtils;
+
+    private UserWriteMailbox mailbox;
+
+    private ExecutorService callers;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        // El token de los tests es directamente el email
+        jwtUtils = Mockito.mock(JwtUtils.class);
+        Mockito.when(jwtUtils.extractEmail(Mockito.anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        mailbox = new UserWriteMailbox(executor, transactionManager, jwtUtils, 50, 10_000);
+        callers = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        callers.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testWritesOfOneUserAreAppliedOneAtATimeAndInOrder() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        // Sin sincronizar a propósito: solo se escribe desde el buzón del usuario
+        List<String> applied = new ArrayList<>();
+
+        List<Future<?>> submitted = new ArrayList<>();
+        for (int caller = 0; caller < 8; caller++) {
+            String name = "caller-" + caller;
+            submitted.add(callers.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    int sequence = i;
+                    mailbox.submit("same@test.com", () -> {
+                        if (running.incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+                        applied.add(name + ":" + sequence);
+                        running.decrementAndGet();
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : submitted) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertFalse(overlapped.get());
+        assertEquals(400, applied.size());
+        Map<String, Integer> last = new HashMap<>();
+        for (String write : applied) {
+            String[] parts = write.split(":");
+            int sequence = Integer.parseInt(parts[1]);
+            assertEquals(last.getOrDefault(parts[0], -1) + 1, sequence);
+            last.put(parts[0], sequence);
+        }
+    }
+
+    @Test
+    public void testStepsOfTheSameDayKeepOnlyTheMaximum() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocker = block("steps@test.com", release);
+
+        Date today = new Date();
+        Date yesterday = new Date(today.getTime() - DAY);
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        List<Future<?>> submitted = new ArrayList<>();
+        for (int steps : new int[]{1200, 5400, 3100}) {
+            submitted.add(callers.submit(() -> mailbox.submitSteps("steps@test.com", today, steps, () -> applied.add(steps))));
+        }
+        submitted.add(callers.submit(() -> mailbox.submitSteps("steps@test.com", yesterday, 800, () -> applied.add(800))));
+        awaitQueued(5);
+
+        release.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+        for (Future<?> future : submitted) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        // Todos los envíos responden, pero de hoy solo se escribe el de más pasos
+        assertEquals(2, applied.size());
+        assertTrue(applied.containsAll(List.of(5400, 800)));
+    }
+
+    @Test
+    public void testFailingWriteDoesNotRollBackTheRestOfTheBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocker = block("batch@test.com", release);
+
+        Future<String> first = callers.submit(() -> mailbox.submit("batch@test.com", () -> "first"));
+        awaitQueued(2);
+        Future<String> failing = callers.submit(() -> mailbox.submit("batch@test.com", () -> {
+            throw new IllegalArgumentException("Sleep record not found");
+        }));
+        awaitQueued(3);
+        Future<String> last = callers.submit(() -> mailbox.submit("batch@test.com", () -> "last"));
+        awaitQueued(4);
+
+        release.countDown();
+        blocker.get(10, TimeUnit.SECONDS);
+
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        assertEquals("last", last.get(10, TimeUnit.SECONDS));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        // Llega la excepción del servicio tal cual, para que el controlador la siga traduciendo
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        // El lote de tres se deshace y luego cada una va en su propia transacción
+        Mockito.verify(transactionManager, Mockito.times(2)).rollback(Mockito.any());
+        Mockito.verify(transactionManager, Mockito.times(3)).commit(Mockito.any());
+    }
+
+    @Test
+    public void testConcurrentDuplicateIsRetriedOnceInItsOwnTransaction() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = mailbox.submit("retry@test.com", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Otra petición ha guardado el mismo registro a la vez
+                throw new DataIntegrityViolationException("uk_sleeps_profile_idempotency_key");
+            }
+            return "duplicate";
+        });
+
+        assertEquals("duplicate", result);
+        assertEquals(2, attempts.get());
+        Mockito.verify(transactionManager, Mockito.times(1)).rollback(Mockito.any());
+        Mockito.verify(transactionManager, Mockito.times(1)).commit(Mockito.any());
+    }
+
+    @Test
+    public void testCallerGetsTimeoutWhileTheWriteStaysQueued() throws Exception {
+        UserWriteMailbox impatient = new UserWriteMailbox(executor, transactionManager, jwtUtils, 50, 200);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Quien envía la escritura lenta también deja de esperar; la tarea sigue ocupando el buzón
+        callers.submit(() -> impatient.submit("slow@test.com", () -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(busy.await(10, TimeUnit.SECONDS));
+
+        CountDownLatch applied = new CountDownLatch(1);
+        assertThrows(UserWriteTimeoutException.class, () -> impatient.submit("slow@test.com", applied::countDown));
+
+        // La escritura no se pierde: se aplica en cuanto le llega el turno
+        release.countDown();
+        assertTrue(applied.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFullExecutorQueueDoesNotNestDrains() throws Exception {
+        ThreadPoolTaskExecutor tiny = new ThreadPoolTaskExecutor();
+        tiny.setCorePoolSize(1);
+        tiny.setMaxPoolSize(1);
+        tiny.setQueueCapacity(1);
+        tiny.initialize();
+        try {
+            UserWriteMailbox small = new UserWriteMailbox(tiny, transactionManager, jwtUtils, 1, 10_000);
+            AtomicInteger deepest = new AtomicInteger();
+            List<Future<?>> submitted = new ArrayList<>();
+            for (int user = 0; user < 4; user++) {
+                String email = "user" + user + "@test.com";
+                for (int i = 0; i < 20; i++) {
+                    submitted.add(callers.submit(() -> small.submit(email, () -> {
+                        // Un vaciado dentro de otro dejaría dos marcos de drain en la misma pila
+                        long drains = Arrays.stream(Thread.currentThread().getStackTrace())
+                                .filter(frame -> frame.getMethodName().equals("drain"))
+                                .count();
+                        deepest.accumulateAndGet((int) drains, Math::max);
+                    })));
+                }
+            }
+            for (Future<?> future : submitted) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(1, deepest.get());
+        } finally {
+            tiny.shutdown();
+        }
+    }
+
+    // Ocupa el buzón del usuario hasta que se suelte el latch, para que lo siguiente vaya en un lote
+    private Future<?> block(String email, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> blocker = callers.submit(() -> mailbox.submit(email, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return blocker;
+    }
+
+    // Encolar es inmediato tras leer el token; el margen cubre ese último paso
+    private void awaitQueued(int writes) throws InterruptedException {
+        Mockito.verify(jwtUtils, Mockito.timeout(10_000).times(writes)).extractEmail(Mockito.anyString());
+        Thread.sleep(200);
+    }
+}
@@ -45,10 +45,13 @@ export class ProfileImageCache {
       const cacheData = await AsyncStorage.getItem(CACHE_KEY);
       if (!cacheData) return null;
       
-      const { filePath, timestamp } = JSON.parse(cacheData);
+      const { filePath, timestamp, contentHash } = JSON.parse(cacheData);
       
       if (Date.now() - timestamp > CACHE_EXPIRY) {
-        await this.clearCache();
+        // Con hash de contenido el fichero se conserva para revalidarlo contra el servidor
+        if (!contentHash) {
+          await this.clearCache();
+        }
         return null;
       }
       
@@ -67,10 +70,37 @@ export class ProfileImageCache {
     }
   }
   
+  /**
+   * Obtiene la imagen de la caché si corresponde al hash de contenido indicado.
+   * Las URLs versionadas por hash son inmutables, así que no hace falta volver a descargarla.
+   */
+  static async getImageForHash(contentHash) {
+    try {
+      const cacheData = await AsyncStorage.getItem(CACHE_KEY);
+      if (!cacheData || !contentHash) return null;
+
+      const cached = JSON.parse(cacheData);
+      if (cached.contentHash !== contentHash) return null;
+
+      const exists = await RNFS.exists(cached.filePath);
+      if (!exists) return null;
+
+      await AsyncStorage.setItem(CACHE_KEY, JSON.stringify({ ...cached, timestamp: Date.now() }));
+      return Platform.OS === 'ios'
+        ? cached.filePath
+        : `file://${cached.filePath}`;
+    } catch (error) {
+      console.error('Error retrieving image by hash from cache:', error);
+      return null;
+    }
+  }
+
   /**
    * Guarda una imagen en la caché
+   * @param {string|object} imageUri - URI, URL o datos base64 de la imagen
+   * @param {object} options - headers para la descarga y contentHash de la versión guardada
    */
-  static async saveImageToCache(imageUri) {
+  static async saveImageToCache(imageUri, options = {}) {
     try {
       await ensureCacheDirectory();
       
@@ -81,6 +111,7 @@ export class ProfileImageCache {
         await RNFS.downloadFile({
           fromUrl: imageUri,
           toFile: filePath,
+          headers: options.headers || {},
         }).promise;
       } 
       else if (typeof imageUri === 'string' && (imageUri.startsWith('file://') || imageUri.startsWith('/'))) {
@@ -106,6 +137,7 @@ export class ProfileImageCache {
       const cacheData = {
         filePath,
         timestamp: Date.now(),
+        contentHash: options.contentHash || null,
       };
       
       await AsyncStorage.setItem(CACHE_KEY, JSON.stringify(cacheData));
@@ -107,9 +107,8 @@ const UserProfileScreen = ({ navigation }) => {
       if (token) {
         const imageUrl = await getProfileImage(token);
         if (imageUrl) {
+          // getProfileImage ya deja la versión actual en caché, indexada por su hash
           setProfileImage(imageUrl);
-          // Actualizar la caché con la imagen más reciente
-          await ProfileImageCache.saveImageToCache(imageUrl);
         }
       }
     } catch (error) {
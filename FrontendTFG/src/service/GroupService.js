@@ -0,0 +1,75 @@
+import axios from 'axios';
+const API_URL = "http://10.0.2.2:8080";
+
+const authHeaders = (token) => ({
+  headers: {
+    'Authorization': `Bearer ${token}`
+  }
+});
+
+const GroupService = {
+  // Grupos del usuario con su número de miembros y el código para invitar a otros
+  getUserGroups: async (token) => {
+    try {
+      const response = await axios.get(`${API_URL}/groups`, authHeaders(token));
+      return response.data;
+    } catch (error) {
+      console.error('Error al obtener los grupos:', error);
+      throw error;
+    }
+  },
+
+  createGroup: async (token, name) => {
+    try {
+      const response = await axios.post(`${API_URL}/groups`, { name }, authHeaders(token));
+      return response.data;
+    } catch (error) {
+      console.error('Error al crear el grupo:', error);
+      throw error;
+    }
+  },
+
+  // inviteCode: el código que comparte un miembro del grupo
+  joinGroup: async (token, groupId, inviteCode) => {
+    try {
+      await axios.post(`${API_URL}/groups/${groupId}/join`, { inviteCode }, authHeaders(token));
+    } catch (error) {
+      console.error('Error al unirse al grupo:', error);
+      throw error;
+    }
+  },
+
+  leaveGroup: async (token, groupId) => {
+    try {
+      await axios.delete(`${API_URL}/groups/${groupId}/members`, authHeaders(token));
+    } catch (error) {
+      console.error('Error al salir del grupo:', error);
+      throw error;
+    }
+  },
+
+  // Retos compartidos del grupo; el progreso puede ir unos segundos por detrás
+  getGroupChallenges: async (token, groupId) => {
+    try {
+      const response = await axios.get(`${API_URL}/groups/${groupId}/challenges`, authHeaders(token));
+      return response.data;
+    } catch (error) {
+      console.error('Error al obtener los retos del grupo:', error);
+      throw error;
+    }
+  },
+
+  // challenge: { description, type: 'STEPS' | 'HYDRATION' | 'ACTIVITY_DURATION', targetValue, endDate }
+  // La experiencia la calcula el servidor a partir del tipo, el objetivo y los miembros
+  createGroupChallenge: async (token, groupId, challenge) => {
+    try {
+      const response = await axios.post(`${API_URL}/groups/${groupId}/challenges`, challenge, authHeaders(token));
+      return response.data;
+    } catch (error) {
+      console.error('Error al crear el reto del grupo:', error);
+      throw error;
+    }
+  }
+};
+
+export default GroupService;
@@ -5,12 +5,13 @@ import {
 } from 'react-native-health-connect';
 import { ActivityCache } from '../cache/ActivityCache';
 import { SleepCache } from '../cache/SleepCache';
-import { createActivity } from './ActivityService';
-import { getBackendActivityType, getExerciseTypeName } from '../utils/ExerciseTypeMapper';
+import { getSyncState, syncHealthConnectBatch } from './SyncService';
+import { getExerciseTypeConstant, getExerciseTypeName } from '../utils/ExerciseTypeMapper';
 import { activityStorage, STORAGE_KEYS } from '../storage/AppStorage';
 import { BehaviorSubject } from 'rxjs';
-import { saveSleepData } from './SleepService';
-import { saveDailySteps } from './StepService';
+import { buildSleepDTO, saveSleepData } from './SleepService';
+import { saveDailySteps, saveStepIntervals } from './StepService';
+import { uploadHeartRateSamples } from './HeartRateService';
 
 // Control de sincronización
 let syncInProgress = false;
@@ -279,24 +280,30 @@ class HealthConnectService {
     try {
       console.log('Iniciando sincronización con Health Connect...');
       
-      // Definir periodo (últimos 60 días)
+      // Definir periodo (últimos 60 días como máximo)
       const now = new Date();
       const sixtyDaysAgo = new Date();
       sixtyDaysAgo.setDate(now.getDate() - 60);
       
-      const timeFilter = {
-        timeRangeFilter: {
-          operator: 'between',
-          startTime: sixtyDaysAgo.toISOString(),
-          endTime: now.toISOString(),
-        }
-      };
+      // Leer solo desde la marca del servidor para cada tipo
+      let syncState = [];
+      try {
+        syncState = await getSyncState(this.token);
+      } catch (error) {
+        console.warn('No se pudo obtener el estado de sincronización, se usará la ventana completa:', error.message);
+      }
       
       // Sincronizar datos de ejercicio
-      await this.syncExerciseSessions(timeFilter);
+      await this.syncExerciseSessions(this.buildSyncTimeFilter(syncState, 'EXERCISE', sixtyDaysAgo, now));
       
       // Sincronizar datos de sueño
-      await this.syncSleepSessions(timeFilter,true);
+      await this.syncSleepSessions(this.buildSyncTimeFilter(syncState, 'SLEEP', sixtyDaysAgo, now), true);
+      
+      // Sincronizar muestras de frecuencia cardíaca (como mucho la última semana: son muchas)
+      const sevenDaysAgo = new Date();
+      sevenDaysAgo.setDate(now.getDate() - 7);
+      await this.syncHeartRateSamples(this.buildSyncTimeFilter(syncState, 'HEART_RATE', sevenDaysAgo, now));
+      await this.syncStepIntervals(this.buildSyncTimeFilter(syncState, 'STEPS', sevenDaysAgo, now));
       
       // Actualizar tiempo de última sincronización
       lastSyncTime = Date.now();
@@ -313,6 +320,74 @@ class HealthConnectService {
     }
   }
   
+  /**
+   * Filtro de lectura a partir de la marca de sincronización del servidor para un tipo de dato.
+   * Se relee una hora antes de la marca por si Health Connect escribe registros con retraso;
+   * los reenvíos no tienen efecto en el servidor gracias al id de cada registro.
+   */
+  buildSyncTimeFilter(syncState, dataType, defaultStart, now) {
+    const watermark = (syncState || []).find(state => state.dataType === dataType);
+    let startTime = defaultStart;
+    if (watermark?.lastEndTime) {
+      const overlapStart = new Date(new Date(watermark.lastEndTime).getTime() - 60 * 60 * 1000);
+      if (overlapStart > startTime) {
+        startTime = overlapStart;
+      }
+    }
+    
+    return {
+      timeRangeFilter: {
+        operator: 'between',
+        startTime: startTime.toISOString(),
+        endTime: now.toISOString(),
+      }
+    };
+  }
+  
+  // Envía al servidor las muestras de frecuencia cardíaca del rango
+  async syncHeartRateSamples(timeFilter) {
+    try {
+      const response = await readRecords('HeartRate', timeFilter);
+      const records = response?.records || [];
+      const samples = [];
+      records.forEach(record => {
+        (record.samples || []).forEach(sample => {
+          samples.push({ time: sample.time, beatsPerMinute: sample.beatsPerMinute });
+        });
+      });
+      
+      if (samples.length === 0) {
+        return;
+      }
+      
+      const totals = await uploadHeartRateSamples(this.token, samples);
+      console.log(`Frecuencia cardíaca sincronizada: ${totals.accepted} muestras, ${totals.rejected} descartadas`);
+    } catch (error) {
+      console.error('Error al sincronizar frecuencia cardíaca:', error);
+    }
+  }
+  
+  // Envía los registros de pasos tal cual para las gráficas por horas; el servidor actualiza el total diario
+  async syncStepIntervals(timeFilter) {
+    try {
+      const response = await readRecords('Steps', timeFilter);
+      const intervals = (response?.records || []).map(record => ({
+        startTime: record.startTime,
+        endTime: record.endTime,
+        count: record.count
+      }));
+      
+      if (intervals.length === 0) {
+        return;
+      }
+      
+      const result = await saveStepIntervals(this.token, intervals);
+      console.log(`Pasos por minuto sincronizados: ${result.accepted} registros en ${result.days} días`);
+    } catch (error) {
+      console.error('Error al sincronizar pasos por minuto:', error);
+    }
+  }
+  
   // Método para sincronizar sesiones de ejercicio
   async syncExerciseSessions(timeFilter) {
     try {
@@ -353,85 +428,46 @@ class HealthConnectService {
       
       console.log(`Se encontraron ${newExercises.length} nuevas actividades para guardar`);
       
-      // Guardar nuevas actividades
+      // Enviar todas las actividades nuevas en un único lote; el servidor traduce el tipo
+      const batchIds = [];
+      const sessionsToSync = newExercises.map(exercise => {
+        batchIds.push(exercise.metadata.id);
+
+        const readableName = exercise.exerciseType ?
+          getExerciseTypeName(exercise.exerciseType) :
+          'Ejercicio';
+
+        const description = exercise.notes && exercise.notes.trim() !== ''
+          ? exercise.notes
+          : `Sesión de ${readableName.toLowerCase()} registrada con Health Connect`;
+
+        return {
+          externalId: exercise.metadata.id,
+          exerciseType: getExerciseTypeConstant(exercise.exerciseType),
+          startTime: exercise.startTime,
+          endTime: exercise.endTime,
+          description: description
+        };
+      });
+
       let newActivitiesCreated = 0;
-      
-      for (const exercise of newExercises) {
-        try {
-          const exerciseId = exercise.metadata ? exercise.metadata.id : null;
-          if (!exerciseId) continue;
-          
-          // Verificación final antes de guardar
-          if (this.savedExerciseIds.includes(exerciseId)) continue;
-          
-          // Mapear tipo
-          const backendType = exercise.exerciseType ? 
-            getBackendActivityType(exercise.exerciseType) : 
-            'OTHER';
-          
-          // Calcular duración en minutos
-          let durationMinutes = null;
-          if (exercise.duration && !isNaN(exercise.duration)) {
-            durationMinutes = Math.round(exercise.duration / 60000000);
-          } else if (exercise.startTime && exercise.endTime) {
-            const start = new Date(exercise.startTime);
-            const end = new Date(exercise.endTime);
-            durationMinutes = Math.round((end - start) / 60000);
+      try {
+        const result = await syncHealthConnectBatch(this.token, { exerciseSessions: sessionsToSync });
+
+        for (const recordResult of result.exerciseSessions || []) {
+          const exerciseId = batchIds[recordResult.index];
+          if (recordResult.status === 'SAVED') {
+            newActivitiesCreated++;
+          } else if (recordResult.status !== 'DUPLICATE') {
+            // Los inválidos no se marcan: se reintentarán en la próxima sincronización
+            console.warn(`Actividad ${exerciseId} rechazada: ${recordResult.message}`);
+            continue;
           }
-          
-          const validDuration = durationMinutes && durationMinutes > 0 ? durationMinutes : 30;
-          
-          // Descripción
-          const readableName = exercise.exerciseType ? 
-            getExerciseTypeName(exercise.exerciseType) : 
-            'Ejercicio';
-            
-          const description = exercise.notes && exercise.notes.trim() !== '' 
-            ? exercise.notes 
-            : `Sesión de ${readableName.toLowerCase()} registrada con Health Connect`;
-          
-          // Crear objeto para enviar al backend
-          const activityToSave = {
-            type: backendType,
-            duration: validDuration,
-            date: exercise.startTime,
-            description: description,
-            origin: 'HEALTH_CONNECT',
-            externalId: exerciseId
-          };
-          
-          console.log(`Intentando guardar actividad: ${exerciseId} (tipo: ${backendType})`);
-          
-          const result = await createActivity(this.token, activityToSave);
-          
-          // Guardar ID en la lista de IDs guardados
           this.savedExerciseIds.push(exerciseId);
           await ActivityCache.saveExerciseId(exerciseId);
-          
-          newActivitiesCreated++;
-          console.log(`Actividad guardada correctamente: ${exerciseId}`);
-        } catch (error) {
-          // Si el error es por duplicado, marcar el ID como guardado
-          if (error.response?.status === 400) {
-            const errorData = error.response?.data || {};
-            const errorString = JSON.stringify(errorData);
-            
-            if (errorString.includes('duplicated') || 
-                errorString.includes('ya existe') || 
-                errorString.includes('already exists')) {
-              
-              console.log(`Actividad ${exercise.metadata?.id} ya existe en el backend, marcando como guardada`);
-              
-              // Marcar el ID como guardado
-              this.savedExerciseIds.push(exercise.metadata?.id);
-              await ActivityCache.saveExerciseId(exercise.metadata?.id);
-            } else {
-              console.error(`Error al guardar actividad: ${error.message}`, error.response?.data);
-            }
-          } else {
-            console.error(`Error al guardar actividad: ${error.message}`);
-          }
         }
+      } catch (error) {
+        console.error(`Error al sincronizar el lote de actividades: ${error.message}`, error.response?.data);
       }
       
       // Notificar a los listeners si se crearon nuevas actividades
@@ -470,78 +506,53 @@ async syncSleepSessions(timeFilter, forceRefresh = false) {
     // Leer datos de sueño de Health Connect
     const sleepResponse = await readRecords('SleepSession', timeFilter);
     
-    if (sleepResponse?.records?.length > 0) {
-      console.log(`Recuperadas ${sleepResponse.records.length} sesiones de sueño`);
-      
-      // Contador para nuevas sesiones
-      let newSessions = 0;
+    if (!sleepResponse?.records?.length) {
+      console.log('No hay sesiones de sueño para procesar');
+      return true;
+    }
+    
+    console.log(`Recuperadas ${sleepResponse.records.length} sesiones de sueño`);
+    
+    const pendingRecords = sleepResponse.records.filter(sleepRecord => {
+      const sleepId = sleepRecord.metadata?.id;
+      return sleepId && !savedSleepIds.includes(sleepId);
+    });
+    
+    if (pendingRecords.length === 0 || !this.token) {
+      return true;
+    }
+    
+    // Enviar todas las sesiones en un único lote
+    const processedSleeps = pendingRecords.map(sleepRecord => this.processSleepRecord(sleepRecord));
+    const result = await syncHealthConnectBatch(this.token, {
+      sleepSessions: processedSleeps.map(buildSleepDTO)
+    });
+    
+    let newSessions = 0;
+    for (const recordResult of result.sleepSessions || []) {
+      const sleepRecord = pendingRecords[recordResult.index];
+      const sleepId = sleepRecord.metadata.id;
       
-      // Procesar cada registro de sueño
-      for (const sleepRecord of sleepResponse.records) {
-        // Verificar si ya hemos procesado este registro
-        const sleepId = sleepRecord.metadata?.id;
-        if (!sleepId) {
-          console.log('Registro de sueño sin ID, omitiendo');
-          continue;
-        }
-        
-        if (savedSleepIds.includes(sleepId)) {
-          console.log(`Registro de sueño ${sleepId} ya procesado, omitiendo`);
-          continue; // Ya procesado, omitir
-        }
-        
-        console.log(`Procesando nuevo registro de sueño: ${sleepId}`);
-        
-        // Procesar y guardar la sesión de sueño
-        const sleepData = this.processSleepRecord(sleepRecord);
-        
-        // Guardar en el backend
-        if (this.token) {
-          try {
-            const response = await saveSleepData(this.token, sleepData);
-            console.log(`Sesión de sueño guardada en backend: ${sleepId}`, response);
-            
-            // Solo guardar el ID como procesado si se guardó correctamente
-            SleepCache.saveSleepId(sleepId);
-            
-            // También guardar en caché local
-            const sleepDate = new Date(sleepRecord.startTime).toISOString().split('T')[0];
-            SleepCache.saveSleepData(sleepData, sleepDate);
-            
-            newSessions++;
-          } catch (error) {
-            // Verificar si el error es por duplicado
-            if (error.response?.status === 400) {
-              const errorData = error.response?.data || {};
-              const errorString = JSON.stringify(errorData);
-              
-              if (errorString.includes('duplicated') || 
-                  errorString.includes('ya existe') || 
-                  errorString.includes('already exists')) {
-                
-                console.log(`Sesión de sueño ${sleepId} ya existe en el backend, marcando como guardada`);
-                
-                // Marcar el ID como guardado solo si ya existe en el backend
-                SleepCache.saveSleepId(sleepId);
-              } else {
-                console.error(`Error al guardar sesión de sueño: ${error.message}`, error.response?.data);
-              }
-            } else {
-              console.error('Error al guardar datos de sueño:', error);
-              // NO guardamos el ID como procesado si hubo un error
-            }
-          }
-        }
+      if (recordResult.status === 'INVALID') {
+        // NO guardamos el ID como procesado: se reintentará en la próxima sincronización
+        console.warn(`Sesión de sueño ${sleepId} rechazada: ${recordResult.message}`);
+        continue;
       }
       
-      console.log(`Se guardaron ${newSessions} nuevas sesiones de sueño`);
+      SleepCache.saveSleepId(sleepId);
       
-      // Si se guardaron nuevas sesiones, invalidar la caché
-      if (newSessions > 0) {
-        SleepCache.invalidateCache();
+      if (recordResult.status === 'SAVED') {
+        const sleepDate = new Date(sleepRecord.startTime).toISOString().split('T')[0];
+        SleepCache.saveSleepData(processedSleeps[recordResult.index], sleepDate);
+        newSessions++;
       }
-    } else {
-      console.log('No hay sesiones de sueño para procesar');
+    }
+    
+    console.log(`Se guardaron ${newSessions} nuevas sesiones de sueño`);
+    
+    // Si se guardaron nuevas sesiones, invalidar la caché
+    if (newSessions > 0) {
+      SleepCache.invalidateCache();
     }
     
     return true;
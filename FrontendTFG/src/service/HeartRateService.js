@@ -0,0 +1,58 @@
+import axios from 'axios';
+
+const API_URL = "http://10.0.2.2:8080";
+
+// Muestras por petición: un día de un reloj puede tener decenas de miles
+const SAMPLES_PER_REQUEST = 20000;
+
+/**
+ * Envía muestras de frecuencia cardíaca al servidor en lotes
+ * @param {string} token - Token de autenticación
+ * @param {Array} samples - [{ time, beatsPerMinute }]
+ * @returns {Promise<object>} - Totales { accepted, rejected }
+ */
+export const uploadHeartRateSamples = async (token, samples) => {
+  if (!token) {
+    throw new Error('Token inválido o ausente');
+  }
+
+  const totals = { accepted: 0, rejected: 0 };
+  for (let i = 0; i < samples.length; i += SAMPLES_PER_REQUEST) {
+    const response = await axios.post(
+      `${API_URL}/heartrate/samples`,
+      samples.slice(i, i + SAMPLES_PER_REQUEST),
+      {
+        headers: {
+          'Content-Type': 'application/json',
+          'Authorization': `Bearer ${token}`
+        }
+      }
+    );
+    totals.accepted += response.data.accepted;
+    totals.rejected += response.data.rejected;
+  }
+  return totals;
+};
+
+/**
+ * Obtiene la serie de frecuencia cardíaca reducida a la resolución pedida
+ * @param {string} token - Token de autenticación
+ * @param {Date} from - Inicio del rango
+ * @param {Date} to - Fin del rango
+ * @param {number} resolution - Segundos por intervalo
+ * @returns {Promise<Array>} - [{ start, min, avg, max, count }]
+ */
+export const getHeartRateSeries = async (token, from, to, resolution = 300) => {
+  if (!token) {
+    throw new Error('Token inválido o ausente');
+  }
+
+  const response = await axios.get(`${API_URL}/heartrate`, {
+    params: { from: from.toISOString(), to: to.toISOString(), resolution },
+    headers: {
+      'Content-Type': 'application/json',
+      'Authorization': `Bearer ${token}`
+    }
+  });
+  return response.data;
+};
@@ -0,0 +1,45 @@
+import axios from 'axios';
+const API_URL = "http://10.0.2.2:8080";
+
+const authHeaders = (token, params) => ({
+  headers: {
+    'Authorization': `Bearer ${token}`
+  },
+  params
+});
+
+// Todas devuelven { myRank, totalUsers, entries: [{ rank, name, currentLevel, totalExperience, me }] }
+const LeaderboardService = {
+  getTop: async (token, limit = 10) => {
+    try {
+      const response = await axios.get(`${API_URL}/leaderboard`, authHeaders(token, { limit }));
+      return response.data;
+    } catch (error) {
+      console.error('Error al obtener la clasificación:', error);
+      throw error;
+    }
+  },
+
+  // Los usuarios justo por delante y por detrás del actual
+  getAround: async (token, radius = 5) => {
+    try {
+      const response = await axios.get(`${API_URL}/leaderboard/around`, authHeaders(token, { radius }));
+      return response.data;
+    } catch (error) {
+      console.error('Error al obtener la clasificación cercana:', error);
+      throw error;
+    }
+  },
+
+  getGroupTop: async (token, groupId, limit = 10) => {
+    try {
+      const response = await axios.get(`${API_URL}/leaderboard/groups/${groupId}`, authHeaders(token, { limit }));
+      return response.data;
+    } catch (error) {
+      console.error('Error al obtener la clasificación del grupo:', error);
+      throw error;
+    }
+  }
+};
+
+export default LeaderboardService;
@@ -48,6 +48,155 @@ const mapStageTextToEnum = (stageText, originalType) => {
   return 'UNKNOWN';
 };
 
+/**
+ * Construye el SleepDTO del backend a partir de una sesión de sueño procesada
+ * @param {object} sleepData - Sesión de sueño (formato de HealthConnectService.processSleepRecord)
+ * @returns {object} - SleepDTO
+ */
+export const buildSleepDTO = (sleepData) => {
+  // Calcular valor de sueño REM - típicamente 20-25% del tiempo total de sueño para adultos sanos
+  let remSleepValue = 0;
+  
+  if (sleepData.stagesSummary && sleepData.stagesSummary.remSleep && sleepData.stagesSummary.remSleep > 0) {
+    // Si tenemos datos reales de REM, usarlos (convertir de horas a minutos para almacenamiento entero)
+    remSleepValue = Math.round(sleepData.stagesSummary.remSleep * 60);
+  } else if (sleepData.durationHours > 0) {
+    // Si no hay datos de REM pero tenemos duración del sueño, estimar REM como ~20% del sueño total
+    remSleepValue = Math.round(sleepData.durationHours * 0.2 * 60);
+  }
+  
+  // Asegurarse de que tenemos una calidad de sueño válida
+  const quality = sleepData.quality || 5; // Valor predeterminado si no hay calidad
+  
+  // Preparar las etapas de sueño si existen
+  let sleepStagesDTO = null;
+  
+  if (sleepData.sleepStages && Array.isArray(sleepData.sleepStages) && sleepData.sleepStages.length > 0) {
+    // Si tenemos etapas de sueño en el objeto sleepData, usarlas
+    sleepStagesDTO = sleepData.sleepStages.map(stage => ({
+      startTime: new Date(stage.startTime),
+      endTime: new Date(stage.endTime),
+      stageType: stage.stageType
+    }));
+  } else if (sleepData.sleepStagesDTO && Array.isArray(sleepData.sleepStagesDTO) && sleepData.sleepStagesDTO.length > 0) {
+    // Si las etapas están en sleepStagesDTO, usarlas directamente
+    sleepStagesDTO = sleepData.sleepStagesDTO.map(stage => ({
+      startTime: new Date(stage.startTime),
+      endTime: new Date(stage.endTime),
+      stageType: stage.stageType
+    }));
+  } else if (sleepData.stages && Array.isArray(sleepData.stages) && sleepData.stages.length > 0) {
+    // Si tenemos etapas en el formato de Health Connect Toolbox
+    sleepStagesDTO = sleepData.stages.map(stage => {
+      // Verificar si stage es un número o un objeto
+      let stageType;
+      
+      if (typeof stage.stage === 'number') {
+        // Si stage es un número, usarlo directamente para mapear
+        stageType = mapStageTextToEnum(null, stage.stage);
+      } else if (stage.originalType !== undefined) {
+        // Si tenemos originalType, usarlo
+        stageType = mapStageTextToEnum(stage.stage, stage.originalType);
+      } else {
+        // Si no, intentar mapear desde el texto
+        stageType = mapStageTextToEnum(stage.stage, null);
+      }
+      
+      return {
+        startTime: new Date(stage.startTime),
+        endTime: new Date(stage.endTime),
+        stageType: stageType
+      };
+    });
+  } else if (sleepData.stagesSummary) {
+    // Si tenemos un resumen de etapas pero no las etapas individuales, crear etapas aproximadas
+    const startTime = new Date(sleepData.startTime);
+    const endTime = new Date(sleepData.endTime);
+    
+    sleepStagesDTO = [];
+    let currentTime = new Date(startTime);
+    
+    // Procesar todas las etapas disponibles en el objeto stages
+    if (sleepData.stages) {
+      for (const stage of sleepData.stages) {
+        const stageStartTime = new Date(stage.startTime || stage.start);
+        const stageEndTime = new Date(stage.endTime || stage.end);
+        const stageType = stage.stageType || stage.stage;
+        
+        sleepStagesDTO.push({
+          startTime: stageStartTime,
+          endTime: stageEndTime,
+          stageType: stageType
+        });
+      }
+    } else {
+      // Crear etapas basadas en el resumen si está disponible
+      if (sleepData.stagesSummary.awake > 0) {
+        const awakeEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.awake * 60 * 60 * 1000);
+        sleepStagesDTO.push({
+          startTime: new Date(currentTime),
+          endTime: awakeEndTime,
+          stageType: 'AWAKE_IN_BED'
+        });
+        currentTime = new Date(awakeEndTime);
+      }
+      
+      if (sleepData.stagesSummary.deepSleep > 0) {
+        const deepEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.deepSleep * 60 * 60 * 1000);
+        sleepStagesDTO.push({
+          startTime: new Date(currentTime),
+          endTime: deepEndTime,
+          stageType: 'DEEP'
+        });
+        currentTime = new Date(deepEndTime);
+      }
+      
+      if (sleepData.stagesSummary.lightSleep > 0) {
+        const lightEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.lightSleep * 60 * 60 * 1000);
+        sleepStagesDTO.push({
+          startTime: new Date(currentTime),
+          endTime: lightEndTime,
+          stageType: 'LIGHT'
+        });
+        currentTime = new Date(lightEndTime);
+      }
+      
+      if (sleepData.stagesSummary.remSleep > 0) {
+        const remEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.remSleep * 60 * 60 * 1000);
+        sleepStagesDTO.push({
+          startTime: new Date(currentTime),
+          endTime: remEndTime,
+          stageType: 'REM'
+        });
+        currentTime = new Date(remEndTime);
+      }
+      
+      // Añadir etapa OUT_OF_BED si hay tiempo restante hasta el final
+      if (currentTime < endTime) {
+        sleepStagesDTO.push({
+          startTime: new Date(currentTime),
+          endTime: new Date(endTime),
+          stageType: 'OUT_OF_BED'
+        });
+      }
+    }
+  }
+  
+  // Mapear los datos para que coincidan con la estructura DTO del backend
+  const sleepDTO = {
+    startTime: new Date(sleepData.startTime),
+    endTime: new Date(sleepData.endTime),
+    hours: sleepData.durationHours,
+    quality: quality,
+    remSleep: remSleepValue,
+    comment: sleepData.comment || null,
+    sleepStagesDTO: sleepStagesDTO,
+    externalId: sleepData.externalId || null
+  };
+
+  return sleepDTO;
+};
+
 export const saveSleepData = async (token, sleepData) => {
   try {
     if (!sleepData) {
@@ -65,144 +214,7 @@ export const saveSleepData = async (token, sleepData) => {
       token = storedToken;
     }
     
-    // Calcular valor de sueño REM - típicamente 20-25% del tiempo total de sueño para adultos sanos
-    let remSleepValue = 0;
-    
-    if (sleepData.stagesSummary && sleepData.stagesSummary.remSleep && sleepData.stagesSummary.remSleep > 0) {
-      // Si tenemos datos reales de REM, usarlos (convertir de horas a minutos para almacenamiento entero)
-      remSleepValue = Math.round(sleepData.stagesSummary.remSleep * 60);
-    } else if (sleepData.durationHours > 0) {
-      // Si no hay datos de REM pero tenemos duración del sueño, estimar REM como ~20% del sueño total
-      remSleepValue = Math.round(sleepData.durationHours * 0.2 * 60);
-    }
-    
-    // Asegurarse de que tenemos una calidad de sueño válida
-    const quality = sleepData.quality || 5; // Valor predeterminado si no hay calidad
-    
-    // Preparar las etapas de sueño si existen
-    let sleepStagesDTO = null;
-    
-    if (sleepData.sleepStages && Array.isArray(sleepData.sleepStages) && sleepData.sleepStages.length > 0) {
-      // Si tenemos etapas de sueño en el objeto sleepData, usarlas
-      sleepStagesDTO = sleepData.sleepStages.map(stage => ({
-        startTime: new Date(stage.startTime),
-        endTime: new Date(stage.endTime),
-        stageType: stage.stageType
-      }));
-    } else if (sleepData.sleepStagesDTO && Array.isArray(sleepData.sleepStagesDTO) && sleepData.sleepStagesDTO.length > 0) {
-      // Si las etapas están en sleepStagesDTO, usarlas directamente
-      sleepStagesDTO = sleepData.sleepStagesDTO.map(stage => ({
-        startTime: new Date(stage.startTime),
-        endTime: new Date(stage.endTime),
-        stageType: stage.stageType
-      }));
-    } else if (sleepData.stages && Array.isArray(sleepData.stages) && sleepData.stages.length > 0) {
-      // Si tenemos etapas en el formato de Health Connect Toolbox
-      sleepStagesDTO = sleepData.stages.map(stage => {
-        // Verificar si stage es un número o un objeto
-        let stageType;
-        
-        if (typeof stage.stage === 'number') {
-          // Si stage es un número, usarlo directamente para mapear
-          stageType = mapStageTextToEnum(null, stage.stage);
-        } else if (stage.originalType !== undefined) {
-          // Si tenemos originalType, usarlo
-          stageType = mapStageTextToEnum(stage.stage, stage.originalType);
-        } else {
-          // Si no, intentar mapear desde el texto
-          stageType = mapStageTextToEnum(stage.stage, null);
-        }
-        
-        return {
-          startTime: new Date(stage.startTime),
-          endTime: new Date(stage.endTime),
-          stageType: stageType
-        };
-      });
-    } else if (sleepData.stagesSummary) {
-      // Si tenemos un resumen de etapas pero no las etapas individuales, crear etapas aproximadas
-      const startTime = new Date(sleepData.startTime);
-      const endTime = new Date(sleepData.endTime);
-      
-      sleepStagesDTO = [];
-      let currentTime = new Date(startTime);
-      
-      // Procesar todas las etapas disponibles en el objeto stages
-      if (sleepData.stages) {
-        for (const stage of sleepData.stages) {
-          const stageStartTime = new Date(stage.startTime || stage.start);
-          const stageEndTime = new Date(stage.endTime || stage.end);
-          const stageType = stage.stageType || stage.stage;
-          
-          sleepStagesDTO.push({
-            startTime: stageStartTime,
-            endTime: stageEndTime,
-            stageType: stageType
-          });
-        }
-      } else {
-        // Crear etapas basadas en el resumen si está disponible
-        if (sleepData.stagesSummary.awake > 0) {
-          const awakeEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.awake * 60 * 60 * 1000);
-          sleepStagesDTO.push({
-            startTime: new Date(currentTime),
-            endTime: awakeEndTime,
-            stageType: 'AWAKE_IN_BED'
-          });
-          currentTime = new Date(awakeEndTime);
-        }
-        
-        if (sleepData.stagesSummary.deepSleep > 0) {
-          const deepEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.deepSleep * 60 * 60 * 1000);
-          sleepStagesDTO.push({
-            startTime: new Date(currentTime),
-            endTime: deepEndTime,
-            stageType: 'DEEP'
-          });
-          currentTime = new Date(deepEndTime);
-        }
-        
-        if (sleepData.stagesSummary.lightSleep > 0) {
-          const lightEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.lightSleep * 60 * 60 * 1000);
-          sleepStagesDTO.push({
-            startTime: new Date(currentTime),
-            endTime: lightEndTime,
-            stageType: 'LIGHT'
-          });
-          currentTime = new Date(lightEndTime);
-        }
-        
-        if (sleepData.stagesSummary.remSleep > 0) {
-          const remEndTime = new Date(currentTime.getTime() + sleepData.stagesSummary.remSleep * 60 * 60 * 1000);
-          sleepStagesDTO.push({
-            startTime: new Date(currentTime),
-            endTime: remEndTime,
-            stageType: 'REM'
-          });
-          currentTime = new Date(remEndTime);
-        }
-        
-        // Añadir etapa OUT_OF_BED si hay tiempo restante hasta el final
-        if (currentTime < endTime) {
-          sleepStagesDTO.push({
-            startTime: new Date(currentTime),
-            endTime: new Date(endTime),
-            stageType: 'OUT_OF_BED'
-          });
-        }
-      }
-    }
-    
-    // Mapear los datos para que coincidan con la estructura DTO del backend
-    const sleepDTO = {
-      startTime: new Date(sleepData.startTime),
-      endTime: new Date(sleepData.endTime),
-      hours: sleepData.durationHours,
-      quality: quality,
-      remSleep: remSleepValue,
-      comment: sleepData.comment || null,
-      sleepStagesDTO: sleepStagesDTO
-    };
+    const sleepDTO = buildSleepDTO(sleepData);
 
     console.log('Enviando datos de sueño al backend:', sleepDTO);
 
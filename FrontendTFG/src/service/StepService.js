@@ -123,7 +123,83 @@ export const getDailySteps = async (token, date = null) => {
   }
 };
 
+/**
+ * Sends Health Connect step records so the backend can build the minute-level series
+ * @param {string} token - Authentication token
+ * @param {Array} intervals - [{ startTime, endTime, count }]
+ * @returns {Promise} - { accepted, rejected, days }
+ */
+export const saveStepIntervals = async (token, intervals) => {
+  try {
+    if (!token) {
+      throw new Error('Token inválido o ausente');
+    }
+
+    const response = await axios.post(
+      `${API_URL}/activity/steps/intraday`,
+      intervals,
+      {
+        headers: {
+          'Content-Type': 'application/json',
+          'Authorization': `Bearer ${token}`
+        }
+      }
+    );
+
+    // El total diario también puede haber cambiado
+    ActivityCache.invalidateCache();
+
+    return response.data;
+  } catch (error) {
+    const isAuthError = await handleAuthError(error);
+    if (isAuthError) {
+      throw new Error('Tu sesión ha expirado. Por favor, inicia sesión nuevamente.');
+    }
+
+    console.error('Error al guardar pasos por minuto:', error);
+    throw error;
+  }
+};
+
+/**
+ * Gets the steps of a day grouped in intervals, for intraday charts
+ * @param {string} token - Authentication token
+ * @param {string|Date} date - Day to chart
+ * @param {number} resolution - Minutes per interval
+ * @returns {Promise} - [{ start, steps }]
+ */
+export const getIntradaySteps = async (token, date, resolution = 15) => {
+  try {
+    if (!token) {
+      throw new Error('Token inválido o ausente');
+    }
+
+    const formattedDate = new Date(date).toISOString().split('T')[0];
+    const response = await axios.get(
+      `${API_URL}/activity/steps/intraday?date=${formattedDate}&resolution=${resolution}`,
+      {
+        headers: {
+          'Content-Type': 'application/json',
+          'Authorization': `Bearer ${token}`
+        }
+      }
+    );
+
+    return response.data;
+  } catch (error) {
+    const isAuthError = await handleAuthError(error);
+    if (isAuthError) {
+      throw new Error('Tu sesión ha expirado. Por favor, inicia sesión nuevamente.');
+    }
+
+    console.error('Error al obtener pasos por minuto:', error);
+    throw error;
+  }
+};
+
 export default {
   saveDailySteps,
-  getDailySteps
+  getDailySteps,
+  saveStepIntervals,
+  getIntradaySteps
 };
\ No newline at end of file
@@ -0,0 +1,76 @@
+import axios from 'axios';
+import { ActivityCache } from '../cache/ActivityCache';
+
+const API_URL = "http://10.0.2.2:8080";
+
+/**
+ * Obtiene las marcas de sincronización del usuario (una por tipo de dato)
+ * @param {string} token - Token de autenticación
+ * @returns {Promise<Array>} - [{ dataType, lastEndTime, changeToken, updatedAt }]
+ */
+export const getSyncState = async (token) => {
+  if (!token) {
+    throw new Error('Token inválido o ausente');
+  }
+
+  const response = await axios.get(`${API_URL}/sync/state`, {
+    headers: {
+      'Content-Type': 'application/json',
+      'Authorization': `Bearer ${token}`
+    }
+  });
+  return response.data;
+};
+
+/**
+ * Obtiene los cambios (altas, modificaciones y borrados) posteriores al cursor indicado
+ * @param {string} token - Token de autenticación
+ * @param {number} since - Último cursor recibido (0 la primera vez)
+ * @param {number} limit - Tamaño de página opcional
+ * @returns {Promise<object>} - { changes, cursor, hasMore, resyncRequired }; con resyncRequired
+ *   el cursor se ha purgado: recargar todo y seguir desde el cursor devuelto
+ */
+export const getChanges = async (token, since = 0, limit) => {
+  if (!token) {
+    throw new Error('Token inválido o ausente');
+  }
+
+  const response = await axios.get(`${API_URL}/sync/changes`, {
+    params: { since, limit },
+    headers: {
+      'Content-Type': 'application/json',
+      'Authorization': `Bearer ${token}`
+    }
+  });
+  return response.data;
+};
+
+/**
+ * Envía en una sola petición un lote de registros de Health Connect.
+ * @param {string} token - Token de autenticación
+ * @param {object} batch - { exerciseSessions: [], sleepSessions: [], dailySteps: [] }
+ * @returns {Promise<object>} - Resultado por registro para cada lista, en el mismo orden del lote
+ */
+export const syncHealthConnectBatch = async (token, batch) => {
+  if (!token) {
+    throw new Error('Token inválido o ausente');
+  }
+
+  const response = await axios.post(
+    `${API_URL}/sync/healthconnect`,
+    {
+      exerciseSessions: batch.exerciseSessions || [],
+      sleepSessions: batch.sleepSessions || [],
+      dailySteps: batch.dailySteps || []
+    },
+    {
+      headers: {
+        'Content-Type': 'application/json',
+        'Authorization': `Bearer ${token}`
+      }
+    }
+  );
+
+  ActivityCache.invalidateCache();
+  return response.data;
+};
@@ -1,4 +1,5 @@
 import axios from 'axios';
+import { Platform } from 'react-native';
 import { ProfileImageCache } from '../cache/ProfileImageCache';
 const API_URL = "http://10.0.2.2:8080";
 
@@ -106,8 +107,8 @@ export const uploadProfileImage = async (token, imageFile) =>{
   }
 }
 
-// Método para obtener la imagen de perfil
-export const getProfileImage = async (token) => {
+// Método para obtener la imagen de perfil (variante cuadrada de `size` píxeles)
+export const getProfileImage = async (token, size = 512) => {
   try {
     if (!token) {
       throw new Error('Token inválido o ausente');
@@ -126,21 +127,29 @@ export const getProfileImage = async (token) => {
       }
     };
 
+    // El servidor devuelve solo los metadatos; los bytes se sirven desde una URL versionada por hash
     const response = await axios.get(`${API_URL}/user/profile-image`, config);
     
-    // Verificar que la respuesta contiene los datos necesarios
-    if (!response.data || !response.data.imageData || !response.data.imageType) {
+    if (!response.data || !response.data.url || !response.data.contentHash) {
       console.log('Respuesta del servidor no contiene datos de imagen válidos');
       return null;
     }
+
+    // Si ya tenemos esta versión, no hace falta volver a descargarla
+    const versionKey = `${response.data.contentHash}@${size}`;
+    const sameVersion = await ProfileImageCache.getImageForHash(versionKey);
+    if (sameVersion) {
+      return sameVersion;
+    }
     
-    // Crear URI de datos con el tipo de imagen y los datos en base64
-    const imageUri = `data:${response.data.imageType};base64,${response.data.imageData}`;
-    
-    // Guardar en caché
-    if (imageUri) {
-      await ProfileImageCache.saveImageToCache(imageUri);
+    const filePath = await ProfileImageCache.saveImageToCache(`${API_URL}${response.data.url}?size=${size}`, {
+      headers: config.headers,
+      contentHash: versionKey,
+    });
+    if (!filePath) {
+      return null;
     }
+    const imageUri = Platform.OS === 'ios' ? filePath : `file://${filePath}`;
     
     return imageUri;
   } catch (error) {
@@ -187,6 +187,23 @@ export const getBackendActivityType = (exerciseType) => {
   return 'OTHER';
 };
 
+/**
+ * Devuelve el nombre de la constante de Health Connect (EXERCISE_TYPE_*) para un código numérico.
+ * El backend hace la traducción a su propio tipo con HealthConnectMapper.
+ */
+export const getExerciseTypeConstant = (exerciseType) => {
+  const typeCode = typeof exerciseType === 'string'
+    ? parseInt(exerciseType, 10)
+    : exerciseType;
+
+  for (const [keyName, value] of Object.entries(EXERCISE_TYPES)) {
+    if (value === typeCode) {
+      return keyName;
+    }
+  }
+  return 'EXERCISE_TYPE_OTHER_WORKOUT';
+};
+
 // Mapeo de tipo de ejercicio a nombre en español
 export const getExerciseTypeName = (exerciseType) => {
   // Si recibimos un string, intentamos convertirlo a número